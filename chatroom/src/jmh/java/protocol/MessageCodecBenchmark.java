@@ -0,0 +1,124 @@
+package protocol;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks encoding and decoding of the chat messages every client sends, for each concrete
+ * message type and for ASCII and multi-byte UTF-8 text.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageCodecBenchmark {
+
+  /**
+   * The message type.
+   */
+  @Param({"connect", "connectResponse", "disconnect", "queryUsers", "broadcast", "direct",
+      "failed", "insult", "room"})
+  public String type;
+
+  /**
+   * The kind of text in the message.
+   */
+  @Param({Payloads.ASCII, Payloads.MULTI_BYTE})
+  public String text;
+
+  private Message message;
+  private byte[] encoded;
+  private ByteBuffer encodedBuffer;
+  private final BufferPool pool = new BufferPool(BufferPool.DEFAULT_BUFFER_SIZE, 1, true);
+
+  /**
+   * Build the message and its encoding once per trial.
+   *
+   * @throws IOException for exceptions
+   */
+  @Setup
+  public void setUp() throws IOException {
+    String sender = Payloads.word(text) + "Sender";
+    String recipient = Payloads.word(text) + "Recipient";
+    String body = Payloads.message(text);
+    message = switch (type) {
+      case "connectResponse" -> new ConnectResponse(true, body);
+      case "disconnect" -> new DisconnectMessage(sender);
+      case "queryUsers" -> new QueryUsersMessage(sender);
+      case "broadcast" -> new BroadcastMessage(sender, body);
+      case "direct" -> new DirectMessage(sender, recipient, body);
+      case "connect" -> new ConnectMessage(sender);
+      case "failed" -> new FailedMessage(body);
+      case "insult" -> new SendInsultMessage(sender, recipient);
+      case "room" -> new RoomMessage(sender, Payloads.word(text) + "Room", body);
+      default -> throw new IllegalArgumentException("Unknown message type: " + type);
+    };
+    encoded = message.encode();
+    encodedBuffer = ByteBuffer.allocateDirect(encoded.length);
+    encodedBuffer.put(encoded).flip();
+  }
+
+  /**
+   * Encode the message into a new array.
+   *
+   * @return the encoded message
+   * @throws IOException for exceptions
+   */
+  @Benchmark
+  public byte[] encode() throws IOException {
+    return message.encode();
+  }
+
+  /**
+   * Decode the message through the type dispatch in decodeFromStream.
+   *
+   * @return the decoded message
+   * @throws IOException for exceptions
+   */
+  @Benchmark
+  public Message decodeFromStream() throws IOException {
+    return Message.decodeFromStream(new DataInputStream(new ByteArrayInputStream(encoded)));
+  }
+
+  /**
+   * Encode the message into a pooled direct buffer.
+   *
+   * @return the number of bytes written
+   * @throws IOException for exceptions
+   */
+  @Benchmark
+  public int encodeToBuffer() throws IOException {
+    ByteBuffer buffer = pool.acquire(message.encodedLength());
+    message.encode(buffer);
+    int written = buffer.position();
+    pool.release(buffer);
+    return written;
+  }
+
+  /**
+   * Decode the message straight out of a direct buffer.
+   *
+   * @return the decoded message
+   * @throws IOException for exceptions
+   */
+  @Benchmark
+  public Message decodeFromBuffer() throws IOException {
+    return Message.decodeFromBuffer(encodedBuffer.duplicate());
+  }
+}
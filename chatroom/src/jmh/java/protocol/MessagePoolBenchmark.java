@@ -0,0 +1,84 @@
+package protocol;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks the server's decode loop for the messages it decodes in full, with and without a
+ * {@link MessagePool}. Run it with the GC profiler to see the allocation per message:
+ * {@code gradle jmh -PjmhArgs="MessagePool -prof gc"}. {@code gc.alloc.rate.norm} is the bytes
+ * allocated per decoded message, so at 100,000 messages a second the garbage made each second is
+ * that figure times 100,000.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessagePoolBenchmark {
+
+  /**
+   * Whether messages are decoded into a pool.
+   */
+  @Param({"false", "true"})
+  public boolean pooled;
+
+  private ByteBuffer[] frames;
+  private MessagePool pool;
+  private int next;
+
+  /**
+   * Encode a mix of the messages a client sends besides chat once per trial.
+   *
+   * @throws IOException for exceptions
+   */
+  @Setup
+  public void setUp() throws IOException {
+    Message[] messages = {
+        new JoinRoomMessage("alice", "general"),
+        new QueryUsersMessage("alice"),
+        new QueryUsersPageMessage("alice", "b", "", QueryUsersPageMessage.DEFAULT_PAGE_SIZE),
+        new SubscribePresenceMessage("alice", true),
+        new ListRoomsMessage("alice"),
+        new LeaveRoomMessage("alice", "general")
+    };
+    frames = new ByteBuffer[messages.length];
+    for (int i = 0; i < messages.length; i++) {
+      byte[] bytes = messages[i].encode();
+      frames[i] = ByteBuffer.allocateDirect(bytes.length);
+      frames[i].put(bytes).flip();
+    }
+    pool = pooled ? new MessagePool() : null;
+  }
+
+  /**
+   * Decode the next frame, hand the message on and release it, as the server's read loop does.
+   *
+   * @param blackhole consumes the message
+   * @throws IOException for exceptions
+   */
+  @Benchmark
+  public void decode(Blackhole blackhole) throws IOException {
+    ByteBuffer frame = frames[next].duplicate();
+    next = next + 1 == frames.length ? 0 : next + 1;
+    RoutingView view = RoutingView.decodeFromBuffer(frame, pool);
+    blackhole.consume(view.getMessage());
+    if (pool != null) {
+      pool.release(view);
+    }
+  }
+}
@@ -0,0 +1,74 @@
+package protocol;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Text used by the protocol benchmarks. ASCII text encodes to one byte per character, while the
+ * multi-byte text mixes two and three byte characters with surrogate pairs, which exercises the
+ * slow path of the UTF-8 encoder and decoder.
+ */
+final class Payloads {
+
+  /**
+   * Selects ASCII text.
+   */
+  static final String ASCII = "ascii";
+  /**
+   * Selects multi-byte UTF-8 text.
+   */
+  static final String MULTI_BYTE = "multibyte";
+
+  private static final String ASCII_WORD = "hello";
+  // e with an acute accent, two CJK characters and an emoji
+  private static final String MULTI_BYTE_WORD = "h\u00e9llo\u4f60\u597d\ud83d\ude00";
+  private static final int MESSAGE_WORDS = 20;
+
+  private Payloads() {
+  }
+
+  /**
+   * get the word repeated by the selected text kind
+   *
+   * @param text ASCII or MULTI_BYTE
+   * @return the word
+   */
+  static String word(String text) {
+    return switch (text) {
+      case ASCII -> ASCII_WORD;
+      case MULTI_BYTE -> MULTI_BYTE_WORD;
+      default -> throw new IllegalArgumentException("Unknown text kind: " + text);
+    };
+  }
+
+  /**
+   * get a chat message body of a typical length
+   *
+   * @param text ASCII or MULTI_BYTE
+   * @return the message body
+   */
+  static String message(String text) {
+    String word = word(text);
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < MESSAGE_WORDS; i++) {
+      builder.append(word).append(' ');
+    }
+    return builder.toString();
+  }
+
+  /**
+   * get the given number of distinct usernames
+   *
+   * @param text  ASCII or MULTI_BYTE
+   * @param count the number of usernames
+   * @return the usernames
+   */
+  static List<String> usernames(String text, int count) {
+    String word = word(text);
+    List<String> usernames = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      usernames.add(word + i);
+    }
+    return usernames;
+  }
+}
@@ -0,0 +1,89 @@
+package protocol;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the user list reply, whose cost grows with the number of connected users.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryUsersResponseBenchmark {
+
+  /**
+   * The number of users in the reply.
+   */
+  @Param({"10", "1000", "100000"})
+  public int users;
+
+  /**
+   * The kind of text in the usernames.
+   */
+  @Param({Payloads.ASCII, Payloads.MULTI_BYTE})
+  public String text;
+
+  private QueryUsersResponse response;
+  private byte[] encoded;
+
+  /**
+   * Build the reply and its encoding once per trial.
+   *
+   * @throws IOException for exceptions
+   */
+  @Setup
+  public void setUp() throws IOException {
+    response = new QueryUsersResponse(Payloads.usernames(text, users));
+    encoded = response.encode();
+  }
+
+  /**
+   * Encode the reply into a new array.
+   *
+   * @return the encoded reply
+   * @throws IOException for exceptions
+   */
+  @Benchmark
+  public byte[] encode() throws IOException {
+    return response.encode();
+  }
+
+  /**
+   * Decode the reply.
+   *
+   * @return the decoded reply
+   * @throws IOException for exceptions
+   */
+  @Benchmark
+  public Message decodeFromStream() throws IOException {
+    return Message.decodeFromStream(new DataInputStream(new ByteArrayInputStream(encoded)));
+  }
+
+  /**
+   * Decode the reply straight out of a heap buffer.
+   *
+   * @return the decoded reply
+   * @throws IOException for exceptions
+   */
+  @Benchmark
+  public Message decodeFromBuffer() throws IOException {
+    return Message.decodeFromBuffer(ByteBuffer.wrap(encoded));
+  }
+}
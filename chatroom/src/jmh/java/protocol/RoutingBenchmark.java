@@ -0,0 +1,75 @@
+package protocol;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks what the server does with an incoming direct message: decode it in full and encode
+ * it again for the recipient, or read only its header and forward the frame as it arrived.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoutingBenchmark {
+
+  /**
+   * The kind of text in the message.
+   */
+  @Param({Payloads.ASCII, Payloads.MULTI_BYTE})
+  public String text;
+
+  private ByteBuffer encoded;
+
+  /**
+   * Encode the incoming message once per trial.
+   *
+   * @throws IOException for exceptions
+   */
+  @Setup
+  public void setUp() throws IOException {
+    String word = Payloads.word(text);
+    byte[] bytes = new DirectMessage(word + "Sender", word + "Recipient",
+        Payloads.message(text)).encode();
+    encoded = ByteBuffer.allocateDirect(bytes.length);
+    encoded.put(bytes).flip();
+  }
+
+  /**
+   * Decode every field, then build the outgoing frame from the decoded message.
+   *
+   * @return the outgoing frame
+   * @throws IOException for exceptions
+   */
+  @Benchmark
+  public Frame decodeAndReencode() throws IOException {
+    DirectMessage direct = (DirectMessage) Message.decodeFromBuffer(encoded.duplicate());
+    return Frame.of(new DirectMessage(direct.getSenderUsername(), direct.getRecipientUsername(),
+        direct.getMessage()));
+  }
+
+  /**
+   * Read the header and forward the frame as it arrived.
+   *
+   * @return the outgoing frame
+   * @throws IOException for exceptions
+   */
+  @Benchmark
+  public Frame routeVerbatim() throws IOException {
+    return RoutingView.decodeFromBuffer(encoded.duplicate()).toFrame();
+  }
+}
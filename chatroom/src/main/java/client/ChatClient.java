@@ -3,6 +3,7 @@ package client;
 import java.io.*;
 import java.net.*;
 import java.util.Objects;
+import protocol.WireFormat;
 
 /**
  * Represent a client who want to connect to the chat
@@ -64,7 +65,7 @@ public class ChatClient {
       in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
       out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
       serverMessageProcessor = new ServerMessageProcessor(in, chatUI);
-      chatMessageHandler = new ChatMessageHandler(out, chatUI);
+      chatMessageHandler = new ChatMessageHandler(out, chatUI, WireFormat.FRAMED);
     } catch (IOException | NumberFormatException e) {
       throw new IOException(INITIALIZE_HOST_ERROR_MESSAGE);
     }
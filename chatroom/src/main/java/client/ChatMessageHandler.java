@@ -9,8 +9,17 @@ import protocol.BroadcastMessage;
 import protocol.ConnectMessage;
 import protocol.DirectMessage;
 import protocol.DisconnectMessage;
-import protocol.QueryUsersMessage;
+import protocol.JoinRoomMessage;
+import protocol.LeaveRoomMessage;
+import protocol.ListRoomsMessage;
+import protocol.Message;
+import protocol.QueryHistoryMessage;
+import protocol.QueryUsersPageMessage;
+import protocol.QueryUsersPageResponse;
+import protocol.RoomMessage;
 import protocol.SendInsultMessage;
+import protocol.SubscribePresenceMessage;
+import protocol.WireFormat;
 
 /**
  * Represent the Handler for client to server
@@ -19,6 +28,7 @@ public class ChatMessageHandler {
 
   private static final String INSULT_MARKER = "!";
   private static final String COMMAND_PREFIX_AT = "@";
+  private static final String ROOM_PREFIX = "#";
 
   /**
    * Help command symbol.
@@ -36,6 +46,38 @@ public class ChatMessageHandler {
    * Command to query connected users.
    */
   private static final String QUERY_USERS_COMMAND = "who";
+  /**
+   * Command to fetch the next page of users.
+   */
+  private static final String MORE_USERS_COMMAND = "more";
+  /**
+   * Command to start watching users come and go.
+   */
+  private static final String WATCH_COMMAND = "watch";
+  /**
+   * Command to stop watching users come and go.
+   */
+  private static final String UNWATCH_COMMAND = "unwatch";
+  /**
+   * Command to list the users online from the local roster.
+   */
+  private static final String ONLINE_COMMAND = "online";
+  /**
+   * Command to join a room.
+   */
+  private static final String JOIN_ROOM_COMMAND = "join";
+  /**
+   * Command to leave a room.
+   */
+  private static final String LEAVE_ROOM_COMMAND = "leave";
+  /**
+   * Command to list the rooms.
+   */
+  private static final String LIST_ROOMS_COMMAND = "rooms";
+  /**
+   * Command to show the latest messages of the main chat or a room.
+   */
+  private static final String HISTORY_COMMAND = "history";
   /**
    * Keyword for broadcast messages.
    */
@@ -49,10 +91,21 @@ public class ChatMessageHandler {
    */
   public static final String HELP_MESSAGE = "Help instructions: \n"
       + LOGOFF_COMMAND + ": exit the chat room\n"
-      + QUERY_USERS_COMMAND + ": find out who else in the chat\n"
+      + QUERY_USERS_COMMAND + " [prefix]: find out who else in the chat, optionally only users"
+      + " whose names start with prefix\n"
+      + MORE_USERS_COMMAND + ": shows the next page of users\n"
+      + WATCH_COMMAND + ": shows users as they come online and go offline\n"
+      + UNWATCH_COMMAND + ": stops showing users come and go\n"
+      + ONLINE_COMMAND + ": lists the users online while watching, without asking the server\n"
       + COMMAND_PREFIX_AT + "<username>: sends a private message to the specified user\n"
       + BROADCAST_COMMAND + ": sends a broadcast message to " + BROADCAST_KEYWORD + " users\n"
       + INSULT_MARKER + "<username>: sends a random insult message to the specified user\n"
+      + JOIN_ROOM_COMMAND + " <room>: joins a room, creating it if needed\n"
+      + LEAVE_ROOM_COMMAND + " <room>: leaves a room\n"
+      + LIST_ROOMS_COMMAND + ": lists the rooms\n"
+      + ROOM_PREFIX + "<room>: sends a message to everyone in a room you have joined\n"
+      + HISTORY_COMMAND + " [" + ROOM_PREFIX + "room] [n]: shows the last n messages of the chat,"
+      + " or of a room you have joined\n"
       + HELP_COMMAND + ": shows this help message\n";
   /**
    * Error message for empty chat messages.
@@ -70,6 +123,14 @@ public class ChatMessageHandler {
    * Error message for failed query users message sending.
    */
   public static final String QUERY_USERS_FAILED_ERROR = "Failed to send Query Users Message";
+  /**
+   * Error message for asking for more users when the last page has been shown.
+   */
+  public static final String NO_MORE_USERS_ERROR = "No more users to show.";
+  /**
+   * Error message for failed subscribe presence message sending.
+   */
+  public static final String PRESENCE_SEND_ERROR = "Failed to send Subscribe Presence Message";
   /**
    * Error message for failed broadcast message sending.
    */
@@ -82,20 +143,41 @@ public class ChatMessageHandler {
    * Error message for failed disconnect message sending.
    */
   public static final String DISCONNECT_FAILED_ERROR = "Failed to send disconnect";
+  /**
+   * Error message for failed room command sending.
+   */
+  public static final String ROOM_SEND_ERROR = "Failed to send room command";
+  /**
+   * Error message for failed query history message sending.
+   */
+  public static final String HISTORY_SEND_ERROR = "Failed to send Query History Message";
 
   private final DataOutputStream out;
   private final ChatUI chatUI;
+  private final WireFormat wireFormat;
   private String username;
 
   /**
    * Construct a ClientToServerHandler instance with given input:
    *
+   * @param out        DataOutputStream
+   * @param chatUI     ChatUI
+   * @param wireFormat the wire format messages are sent in
+   */
+  public ChatMessageHandler(DataOutputStream out, ChatUI chatUI, WireFormat wireFormat) {
+    this.out = out;
+    this.chatUI = chatUI;
+    this.wireFormat = wireFormat;
+  }
+
+  /**
+   * Construct a ClientToServerHandler instance that sends the legacy wire format:
+   *
    * @param out    DataOutputStream
    * @param chatUI ChatUI
    */
   public ChatMessageHandler(DataOutputStream out, ChatUI chatUI) {
-    this.out = out;
-    this.chatUI = chatUI;
+    this(out, chatUI, WireFormat.LEGACY);
   }
 
   /**
@@ -107,11 +189,21 @@ public class ChatMessageHandler {
     // Patterns for different commands
     Pattern helpPattern = Pattern.compile("^" + HELP_COMMAND_ESCAPED + "$");
     Pattern logoffPattern = Pattern.compile("^" + LOGOFF_COMMAND + "$");
-    Pattern whoPattern = Pattern.compile("^" + QUERY_USERS_COMMAND + "$");
+    Pattern whoPattern = Pattern.compile("^" + QUERY_USERS_COMMAND + "(?:\\s+(\\S+))?$");
+    Pattern morePattern = Pattern.compile("^" + MORE_USERS_COMMAND + "$");
+    Pattern watchPattern = Pattern.compile("^" + WATCH_COMMAND + "$");
+    Pattern unwatchPattern = Pattern.compile("^" + UNWATCH_COMMAND + "$");
+    Pattern onlinePattern = Pattern.compile("^" + ONLINE_COMMAND + "$");
     Pattern insultPattern = Pattern.compile("^" + INSULT_MARKER + "(\\S+)$");
     Pattern broadcastPattern = Pattern.compile("^" + COMMAND_PREFIX_AT + BROADCAST_KEYWORD
         + "\\s?(.*)$");
     Pattern directMessagePattern = Pattern.compile(COMMAND_PREFIX_AT + "(\\S+)\\s?(.*)");
+    Pattern joinPattern = Pattern.compile("^" + JOIN_ROOM_COMMAND + "\\s+(\\S+)$");
+    Pattern leavePattern = Pattern.compile("^" + LEAVE_ROOM_COMMAND + "\\s+(\\S+)$");
+    Pattern roomsPattern = Pattern.compile("^" + LIST_ROOMS_COMMAND + "$");
+    Pattern roomMessagePattern = Pattern.compile("^" + ROOM_PREFIX + "(\\S+)\\s?(.*)$");
+    Pattern historyPattern = Pattern.compile("^" + HISTORY_COMMAND + "(?:\\s+" + ROOM_PREFIX
+        + "(\\S+))?(?:\\s+(\\d{1,9}))?$");
 
     Matcher matcher;
     input = input.toLowerCase().trim();
@@ -120,11 +212,44 @@ public class ChatMessageHandler {
       chatUI.showMessage(HELP_MESSAGE);
     } else if ((logoffPattern.matcher(input)).matches()) {
       sendDisconnectMessage();
-    } else if ((whoPattern.matcher(input)).matches()) {
-      sendQueryUsersMessage();
+    } else if ((matcher = whoPattern.matcher(input)).matches()) {
+      String prefix = matcher.group(1);
+      sendQueryUsersPage(prefix != null ? prefix : Message.EMPTY_STRING, Message.EMPTY_STRING);
+    } else if ((morePattern.matcher(input)).matches()) {
+      QueryUsersPageResponse lastPage = chatUI.getLastUsersPage();
+      if (lastPage == null || !lastPage.hasMore()) {
+        chatUI.showErrorMessage(NO_MORE_USERS_ERROR);
+        return;
+      }
+      sendQueryUsersPage(lastPage.getPrefix(), lastPage.getNextCursor());
+    } else if ((watchPattern.matcher(input)).matches()) {
+      sendSubscribePresence(true);
+    } else if ((unwatchPattern.matcher(input)).matches()) {
+      chatUI.getRoster().clear();
+      sendSubscribePresence(false);
+    } else if ((onlinePattern.matcher(input)).matches()) {
+      chatUI.showRoster();
     } else if ((matcher = insultPattern.matcher(input)).matches()) {
       String username = matcher.group(1);
       sendSendInsultMessage(username);
+    } else if ((matcher = joinPattern.matcher(input)).matches()) {
+      sendRoomCommand(new JoinRoomMessage(username, matcher.group(1)));
+    } else if ((matcher = leavePattern.matcher(input)).matches()) {
+      sendRoomCommand(new LeaveRoomMessage(username, matcher.group(1)));
+    } else if ((matcher = historyPattern.matcher(input)).matches()) {
+      String room = matcher.group(1);
+      String limit = matcher.group(2);
+      sendQueryHistory(room != null ? room : Message.EMPTY_STRING,
+          limit != null ? Integer.parseInt(limit) : QueryHistoryMessage.DEFAULT_LIMIT);
+    } else if ((roomsPattern.matcher(input)).matches()) {
+      sendRoomCommand(new ListRoomsMessage(username));
+    } else if ((matcher = roomMessagePattern.matcher(input)).matches()) {
+      String message = matcher.group(2);
+      if (message.isEmpty()) {
+        chatUI.showErrorMessageWithHelp(EMPTY_MESSAGE_ERROR);
+        return;
+      }
+      sendRoomCommand(new RoomMessage(username, matcher.group(1), message));
     } else if ((matcher = broadcastPattern.matcher(input)).matches()) {
       String message = matcher.group(1);
       if (message.isEmpty()) {
@@ -148,25 +273,41 @@ public class ChatMessageHandler {
   private void sendSendInsultMessage(String recipientUsername) {
     try {
       SendInsultMessage sendInsultMessage = new SendInsultMessage(username, recipientUsername);
-      sendInsultMessage.sendToStream(out);
+      sendInsultMessage.sendToStream(out, wireFormat);
     } catch (IOException e) {
       chatUI.showErrorMessage(INSULT_SEND_FAILED_ERROR);
     }
   }
 
-  private void sendQueryUsersMessage() {
+  private void sendQueryUsersPage(String prefix, String after) {
     try {
-      QueryUsersMessage queryUsersMessage = new QueryUsersMessage(username);
-      queryUsersMessage.sendToStream(out);
+      new QueryUsersPageMessage(username, prefix, after, QueryUsersPageMessage.DEFAULT_PAGE_SIZE)
+          .sendToStream(out, wireFormat);
     } catch (IOException e) {
       chatUI.showErrorMessage(QUERY_USERS_FAILED_ERROR);
     }
   }
 
+  private void sendSubscribePresence(boolean subscribe) {
+    try {
+      new SubscribePresenceMessage(username, subscribe).sendToStream(out, wireFormat);
+    } catch (IOException e) {
+      chatUI.showErrorMessage(PRESENCE_SEND_ERROR);
+    }
+  }
+
+  private void sendQueryHistory(String roomName, int limit) {
+    try {
+      new QueryHistoryMessage(username, roomName, limit, 0).sendToStream(out, wireFormat);
+    } catch (IOException e) {
+      chatUI.showErrorMessage(HISTORY_SEND_ERROR);
+    }
+  }
+
   private void sendBroadcastMessage(String message) {
     try {
       BroadcastMessage broadcastMessage = new BroadcastMessage(username, message);
-      broadcastMessage.sendToStream(out);
+      broadcastMessage.sendToStream(out, wireFormat);
     } catch (IOException e) {
       chatUI.showErrorMessage(BROADCAST_SEND_ERROR);
     }
@@ -175,16 +316,24 @@ public class ChatMessageHandler {
   private void sendDirectMessage(String recipient, String message) {
     try {
       DirectMessage directMessage = new DirectMessage(username, recipient, message);
-      directMessage.sendToStream(out);
+      directMessage.sendToStream(out, wireFormat);
     } catch (IOException e) {
       chatUI.showErrorMessage(DIRECT_SEND_ERROR);
     }
   }
 
+  private void sendRoomCommand(Message message) {
+    try {
+      message.sendToStream(out, wireFormat);
+    } catch (IOException e) {
+      chatUI.showErrorMessage(ROOM_SEND_ERROR);
+    }
+  }
+
   private void sendDisconnectMessage() {
     try {
       DisconnectMessage disconnectMessage = new DisconnectMessage(username);
-      disconnectMessage.sendToStream(out);
+      disconnectMessage.sendToStream(out, wireFormat);
     } catch (IOException e) {
       chatUI.showErrorMessage(DISCONNECT_FAILED_ERROR);
     }
@@ -198,8 +347,8 @@ public class ChatMessageHandler {
    */
   public void connectToChat(String username) throws IOException {
     this.username = username;
-    // Send ConnectMessage to the server
-    new ConnectMessage(username).sendToStream(out);
+    // Send ConnectMessage to the server, whose replies then come back in the same format
+    new ConnectMessage(username).sendToStream(out, wireFormat);
     // Wait for server response
   }
 
@@ -210,12 +359,12 @@ public class ChatMessageHandler {
     }
     ChatMessageHandler that = (ChatMessageHandler) o;
     return Objects.equals(out, that.out) && Objects.equals(chatUI, that.chatUI)
-        && Objects.equals(username, that.username);
+        && wireFormat == that.wireFormat && Objects.equals(username, that.username);
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(out, chatUI, username);
+    return Objects.hash(out, chatUI, wireFormat, username);
   }
 
   @Override
@@ -223,6 +372,7 @@ public class ChatMessageHandler {
     return "ChatMessageHandler{" +
         "out=" + out +
         ", chatUI=" + chatUI +
+        ", wireFormat=" + wireFormat +
         ", username='" + username + '\'' +
         '}';
   }
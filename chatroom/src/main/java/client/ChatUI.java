@@ -4,13 +4,21 @@ import static client.ChatMessageHandler.HELP_COMMAND;
 
 import java.io.InputStream;
 import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 import java.util.Scanner;
 import protocol.BroadcastMessage;
 import protocol.ConnectResponse;
 import protocol.DirectMessage;
 import protocol.FailedMessage;
+import protocol.HistoryResponse;
+import protocol.ListRoomsResponse;
+import protocol.PresenceSnapshot;
+import protocol.PresenceUpdate;
+import protocol.QueryUsersPageResponse;
 import protocol.QueryUsersResponse;
+import protocol.RoomMessage;
 
 /**
  * Represent the UI for the client and handle the user input
@@ -80,6 +88,22 @@ public class ChatUI {
    * Separator for username and message.
    */
   public static final String COLON_SEPARATOR = ": ";
+  /**
+   * Prefix for room messages, followed by the room name.
+   */
+  public static final String ROOM_PREFIX = System.lineSeparator() + "(#";
+  /**
+   * Closes the room name of a room message.
+   */
+  public static final String ROOM_SUFFIX = ") ";
+  /**
+   * Message shown when no room has members.
+   */
+  public static final String NO_ROOMS_MESSAGE = "No rooms";
+  /**
+   * Prefix for room list display.
+   */
+  public static final String ROOMS_PREFIX = "Rooms: ";
   /**
    * Prefix for server messages.
    */
@@ -100,6 +124,50 @@ public class ChatUI {
    * Prefix for listing connected users.
    */
   public static final String CONNECTED_USERS_PREFIX = "Connected Users: ";
+  /**
+   * Message when no other user's name starts with the prefix asked for.
+   */
+  public static final String NO_MATCHING_USERS_PREFIX = "No other users starting with ";
+  /**
+   * Hint shown under a page of users that has more after it.
+   */
+  public static final String MORE_USERS_HINT = "Type \"more\" to see more users.";
+  /**
+   * Prefix for presence updates.
+   */
+  public static final String PRESENCE_PREFIX = System.lineSeparator() + "(presence) ";
+  /**
+   * Suffix for a user coming online.
+   */
+  public static final String ONLINE_SUFFIX = " is online";
+  /**
+   * Suffix for a user going offline.
+   */
+  public static final String OFFLINE_SUFFIX = " went offline";
+  /**
+   * Prefix for listing the users online.
+   */
+  public static final String ONLINE_USERS_PREFIX = "Online: ";
+  /**
+   * Message when the roster is asked for before watching presence.
+   */
+  public static final String NOT_WATCHING_MESSAGE = "Not watching presence. Type \"watch\" first.";
+  /**
+   * Message when there are no earlier messages to show.
+   */
+  public static final String NO_HISTORY_MESSAGE = "No earlier messages";
+  /**
+   * Prefix for the count of earlier messages that follow.
+   */
+  public static final String HISTORY_PREFIX = "Last ";
+  /**
+   * Suffix for the count of earlier messages that follow.
+   */
+  public static final String HISTORY_SUFFIX = " messages";
+  /**
+   * Prefix for the room earlier messages were sent to.
+   */
+  public static final String HISTORY_ROOM_PREFIX = " in #";
   /**
    * Separator for listing multiple items.
    */
@@ -113,6 +181,9 @@ public class ChatUI {
   private PrintStream outStream;
   private PrintStream errorStream;
   private InputStream inputStream;
+  private volatile QueryUsersPageResponse lastUsersPage;
+  private volatile String username;
+  private final Roster roster = new Roster();
 
   /**
    * Construct a ChatUI instance
@@ -165,7 +236,8 @@ public class ChatUI {
    * @return username string
    */
   public String login() {
-    return getNonEmptyValueFromUser(USERNAME_PROMPT);
+    username = getNonEmptyValueFromUser(USERNAME_PROMPT);
+    return username;
   }
 
   /**
@@ -317,6 +389,44 @@ public class ChatUI {
         direct.getRecipientUsername());
   }
 
+  /**
+   * show a message sent to a room
+   *
+   * @param room input RoomMessage
+   */
+  public void showRoomMessage(RoomMessage room) {
+    showMessage(ROOM_PREFIX + room.getRoomName() + ROOM_SUFFIX + room.getSenderUsername()
+        + COLON_SEPARATOR + room.getMessage());
+  }
+
+  /**
+   * show the list rooms response message
+   *
+   * @param roomsResponse input ListRoomsResponse
+   */
+  public void showListRoomsResponse(ListRoomsResponse roomsResponse) {
+    if (roomsResponse.getRoomNames().isEmpty()) {
+      showServerMessage(NO_ROOMS_MESSAGE);
+      return;
+    }
+    showServerMessage(ROOMS_PREFIX + String.join(COMMA_SEPARATOR, roomsResponse.getRoomNames()));
+  }
+
+  /**
+   * show how many earlier messages follow; they are shown as they arrive, like any others
+   *
+   * @param history input HistoryResponse
+   */
+  public void showHistoryResponse(HistoryResponse history) {
+    String room = history.getRoomName().isEmpty() ? EMPTY_STRING
+        : HISTORY_ROOM_PREFIX + history.getRoomName();
+    if (history.getCount() == 0) {
+      showServerMessage(NO_HISTORY_MESSAGE + room);
+      return;
+    }
+    showServerMessage(HISTORY_PREFIX + history.getCount() + HISTORY_SUFFIX + room + ":");
+  }
+
   /**
    * show the failed message
    *
@@ -327,17 +437,89 @@ public class ChatUI {
   }
 
   /**
-   * show the query users response message
+   * show the query users response message, leaving out the user's own name, which the server
+   * lists along with everyone else
    *
    * @param queryResponse input QueryUsersResponse
    */
   public void showQueryUsersResponse(QueryUsersResponse queryResponse) {
-    if (queryResponse.getConnectedUsers().isEmpty()) {
+    List<String> others = new ArrayList<>(queryResponse.getConnectedUsers());
+    others.remove(username);
+    if (others.isEmpty()) {
       showServerMessage(NO_OTHER_CONNECTED_USERS_MESSAGE);
       return;
     }
-    showServerMessage(
-        CONNECTED_USERS_PREFIX + String.join(COMMA_SEPARATOR, queryResponse.getConnectedUsers()));
+    showServerMessage(CONNECTED_USERS_PREFIX + String.join(COMMA_SEPARATOR, others));
+  }
+
+  /**
+   * show one page of users, and remember it so the next page can be asked for
+   *
+   * @param page input QueryUsersPageResponse
+   */
+  public void showQueryUsersPageResponse(QueryUsersPageResponse page) {
+    lastUsersPage = page;
+    if (page.getUsers().isEmpty()) {
+      showServerMessage(page.getPrefix().isEmpty() ? NO_OTHER_CONNECTED_USERS_MESSAGE
+          : NO_MATCHING_USERS_PREFIX + page.getPrefix());
+      return;
+    }
+    showServerMessage(CONNECTED_USERS_PREFIX + String.join(COMMA_SEPARATOR, page.getUsers()));
+    if (page.hasMore()) {
+      showMessage(MORE_USERS_HINT);
+    }
+  }
+
+  /**
+   * get the page of users shown last
+   *
+   * @return the last page, or null if none has been shown
+   */
+  public QueryUsersPageResponse getLastUsersPage() {
+    return lastUsersPage;
+  }
+
+  /**
+   * show the users online when presence is first watched, and start the roster from them
+   *
+   * @param snapshot input PresenceSnapshot
+   */
+  public void showPresenceSnapshot(PresenceSnapshot snapshot) {
+    roster.replace(snapshot.getConnectedUsers());
+    showRoster();
+  }
+
+  /**
+   * show a user coming online or going offline, and apply it to the roster
+   *
+   * @param update input PresenceUpdate
+   */
+  public void showPresenceUpdate(PresenceUpdate update) {
+    roster.apply(update);
+    showMessage(PRESENCE_PREFIX + update.getUsername()
+        + (update.isOnline() ? ONLINE_SUFFIX : OFFLINE_SUFFIX));
+  }
+
+  /**
+   * show the users online from the local roster, without asking the server
+   */
+  public void showRoster() {
+    if (!roster.isWatching()) {
+      showErrorMessage(NOT_WATCHING_MESSAGE);
+      return;
+    }
+    List<String> users = roster.getUsers();
+    showMessage(users.isEmpty() ? NO_OTHER_CONNECTED_USERS_MESSAGE
+        : ONLINE_USERS_PREFIX + String.join(COMMA_SEPARATOR, users));
+  }
+
+  /**
+   * get the roster of users online
+   *
+   * @return the roster
+   */
+  public Roster getRoster() {
+    return roster;
   }
 
   /**
@@ -0,0 +1,58 @@
+package client;
+
+/**
+ * Enum class for the kinds of traffic the load generator sends
+ */
+public enum LoadAction {
+  /**
+   * a message to every user
+   */
+  BROADCAST("broadcast"),
+  /**
+   * a private message to one random user
+   */
+  DIRECT("direct"),
+  /**
+   * a query for the connected users
+   */
+  WHO("who"),
+  /**
+   * an insult aimed at one random user
+   */
+  INSULT("insult");
+
+  private final String argument;
+
+  /**
+   * pairing the action with its name in the traffic mix
+   *
+   * @param argument the name in the traffic mix
+   */
+  LoadAction(String argument) {
+    this.argument = argument;
+  }
+
+  /**
+   * get the name of the action in the traffic mix
+   *
+   * @return the name
+   */
+  public String getArgument() {
+    return argument;
+  }
+
+  /**
+   * generate load action from its name in the traffic mix
+   *
+   * @param argument input name, case-insensitive
+   * @return load action, or null if the name matches no action
+   */
+  public static LoadAction fromArgument(String argument) {
+    for (LoadAction action : values()) {
+      if (action.argument.equalsIgnoreCase(argument)) {
+        return action;
+      }
+    }
+    return null;
+  }
+}
@@ -0,0 +1,179 @@
+package client;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Headless load generator that simulates many chat clients against a running server. It logs
+ * every client in, sends a mix of broadcast, direct, who and insult messages at a fixed total
+ * rate, then reports throughput and latency percentiles.
+ *
+ * <p>Each message is stamped with the time it was due to be sent rather than the time it was
+ * actually written, so a server that falls behind shows up in the latencies instead of quietly
+ * lowering the send rate.
+ */
+public class LoadGenerator {
+
+  /**
+   * Prefix of the usernames of simulated clients.
+   */
+  public static final String USERNAME_PREFIX = "load";
+  /**
+   * Error message printed before a run that could not complete.
+   */
+  public static final String LOAD_ERROR_PREFIX = "Load generator error: ";
+  private static final long LOGIN_TIMEOUT_MILLIS = 10_000;
+  private static final long DRAIN_MILLIS = 1000;
+  private static final int MAX_SENDER_THREADS = 4;
+
+  private final LoadGeneratorConfig config;
+  private final LoadStats stats = new LoadStats();
+  private final List<SimulatedClient> clients = new ArrayList<>();
+  private volatile boolean sending;
+
+  /**
+   * Instantiates a new Load generator.
+   *
+   * @param config the settings of the run
+   */
+  public LoadGenerator(LoadGeneratorConfig config) {
+    this.config = config;
+  }
+
+  /**
+   * Run the load generator from the command line.
+   *
+   * @param args options of the form --name=value
+   */
+  public static void main(String[] args) {
+    LoadGeneratorConfig config;
+    try {
+      config = LoadGeneratorConfig.fromArguments(args);
+    } catch (IllegalArgumentException e) {
+      System.out.println(e.getMessage());
+      return;
+    }
+    try {
+      System.out.println(new LoadGenerator(config).run().report());
+    } catch (IOException e) {
+      System.out.println(LOAD_ERROR_PREFIX + e.getMessage());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Connect and log in every client, send traffic for the configured duration, then log off.
+   *
+   * @return the stats of the run
+   * @throws IOException          if a client cannot connect
+   * @throws InterruptedException the interrupted exception
+   */
+  public LoadStats run() throws IOException, InterruptedException {
+    ExecutorService readers = Executors.newCachedThreadPool();
+    try {
+      List<SimulatedClient> active = login(readers);
+      sendTraffic(active);
+      // Let messages already in flight arrive before counting them
+      Thread.sleep(DRAIN_MILLIS);
+      for (SimulatedClient client : active) {
+        client.logoff();
+      }
+    } finally {
+      clients.forEach(SimulatedClient::close);
+      readers.shutdown();
+      readers.awaitTermination(DRAIN_MILLIS, TimeUnit.MILLISECONDS);
+    }
+    return stats;
+  }
+
+  private List<SimulatedClient> login(ExecutorService readers)
+      throws IOException, InterruptedException {
+    for (int i = 0; i < config.getClients(); i++) {
+      SimulatedClient client = new SimulatedClient(USERNAME_PREFIX + i,
+          new Socket(config.getHost(), config.getPort()), stats, config.getMessageBytes(),
+          config.getWireFormat());
+      clients.add(client);
+      readers.execute(client);
+      client.sendLogin();
+    }
+    List<SimulatedClient> active = new ArrayList<>();
+    for (SimulatedClient client : clients) {
+      if (client.awaitLogin(LOGIN_TIMEOUT_MILLIS)) {
+        active.add(client);
+      }
+    }
+    return active;
+  }
+
+  private void sendTraffic(List<SimulatedClient> active) throws InterruptedException {
+    if (active.isEmpty()) {
+      return;
+    }
+    int senderCount = Math.min(MAX_SENDER_THREADS, active.size());
+    long intervalNanos = TimeUnit.SECONDS.toNanos(1) * senderCount / config.getRate();
+    List<Thread> senders = new ArrayList<>();
+    sending = true;
+    long start = System.nanoTime();
+    for (int i = 0; i < senderCount; i++) {
+      List<SimulatedClient> own = new ArrayList<>();
+      for (int j = i; j < active.size(); j += senderCount) {
+        own.add(active.get(j));
+      }
+      Thread sender = new Thread(() -> send(own, active, start, intervalNanos));
+      senders.add(sender);
+      sender.start();
+    }
+    Thread.sleep(TimeUnit.SECONDS.toMillis(config.getDurationSeconds()));
+    sending = false;
+    for (Thread sender : senders) {
+      sender.join();
+    }
+    stats.setElapsedNanos(System.nanoTime() - start);
+  }
+
+  /**
+   * Send from a fixed set of clients on a fixed schedule. Every client has exactly one sender
+   * thread, so its stream needs no locking.
+   */
+  private void send(List<SimulatedClient> own, List<SimulatedClient> everyone, long start,
+      long intervalNanos) {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    long due = start;
+    int next = 0;
+    while (sending) {
+      long wait = due - System.nanoTime();
+      if (wait > 0) {
+        LockSupport.parkNanos(wait);
+        continue;
+      }
+      SimulatedClient client = own.get(next++ % own.size());
+      String recipient = everyone.get(random.nextInt(everyone.size())).getUsername();
+      try {
+        client.send(config.pickAction(random), due, recipient);
+      } catch (IOException e) {
+        // The server dropped this client; keep the schedule for the rest
+        own.remove(client);
+        if (own.isEmpty()) {
+          return;
+        }
+      }
+      due += intervalNanos;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "LoadGenerator{" +
+        "config=" + config +
+        ", stats=" + stats +
+        '}';
+  }
+}
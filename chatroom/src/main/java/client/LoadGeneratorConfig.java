@@ -0,0 +1,362 @@
+package client;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+import protocol.WireFormat;
+
+/**
+ * Settings for a load generator run, read from the command line by {@link LoadGenerator}.
+ */
+public class LoadGeneratorConfig {
+
+  /**
+   * Default server host.
+   */
+  public static final String DEFAULT_HOST = "localhost";
+  /**
+   * Default server port.
+   */
+  public static final int DEFAULT_PORT = 12345;
+  /**
+   * Default number of simulated clients.
+   */
+  public static final int DEFAULT_CLIENTS = 100;
+  /**
+   * Default total messages sent per second across all clients.
+   */
+  public static final int DEFAULT_RATE = 1000;
+  /**
+   * Default length of a run in seconds.
+   */
+  public static final int DEFAULT_DURATION_SECONDS = 10;
+  /**
+   * Default size of a chat message body in bytes.
+   */
+  public static final int DEFAULT_MESSAGE_BYTES = 64;
+  /**
+   * Default traffic mix.
+   */
+  public static final String DEFAULT_MIX = "broadcast:5,direct:85,who:5,insult:5";
+  /**
+   * Default wire format the simulated clients use.
+   */
+  public static final WireFormat DEFAULT_WIRE_FORMAT = WireFormat.FRAMED;
+  /**
+   * Prefix of command line options.
+   */
+  public static final String OPTION_PREFIX = "--";
+  /**
+   * Option setting the server host.
+   */
+  public static final String HOST_OPTION = "host";
+  /**
+   * Option setting the server port.
+   */
+  public static final String PORT_OPTION = "port";
+  /**
+   * Option setting the number of simulated clients.
+   */
+  public static final String CLIENTS_OPTION = "clients";
+  /**
+   * Option setting the total send rate.
+   */
+  public static final String RATE_OPTION = "rate";
+  /**
+   * Option setting the length of the run.
+   */
+  public static final String DURATION_OPTION = "duration";
+  /**
+   * Option setting the message body size.
+   */
+  public static final String MESSAGE_BYTES_OPTION = "message-bytes";
+  /**
+   * Option setting the traffic mix.
+   */
+  public static final String MIX_OPTION = "mix";
+  /**
+   * Option setting the wire format.
+   */
+  public static final String WIRE_FORMAT_OPTION = "wire-format";
+  /**
+   * Prefix for unrecognized option errors.
+   */
+  public static final String UNKNOWN_OPTION_PREFIX = "Unknown option: ";
+  /**
+   * Error message for an unrecognized wire format.
+   */
+  public static final String UNKNOWN_WIRE_FORMAT_ERROR =
+      "Unknown wire format. Use \"legacy\" or \"framed\".";
+  /**
+   * Prefix for options that need a positive number.
+   */
+  public static final String INVALID_NUMBER_PREFIX = "Expected a positive number for ";
+  /**
+   * Prefix for traffic mixes that cannot be read.
+   */
+  public static final String INVALID_MIX_PREFIX =
+      "Expected a mix like " + DEFAULT_MIX + " but got ";
+
+  private String host = DEFAULT_HOST;
+  private int port = DEFAULT_PORT;
+  private int clients = DEFAULT_CLIENTS;
+  private int rate = DEFAULT_RATE;
+  private int durationSeconds = DEFAULT_DURATION_SECONDS;
+  private int messageBytes = DEFAULT_MESSAGE_BYTES;
+  private Map<LoadAction, Integer> mix = parseMix(DEFAULT_MIX);
+  private WireFormat wireFormat = DEFAULT_WIRE_FORMAT;
+
+  /**
+   * Read a config from command line arguments of the form --name=value.
+   *
+   * @param args the command line arguments
+   * @return the config
+   * @throws IllegalArgumentException if an argument is not recognized
+   */
+  public static LoadGeneratorConfig fromArguments(String[] args) {
+    LoadGeneratorConfig config = new LoadGeneratorConfig();
+    for (String arg : args) {
+      if (!arg.startsWith(OPTION_PREFIX)) {
+        throw new IllegalArgumentException(UNKNOWN_OPTION_PREFIX + arg);
+      }
+      String[] option = arg.substring(OPTION_PREFIX.length()).split("=", 2);
+      String value = option.length > 1 ? option[1] : "";
+      switch (option[0]) {
+        case HOST_OPTION -> config.setHost(value);
+        case PORT_OPTION -> config.setPort(parsePositive(value, arg));
+        case CLIENTS_OPTION -> config.setClients(parsePositive(value, arg));
+        case RATE_OPTION -> config.setRate(parsePositive(value, arg));
+        case DURATION_OPTION -> config.setDurationSeconds(parsePositive(value, arg));
+        case MESSAGE_BYTES_OPTION -> config.setMessageBytes(parsePositive(value, arg));
+        case MIX_OPTION -> config.setMix(parseMix(value));
+        case WIRE_FORMAT_OPTION -> {
+          WireFormat format = WireFormat.fromArgument(value);
+          if (format == null) {
+            throw new IllegalArgumentException(UNKNOWN_WIRE_FORMAT_ERROR);
+          }
+          config.setWireFormat(format);
+        }
+        default -> throw new IllegalArgumentException(UNKNOWN_OPTION_PREFIX + arg);
+      }
+    }
+    return config;
+  }
+
+  private static int parsePositive(String value, String arg) {
+    try {
+      int number = Integer.parseInt(value);
+      if (number > 0) {
+        return number;
+      }
+    } catch (NumberFormatException e) {
+      // Reported below
+    }
+    throw new IllegalArgumentException(INVALID_NUMBER_PREFIX + arg);
+  }
+
+  /**
+   * Read a traffic mix of the form action:weight,action:weight. Actions left out are never sent.
+   *
+   * @param value the mix
+   * @return the weight of every action in the mix
+   * @throws IllegalArgumentException if the mix cannot be read or all its weights are zero
+   */
+  static Map<LoadAction, Integer> parseMix(String value) {
+    Map<LoadAction, Integer> weights = new EnumMap<>(LoadAction.class);
+    int total = 0;
+    try {
+      for (String entry : value.split(",")) {
+        String[] pair = entry.trim().split(":", 2);
+        LoadAction action = LoadAction.fromArgument(pair[0]);
+        int weight = Integer.parseInt(pair[1]);
+        if (action == null || weight < 0) {
+          throw new IllegalArgumentException(INVALID_MIX_PREFIX + value);
+        }
+        weights.put(action, weight);
+        total += weight;
+      }
+    } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+      throw new IllegalArgumentException(INVALID_MIX_PREFIX + value);
+    }
+    if (total == 0) {
+      throw new IllegalArgumentException(INVALID_MIX_PREFIX + value);
+    }
+    return weights;
+  }
+
+  /**
+   * Pick an action at random, in proportion to the weights of the mix.
+   *
+   * @param random the random source
+   * @return the action
+   */
+  public LoadAction pickAction(Random random) {
+    int total = mix.values().stream().mapToInt(Integer::intValue).sum();
+    int pick = random.nextInt(total);
+    for (Map.Entry<LoadAction, Integer> entry : mix.entrySet()) {
+      pick -= entry.getValue();
+      if (pick < 0) {
+        return entry.getKey();
+      }
+    }
+    throw new IllegalStateException("Empty mix");
+  }
+
+  /**
+   * Gets host.
+   *
+   * @return the host
+   */
+  public String getHost() {
+    return host;
+  }
+
+  /**
+   * Sets host.
+   *
+   * @param host the host
+   */
+  public void setHost(String host) {
+    this.host = host;
+  }
+
+  /**
+   * Gets port.
+   *
+   * @return the port
+   */
+  public int getPort() {
+    return port;
+  }
+
+  /**
+   * Sets port.
+   *
+   * @param port the port
+   */
+  public void setPort(int port) {
+    this.port = port;
+  }
+
+  /**
+   * Gets the number of simulated clients.
+   *
+   * @return the clients
+   */
+  public int getClients() {
+    return clients;
+  }
+
+  /**
+   * Sets the number of simulated clients.
+   *
+   * @param clients the clients
+   */
+  public void setClients(int clients) {
+    this.clients = clients;
+  }
+
+  /**
+   * Gets the total messages sent per second.
+   *
+   * @return the rate
+   */
+  public int getRate() {
+    return rate;
+  }
+
+  /**
+   * Sets the total messages sent per second.
+   *
+   * @param rate the rate
+   */
+  public void setRate(int rate) {
+    this.rate = rate;
+  }
+
+  /**
+   * Gets duration seconds.
+   *
+   * @return the duration seconds
+   */
+  public int getDurationSeconds() {
+    return durationSeconds;
+  }
+
+  /**
+   * Sets duration seconds.
+   *
+   * @param durationSeconds the duration seconds
+   */
+  public void setDurationSeconds(int durationSeconds) {
+    this.durationSeconds = durationSeconds;
+  }
+
+  /**
+   * Gets message bytes.
+   *
+   * @return the message bytes
+   */
+  public int getMessageBytes() {
+    return messageBytes;
+  }
+
+  /**
+   * Sets message bytes.
+   *
+   * @param messageBytes the message bytes
+   */
+  public void setMessageBytes(int messageBytes) {
+    this.messageBytes = messageBytes;
+  }
+
+  /**
+   * Gets the weight of every action in the traffic mix.
+   *
+   * @return the mix
+   */
+  public Map<LoadAction, Integer> getMix() {
+    return mix;
+  }
+
+  /**
+   * Sets the traffic mix.
+   *
+   * @param mix the weight of every action
+   */
+  public void setMix(Map<LoadAction, Integer> mix) {
+    this.mix = mix;
+  }
+
+  /**
+   * Gets the wire format the simulated clients use.
+   *
+   * @return the wire format
+   */
+  public WireFormat getWireFormat() {
+    return wireFormat;
+  }
+
+  /**
+   * Sets the wire format the simulated clients use.
+   *
+   * @param wireFormat the wire format
+   */
+  public void setWireFormat(WireFormat wireFormat) {
+    this.wireFormat = wireFormat;
+  }
+
+  @Override
+  public String toString() {
+    return "LoadGeneratorConfig{" +
+        "host='" + host + '\'' +
+        ", port=" + port +
+        ", clients=" + clients +
+        ", rate=" + rate +
+        ", durationSeconds=" + durationSeconds +
+        ", messageBytes=" + messageBytes +
+        ", mix=" + mix +
+        ", wireFormat=" + wireFormat +
+        '}';
+  }
+}
@@ -0,0 +1,203 @@
+package client;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import metrics.LatencyHistogram;
+
+/**
+ * Counters and latency histograms of one load generator run. Every simulated client updates
+ * them from its own threads.
+ */
+public class LoadStats {
+
+  private final Map<LoadAction, LongAdder> sent = new EnumMap<>(LoadAction.class);
+  private final LongAdder delivered = new LongAdder();
+  private final LongAdder serverMessages = new LongAdder();
+  private final LongAdder failed = new LongAdder();
+  private final LongAdder loggedIn = new LongAdder();
+  private final LongAdder loginFailures = new LongAdder();
+  private final LatencyHistogram deliveryLatency = new LatencyHistogram();
+  private final LatencyHistogram whoLatency = new LatencyHistogram();
+  private volatile long elapsedNanos;
+
+  /**
+   * Instantiates a new Load stats.
+   */
+  public LoadStats() {
+    for (LoadAction action : LoadAction.values()) {
+      sent.put(action, new LongAdder());
+    }
+  }
+
+  /**
+   * Count one message sent.
+   *
+   * @param action the kind of message
+   */
+  void recordSent(LoadAction action) {
+    sent.get(action).increment();
+  }
+
+  /**
+   * Count one timed chat message delivered to a client.
+   *
+   * @param latencyNanos the time from when it was due to be sent until it arrived
+   */
+  void recordDelivered(long latencyNanos) {
+    delivered.increment();
+    deliveryLatency.record(latencyNanos);
+  }
+
+  /**
+   * Count one user list reply.
+   *
+   * @param latencyNanos the time from when the query was due to be sent until the reply arrived
+   */
+  void recordWhoReply(long latencyNanos) {
+    whoLatency.record(latencyNanos);
+  }
+
+  /**
+   * Count a chat message written by the server itself, such as an insult or a join notice.
+   */
+  void recordServerMessage() {
+    serverMessages.increment();
+  }
+
+  /**
+   * Count a failed message from the server.
+   */
+  void recordFailed() {
+    failed.increment();
+  }
+
+  /**
+   * Count the result of a login.
+   *
+   * @param success whether the server accepted the login
+   */
+  void recordLogin(boolean success) {
+    (success ? loggedIn : loginFailures).increment();
+  }
+
+  /**
+   * Set the length of the measured run.
+   *
+   * @param elapsedNanos the elapsed time
+   */
+  void setElapsedNanos(long elapsedNanos) {
+    this.elapsedNanos = elapsedNanos;
+  }
+
+  /**
+   * Number of messages sent of one kind.
+   *
+   * @param action the kind of message
+   * @return the sent count
+   */
+  public long sentCount(LoadAction action) {
+    return sent.get(action).sum();
+  }
+
+  /**
+   * Number of messages sent of every kind.
+   *
+   * @return the sent count
+   */
+  public long sentCount() {
+    return sent.values().stream().mapToLong(LongAdder::sum).sum();
+  }
+
+  /**
+   * Number of timed chat messages delivered, counting every recipient of a broadcast.
+   *
+   * @return the delivered count
+   */
+  public long deliveredCount() {
+    return delivered.sum();
+  }
+
+  /**
+   * Number of failed messages received.
+   *
+   * @return the failed count
+   */
+  public long failedCount() {
+    return failed.sum();
+  }
+
+  /**
+   * Number of clients the server logged in.
+   *
+   * @return the logged in count
+   */
+  public long loggedInCount() {
+    return loggedIn.sum();
+  }
+
+  /**
+   * Number of clients the server refused.
+   *
+   * @return the login failure count
+   */
+  public long loginFailureCount() {
+    return loginFailures.sum();
+  }
+
+  /**
+   * Latency from when a chat message was due to be sent until a recipient read it.
+   *
+   * @return the delivery latency histogram
+   */
+  public LatencyHistogram getDeliveryLatency() {
+    return deliveryLatency;
+  }
+
+  /**
+   * Latency from when a user list query was due to be sent until its reply was read.
+   *
+   * @return the who latency histogram
+   */
+  public LatencyHistogram getWhoLatency() {
+    return whoLatency;
+  }
+
+  private double perSecond(long count) {
+    return elapsedNanos == 0 ? 0 : count * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+  }
+
+  /**
+   * Multi-line report of the run.
+   *
+   * @return the report
+   */
+  public String report() {
+    StringBuilder report = new StringBuilder();
+    report.append(String.format("Clients:    %d logged in, %d refused%n", loggedInCount(),
+        loginFailureCount()));
+    report.append(String.format("Duration:   %.1f s%n", elapsedNanos / 1e9));
+    report.append(String.format("Sent:       %d (%.1f/s)", sentCount(), perSecond(sentCount())));
+    for (LoadAction action : LoadAction.values()) {
+      report.append(' ').append(action.getArgument()).append('=').append(sentCount(action));
+    }
+    report.append(System.lineSeparator());
+    report.append(String.format("Delivered:  %d (%.1f/s), %d server messages, %d failed%n",
+        deliveredCount(), perSecond(deliveredCount()), serverMessages.sum(), failedCount()));
+    report.append("Delivery:   ").append(deliveryLatency.summary())
+        .append(System.lineSeparator());
+    report.append("Who reply:  ").append(whoLatency.summary());
+    return report.toString();
+  }
+
+  @Override
+  public String toString() {
+    return "LoadStats{" +
+        "sent=" + sentCount() +
+        ", delivered=" + deliveredCount() +
+        ", failed=" + failedCount() +
+        ", loggedIn=" + loggedInCount() +
+        '}';
+  }
+}
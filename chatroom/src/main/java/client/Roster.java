@@ -0,0 +1,91 @@
+package client;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentSkipListSet;
+import protocol.PresenceUpdate;
+
+/**
+ * The client's own copy of who is online, started from the server's presence snapshot and kept
+ * up to date by applying each join and leave as it arrives. Updates are idempotent, so one that
+ * repeats what the snapshot already says changes nothing.
+ */
+public class Roster {
+
+  private final ConcurrentSkipListSet<String> users = new ConcurrentSkipListSet<>();
+  private volatile boolean watching;
+
+  /**
+   * Start over from a snapshot of the users online.
+   *
+   * @param onlineUsers the users online
+   */
+  public void replace(Collection<String> onlineUsers) {
+    users.clear();
+    users.addAll(onlineUsers);
+    watching = true;
+  }
+
+  /**
+   * Apply a user coming online or going offline.
+   *
+   * @param update the presence update
+   */
+  public void apply(PresenceUpdate update) {
+    if (update.isOnline()) {
+      users.add(update.getUsername());
+    } else {
+      users.remove(update.getUsername());
+    }
+  }
+
+  /**
+   * Stop watching and forget every user.
+   */
+  public void clear() {
+    watching = false;
+    users.clear();
+  }
+
+  /**
+   * Whether a snapshot has arrived since the roster was last cleared.
+   *
+   * @return true if the roster is being kept up to date
+   */
+  public boolean isWatching() {
+    return watching;
+  }
+
+  /**
+   * Gets the users online, in alphabetical order.
+   *
+   * @return the users
+   */
+  public List<String> getUsers() {
+    return new ArrayList<>(users);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    Roster roster = (Roster) o;
+    return watching == roster.watching && Objects.equals(getUsers(), roster.getUsers());
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(getUsers(), watching);
+  }
+
+  @Override
+  public String toString() {
+    return "Roster{" +
+        "users=" + users +
+        ", watching=" + watching +
+        '}';
+  }
+}
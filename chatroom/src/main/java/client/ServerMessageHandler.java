@@ -1,12 +1,22 @@
 package client;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Objects;
 import protocol.BroadcastMessage;
 import protocol.ConnectResponse;
 import protocol.DirectMessage;
+import protocol.DispatchTable;
 import protocol.FailedMessage;
+import protocol.HistoryResponse;
+import protocol.ListRoomsResponse;
 import protocol.Message;
+import protocol.MessageType;
+import protocol.PresenceSnapshot;
+import protocol.PresenceUpdate;
+import protocol.QueryUsersPageResponse;
 import protocol.QueryUsersResponse;
+import protocol.RoomMessage;
 
 /**
  * The type Server message handler.
@@ -21,7 +31,67 @@ public class ServerMessageHandler {
    * Error message for failed login attempts.
    */
   public static final String CANT_LOGIN_IN_ERROR = "Can't log in. Unexpected response from server.";
-  
+  private static final DispatchTable<ChatUI, Void> HANDLERS =
+      new DispatchTable<ChatUI, Void>((chatUI, message, unused) -> {
+        chatUI.showErrorMessage(UNKNOWN_MESSAGE_TYPE_ERROR);
+        return true;
+      })
+          .register(MessageType.BROADCAST_MESSAGE, BroadcastMessage.class,
+              (chatUI, broadcast, unused) -> {
+                chatUI.showBroadcastMessage(broadcast);
+                return true;
+              })
+          .register(MessageType.DIRECT_MESSAGE, DirectMessage.class,
+              (chatUI, direct, unused) -> {
+                chatUI.showDirectMessage(direct);
+                return true;
+              })
+          .register(MessageType.ROOM_MESSAGE, RoomMessage.class,
+              (chatUI, room, unused) -> {
+                chatUI.showRoomMessage(room);
+                return true;
+              })
+          .register(MessageType.LIST_ROOMS_RESPONSE, ListRoomsResponse.class,
+              (chatUI, roomsResponse, unused) -> {
+                chatUI.showListRoomsResponse(roomsResponse);
+                return true;
+              })
+          .register(MessageType.HISTORY_RESPONSE, HistoryResponse.class,
+              (chatUI, history, unused) -> {
+                chatUI.showHistoryResponse(history);
+                return true;
+              })
+          .register(MessageType.FAILED_MESSAGE, FailedMessage.class,
+              (chatUI, failed, unused) -> {
+                chatUI.showFailedMessage(failed);
+                return true;
+              })
+          .register(MessageType.PRESENCE_UPDATE, PresenceUpdate.class,
+              (chatUI, update, unused) -> {
+                chatUI.showPresenceUpdate(update);
+                return true;
+              })
+          .register(MessageType.PRESENCE_SNAPSHOT, PresenceSnapshot.class,
+              (chatUI, snapshot, unused) -> {
+                chatUI.showPresenceSnapshot(snapshot);
+                return true;
+              })
+          .register(MessageType.QUERY_USER_RESPONSE, QueryUsersResponse.class,
+              (chatUI, queryResponse, unused) -> {
+                chatUI.showQueryUsersResponse(queryResponse);
+                return true;
+              })
+          .register(MessageType.QUERY_USERS_PAGE_RESPONSE, QueryUsersPageResponse.class,
+              (chatUI, page, unused) -> {
+                chatUI.showQueryUsersPageResponse(page);
+                return true;
+              })
+          .register(MessageType.CONNECT_RESPONSE, ConnectResponse.class,
+              (chatUI, disconnectResponse, unused) -> {
+                chatUI.showDisconnectResponse(disconnectResponse);
+                return false;
+              });
+
   private final ChatUI chatUI;
 
   /**
@@ -34,27 +104,19 @@ public class ServerMessageHandler {
   }
 
   /**
-   * Handle server messages boolean.
+   * Handle server messages boolean. The message goes to the handler registered for its type,
+   * looked up by the type code.
    *
    * @param message the message
    * @return the boolean
    */
   public boolean handleServerMessages(Message message) {
-    if (message instanceof BroadcastMessage broadcast) {
-      chatUI.showBroadcastMessage(broadcast);
-    } else if (message instanceof DirectMessage direct) {
-      chatUI.showDirectMessage(direct);
-    } else if (message instanceof FailedMessage failed) {
-      chatUI.showFailedMessage(failed);
-    } else if (message instanceof QueryUsersResponse queryResponse) {
-      chatUI.showQueryUsersResponse(queryResponse);
-    } else if (message instanceof ConnectResponse disconnectResponse) {
-      chatUI.showDisconnectResponse(disconnectResponse);
-      return false;
-    } else {
-      chatUI.showErrorMessage(UNKNOWN_MESSAGE_TYPE_ERROR);
+    try {
+      return HANDLERS.dispatch(chatUI, message, null);
+    } catch (IOException e) {
+      // No handler writes to the server
+      throw new UncheckedIOException(e);
     }
-    return true;
   }
 
   /**
@@ -0,0 +1,203 @@
+package client;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import protocol.BroadcastMessage;
+import protocol.ConnectMessage;
+import protocol.ConnectResponse;
+import protocol.DirectMessage;
+import protocol.DisconnectMessage;
+import protocol.FailedMessage;
+import protocol.Message;
+import protocol.QueryUsersMessage;
+import protocol.QueryUsersResponse;
+import protocol.SendInsultMessage;
+import protocol.WireFormat;
+
+/**
+ * One headless chat client driven by the {@link LoadGenerator}. It writes the same messages as
+ * {@link ChatMessageHandler} and reads replies on its own thread. Chat messages carry the time
+ * they were due to be sent, so whoever receives one can work out its end-to-end latency.
+ */
+class SimulatedClient implements Runnable {
+
+  /**
+   * Separates the send time from the padding in a timed message body.
+   */
+  static final char TIMESTAMP_SEPARATOR = '|';
+
+  private final String username;
+  private final Socket socket;
+  private final DataInputStream in;
+  private final DataOutputStream out;
+  private final LoadStats stats;
+  private final String padding;
+  private final WireFormat wireFormat;
+  private final Queue<Long> pendingWho = new ConcurrentLinkedQueue<>();
+  private final CountDownLatch loginResponse = new CountDownLatch(1);
+  private volatile boolean loggedIn;
+
+  /**
+   * Instantiates a new Simulated client.
+   *
+   * @param username     the username to log in with
+   * @param socket       the connected socket
+   * @param stats        the stats of the run
+   * @param messageBytes the size of chat message bodies
+   * @param wireFormat   the wire format messages are sent in
+   * @throws IOException the io exception
+   */
+  SimulatedClient(String username, Socket socket, LoadStats stats, int messageBytes,
+      WireFormat wireFormat) throws IOException {
+    this.username = username;
+    this.socket = socket;
+    this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+    this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+    this.stats = stats;
+    // Room for the send time, at most 20 digits
+    this.padding = "x".repeat(Math.max(0, messageBytes - 20));
+    this.wireFormat = wireFormat;
+  }
+
+  /**
+   * Send the login message without waiting for the reply.
+   *
+   * @throws IOException the io exception
+   */
+  void sendLogin() throws IOException {
+    new ConnectMessage(username).sendToStream(out, wireFormat);
+  }
+
+  /**
+   * Wait for the reply to the login message.
+   *
+   * @param timeoutMillis how long to wait
+   * @return true if the server accepted the login
+   * @throws InterruptedException the interrupted exception
+   */
+  boolean awaitLogin(long timeoutMillis) throws InterruptedException {
+    return loginResponse.await(timeoutMillis, TimeUnit.MILLISECONDS) && loggedIn;
+  }
+
+  /**
+   * Send one message. Only one thread may send for a client.
+   *
+   * @param action       the kind of message
+   * @param dueNanos     when the message was due to be sent, from {@link System#nanoTime()}
+   * @param recipient    the user a direct message or insult goes to
+   * @throws IOException the io exception
+   */
+  void send(LoadAction action, long dueNanos, String recipient) throws IOException {
+    Message message = switch (action) {
+      case BROADCAST -> new BroadcastMessage(username, body(dueNanos));
+      case DIRECT -> new DirectMessage(username, recipient, body(dueNanos));
+      case WHO -> {
+        pendingWho.add(dueNanos);
+        yield new QueryUsersMessage(username);
+      }
+      case INSULT -> new SendInsultMessage(username, recipient);
+    };
+    message.sendToStream(out, wireFormat);
+    stats.recordSent(action);
+  }
+
+  private String body(long dueNanos) {
+    return dueNanos + String.valueOf(TIMESTAMP_SEPARATOR) + padding;
+  }
+
+  /**
+   * Send the logoff message.
+   *
+   * @throws IOException the io exception
+   */
+  void logoff() throws IOException {
+    new DisconnectMessage(username).sendToStream(out, wireFormat);
+  }
+
+  /**
+   * Close the connection, which ends the reader.
+   */
+  void close() {
+    try {
+      socket.close();
+    } catch (IOException e) {
+      // Already closed
+    }
+  }
+
+  /**
+   * Read replies until the connection closes.
+   */
+  @Override
+  public void run() {
+    try {
+      while (true) {
+        onMessage(Message.decodeFromStream(in));
+      }
+    } catch (IOException e) {
+      // Connection closed
+    } finally {
+      loginResponse.countDown();
+    }
+  }
+
+  private void onMessage(Message message) {
+    long now = System.nanoTime();
+    if (message instanceof ConnectResponse response) {
+      if (loginResponse.getCount() > 0) {
+        loggedIn = response.isSuccess();
+        stats.recordLogin(loggedIn);
+        loginResponse.countDown();
+      }
+    } else if (message instanceof BroadcastMessage broadcast) {
+      recordDelivery(broadcast.getMessage(), now);
+    } else if (message instanceof DirectMessage direct) {
+      recordDelivery(direct.getMessage(), now);
+    } else if (message instanceof QueryUsersResponse) {
+      Long due = pendingWho.poll();
+      if (due != null) {
+        stats.recordWhoReply(now - due);
+      }
+    } else if (message instanceof FailedMessage) {
+      stats.recordFailed();
+    }
+  }
+
+  private void recordDelivery(String body, long now) {
+    int separator = body.indexOf(TIMESTAMP_SEPARATOR);
+    try {
+      if (separator > 0) {
+        stats.recordDelivered(now - Long.parseLong(body.substring(0, separator)));
+        return;
+      }
+    } catch (NumberFormatException e) {
+      // Not one of ours
+    }
+    stats.recordServerMessage();
+  }
+
+  /**
+   * Gets username.
+   *
+   * @return the username
+   */
+  String getUsername() {
+    return username;
+  }
+
+  @Override
+  public String toString() {
+    return "SimulatedClient{" +
+        "username='" + username + '\'' +
+        ", loggedIn=" + loggedIn +
+        '}';
+  }
+}
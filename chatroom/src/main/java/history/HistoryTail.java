@@ -0,0 +1,187 @@
+package history;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import protocol.Frame;
+import protocol.MessageType;
+import protocol.RoutingView;
+
+/**
+ * The latest messages of the main chat and of each room, kept in memory so a client catching up
+ * is answered without reading the disk. Each room has a ring of its last {@code capacity}
+ * messages holding the very frames that were sent to its members, so replaying them queues
+ * those bytes again with nothing decoded or encoded. Once more than {@link #MAX_ROOMS} rooms
+ * have history, the one used least recently is dropped.
+ */
+public class HistoryTail {
+
+  /**
+   * Default number of messages kept per room.
+   */
+  public static final int DEFAULT_CAPACITY = 100;
+  /**
+   * Most rooms whose messages are kept, the main chat included.
+   */
+  public static final int MAX_ROOMS = 1024;
+  /**
+   * Number of records at the end of the log that {@link #fill(MessageLog)} reads.
+   */
+  public static final int FILL_RECORDS = 10_000;
+  /**
+   * Room name under which broadcasts to the main chat are kept.
+   */
+  public static final String MAIN_CHAT = "";
+  /**
+   * Error message for a capacity too small to keep any message.
+   */
+  public static final String INVALID_CAPACITY_ERROR = "History tail capacity must be positive: ";
+  private static final int FILL_BATCH = 1024;
+
+  private final int capacity;
+  private final Map<String, Ring> rooms = new LinkedHashMap<>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, Ring> eldest) {
+      return size() > MAX_ROOMS;
+    }
+  };
+
+  /**
+   * Instantiates a new History tail.
+   *
+   * @param capacity the number of messages kept per room
+   */
+  public HistoryTail(int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException(INVALID_CAPACITY_ERROR + capacity);
+    }
+    this.capacity = capacity;
+  }
+
+  /**
+   * Keep a message, pushing out the room's oldest one if its ring is full.
+   *
+   * @param roomName  the room, {@link #MAIN_CHAT} for a broadcast
+   * @param timestamp when the message was sent, in milliseconds since the epoch
+   * @param frame     the frame sent, in the legacy format
+   */
+  public synchronized void append(String roomName, long timestamp, Frame frame) {
+    rooms.computeIfAbsent(roomName, name -> new Ring(capacity)).add(timestamp, frame);
+  }
+
+  /**
+   * Get the latest messages of a room.
+   *
+   * @param roomName the room, {@link #MAIN_CHAT} for the main chat
+   * @param limit    the most messages returned; 0 or less, or more than are kept, returns all
+   *                 that are kept
+   * @param since    only messages sent at or after this time are returned, 0 for no bound
+   * @return the frames, oldest first
+   */
+  public synchronized List<Frame> latest(String roomName, int limit, long since) {
+    Ring ring = rooms.get(roomName);
+    if (ring == null) {
+      return List.of();
+    }
+    int wanted = limit <= 0 ? ring.size : Math.min(limit, ring.size);
+    int taken = 0;
+    while (taken < wanted && ring.timestamp(taken) >= since) {
+      taken++;
+    }
+    List<Frame> frames = new ArrayList<>(taken);
+    for (int i = taken - 1; i >= 0; i--) {
+      frames.add(ring.frame(i));
+    }
+    return frames;
+  }
+
+  /**
+   * Keep the broadcasts and room messages among the last {@link #FILL_RECORDS} records of a log,
+   * so the rooms' latest messages survive a restart.
+   *
+   * @param log the log
+   */
+  public void fill(MessageLog log) {
+    long offset = Math.max(log.getStartOffset(), log.getNextOffset() - FILL_RECORDS);
+    List<LogRecord> records;
+    while (!(records = log.read(offset, FILL_BATCH)).isEmpty()) {
+      for (LogRecord record : records) {
+        Frame frame = record.getFrame();
+        String roomName = roomOf(frame);
+        if (roomName != null) {
+          append(roomName, record.getTimestamp(), frame);
+        }
+      }
+      offset = records.get(records.size() - 1).getOffset() + 1;
+    }
+  }
+
+  // The room a logged frame went to, or null for a direct message
+  private static String roomOf(Frame frame) {
+    RoutingView view;
+    try {
+      view = RoutingView.decodeFromBuffer(frame.asByteBuffer());
+    } catch (IOException e) {
+      // The log only holds frames the server sent, so this is not one it would replay
+      return null;
+    }
+    if (view.getMessageType() == MessageType.BROADCAST_MESSAGE) {
+      return MAIN_CHAT;
+    }
+    return view.getRoomName();
+  }
+
+  /**
+   * Gets the number of messages kept per room.
+   *
+   * @return the capacity
+   */
+  public int getCapacity() {
+    return capacity;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return "HistoryTail{" +
+        "capacity=" + capacity +
+        ", rooms=" + rooms.size() +
+        '}';
+  }
+
+  // The last messages of one room, newest at next - 1
+  private static final class Ring {
+
+    private final long[] timestamps;
+    private final Frame[] frames;
+    private int next;
+    private int size;
+
+    Ring(int capacity) {
+      this.timestamps = new long[capacity];
+      this.frames = new Frame[capacity];
+    }
+
+    void add(long timestamp, Frame frame) {
+      timestamps[next] = timestamp;
+      frames[next] = frame;
+      next = next + 1 == frames.length ? 0 : next + 1;
+      size = Math.min(size + 1, frames.length);
+    }
+
+    // The i-th newest message, 0 being the newest
+    private int index(int i) {
+      int index = next - 1 - i;
+      return index < 0 ? index + frames.length : index;
+    }
+
+    long timestamp(int i) {
+      return timestamps[index(i)];
+    }
+
+    Frame frame(int i) {
+      return frames[index(i)];
+    }
+  }
+}
@@ -0,0 +1,79 @@
+package history;
+
+import java.util.Arrays;
+import protocol.Frame;
+
+/**
+ * One message read back from the {@link MessageLog}: the frame exactly as it was forwarded to its
+ * recipients, the offset it was given in the log and when it was appended.
+ */
+public final class LogRecord {
+
+  private final long offset;
+  private final long timestamp;
+  private final byte[] frame;
+
+  /**
+   * Instantiates a new Log record.
+   *
+   * @param offset    the offset of the record in the log
+   * @param timestamp when the record was appended, in milliseconds since the epoch
+   * @param frame     the frame bytes, in the legacy format
+   */
+  public LogRecord(long offset, long timestamp, byte[] frame) {
+    this.offset = offset;
+    this.timestamp = timestamp;
+    this.frame = frame;
+  }
+
+  /**
+   * Gets the offset of the record in the log.
+   *
+   * @return the offset
+   */
+  public long getOffset() {
+    return offset;
+  }
+
+  /**
+   * Gets when the record was appended, in milliseconds since the epoch.
+   *
+   * @return the timestamp
+   */
+  public long getTimestamp() {
+    return timestamp;
+  }
+
+  /**
+   * Gets the frame, ready to be sent again.
+   *
+   * @return the frame
+   */
+  public Frame getFrame() {
+    return Frame.wrap(frame);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    LogRecord that = (LogRecord) o;
+    return offset == that.offset && timestamp == that.timestamp
+        && Arrays.equals(frame, that.frame);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * Long.hashCode(offset) + Arrays.hashCode(frame);
+  }
+
+  @Override
+  public String toString() {
+    return "LogRecord{" +
+        "offset=" + offset +
+        ", timestamp=" + timestamp +
+        ", frameLength=" + frame.length +
+        '}';
+  }
+}
@@ -0,0 +1,298 @@
+package history;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * One file of the message log, mapped into memory at its full size when it is created. Records
+ * are appended one after another as a length, a CRC32 of the rest of the record, a timestamp and
+ * the frame bytes; a zero length marks the end, since the unused tail of the file is still zeros.
+ * Next to it a sparse index, also mapped, holds the file position of every record that starts at
+ * least {@code indexIntervalBytes} after the previous indexed one, so finding a record by offset
+ * reads the index and then at most one interval of the segment.
+ *
+ * <p>Segments are not thread-safe; the log only touches them under its lock.
+ */
+final class LogSegment {
+
+  /**
+   * Bytes before the frame in every record: length, CRC32 and timestamp.
+   */
+  static final int RECORD_HEADER_BYTES = 2 * Integer.BYTES + Long.BYTES;
+  /**
+   * Suffix of segment files, after the base offset.
+   */
+  static final String LOG_SUFFIX = ".log";
+  /**
+   * Suffix of index files, after the base offset.
+   */
+  static final String INDEX_SUFFIX = ".index";
+  private static final int INDEX_ENTRY_BYTES = 2 * Integer.BYTES;
+
+  private final long baseOffset;
+  private final int indexIntervalBytes;
+  private final FileChannel channel;
+  private final MappedByteBuffer log;
+  private final MappedByteBuffer index;
+  private final CRC32 crc = new CRC32();
+  private int end;
+  private int recordCount;
+  private int indexEntries;
+  private int lastIndexedPosition;
+
+  private LogSegment(long baseOffset, int indexIntervalBytes, FileChannel channel,
+      MappedByteBuffer log, MappedByteBuffer index) {
+    this.baseOffset = baseOffset;
+    this.indexIntervalBytes = indexIntervalBytes;
+    this.channel = channel;
+    this.log = log;
+    this.index = index;
+  }
+
+  /**
+   * Open a segment, creating its files at full size if they do not exist yet.
+   *
+   * @param directory          the log directory
+   * @param baseOffset         the offset of the segment's first record
+   * @param segmentBytes       the size of the segment file
+   * @param indexIntervalBytes the bytes between indexed records
+   * @return the segment, with nothing appended yet
+   * @throws IOException the io exception
+   */
+  static LogSegment open(Path directory, long baseOffset, int segmentBytes,
+      int indexIntervalBytes) throws IOException {
+    FileChannel channel = FileChannel.open(directory.resolve(fileName(baseOffset, LOG_SUFFIX)),
+        StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    // An existing segment keeps the size it was created with
+    int size = channel.size() > 0 ? (int) channel.size() : segmentBytes;
+    MappedByteBuffer log = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    int indexSize = (size / indexIntervalBytes + 1) * INDEX_ENTRY_BYTES;
+    MappedByteBuffer index;
+    try (FileChannel indexChannel = FileChannel.open(
+        directory.resolve(fileName(baseOffset, INDEX_SUFFIX)), StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      // The mapping outlives the channel it came from
+      index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0,
+          Math.max(indexChannel.size(), indexSize));
+    }
+    return new LogSegment(baseOffset, indexIntervalBytes, channel, log, index);
+  }
+
+  /**
+   * Get the name of a segment or index file.
+   *
+   * @param baseOffset the base offset of the segment
+   * @param suffix     {@link #LOG_SUFFIX} or {@link #INDEX_SUFFIX}
+   * @return the file name
+   */
+  static String fileName(long baseOffset, String suffix) {
+    return String.format("%020d%s", baseOffset, suffix);
+  }
+
+  /**
+   * Find where the records end by reading each in turn and checking its CRC, so a record that
+   * was only partly written when the server stopped is cut off, and rebuild the index up to
+   * there. Used on the segment that was being appended to.
+   */
+  void recover() {
+    end = 0;
+    recordCount = 0;
+    indexEntries = 0;
+    int length;
+    while ((length = recordLength(end)) >= 0) {
+      recordAppended(end, end + RECORD_HEADER_BYTES + length);
+    }
+    // Cut off whatever follows the last good record, so the zero length that ends the segment
+    // is really there, and drop index entries past it
+    if (end + Integer.BYTES <= log.capacity()) {
+      log.putInt(end, 0);
+    }
+    for (int i = indexEntries * INDEX_ENTRY_BYTES; i < index.capacity(); i++) {
+      index.put(i, (byte) 0);
+    }
+  }
+
+  /**
+   * Load the index of a segment that is no longer appended to; its record count is known from
+   * the next segment's base offset.
+   *
+   * @param recordCount the number of records in the segment
+   */
+  void seal(int recordCount) {
+    this.recordCount = recordCount;
+    int entries = 0;
+    while ((entries + 1) * INDEX_ENTRY_BYTES <= index.capacity()
+        && (entries == 0 || index.getInt(entries * INDEX_ENTRY_BYTES + Integer.BYTES) > 0)) {
+      entries++;
+    }
+    this.indexEntries = entries;
+    this.end = log.capacity();
+  }
+
+  // The length of the frame in the record at a position, or -1 if no valid record starts there
+  private int recordLength(int position) {
+    if (position + RECORD_HEADER_BYTES > log.capacity()) {
+      return -1;
+    }
+    int length = log.getInt(position);
+    if (length <= 0 || length > log.capacity() - position - RECORD_HEADER_BYTES) {
+      return -1;
+    }
+    ByteBuffer record = log.duplicate();
+    record.limit(position + RECORD_HEADER_BYTES + length).position(position + 2 * Integer.BYTES);
+    crc.reset();
+    crc.update(record);
+    return (int) crc.getValue() == log.getInt(position + Integer.BYTES) ? length : -1;
+  }
+
+  /**
+   * Whether a record of a frame length still fits.
+   *
+   * @param frameLength the frame length
+   * @return true if it fits
+   */
+  boolean hasRoomFor(int frameLength) {
+    return (long) end + RECORD_HEADER_BYTES + frameLength <= log.capacity();
+  }
+
+  /**
+   * Append a record. The caller has checked that it fits.
+   *
+   * @param timestamp the time the message was sent, in milliseconds since the epoch
+   * @param frame     the frame bytes, from position to limit
+   * @return the offset of the record
+   */
+  long append(long timestamp, ByteBuffer frame) {
+    int position = end;
+    int length = frame.remaining();
+    ByteBuffer record = log.duplicate();
+    record.position(position + 2 * Integer.BYTES);
+    record.putLong(timestamp).put(frame);
+    ByteBuffer checked = log.duplicate();
+    checked.limit(position + RECORD_HEADER_BYTES + length).position(position + 2 * Integer.BYTES);
+    crc.reset();
+    crc.update(checked);
+    log.putInt(position + Integer.BYTES, (int) crc.getValue());
+    // The length goes in last, so until it does the record reads as the end of the segment
+    log.putInt(position, length);
+    long offset = baseOffset + recordCount;
+    recordAppended(position, position + RECORD_HEADER_BYTES + length);
+    return offset;
+  }
+
+  private void recordAppended(int position, int next) {
+    if (recordCount == 0 || position - lastIndexedPosition >= indexIntervalBytes) {
+      int entry = indexEntries * INDEX_ENTRY_BYTES;
+      index.putInt(entry, recordCount);
+      index.putInt(entry + Integer.BYTES, position);
+      indexEntries++;
+      lastIndexedPosition = position;
+    }
+    recordCount++;
+    end = next;
+  }
+
+  /**
+   * Read records starting at an offset in this segment.
+   *
+   * @param offset     the offset of the first record, at least the base offset
+   * @param endOffset  the offset after the last record that may be read
+   * @param maxRecords the most records to add
+   * @param records    the list the records are added to
+   */
+  void read(long offset, long endOffset, int maxRecords, List<LogRecord> records) {
+    int target = (int) (offset - baseOffset);
+    int last = (int) (Math.min(endOffset, baseOffset + recordCount) - baseOffset);
+    if (target >= last || maxRecords <= 0) {
+      return;
+    }
+    // The last index entry at or before the target, by binary search
+    int low = 0;
+    int high = indexEntries - 1;
+    while (low < high) {
+      int mid = (low + high + 1) >>> 1;
+      if (index.getInt(mid * INDEX_ENTRY_BYTES) <= target) {
+        low = mid;
+      } else {
+        high = mid - 1;
+      }
+    }
+    int relative = index.getInt(low * INDEX_ENTRY_BYTES);
+    int position = index.getInt(low * INDEX_ENTRY_BYTES + Integer.BYTES);
+    int added = 0;
+    while (relative < last && added < maxRecords) {
+      int length = log.getInt(position);
+      if (length <= 0) {
+        break;
+      }
+      if (relative >= target) {
+        byte[] frame = new byte[length];
+        log.get(position + RECORD_HEADER_BYTES, frame);
+        records.add(new LogRecord(baseOffset + relative,
+            log.getLong(position + 2 * Integer.BYTES), frame));
+        added++;
+      }
+      position += RECORD_HEADER_BYTES + length;
+      relative++;
+    }
+  }
+
+  /**
+   * Write everything appended so far through to the disk.
+   */
+  void force() {
+    log.force();
+    index.force();
+  }
+
+  /**
+   * Close the segment's file. Its mapping is released once it is no longer referenced.
+   *
+   * @throws IOException the io exception
+   */
+  void close() throws IOException {
+    channel.close();
+  }
+
+  /**
+   * Gets the offset of the first record.
+   *
+   * @return the base offset
+   */
+  long getBaseOffset() {
+    return baseOffset;
+  }
+
+  /**
+   * Gets the offset the next record appended would get.
+   *
+   * @return the next offset
+   */
+  long getNextOffset() {
+    return baseOffset + recordCount;
+  }
+
+  /**
+   * Gets the position the next record would be written at.
+   *
+   * @return the end of the records
+   */
+  int getEnd() {
+    return end;
+  }
+
+  @Override
+  public String toString() {
+    return "LogSegment{" +
+        "baseOffset=" + baseOffset +
+        ", records=" + recordCount +
+        ", end=" + end +
+        '}';
+  }
+}
@@ -0,0 +1,366 @@
+package history;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import protocol.Frame;
+
+/**
+ * Durable, append-only history of the messages the server routed. The log is a directory of
+ * segment files, each named after the offset of its first record and memory-mapped at its full
+ * size, so appending a message is a copy into memory under a lock rather than a write system
+ * call, and the log never sits between a sender and its recipients for longer than that copy.
+ *
+ * <p>Appended records reach the disk by group commit: a background thread forces everything
+ * appended since its last pass every flush interval, so one flush covers however many messages
+ * arrived in between. Records already in the page cache survive the server process dying; a
+ * machine crash loses at most the last interval. A flush interval of zero forces every append
+ * before it returns instead. When the server starts again the active segment is read back
+ * record by record, and a record whose CRC does not match, the one being written when the
+ * server stopped, ends the log.
+ */
+public class MessageLog implements Closeable {
+
+  /**
+   * Default size of a segment file.
+   */
+  public static final int DEFAULT_SEGMENT_BYTES = 64 * 1024 * 1024;
+  /**
+   * Default number of bytes between records in the sparse index.
+   */
+  public static final int DEFAULT_INDEX_INTERVAL_BYTES = 4096;
+  /**
+   * Default milliseconds between flushes to disk.
+   */
+  public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 1000;
+  /**
+   * Name of the background flush thread.
+   */
+  public static final String THREAD_NAME = "history-flusher";
+  /**
+   * Error message for a frame that does not fit in a segment.
+   */
+  public static final String RECORD_TOO_LARGE_ERROR = "Message too large for a history segment";
+  /**
+   * Error message for appending to a closed log.
+   */
+  public static final String CLOSED_ERROR = "History log is closed";
+  /**
+   * Error message for a segment size too small to hold any record.
+   */
+  public static final String INVALID_SEGMENT_BYTES_ERROR = "Segment size too small: ";
+
+  private final Path directory;
+  private final int segmentBytes;
+  private final int indexIntervalBytes;
+  private final long flushIntervalMillis;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition closing = lock.newCondition();
+  private final List<LogSegment> segments = new ArrayList<>();
+  private LogSegment active;
+  private boolean dirty;
+  private boolean closed;
+
+  // Open the segments; the flush thread is started by open once the log is fully built
+  private MessageLog(Path directory, int segmentBytes, int indexIntervalBytes,
+      long flushIntervalMillis) throws IOException {
+    if (segmentBytes <= LogSegment.RECORD_HEADER_BYTES || indexIntervalBytes < 1) {
+      throw new IllegalArgumentException(INVALID_SEGMENT_BYTES_ERROR + segmentBytes);
+    }
+    this.directory = directory;
+    this.segmentBytes = segmentBytes;
+    this.indexIntervalBytes = indexIntervalBytes;
+    this.flushIntervalMillis = flushIntervalMillis;
+    Files.createDirectories(directory);
+    openSegments();
+  }
+
+  /**
+   * Open the log in a directory, creating it if needed, and start the flush thread.
+   *
+   * @param directory           the directory holding the segment files
+   * @param segmentBytes        the size of each new segment file
+   * @param indexIntervalBytes  the bytes between records in the sparse index
+   * @param flushIntervalMillis milliseconds between flushes, 0 to flush every append
+   * @return the log
+   * @throws IOException the io exception
+   */
+  public static MessageLog open(Path directory, int segmentBytes, int indexIntervalBytes,
+      long flushIntervalMillis) throws IOException {
+    MessageLog log = new MessageLog(directory, segmentBytes, indexIntervalBytes,
+        flushIntervalMillis);
+    if (flushIntervalMillis > 0) {
+      Thread flusher = new Thread(log::flushPeriodically, THREAD_NAME);
+      flusher.setDaemon(true);
+      flusher.start();
+    }
+    return log;
+  }
+
+  /**
+   * Open the log in a directory with the default segment size, index interval and flush
+   * interval.
+   *
+   * @param directory the directory holding the segment files
+   * @return the log
+   * @throws IOException the io exception
+   */
+  public static MessageLog open(Path directory) throws IOException {
+    return open(directory, DEFAULT_SEGMENT_BYTES, DEFAULT_INDEX_INTERVAL_BYTES,
+        DEFAULT_FLUSH_INTERVAL_MILLIS);
+  }
+
+  private void openSegments() throws IOException {
+    List<Long> baseOffsets = new ArrayList<>();
+    try (Stream<Path> files = Files.list(directory)) {
+      files.map(file -> file.getFileName().toString())
+          .filter(name -> name.endsWith(LogSegment.LOG_SUFFIX))
+          .forEach(name -> {
+            try {
+              baseOffsets.add(Long.parseLong(
+                  name.substring(0, name.length() - LogSegment.LOG_SUFFIX.length())));
+            } catch (NumberFormatException e) {
+              // Not a segment
+            }
+          });
+    }
+    baseOffsets.sort(null);
+    if (baseOffsets.isEmpty()) {
+      baseOffsets.add(0L);
+    }
+    for (int i = 0; i < baseOffsets.size(); i++) {
+      LogSegment segment = LogSegment.open(directory, baseOffsets.get(i), segmentBytes,
+          indexIntervalBytes);
+      if (i + 1 < baseOffsets.size()) {
+        segment.seal((int) (baseOffsets.get(i + 1) - baseOffsets.get(i)));
+      } else {
+        segment.recover();
+      }
+      segments.add(segment);
+    }
+    active = segments.get(segments.size() - 1);
+  }
+
+  /**
+   * Append a frame, timestamped now.
+   *
+   * @param frame the frame, in the legacy format
+   * @return the offset of the record
+   * @throws IOException if the log is closed, the frame does not fit in a segment or a new
+   *                     segment cannot be created
+   */
+  public long append(Frame frame) throws IOException {
+    return append(System.currentTimeMillis(), frame.asByteBuffer());
+  }
+
+  /**
+   * Append a frame.
+   *
+   * @param timestamp when the message was sent, in milliseconds since the epoch
+   * @param frame     the frame bytes, from position to limit, in the legacy format
+   * @return the offset of the record
+   * @throws IOException if the log is closed, the frame does not fit in a segment or a new
+   *                     segment cannot be created
+   */
+  public long append(long timestamp, ByteBuffer frame) throws IOException {
+    int length = frame.remaining();
+    if ((long) length + LogSegment.RECORD_HEADER_BYTES > segmentBytes) {
+      throw new IOException(RECORD_TOO_LARGE_ERROR);
+    }
+    lock.lock();
+    try {
+      if (closed) {
+        throw new IOException(CLOSED_ERROR);
+      }
+      if (!active.hasRoomFor(length)) {
+        roll();
+      }
+      long offset = active.append(timestamp, frame);
+      if (flushIntervalMillis > 0) {
+        dirty = true;
+      } else {
+        active.force();
+      }
+      return offset;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  // Seal the active segment, forcing it, and start a new one where it ends
+  private void roll() throws IOException {
+    active.force();
+    LogSegment next = LogSegment.open(directory, active.getNextOffset(), segmentBytes,
+        indexIntervalBytes);
+    segments.add(next);
+    active = next;
+  }
+
+  /**
+   * Read the records from an offset on.
+   *
+   * @param fromOffset the offset of the first record; an offset before the start of the log
+   *                   reads from the start
+   * @param maxRecords the most records returned
+   * @return the records, oldest first
+   */
+  public List<LogRecord> read(long fromOffset, int maxRecords) {
+    List<LogRecord> records = new ArrayList<>(Math.max(0, Math.min(maxRecords, 1024)));
+    lock.lock();
+    try {
+      long end = active.getNextOffset();
+      for (int i = segmentIndex(fromOffset); i < segments.size(); i++) {
+        LogSegment segment = segments.get(i);
+        segment.read(Math.max(fromOffset, segment.getBaseOffset()), end,
+            maxRecords - records.size(), records);
+        if (records.size() >= maxRecords) {
+          break;
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+    return records;
+  }
+
+  // The segment holding an offset, by binary search over the base offsets
+  private int segmentIndex(long offset) {
+    int low = 0;
+    int high = segments.size() - 1;
+    while (low < high) {
+      int mid = (low + high + 1) >>> 1;
+      if (segments.get(mid).getBaseOffset() <= offset) {
+        low = mid;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Gets the offset of the oldest record in the log.
+   *
+   * @return the start offset
+   */
+  public long getStartOffset() {
+    lock.lock();
+    try {
+      return segments.get(0).getBaseOffset();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Gets the offset the next record appended will get.
+   *
+   * @return the next offset
+   */
+  public long getNextOffset() {
+    lock.lock();
+    try {
+      return active.getNextOffset();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Number of segment files.
+   *
+   * @return the segment count
+   */
+  public int getSegmentCount() {
+    lock.lock();
+    try {
+      return segments.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Force everything appended since the last flush through to the disk. The copy to disk runs
+   * outside the lock, so appends carry on while it does.
+   */
+  public void flush() {
+    LogSegment segment;
+    lock.lock();
+    try {
+      if (!dirty) {
+        return;
+      }
+      dirty = false;
+      // A segment rolled over since the last flush was forced when it was sealed
+      segment = active;
+    } finally {
+      lock.unlock();
+    }
+    segment.force();
+  }
+
+  private void flushPeriodically() {
+    long intervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+    while (true) {
+      lock.lock();
+      try {
+        long remaining = intervalNanos;
+        while (!closed && remaining > 0) {
+          try {
+            remaining = closing.awaitNanos(remaining);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+          }
+        }
+        if (closed) {
+          return;
+        }
+      } finally {
+        lock.unlock();
+      }
+      flush();
+    }
+  }
+
+  /**
+   * Stop the flush thread, force what is left and close every segment. Appends after this fail.
+   *
+   * @throws IOException the io exception
+   */
+  @Override
+  public void close() throws IOException {
+    lock.lock();
+    try {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      closing.signalAll();
+      active.force();
+      for (LogSegment segment : segments) {
+        segment.close();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "MessageLog{" +
+        "directory=" + directory +
+        ", segmentBytes=" + segmentBytes +
+        ", flushIntervalMillis=" + flushIntervalMillis +
+        '}';
+  }
+}
@@ -0,0 +1,511 @@
+package history;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import protocol.Frame;
+import protocol.FrameLimits;
+
+/**
+ * Direct messages waiting for users who are not logged in. Every user who has ever logged in has
+ * a mailbox file in the directory, so the users the server will hold messages for are known
+ * again after a restart. The file is named after the SHA-256 of the username, so the name has
+ * the same length however long the username is, and starts with the username itself, its
+ * length and its UTF-8 bytes. A message is appended to the recipient's file as a timestamp, a
+ * length and the frame that would have been sent, and forced to disk before the sender is told
+ * it was queued.
+ *
+ * <p>Each mailbox holds at most {@code maxMessages}, and a message older than the time to live
+ * is never delivered; expired messages are dropped when a full mailbox is compacted and when it
+ * is delivered. Delivering a mailbox hands what is in it to the caller, and empties the file
+ * only once the caller has taken the messages, so messages that could not be queued wait for
+ * the next attempt. A length read back from a file is checked against the largest frame and the
+ * bytes left before anything is allocated for it, so a corrupt file ends the mailbox instead of
+ * asking for an arbitrary amount of memory.
+ *
+ * <p>At most {@code maxUsers} users have a mailbox. A mailbox nobody has logged in to or left a
+ * message in for longer than the time to live holds nothing that could still be delivered, so
+ * it is deleted; the mailboxes are kept least recently used first, so the idle ones are found at
+ * the front without looking at the rest. When the limit is reached the least recently used
+ * mailbox is deleted to make room if it is idle or empty, and otherwise the new user gets none.
+ * After a restart a mailbox was last used when its file was last written. The methods hold the
+ * lock of the whole mailbox while they read or write a file; the server calls them from one
+ * thread of their own, so connection threads and the selector never wait for the disk.
+ */
+public class OfflineMailbox {
+
+  /**
+   * Default number of messages one mailbox holds.
+   */
+  public static final int DEFAULT_MAX_MESSAGES = 100;
+  /**
+   * Default number of users who have a mailbox.
+   */
+  public static final int DEFAULT_MAX_USERS = 10_000;
+  /**
+   * Default time a message waits before it expires, seven days.
+   */
+  public static final long DEFAULT_TTL_MILLIS = 7L * 24 * 60 * 60 * 1000;
+  /**
+   * Suffix of mailbox files, after the hex of the SHA-256 of the username.
+   */
+  public static final String MAILBOX_SUFFIX = ".mbox";
+  /**
+   * Name of the thread the server reads and writes mailboxes on.
+   */
+  public static final String THREAD_NAME = "mailbox-io";
+  /**
+   * Error message for a frame larger than a mailbox will read back.
+   */
+  public static final String FRAME_TOO_LARGE_ERROR = "Message too large for a mailbox";
+  private static final int RECORD_HEADER_BYTES = Long.BYTES + Integer.BYTES;
+
+  private final Path directory;
+  private final int maxUsers;
+  private final int maxMessages;
+  private final long ttlMillis;
+  private final int maxFrameLength;
+  // Least recently used first
+  private final LinkedHashMap<String, Box> boxes = new LinkedHashMap<>();
+
+  /**
+   * Open the mailboxes in a directory, creating it if needed.
+   *
+   * @param directory      the directory holding the mailbox files
+   * @param maxUsers       the most users who have a mailbox
+   * @param maxMessages    the most messages one mailbox holds
+   * @param ttlMillis      milliseconds a message waits before it expires
+   * @param maxFrameLength the largest frame kept, and read back
+   * @throws IOException the io exception
+   */
+  public OfflineMailbox(Path directory, int maxUsers, int maxMessages, long ttlMillis,
+      int maxFrameLength) throws IOException {
+    this.directory = directory;
+    this.maxUsers = maxUsers;
+    this.maxMessages = maxMessages;
+    this.ttlMillis = ttlMillis;
+    this.maxFrameLength = maxFrameLength;
+    Files.createDirectories(directory);
+    Map<String, Box> loaded = new HashMap<>();
+    try (Stream<Path> files = Files.list(directory)) {
+      for (Path file : files.toList()) {
+        String name = file.getFileName().toString();
+        if (!name.endsWith(MAILBOX_SUFFIX)) {
+          continue;
+        }
+        byte[] header = readHeader(file, maxFrameLength);
+        if (header == null) {
+          // Not a mailbox, or one the server stopped while creating
+          continue;
+        }
+        String username = new String(header, Integer.BYTES, header.length - Integer.BYTES,
+            StandardCharsets.UTF_8);
+        if (!fileName(username).equals(name)) {
+          continue;
+        }
+        Box box = new Box(file, header, Files.getLastModifiedTime(file).toMillis());
+        List<Letter> letters = readLetters(box, maxFrameLength);
+        long length = header.length;
+        for (Letter letter : letters) {
+          length += RECORD_HEADER_BYTES + letter.frame.length;
+        }
+        if (Files.size(file) > length) {
+          // Cut off a message the server stopped part way through, so the next one follows
+          // the last whole one
+          try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(length);
+          }
+        }
+        box.count = letters.size();
+        loaded.put(username, box);
+      }
+    }
+    loaded.entrySet().stream()
+        .sorted(Comparator.comparingLong(entry -> entry.getValue().lastUsed))
+        .forEach(entry -> boxes.put(entry.getKey(), entry.getValue()));
+  }
+
+  /**
+   * Open the mailboxes in a directory with the default number of users and frame limit.
+   *
+   * @param directory   the directory holding the mailbox files
+   * @param maxMessages the most messages one mailbox holds
+   * @param ttlMillis   milliseconds a message waits before it expires
+   * @throws IOException the io exception
+   */
+  public OfflineMailbox(Path directory, int maxMessages, long ttlMillis) throws IOException {
+    this(directory, DEFAULT_MAX_USERS, maxMessages, ttlMillis,
+        FrameLimits.DEFAULT_MAX_FRAME_LENGTH);
+  }
+
+  /**
+   * Open the mailboxes in a directory with the default limits and time to live.
+   *
+   * @param directory the directory holding the mailbox files
+   * @throws IOException the io exception
+   */
+  public OfflineMailbox(Path directory) throws IOException {
+    this(directory, DEFAULT_MAX_MESSAGES, DEFAULT_TTL_MILLIS);
+  }
+
+  /**
+   * Give a user a mailbox, if they do not have one yet, so messages sent while they are away
+   * are kept, and mark it used. Mailboxes that have been idle for longer than the time to live
+   * are deleted first.
+   *
+   * @param username the username
+   * @param now      the current time, in milliseconds since the epoch
+   * @return false if the user has no mailbox and there is no room for one
+   * @throws IOException the io exception
+   */
+  public synchronized boolean register(String username, long now) throws IOException {
+    Box box = boxes.get(username);
+    if (box != null) {
+      touch(username, box, now);
+      // So the mailbox is still known to be in use after a restart
+      Files.setLastModifiedTime(box.file, FileTime.fromMillis(now));
+      return true;
+    }
+    deleteIdle(now);
+    if (boxes.size() >= maxUsers && !deleteEldestIfEmpty()) {
+      return false;
+    }
+    byte[] name = username.getBytes(StandardCharsets.UTF_8);
+    byte[] header = ByteBuffer.allocate(Integer.BYTES + name.length)
+        .putInt(name.length).put(name).array();
+    box = new Box(directory.resolve(fileName(username)), header, now);
+    // Any file already there was not loaded, so it is not a whole mailbox
+    writeFile(box, List.of());
+    boxes.put(username, box);
+    return true;
+  }
+
+  /**
+   * The name of a user's mailbox file: the hex of the SHA-256 of the username.
+   *
+   * @param username the username
+   * @return the file name
+   */
+  static String fileName(String username) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      return HexFormat.of().formatHex(digest.digest(username.getBytes(StandardCharsets.UTF_8)))
+          + MAILBOX_SUFFIX;
+    } catch (NoSuchAlgorithmException e) {
+      // Every Java platform has SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
+
+  // Move a mailbox to the end, as the most recently used
+  private void touch(String username, Box box, long now) {
+    box.lastUsed = Math.max(box.lastUsed, now);
+    boxes.remove(username);
+    boxes.put(username, box);
+  }
+
+  // Delete the mailboxes at the front that nothing has used for longer than the time to live
+  private void deleteIdle(long now) throws IOException {
+    Iterator<Box> eldest = boxes.values().iterator();
+    while (eldest.hasNext()) {
+      Box box = eldest.next();
+      if (now - box.lastUsed <= ttlMillis) {
+        break;
+      }
+      Files.deleteIfExists(box.file);
+      eldest.remove();
+    }
+  }
+
+  private boolean deleteEldestIfEmpty() throws IOException {
+    Iterator<Box> eldest = boxes.values().iterator();
+    if (!eldest.hasNext()) {
+      return false;
+    }
+    Box box = eldest.next();
+    if (box.count > 0) {
+      return false;
+    }
+    Files.deleteIfExists(box.file);
+    eldest.remove();
+    return true;
+  }
+
+  /**
+   * Whether a user has a mailbox, having logged in before.
+   *
+   * @param username the username
+   * @return true if messages can be kept for the user
+   */
+  public synchronized boolean isRegistered(String username) {
+    return username != null && boxes.containsKey(username);
+  }
+
+  /**
+   * Keep a message for a user who is not logged in.
+   *
+   * @param recipient the recipient's username
+   * @param timestamp when the message was sent, in milliseconds since the epoch
+   * @param frame     the frame to deliver, in the legacy format
+   * @return false if the recipient has no mailbox, or it is full of messages that have not
+   *     expired
+   * @throws IOException if the frame is larger than the frame limit or cannot be written
+   */
+  public synchronized boolean deposit(String recipient, long timestamp, Frame frame)
+      throws IOException {
+    if (frame.length() > maxFrameLength) {
+      throw new IOException(FRAME_TOO_LARGE_ERROR);
+    }
+    Box box = boxes.get(recipient);
+    if (box == null) {
+      return false;
+    }
+    if (box.count >= maxMessages && compact(box, timestamp) >= maxMessages) {
+      return false;
+    }
+    ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_BYTES + frame.length());
+    record.putLong(timestamp).putInt(frame.length()).put(frame.asByteBuffer()).flip();
+    try (FileChannel channel = FileChannel.open(box.file, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+      while (record.hasRemaining()) {
+        channel.write(record);
+      }
+      channel.force(false);
+    }
+    box.count++;
+    // The message keeps its mailbox until it expires
+    touch(recipient, box, timestamp);
+    return true;
+  }
+
+  /**
+   * Hand every message waiting for a user that has not expired to a recipient, and empty the
+   * mailbox once it has taken them. If it does not, everything stays in the mailbox for the
+   * next attempt. A mailbox holding only expired messages is emptied without calling it.
+   *
+   * @param username  the username
+   * @param now       the current time, in milliseconds since the epoch
+   * @param recipient takes the frames, oldest first, and returns whether it did
+   * @return false if the recipient did not take the messages
+   * @throws IOException the io exception
+   */
+  public synchronized boolean deliver(String username, long now,
+      Predicate<List<Frame>> recipient) throws IOException {
+    Box box = boxes.get(username);
+    if (box == null || box.count == 0) {
+      return true;
+    }
+    List<Frame> frames = new ArrayList<>(box.count);
+    for (Letter letter : readLetters(box, maxFrameLength)) {
+      if (!isExpired(letter, now)) {
+        frames.add(Frame.wrap(letter.frame));
+      }
+    }
+    if (!frames.isEmpty() && !recipient.test(frames)) {
+      return false;
+    }
+    try (FileChannel channel = FileChannel.open(box.file, StandardOpenOption.WRITE)) {
+      channel.truncate(box.header.length);
+      channel.force(false);
+    }
+    box.count = 0;
+    return true;
+  }
+
+  // Rewrite a full mailbox without its expired messages, returning how many are left
+  private int compact(Box box, long now) throws IOException {
+    List<Letter> letters = readLetters(box, maxFrameLength);
+    List<Letter> kept = new ArrayList<>(letters.size());
+    for (Letter letter : letters) {
+      if (!isExpired(letter, now)) {
+        kept.add(letter);
+      }
+    }
+    if (kept.size() < letters.size()) {
+      writeFile(box, kept);
+    }
+    box.count = kept.size();
+    return box.count;
+  }
+
+  // Replace a mailbox file with its header and the given messages, so a crash part way through
+  // leaves the old file as it was
+  private static void writeFile(Box box, List<Letter> letters) throws IOException {
+    Path written = box.file.resolveSibling(box.file.getFileName() + ".tmp");
+    try (FileChannel channel = FileChannel.open(written, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer header = ByteBuffer.wrap(box.header);
+      while (header.hasRemaining()) {
+        channel.write(header);
+      }
+      for (Letter letter : letters) {
+        ByteBuffer bytes = ByteBuffer.allocate(RECORD_HEADER_BYTES + letter.frame.length);
+        bytes.putLong(letter.timestamp).putInt(letter.frame.length).put(letter.frame).flip();
+        while (bytes.hasRemaining()) {
+          channel.write(bytes);
+        }
+      }
+      channel.force(false);
+    }
+    Files.move(written, box.file, StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  // The length and bytes of the username a mailbox file starts with, or null if the file does
+  // not start with a whole one
+  private static byte[] readHeader(Path file, int maxFrameLength) throws IOException {
+    long size = Files.size(file);
+    if (size < Integer.BYTES) {
+      return null;
+    }
+    try (InputStream stream = Files.newInputStream(file);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(stream))) {
+      int length = in.readInt();
+      if (length < 0 || length > maxFrameLength || length > size - Integer.BYTES) {
+        return null;
+      }
+      byte[] header = new byte[Integer.BYTES + length];
+      ByteBuffer.wrap(header).putInt(length);
+      in.readFully(header, Integer.BYTES, length);
+      return header;
+    }
+  }
+
+  private boolean isExpired(Letter letter, long now) {
+    return now - letter.timestamp > ttlMillis;
+  }
+
+  // Every whole message in a mailbox file; one cut short by a crash, or with a length that
+  // cannot be right, ends it
+  private static List<Letter> readLetters(Box box, int maxFrameLength) throws IOException {
+    List<Letter> letters = new ArrayList<>();
+    long remaining = Files.size(box.file) - box.header.length;
+    try (InputStream stream = Files.newInputStream(box.file);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(stream))) {
+      in.skipNBytes(box.header.length);
+      while (remaining >= RECORD_HEADER_BYTES) {
+        long timestamp = in.readLong();
+        int length = in.readInt();
+        remaining -= RECORD_HEADER_BYTES;
+        if (length < 0 || length > maxFrameLength || length > remaining) {
+          break;
+        }
+        byte[] frame = new byte[length];
+        in.readFully(frame);
+        remaining -= length;
+        letters.add(new Letter(timestamp, frame));
+      }
+    } catch (EOFException e) {
+      // The file shrank while it was read; what was whole is kept
+    }
+    return letters;
+  }
+
+  /**
+   * Number of messages waiting for a user, expired ones included until they are dropped.
+   *
+   * @param username the username
+   * @return the number of messages waiting
+   */
+  public synchronized int getCount(String username) {
+    Box box = boxes.get(username);
+    return box == null ? 0 : box.count;
+  }
+
+  /**
+   * Number of users who have a mailbox.
+   *
+   * @return the number of mailboxes
+   */
+  public synchronized int size() {
+    return boxes.size();
+  }
+
+  /**
+   * Gets the most users who have a mailbox.
+   *
+   * @return the number of mailboxes
+   */
+  public int getMaxUsers() {
+    return maxUsers;
+  }
+
+  /**
+   * Gets the most messages one mailbox holds.
+   *
+   * @return the mailbox size
+   */
+  public int getMaxMessages() {
+    return maxMessages;
+  }
+
+  /**
+   * Gets the milliseconds a message waits before it expires.
+   *
+   * @return the time to live
+   */
+  public long getTtlMillis() {
+    return ttlMillis;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return "OfflineMailbox{" +
+        "directory=" + directory +
+        ", maxUsers=" + maxUsers +
+        ", maxMessages=" + maxMessages +
+        ", ttlMillis=" + ttlMillis +
+        ", users=" + boxes.size() +
+        '}';
+  }
+
+  // One user's mailbox file, how many messages it holds and when it was last used
+  private static final class Box {
+
+    private final Path file;
+    // The length and bytes of the username the file starts with
+    private final byte[] header;
+    private int count;
+    private long lastUsed;
+
+    Box(Path file, byte[] header, long lastUsed) {
+      this.file = file;
+      this.header = header;
+      this.lastUsed = lastUsed;
+    }
+  }
+
+  // One message read back from a mailbox file
+  private static final class Letter {
+
+    private final long timestamp;
+    private final byte[] frame;
+
+    Letter(long timestamp, byte[] frame) {
+      this.timestamp = timestamp;
+      this.frame = frame;
+    }
+  }
+}
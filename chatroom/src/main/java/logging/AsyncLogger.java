@@ -0,0 +1,240 @@
+package logging;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Logger that hands events to a background thread through a bounded ring buffer. Logging only
+ * copies a reference into the ring, so no caller ever waits on the console or the disk; the
+ * background thread drains everything that has piled up and gives it to the appender as one
+ * batch. When the ring is full new events are dropped and counted rather than blocking.
+ */
+public class AsyncLogger {
+
+  /**
+   * Default number of events the ring holds.
+   */
+  public static final int DEFAULT_CAPACITY = 8192;
+  /**
+   * Name of the background thread.
+   */
+  public static final String THREAD_NAME = "async-logger";
+  private static final String APPENDER_ERROR = "Logging failed: ";
+
+  private final LogEvent[] ring;
+  private final LogAppender appender;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition notEmpty = lock.newCondition();
+  private final Condition written = lock.newCondition();
+  private final List<LogEvent> batch = new ArrayList<>();
+  private final Thread thread;
+  private volatile LogLevel level;
+  private long head;
+  private long tail;
+  private long writtenCount;
+  private long droppedCount;
+  private boolean closed;
+
+  // Build the ring; the background thread is started by start once the logger is fully built
+  private AsyncLogger(LogLevel level, LogAppender appender, int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+    }
+    this.level = level;
+    this.appender = appender;
+    this.ring = new LogEvent[capacity];
+    this.thread = new Thread(this::drain, THREAD_NAME);
+    thread.setDaemon(true);
+  }
+
+  /**
+   * Create an async logger and start its background thread.
+   *
+   * @param level    the lowest level that is logged
+   * @param appender where events are written
+   * @param capacity the number of events the ring holds
+   * @return the logger
+   */
+  public static AsyncLogger start(LogLevel level, LogAppender appender, int capacity) {
+    AsyncLogger logger = new AsyncLogger(level, appender, capacity);
+    logger.thread.start();
+    return logger;
+  }
+
+  /**
+   * Create an async logger with the default capacity and start its background thread.
+   *
+   * @param level    the lowest level that is logged
+   * @param appender where events are written
+   * @return the logger
+   */
+  public static AsyncLogger start(LogLevel level, LogAppender appender) {
+    return start(level, appender, DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Is a level logged. Callers building an expensive message can check this first.
+   *
+   * @param level the level
+   * @return true if events at the level are logged
+   */
+  public boolean isEnabled(LogLevel level) {
+    return level != LogLevel.OFF && level.compareTo(this.level) >= 0;
+  }
+
+  /**
+   * Log a message. Never blocks on output.
+   *
+   * @param level   the level
+   * @param message the message
+   */
+  public void log(LogLevel level, String message) {
+    if (!isEnabled(level)) {
+      return;
+    }
+    LogEvent event = new LogEvent(System.currentTimeMillis(), level,
+        Thread.currentThread().getName(), message);
+    lock.lock();
+    try {
+      if (closed || tail - head == ring.length) {
+        droppedCount++;
+        return;
+      }
+      ring[(int) (tail++ % ring.length)] = event;
+      notEmpty.signal();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void drain() {
+    while (true) {
+      lock.lock();
+      try {
+        while (head == tail && !closed) {
+          notEmpty.awaitUninterruptibly();
+        }
+        if (head == tail) {
+          return;
+        }
+        batch.clear();
+        while (head < tail) {
+          int index = (int) (head++ % ring.length);
+          batch.add(ring[index]);
+          ring[index] = null;
+        }
+      } finally {
+        lock.unlock();
+      }
+      try {
+        appender.append(batch);
+      } catch (IOException e) {
+        // Nowhere better to report it; the events of the batch are lost
+        System.err.println(APPENDER_ERROR + e.getMessage());
+      }
+      lock.lock();
+      try {
+        writtenCount += batch.size();
+        written.signalAll();
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  /**
+   * Wait until every event logged so far has been handed to the appender.
+   *
+   * @param timeoutMillis how long to wait
+   * @return false if the events were not all written in time
+   * @throws InterruptedException the interrupted exception
+   */
+  public boolean flush(long timeoutMillis) throws InterruptedException {
+    long remaining = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    lock.lock();
+    try {
+      // Dropped events never enter the ring, so every event up to the tail will be written
+      long target = tail;
+      while (writtenCount < target && remaining > 0) {
+        remaining = written.awaitNanos(remaining);
+      }
+      return writtenCount >= target;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Stop accepting events, write what is queued and close the appender.
+   *
+   * @param timeoutMillis how long to wait for queued events to be written
+   * @throws InterruptedException the interrupted exception
+   */
+  public void close(long timeoutMillis) throws InterruptedException {
+    lock.lock();
+    try {
+      closed = true;
+      notEmpty.signalAll();
+    } finally {
+      lock.unlock();
+    }
+    thread.join(timeoutMillis);
+    try {
+      appender.close();
+    } catch (IOException e) {
+      System.err.println(APPENDER_ERROR + e.getMessage());
+    }
+  }
+
+  /**
+   * Gets the lowest level that is logged.
+   *
+   * @return the level
+   */
+  public LogLevel getLevel() {
+    return level;
+  }
+
+  /**
+   * Sets the lowest level that is logged. Takes effect immediately on every thread.
+   *
+   * @param level the level
+   */
+  public void setLevel(LogLevel level) {
+    this.level = level;
+  }
+
+  /**
+   * Number of events dropped because the ring was full.
+   *
+   * @return the dropped count
+   */
+  public long droppedCount() {
+    lock.lock();
+    try {
+      return droppedCount;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public String toString() {
+    lock.lock();
+    try {
+      return "AsyncLogger{" +
+          "level=" + level +
+          ", queued=" + (tail - head) +
+          ", capacity=" + ring.length +
+          ", dropped=" + droppedCount +
+          ", appender=" + appender +
+          '}';
+    } finally {
+      lock.unlock();
+    }
+  }
+}
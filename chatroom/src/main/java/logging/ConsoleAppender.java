@@ -0,0 +1,32 @@
+package logging;
+
+import java.util.List;
+
+/**
+ * Writes each batch of events to standard output with one print.
+ */
+public class ConsoleAppender implements LogAppender {
+
+  private final StringBuilder text = new StringBuilder();
+
+  @Override
+  public void append(List<LogEvent> events) {
+    text.setLength(0);
+    for (LogEvent event : events) {
+      event.formatTo(text);
+    }
+    // Looked up per batch so that a redirected System.out is honoured
+    System.out.print(text);
+    System.out.flush();
+  }
+
+  @Override
+  public void close() {
+    System.out.flush();
+  }
+
+  @Override
+  public String toString() {
+    return "ConsoleAppender{}";
+  }
+}
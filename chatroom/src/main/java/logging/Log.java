@@ -0,0 +1,117 @@
+package logging;
+
+/**
+ * Static access to the process wide {@link AsyncLogger}. Until {@link #configure} is called
+ * events at {@link LogLevel#INFO} and above go to standard output.
+ */
+public final class Log {
+
+  /**
+   * How long {@link #shutdown()} waits for queued events to be written.
+   */
+  public static final long SHUTDOWN_TIMEOUT_MILLIS = 2000;
+
+  private static volatile AsyncLogger logger = AsyncLogger.start(LogLevel.INFO,
+      new ConsoleAppender());
+
+  private Log() {
+  }
+
+  /**
+   * Replace the process wide logger. Events already queued on the old logger are written before
+   * it is closed.
+   *
+   * @param level    the lowest level that is logged
+   * @param appender where events are written
+   */
+  public static void configure(LogLevel level, LogAppender appender) {
+    AsyncLogger previous = logger;
+    logger = AsyncLogger.start(level, appender);
+    try {
+      previous.close(SHUTDOWN_TIMEOUT_MILLIS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Gets the process wide logger.
+   *
+   * @return the logger
+   */
+  public static AsyncLogger get() {
+    return logger;
+  }
+
+  /**
+   * Is a level logged.
+   *
+   * @param level the level
+   * @return true if events at the level are logged
+   */
+  public static boolean isEnabled(LogLevel level) {
+    return logger.isEnabled(level);
+  }
+
+  /**
+   * Log at debug level.
+   *
+   * @param message the message
+   */
+  public static void debug(String message) {
+    logger.log(LogLevel.DEBUG, message);
+  }
+
+  /**
+   * Log at info level.
+   *
+   * @param message the message
+   */
+  public static void info(String message) {
+    logger.log(LogLevel.INFO, message);
+  }
+
+  /**
+   * Log at warn level.
+   *
+   * @param message the message
+   */
+  public static void warn(String message) {
+    logger.log(LogLevel.WARN, message);
+  }
+
+  /**
+   * Log at error level.
+   *
+   * @param message the message
+   */
+  public static void error(String message) {
+    logger.log(LogLevel.ERROR, message);
+  }
+
+  /**
+   * Wait until every event logged so far has been written.
+   *
+   * @param timeoutMillis how long to wait
+   * @return false if the events were not all written in time
+   */
+  public static boolean flush(long timeoutMillis) {
+    try {
+      return logger.flush(timeoutMillis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  /**
+   * Write whatever is queued and close the appender, for shutdown hooks.
+   */
+  public static void shutdown() {
+    try {
+      logger.close(SHUTDOWN_TIMEOUT_MILLIS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
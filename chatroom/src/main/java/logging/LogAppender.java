@@ -0,0 +1,26 @@
+package logging;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Where an {@link AsyncLogger} writes its events. Only the logger's background thread calls an
+ * appender, one batch at a time, so implementations need no locking of their own.
+ */
+public interface LogAppender {
+
+  /**
+   * Write a batch of events, ideally with a single write.
+   *
+   * @param events the events, oldest first
+   * @throws IOException the io exception
+   */
+  void append(List<LogEvent> events) throws IOException;
+
+  /**
+   * Release whatever the appender holds open.
+   *
+   * @throws IOException the io exception
+   */
+  void close() throws IOException;
+}
@@ -0,0 +1,103 @@
+package logging;
+
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * One line to be logged. Only the fields are captured on the logging thread; formatting happens
+ * on the appender thread.
+ */
+public final class LogEvent {
+
+  private final long timeMillis;
+  private final LogLevel level;
+  private final String threadName;
+  private final String message;
+
+  /**
+   * Instantiates a new Log event.
+   *
+   * @param timeMillis the time the event was logged, in milliseconds since the epoch
+   * @param level      the level
+   * @param threadName the name of the thread that logged the event
+   * @param message    the message
+   */
+  public LogEvent(long timeMillis, LogLevel level, String threadName, String message) {
+    this.timeMillis = timeMillis;
+    this.level = level;
+    this.threadName = threadName;
+    this.message = message;
+  }
+
+  /**
+   * Append the event as one line of space separated fields: time, level, thread and message.
+   *
+   * @param line the builder the line is appended to
+   */
+  public void formatTo(StringBuilder line) {
+    line.append(Instant.ofEpochMilli(timeMillis))
+        .append(' ').append(level)
+        .append(" [").append(threadName).append("] ")
+        .append(message)
+        .append(System.lineSeparator());
+  }
+
+  /**
+   * Gets time millis.
+   *
+   * @return the time millis
+   */
+  public long getTimeMillis() {
+    return timeMillis;
+  }
+
+  /**
+   * Gets level.
+   *
+   * @return the level
+   */
+  public LogLevel getLevel() {
+    return level;
+  }
+
+  /**
+   * Gets thread name.
+   *
+   * @return the thread name
+   */
+  public String getThreadName() {
+    return threadName;
+  }
+
+  /**
+   * Gets message.
+   *
+   * @return the message
+   */
+  public String getMessage() {
+    return message;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    LogEvent logEvent = (LogEvent) o;
+    return timeMillis == logEvent.timeMillis && level == logEvent.level
+        && Objects.equals(threadName, logEvent.threadName)
+        && Objects.equals(message, logEvent.message);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(timeMillis, level, threadName, message);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder line = new StringBuilder();
+    formatTo(line);
+    return line.toString().trim();
+  }
+}
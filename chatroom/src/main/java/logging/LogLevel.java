@@ -0,0 +1,62 @@
+package logging;
+
+/**
+ * Enum class for how important a log line is, from least to most severe
+ */
+public enum LogLevel {
+  /**
+   * per message detail, off unless chasing a problem
+   */
+  DEBUG("debug"),
+  /**
+   * connection and session chatter
+   */
+  INFO("info"),
+  /**
+   * something went wrong with one client
+   */
+  WARN("warn"),
+  /**
+   * something went wrong with the server
+   */
+  ERROR("error"),
+  /**
+   * nothing is logged
+   */
+  OFF("off");
+
+  private final String argument;
+
+  /**
+   * pairing the log level with its command line argument
+   *
+   * @param argument the command line argument selecting this level
+   */
+  LogLevel(String argument) {
+    this.argument = argument;
+  }
+
+  /**
+   * get the command line argument for the level
+   *
+   * @return the command line argument
+   */
+  public String getArgument() {
+    return argument;
+  }
+
+  /**
+   * generate log level from a command line argument
+   *
+   * @param argument input argument, case-insensitive
+   * @return log level, or null if the argument matches no level
+   */
+  public static LogLevel fromArgument(String argument) {
+    for (LogLevel level : values()) {
+      if (level.argument.equalsIgnoreCase(argument)) {
+        return level;
+      }
+    }
+    return null;
+  }
+}
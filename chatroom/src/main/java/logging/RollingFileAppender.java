@@ -0,0 +1,126 @@
+package logging;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Appends each batch of events to a file with one write. Once the file grows past a size limit it
+ * is renamed to file.1, older files move up to file.2 and so on, and the oldest beyond the
+ * retained count is deleted.
+ */
+public class RollingFileAppender implements LogAppender {
+
+  /**
+   * Default size a log file may grow to before it is rolled.
+   */
+  public static final long DEFAULT_MAX_FILE_BYTES = 10L * 1024 * 1024;
+  /**
+   * Default number of rolled files kept.
+   */
+  public static final int DEFAULT_MAX_ROLLED_FILES = 5;
+
+  private final Path file;
+  private final long maxFileBytes;
+  private final int maxRolledFiles;
+  private final StringBuilder text = new StringBuilder();
+  private OutputStream out;
+  private long size;
+
+  /**
+   * Instantiates a new Rolling file appender.
+   *
+   * @param file           the file events are appended to
+   * @param maxFileBytes   the size after which the file is rolled
+   * @param maxRolledFiles how many rolled files are kept
+   * @throws IOException the io exception
+   */
+  public RollingFileAppender(Path file, long maxFileBytes, int maxRolledFiles)
+      throws IOException {
+    this.file = file;
+    this.maxFileBytes = maxFileBytes;
+    this.maxRolledFiles = maxRolledFiles;
+    open();
+  }
+
+  /**
+   * Instantiates a new Rolling file appender with the default limits.
+   *
+   * @param file the file events are appended to
+   * @throws IOException the io exception
+   */
+  public RollingFileAppender(Path file) throws IOException {
+    this(file, DEFAULT_MAX_FILE_BYTES, DEFAULT_MAX_ROLLED_FILES);
+  }
+
+  private void open() throws IOException {
+    Path parent = file.toAbsolutePath().getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+    out = Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    size = Files.size(file);
+  }
+
+  @Override
+  public void append(List<LogEvent> events) throws IOException {
+    text.setLength(0);
+    for (LogEvent event : events) {
+      event.formatTo(text);
+    }
+    byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+    out.write(bytes);
+    out.flush();
+    size += bytes.length;
+    if (size >= maxFileBytes) {
+      roll();
+    }
+  }
+
+  private void roll() throws IOException {
+    out.close();
+    Files.deleteIfExists(rolled(maxRolledFiles));
+    for (int i = maxRolledFiles - 1; i >= 1; i--) {
+      Path older = rolled(i);
+      if (Files.exists(older)) {
+        Files.move(older, rolled(i + 1), StandardCopyOption.REPLACE_EXISTING);
+      }
+    }
+    if (maxRolledFiles > 0) {
+      Files.move(file, rolled(1), StandardCopyOption.REPLACE_EXISTING);
+    } else {
+      Files.delete(file);
+    }
+    open();
+  }
+
+  /**
+   * The path of a rolled file.
+   *
+   * @param index 1 for the most recently rolled file
+   * @return the path
+   */
+  Path rolled(int index) {
+    return file.resolveSibling(file.getFileName() + "." + index);
+  }
+
+  @Override
+  public void close() throws IOException {
+    out.close();
+  }
+
+  @Override
+  public String toString() {
+    return "RollingFileAppender{" +
+        "file=" + file +
+        ", size=" + size +
+        ", maxFileBytes=" + maxFileBytes +
+        ", maxRolledFiles=" + maxRolledFiles +
+        '}';
+  }
+}
@@ -0,0 +1,147 @@
+package metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of durations in nanoseconds, in the style of HdrHistogram. Values below 128
+ * are counted exactly; above that every power of two is split into 64 equal buckets, so any
+ * reported percentile is within 1.6% of the true value while the whole range of a long fits in
+ * fewer than 4,000 counters. Any number of threads may record at once.
+ */
+public class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 7;
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+  private static final int HALF_SUB_BUCKET_COUNT = SUB_BUCKET_COUNT / 2;
+  private static final int BUCKET_COUNT =
+      SUB_BUCKET_COUNT + (Long.SIZE - SUB_BUCKET_BITS) * HALF_SUB_BUCKET_COUNT;
+  private static final double MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+  private final AtomicLong totalCount = new AtomicLong();
+  private final AtomicLong totalNanos = new AtomicLong();
+  private final AtomicLong maxNanos = new AtomicLong();
+
+  /**
+   * Record one duration.
+   *
+   * @param nanos the duration in nanoseconds, negative values count as zero
+   */
+  public void record(long nanos) {
+    long value = Math.max(0, nanos);
+    counts.incrementAndGet(indexOf(value));
+    totalCount.incrementAndGet();
+    totalNanos.addAndGet(value);
+    maxNanos.accumulateAndGet(value, Math::max);
+  }
+
+  /**
+   * Record the time elapsed since a start time taken from {@link System#nanoTime()}.
+   *
+   * @param startNanos the start time
+   */
+  public void recordSince(long startNanos) {
+    record(System.nanoTime() - startNanos);
+  }
+
+  /**
+   * Number of recorded values.
+   *
+   * @return the count
+   */
+  public long count() {
+    return totalCount.get();
+  }
+
+  /**
+   * The largest recorded value.
+   *
+   * @return the max in nanoseconds
+   */
+  public long max() {
+    return maxNanos.get();
+  }
+
+  /**
+   * The mean of the recorded values.
+   *
+   * @return the mean in nanoseconds, 0 if nothing was recorded
+   */
+  public double mean() {
+    long count = totalCount.get();
+    return count == 0 ? 0 : (double) totalNanos.get() / count;
+  }
+
+  /**
+   * The value below which the given percentage of recorded values fall, to the precision of the
+   * bucket it lands in.
+   *
+   * @param percentile the percentile, between 0 and 100
+   * @return the value in nanoseconds, 0 if nothing was recorded
+   */
+  public long percentile(double percentile) {
+    long count = totalCount.get();
+    if (count == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+    long seen = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      seen += counts.get(i);
+      if (seen >= rank) {
+        return Math.min(highestValueAt(i), maxNanos.get());
+      }
+    }
+    return maxNanos.get();
+  }
+
+  /**
+   * Clear every recorded value. Values recorded while the reset runs may be kept or lost.
+   */
+  public void reset() {
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      counts.set(i, 0);
+    }
+    totalCount.set(0);
+    totalNanos.set(0);
+    maxNanos.set(0);
+  }
+
+  /**
+   * One line summary in milliseconds.
+   *
+   * @return the summary
+   */
+  public String summary() {
+    return String.format("count=%d mean=%.3f p50=%.3f p99=%.3f p999=%.3f max=%.3f ms",
+        count(), mean() / MILLIS, percentile(50) / MILLIS, percentile(99) / MILLIS,
+        percentile(99.9) / MILLIS, max() / MILLIS);
+  }
+
+  static int indexOf(long value) {
+    if (value < SUB_BUCKET_COUNT) {
+      return (int) value;
+    }
+    // Shift the value down until it lies in the upper half of a sub bucket range
+    int shift = Long.SIZE - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+    int subBucket = (int) (value >>> shift);
+    return SUB_BUCKET_COUNT + (shift - 1) * HALF_SUB_BUCKET_COUNT
+        + subBucket - HALF_SUB_BUCKET_COUNT;
+  }
+
+  static long highestValueAt(int index) {
+    if (index < SUB_BUCKET_COUNT) {
+      return index;
+    }
+    int shift = (index - SUB_BUCKET_COUNT) / HALF_SUB_BUCKET_COUNT + 1;
+    long subBucket = (index - SUB_BUCKET_COUNT) % HALF_SUB_BUCKET_COUNT + HALF_SUB_BUCKET_COUNT;
+    return ((subBucket + 1) << shift) - 1;
+  }
+
+  @Override
+  public String toString() {
+    return "LatencyHistogram{" + summary() + '}';
+  }
+}
@@ -0,0 +1,101 @@
+package metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Named counters, gauges and histograms, rendered as plain text in the Prometheus exposition
+ * format. Looking a metric up by name is meant for start-up; hot paths keep the returned
+ * {@link LongAdder} or {@link LatencyHistogram} and update it directly, which never locks.
+ */
+public class MetricsRegistry {
+
+  private static final double[] QUANTILES = {0.5, 0.99, 0.999};
+
+  private final Map<String, Object> metrics = new ConcurrentSkipListMap<>();
+
+  /**
+   * Get or create a counter.
+   *
+   * @param name the metric name, optionally with labels such as name{type="x"}
+   * @return the counter
+   * @throws IllegalArgumentException if the name is already used by another kind of metric
+   */
+  public LongAdder counter(String name) {
+    return get(name, LongAdder.class, new LongAdder());
+  }
+
+  /**
+   * Get or create a histogram.
+   *
+   * @param name the metric name
+   * @return the histogram
+   * @throws IllegalArgumentException if the name is already used by another kind of metric
+   */
+  public LatencyHistogram histogram(String name) {
+    return get(name, LatencyHistogram.class, new LatencyHistogram());
+  }
+
+  /**
+   * Register a gauge whose value is read when the metrics are rendered. A gauge registered again
+   * under the same name replaces the old one.
+   *
+   * @param name  the metric name
+   * @param value reads the current value
+   */
+  public void gauge(String name, LongSupplier value) {
+    metrics.put(name, value);
+  }
+
+  private <T> T get(String name, Class<T> type, T created) {
+    Object metric = metrics.putIfAbsent(name, created);
+    if (metric == null) {
+      return created;
+    }
+    if (!type.isInstance(metric)) {
+      throw new IllegalArgumentException("Metric " + name + " is not a " + type.getSimpleName());
+    }
+    return type.cast(metric);
+  }
+
+  /**
+   * Render every metric, one sample per line, sorted by name. Histograms are rendered as a
+   * summary with count, mean, max and the 50th, 99th and 99.9th percentiles.
+   *
+   * @return the metrics as text
+   */
+  public String render() {
+    StringBuilder text = new StringBuilder();
+    for (Map.Entry<String, Object> entry : metrics.entrySet()) {
+      String name = entry.getKey();
+      Object metric = entry.getValue();
+      if (metric instanceof LongAdder counter) {
+        line(text, name, counter.sum());
+      } else if (metric instanceof LongSupplier gauge) {
+        line(text, name, gauge.getAsLong());
+      } else if (metric instanceof LatencyHistogram histogram) {
+        for (double quantile : QUANTILES) {
+          line(text, name + "{quantile=\"" + quantile + "\"}",
+              histogram.percentile(quantile * 100));
+        }
+        line(text, name + "_max", histogram.max());
+        line(text, name + "_mean", Math.round(histogram.mean()));
+        line(text, name + "_count", histogram.count());
+      }
+    }
+    return text.toString();
+  }
+
+  private static void line(StringBuilder text, String name, long value) {
+    text.append(name).append(' ').append(value).append('\n');
+  }
+
+  @Override
+  public String toString() {
+    return "MetricsRegistry{" +
+        "metrics=" + metrics.keySet() +
+        '}';
+  }
+}
@@ -3,6 +3,7 @@ package protocol;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Objects;
 
 /**
@@ -11,7 +12,7 @@ import java.util.Objects;
 public class BroadcastMessage extends Message {
 
   private String senderUsername;
-  private String message;
+  private Utf8Text message;
 
   /**
    * Default constructor
@@ -27,7 +28,7 @@ public class BroadcastMessage extends Message {
    */
   public BroadcastMessage(String senderUsername, String message) {
     this.senderUsername = senderUsername;
-    this.message = message;
+    this.message = Utf8Text.of(message);
   }
 
   @Override
@@ -38,23 +39,42 @@ public class BroadcastMessage extends Message {
     out.writeInt(senderBytes.length);
     out.write(senderBytes);
 
-    byte[] messageBytes = (message != null ? message : EMPTY_STRING).getBytes(
-        DEFAULT_CHAR_SET);
+    byte[] messageBytes = (message != null ? message : Utf8Text.EMPTY).getBytes();
     out.writeInt(messageBytes.length);
     out.write(messageBytes);
   }
 
   @Override
   public void decode(DataInputStream in) throws IOException {
-    int senderSize = in.readInt();
-    byte[] senderBytes = new byte[senderSize];
+    byte[] senderBytes = new byte[readFieldLength(in)];
     in.readFully(senderBytes);
     this.senderUsername = new String(senderBytes, DEFAULT_CHAR_SET);
 
-    int messageSize = in.readInt();
-    byte[] messageBytes = new byte[messageSize];
-    in.readFully(messageBytes);
-    this.message = new String(messageBytes, DEFAULT_CHAR_SET);
+    this.message = readText(in);
+  }
+
+  @Override
+  public void encode(ByteBuffer out) {
+    out.putInt(getMessageType().getValue());
+    putString(out, senderUsername);
+    putText(out, message);
+  }
+
+  @Override
+  public void decode(ByteBuffer in, FrameLimits limits) throws IOException {
+    this.senderUsername = getString(in, limits);
+    this.message = getText(in, limits);
+  }
+
+  @Override
+  public int encodedLength() {
+    return Integer.BYTES + fieldLength(senderUsername) + fieldLength(message);
+  }
+
+  @Override
+  public void reset() {
+    this.senderUsername = null;
+    this.message = null;
   }
 
   @Override
@@ -77,6 +97,15 @@ public class BroadcastMessage extends Message {
    * @return message content
    */
   public String getMessage() {
+    return message != null ? message.toString() : null;
+  }
+
+  /**
+   * get the message content without decoding it
+   *
+   * @return message content as text
+   */
+  public Utf8Text getMessageText() {
     return message;
   }
 
@@ -0,0 +1,134 @@
+package protocol;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Represent a pool of equally sized byte buffers, so connections that come and go reuse the
+ * same buffers instead of allocating new ones. Direct buffers are worth pooling in particular:
+ * they are expensive to allocate, but a channel reads into them without an extra copy.
+ */
+public class BufferPool {
+
+  /**
+   * Default size of a pooled buffer.
+   */
+  public static final int DEFAULT_BUFFER_SIZE = 8192;
+  /**
+   * Default number of idle buffers kept for reuse.
+   */
+  public static final int DEFAULT_MAX_POOLED = 1024;
+
+  private final ConcurrentLinkedQueue<ByteBuffer> idle = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger idleCount = new AtomicInteger();
+  private final int bufferSize;
+  private final int maxPooled;
+  private final boolean direct;
+
+  /**
+   * Instantiates a new Buffer pool.
+   *
+   * @param bufferSize the capacity of every pooled buffer
+   * @param maxPooled  the most idle buffers kept, the rest are left to the garbage collector
+   * @param direct     whether to allocate direct buffers instead of heap buffers
+   */
+  public BufferPool(int bufferSize, int maxPooled, boolean direct) {
+    if (bufferSize < 1) {
+      throw new IllegalArgumentException("Buffer size must be positive: " + bufferSize);
+    }
+    this.bufferSize = bufferSize;
+    this.maxPooled = maxPooled;
+    this.direct = direct;
+  }
+
+  /**
+   * Instantiates a new Buffer pool of heap buffers with the default sizes.
+   */
+  public BufferPool() {
+    this(DEFAULT_BUFFER_SIZE, DEFAULT_MAX_POOLED, false);
+  }
+
+  /**
+   * Take a cleared buffer of the pool's buffer size.
+   *
+   * @return the buffer
+   */
+  public ByteBuffer acquire() {
+    ByteBuffer buffer = idle.poll();
+    if (buffer == null) {
+      return allocate(bufferSize);
+    }
+    idleCount.decrementAndGet();
+    return buffer.clear();
+  }
+
+  /**
+   * Take a cleared buffer of at least the given capacity. Buffers larger than the pool's buffer
+   * size are allocated on demand and not pooled.
+   *
+   * @param minCapacity the capacity needed
+   * @return the buffer
+   */
+  public ByteBuffer acquire(int minCapacity) {
+    return minCapacity <= bufferSize ? acquire() : allocate(minCapacity);
+  }
+
+  /**
+   * Give a buffer back. The caller must not use it afterwards.
+   *
+   * @param buffer the buffer, ignored if it did not come from a pool like this one
+   */
+  public void release(ByteBuffer buffer) {
+    if (buffer == null || buffer.capacity() != bufferSize || buffer.isDirect() != direct
+        || buffer.isReadOnly()) {
+      return;
+    }
+    if (idleCount.incrementAndGet() > maxPooled) {
+      idleCount.decrementAndGet();
+      return;
+    }
+    idle.offer(buffer);
+  }
+
+  /**
+   * Number of idle buffers waiting to be reused.
+   *
+   * @return the idle count
+   */
+  public int idleCount() {
+    return idleCount.get();
+  }
+
+  /**
+   * Gets buffer size.
+   *
+   * @return the buffer size
+   */
+  public int getBufferSize() {
+    return bufferSize;
+  }
+
+  /**
+   * Is direct boolean.
+   *
+   * @return the boolean
+   */
+  public boolean isDirect() {
+    return direct;
+  }
+
+  private ByteBuffer allocate(int capacity) {
+    return direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+  }
+
+  @Override
+  public String toString() {
+    return "BufferPool{" +
+        "bufferSize=" + bufferSize +
+        ", idle=" + idleCount.get() +
+        ", maxPooled=" + maxPooled +
+        ", direct=" + direct +
+        '}';
+  }
+}
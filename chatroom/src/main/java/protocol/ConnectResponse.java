@@ -3,6 +3,7 @@ package protocol;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Objects;
 
 /**
@@ -42,12 +43,35 @@ public class ConnectResponse extends Message {
   @Override
   public void decode(DataInputStream in) throws IOException {
     success = in.readBoolean();
-    int messageSize = in.readInt();
-    byte[] messageBytes = new byte[messageSize];
+    byte[] messageBytes = new byte[readFieldLength(in)];
     in.readFully(messageBytes);
     this.message = new String(messageBytes, DEFAULT_CHAR_SET);
   }
 
+  @Override
+  public void encode(ByteBuffer out) {
+    out.putInt(getMessageType().getValue());
+    out.put((byte) (success ? 1 : 0));
+    putString(out, message);
+  }
+
+  @Override
+  public void decode(ByteBuffer in, FrameLimits limits) throws IOException {
+    success = in.get() != 0;
+    this.message = getString(in, limits);
+  }
+
+  @Override
+  public int encodedLength() {
+    return Integer.BYTES + 1 + fieldLength(message);
+  }
+
+  @Override
+  public void reset() {
+    this.success = false;
+    this.message = null;
+  }
+
   @Override
   public MessageType getMessageType() {
     return MessageType.CONNECT_RESPONSE;
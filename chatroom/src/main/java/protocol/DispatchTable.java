@@ -0,0 +1,139 @@
+package protocol;
+
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * Handlers for messages, looked up by type code in an array indexed by the code itself, so
+ * dispatching a message is one array load rather than a chain of {@code instanceof} checks. A
+ * table is built once and shared: each handler is given the object it acts on and an argument,
+ * such as the sender's username, with every message, so it captures no per-connection state.
+ *
+ * @param <T> the type of the object handlers act on
+ * @param <A> the type of the argument passed along with every message
+ */
+public final class DispatchTable<T, A> {
+
+  /**
+   * Error message for registering a handler for a type that already has one.
+   */
+  public static final String DUPLICATE_HANDLER_ERROR = "Handler already registered for ";
+
+  private final Entry<T, A>[] entries;
+  private final Handler<T, Message, A> fallback;
+
+  /**
+   * Instantiates a new, empty dispatch table.
+   *
+   * @param fallback handles every message no handler is registered for
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  public DispatchTable(Handler<T, Message, A> fallback) {
+    this.fallback = Objects.requireNonNull(fallback);
+    this.entries = new Entry[MessageType.maxValue() + 1];
+  }
+
+  /**
+   * Register the handler for one message type.
+   *
+   * @param <M>          the message class
+   * @param type         the message type
+   * @param messageClass the class of the messages of that type
+   * @param handler      the handler
+   * @return this table
+   * @throws IllegalStateException if the type already has a handler
+   */
+  public <M extends Message> DispatchTable<T, A> register(MessageType type, Class<M> messageClass,
+      Handler<T, ? super M, A> handler) {
+    int index = type.getValue();
+    if (entries[index] != null) {
+      throw new IllegalStateException(DUPLICATE_HANDLER_ERROR + type);
+    }
+    entries[index] = new Entry<>(messageClass, handler);
+    return this;
+  }
+
+  /**
+   * Whether a message type has a handler of its own.
+   *
+   * @param type the message type
+   * @return true if it is registered
+   */
+  public boolean isRegistered(MessageType type) {
+    return type != null && entries[type.getValue()] != null;
+  }
+
+  /**
+   * Pass a message to the handler registered for its type, or to the fallback if there is none
+   * or the message is not of the registered class.
+   *
+   * @param target   the object the handler acts on
+   * @param message  the message
+   * @param argument the argument passed to the handler
+   * @return what the handler returns
+   * @throws IOException if the handler fails to send a reply
+   */
+  public boolean dispatch(T target, Message message, A argument) throws IOException {
+    MessageType type = message.getMessageType();
+    Entry<T, A> entry = type == null ? null : entries[type.getValue()];
+    if (entry == null || !entry.messageClass.isInstance(message)) {
+      return fallback.handle(target, message, argument);
+    }
+    return entry.handle(target, message, argument);
+  }
+
+  @Override
+  public String toString() {
+    int registered = 0;
+    for (Entry<T, A> entry : entries) {
+      if (entry != null) {
+        registered++;
+      }
+    }
+    return "DispatchTable{" +
+        "registered=" + registered +
+        '}';
+  }
+
+  /**
+   * Handles one type of message.
+   *
+   * @param <T> the type of the object the handler acts on
+   * @param <M> the message class
+   * @param <A> the type of the argument passed along with every message
+   */
+  @FunctionalInterface
+  public interface Handler<T, M extends Message, A> {
+
+    /**
+     * Handle a message.
+     *
+     * @param target   the object the handler acts on
+     * @param message  the message
+     * @param argument the argument passed along with the message
+     * @return whatever the caller of {@link DispatchTable#dispatch} expects, such as whether
+     *     the connection stays open
+     * @throws IOException if a reply cannot be sent
+     */
+    boolean handle(T target, M message, A argument) throws IOException;
+  }
+
+  /**
+   * A handler together with the class it accepts, checked before the handler is called.
+   */
+  private static final class Entry<T, A> {
+
+    private final Class<? extends Message> messageClass;
+    private final Handler<T, Message, A> handler;
+
+    @SuppressWarnings("unchecked")
+    private <M extends Message> Entry(Class<M> messageClass, Handler<T, ? super M, A> handler) {
+      this.messageClass = Objects.requireNonNull(messageClass);
+      this.handler = (Handler<T, Message, A>) Objects.requireNonNull(handler);
+    }
+
+    private boolean handle(T target, Message message, A argument) throws IOException {
+      return handler.handle(target, message, argument);
+    }
+  }
+}
@@ -4,6 +4,7 @@ import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Objects;
 
 /**
@@ -40,12 +41,32 @@ public class FailedMessage extends Message {
 
   @Override
   public void decode(DataInputStream in) throws IOException {
-    int messageSize = in.readInt();
-    byte[] messageBytes = new byte[messageSize];
+    byte[] messageBytes = new byte[readFieldLength(in)];
     in.readFully(messageBytes);
     this.message = new String(messageBytes, DEFAULT_CHAR_SET);
   }
 
+  @Override
+  public void encode(ByteBuffer out) {
+    out.putInt(getMessageType().getValue());
+    putString(out, message);
+  }
+
+  @Override
+  public void decode(ByteBuffer in, FrameLimits limits) throws IOException {
+    this.message = getString(in, limits);
+  }
+
+  @Override
+  public int encodedLength() {
+    return Integer.BYTES + fieldLength(message);
+  }
+
+  @Override
+  public void reset() {
+    this.message = null;
+  }
+
   @Override
   public MessageType getMessageType() {
     return MessageType.FAILED_MESSAGE;
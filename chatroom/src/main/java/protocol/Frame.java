@@ -0,0 +1,132 @@
+package protocol;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Represent a message that has already been encoded. A frame never changes after it is created,
+ * so the same instance can be written to any number of recipients without encoding the message
+ * again.
+ */
+public final class Frame {
+
+  private final byte[] bytes;
+  private volatile Frame framed;
+
+  private Frame(byte[] bytes) {
+    this.bytes = bytes;
+  }
+
+  /**
+   * Encode a message into a frame
+   *
+   * @param message the message
+   * @return the encoded frame
+   * @throws IOException for exceptions
+   */
+  public static Frame of(Message message) throws IOException {
+    return new Frame(message.encode());
+  }
+
+  /**
+   * Wrap bytes that already hold exactly one encoded message. The array is not copied, so the
+   * caller must not modify it afterwards.
+   *
+   * @param encoded the encoded message
+   * @return the frame
+   */
+  public static Frame wrap(byte[] encoded) {
+    return new Frame(encoded);
+  }
+
+  /**
+   * get the frame in the {@link WireFormat#FRAMED} format. The framed copy is made once and
+   * shared, so a broadcast costs one extra copy however many recipients read the framed format.
+   *
+   * @return the framed frame
+   */
+  public Frame framed() {
+    Frame copy = framed;
+    if (copy == null) {
+      // Racing callers may each make a copy; they are equal and either one will do
+      copy = new Frame(FrameHeader.prepend(bytes));
+      copy.framed = copy;
+      framed = copy;
+    }
+    return copy;
+  }
+
+  /**
+   * get the frame in a wire format
+   *
+   * @param format the wire format
+   * @return this frame for the legacy format, the framed copy otherwise
+   */
+  public Frame inFormat(WireFormat format) {
+    return format == WireFormat.LEGACY ? this : framed();
+  }
+
+  /**
+   * get the number of encoded bytes
+   *
+   * @return the frame length
+   */
+  public int length() {
+    return bytes.length;
+  }
+
+  /**
+   * write the encoded bytes to a stream without flushing it
+   *
+   * @param out the stream
+   * @throws IOException for exceptions
+   */
+  public void writeTo(OutputStream out) throws IOException {
+    out.write(bytes);
+  }
+
+  /**
+   * send the frame to stream
+   *
+   * @param out DataOutputStream
+   * @throws IOException for exceptions
+   */
+  public void sendToStream(DataOutputStream out) throws IOException {
+    writeTo(out);
+    out.flush();
+  }
+
+  /**
+   * get a read-only view of the encoded bytes, positioned at the start of the frame
+   *
+   * @return the byte buffer view
+   */
+  public ByteBuffer asByteBuffer() {
+    return ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    Frame that = (Frame) o;
+    return Arrays.equals(bytes, that.bytes);
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(bytes);
+  }
+
+  @Override
+  public String toString() {
+    return "Frame [length=" + bytes.length + "]";
+  }
+}
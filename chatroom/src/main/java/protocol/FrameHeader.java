@@ -0,0 +1,183 @@
+package protocol;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * The header in front of every {@link WireFormat#FRAMED} frame:
+ *
+ * <pre>
+ * magic (1 byte) | version (1 byte) | flags (2 bytes) | total length (4 bytes) | type (4 bytes)
+ * </pre>
+ *
+ * <p>The type code and the fields after it are laid out exactly as in the legacy format, and the
+ * total length counts the whole frame, header included. A legacy frame starts with the high byte
+ * of its type code, which is always zero, so the first byte alone tells the two formats apart
+ * and a reader can accept either on any frame.
+ */
+public final class FrameHeader {
+
+  /**
+   * First byte of every framed frame.
+   */
+  public static final byte MAGIC = (byte) 0xCA;
+  /**
+   * Version of the framed format.
+   */
+  public static final byte VERSION = 2;
+  /**
+   * Bytes before the type code: magic, version, flags and total length.
+   */
+  public static final int LENGTH = 8;
+  /**
+   * Error message for a framed frame of a version this reader does not know.
+   */
+  public static final String UNSUPPORTED_VERSION_ERROR = "Unsupported frame version";
+  /**
+   * Error message for a total length that does not match the frame.
+   */
+  public static final String INVALID_FRAME_LENGTH_ERROR = "Invalid frame length";
+
+  private static final int SMALLEST_FRAME = LENGTH + Integer.BYTES;
+  private static final int NO_FLAGS = 0;
+
+  private FrameHeader() {
+  }
+
+  /**
+   * Whether the first four bytes of a frame, read as an int, start a framed frame.
+   *
+   * @param firstWord the first four bytes
+   * @return true for a framed frame, false for a legacy type code
+   */
+  public static boolean isFramed(int firstWord) {
+    return (byte) (firstWord >>> 24) == MAGIC;
+  }
+
+  /**
+   * Write a header for a frame of the given total length. The type code is not written.
+   *
+   * @param out         the buffer
+   * @param frameLength the total length, header included
+   */
+  public static void put(ByteBuffer out, int frameLength) {
+    out.put(MAGIC).put(VERSION).putShort((short) NO_FLAGS).putInt(frameLength);
+  }
+
+  /**
+   * Copy a legacy encoded frame into a framed one.
+   *
+   * @param legacy the legacy frame, starting with its type code
+   * @return the framed frame
+   */
+  public static byte[] prepend(byte[] legacy) {
+    byte[] framed = new byte[LENGTH + legacy.length];
+    ByteBuffer buffer = ByteBuffer.wrap(framed);
+    put(buffer, framed.length);
+    buffer.put(legacy);
+    return framed;
+  }
+
+  /**
+   * Read the rest of a header whose first four bytes have been read, and check the length
+   * against the limits of the stream before anything is allocated for the frame.
+   *
+   * @param firstWord the first four bytes
+   * @param in        the stream, positioned at the total length
+   * @return the bytes after the total length: the type code and the fields
+   * @throws IOException if the version is unknown or the length is invalid or over the limits
+   */
+  static int readPayloadLength(int firstWord, DataInputStream in) throws IOException {
+    if ((byte) (firstWord >>> 16) != VERSION) {
+      throw new IOException(UNSUPPORTED_VERSION_ERROR);
+    }
+    int frameLength = in.readInt();
+    if (frameLength < SMALLEST_FRAME) {
+      throw new IOException(INVALID_FRAME_LENGTH_ERROR);
+    }
+    int payloadLength = frameLength - LENGTH;
+    if (in instanceof FrameInputStream frameIn) {
+      frameIn.startFrame(frameLength, payloadLength);
+    } else if (frameLength > FrameLimits.DEFAULT.getMaxFrameLength()) {
+      throw new IOException(FrameInputStream.FRAME_TOO_LARGE_ERROR);
+    }
+    return payloadLength;
+  }
+
+  /**
+   * Gets the total length of the frame at the position of a buffer, without moving it.
+   *
+   * @param in the buffer
+   * @return the total length of a framed frame, or -1 for a legacy frame
+   * @throws EOFException if the buffer ends before the header does
+   * @throws IOException  if the version is unknown or the length is invalid
+   */
+  public static int peekFrameLength(ByteBuffer in) throws IOException {
+    int start = in.position();
+    if (!in.hasRemaining()) {
+      throw new EOFException();
+    }
+    if (in.get(start) != MAGIC) {
+      return -1;
+    }
+    if (in.remaining() < LENGTH) {
+      throw new EOFException();
+    }
+    if (in.get(start + 1) != VERSION) {
+      throw new IOException(UNSUPPORTED_VERSION_ERROR);
+    }
+    int frameLength = in.getInt(start + 4);
+    if (frameLength < SMALLEST_FRAME) {
+      throw new IOException(INVALID_FRAME_LENGTH_ERROR);
+    }
+    return frameLength;
+  }
+
+  /**
+   * Take the next frame out of a buffer in one step if it is framed.
+   *
+   * @param in the buffer; advanced past a framed frame, left where it is for a legacy one
+   * @return a view of the type code and fields of a framed frame, or null for a legacy frame
+   * @throws EOFException if the buffer ends part way through the frame
+   * @throws IOException  if the header is invalid
+   */
+  static ByteBuffer nextPayload(ByteBuffer in) throws IOException {
+    int frameLength = peekFrameLength(in);
+    if (frameLength < 0) {
+      return null;
+    }
+    if (in.remaining() < frameLength) {
+      throw new EOFException();
+    }
+    int start = in.position();
+    ByteBuffer payload = in.slice(start + LENGTH, frameLength - LENGTH);
+    in.position(start + frameLength);
+    return payload;
+  }
+
+  /**
+   * Check a decoder used exactly the bytes its frame said it had.
+   *
+   * @param payload the payload, after decoding
+   * @throws IOException if bytes are left over
+   */
+  static void checkConsumed(ByteBuffer payload) throws IOException {
+    if (payload.hasRemaining()) {
+      throw new IOException(INVALID_FRAME_LENGTH_ERROR);
+    }
+  }
+
+  /**
+   * Check a decoder used exactly the bytes its frame said it had.
+   *
+   * @param in the stream, after decoding
+   * @throws IOException if bytes are left over
+   */
+  static void checkConsumed(FrameInputStream in) throws IOException {
+    if (in.remaining() != 0) {
+      throw new IOException(INVALID_FRAME_LENGTH_ERROR);
+    }
+  }
+}
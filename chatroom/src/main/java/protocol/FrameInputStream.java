@@ -0,0 +1,159 @@
+package protocol;
+
+import java.io.DataInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A data stream that holds each frame read from it to a set of {@link FrameLimits}. Decoding a
+ * message starts a new frame, after which every byte read is charged to the frame and every
+ * field length is checked against both limits before its bytes are allocated. A frame that goes
+ * over is rejected with an IOException and marks the stream, which cannot be resynchronized and
+ * should be closed.
+ */
+public class FrameInputStream extends DataInputStream {
+
+  /**
+   * Error message for a frame or field over its limit.
+   */
+  public static final String FRAME_TOO_LARGE_ERROR = "Frame too large";
+
+  private final FrameLimits limits;
+  private final Budget budget;
+
+  /**
+   * Instantiates a new Frame input stream.
+   *
+   * @param in     the stream frames are read from
+   * @param limits the limits every frame is held to
+   */
+  public FrameInputStream(InputStream in, FrameLimits limits) {
+    super(new Budget(in));
+    this.limits = limits;
+    this.budget = (Budget) this.in;
+  }
+
+  /**
+   * Start charging reads to a new frame.
+   */
+  void startFrame() {
+    budget.remaining = limits.getMaxFrameLength();
+  }
+
+  /**
+   * Start charging reads to a framed frame whose total length is known up front, checking it
+   * against the frame limit before any of it is read.
+   *
+   * @param frameLength   the total length from the header
+   * @param payloadLength the bytes of the frame still to be read
+   * @throws IOException if the frame is over the frame limit
+   */
+  void startFrame(int frameLength, int payloadLength) throws IOException {
+    if (frameLength > limits.getMaxFrameLength()) {
+      throw budget.reject();
+    }
+    budget.remaining = payloadLength;
+  }
+
+  /**
+   * Check a field length read from the current frame, before its bytes are allocated.
+   *
+   * @param length the field length
+   * @throws IOException if the field is over the field limit or longer than what is left of
+   *                     the frame
+   */
+  void checkField(int length) throws IOException {
+    if (length > limits.getMaxFieldLength() || length > budget.remaining) {
+      throw budget.reject();
+    }
+  }
+
+  /**
+   * Gets the bytes left before the current frame goes over the frame limit.
+   *
+   * @return the remaining bytes
+   */
+  public int remaining() {
+    return budget.remaining;
+  }
+
+  /**
+   * Gets the limits.
+   *
+   * @return the limits
+   */
+  public FrameLimits getLimits() {
+    return limits;
+  }
+
+  /**
+   * Whether a frame has been rejected for going over a limit.
+   *
+   * @return true once a frame has been rejected
+   */
+  public boolean isOversized() {
+    return budget.oversized;
+  }
+
+  @Override
+  public String toString() {
+    return "FrameInputStream{" +
+        "limits=" + limits +
+        ", remaining=" + budget.remaining +
+        ", oversized=" + budget.oversized +
+        '}';
+  }
+
+  /**
+   * Counts bytes against the current frame, failing the read that would go past the limit.
+   */
+  private static final class Budget extends FilterInputStream {
+
+    private int remaining = Integer.MAX_VALUE;
+    private boolean oversized;
+
+    private Budget(InputStream in) {
+      super(in);
+    }
+
+    private IOException reject() {
+      oversized = true;
+      return new IOException(FRAME_TOO_LARGE_ERROR);
+    }
+
+    @Override
+    public int read() throws IOException {
+      if (remaining <= 0) {
+        throw reject();
+      }
+      int b = in.read();
+      if (b >= 0) {
+        remaining--;
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (len == 0) {
+        return 0;
+      }
+      if (remaining <= 0) {
+        throw reject();
+      }
+      int count = in.read(b, off, Math.min(len, remaining));
+      if (count > 0) {
+        remaining -= count;
+      }
+      return count;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      long skipped = in.skip(Math.min(n, remaining));
+      remaining -= (int) skipped;
+      return skipped;
+    }
+  }
+}
@@ -0,0 +1,83 @@
+package protocol;
+
+import java.util.Objects;
+
+/**
+ * The largest frame and the largest single field a reader accepts. Every length prefix is
+ * checked against them before anything is allocated for it, so a corrupt or hostile length can
+ * never ask for more memory than the limits allow.
+ */
+public final class FrameLimits {
+
+  /**
+   * Default largest frame, in bytes.
+   */
+  public static final int DEFAULT_MAX_FRAME_LENGTH = 1 << 20;
+  /**
+   * Default largest field, in bytes.
+   */
+  public static final int DEFAULT_MAX_FIELD_LENGTH = 1 << 16;
+  /**
+   * The default limits, also applied to streams that are not a {@link FrameInputStream}.
+   */
+  public static final FrameLimits DEFAULT = new FrameLimits(DEFAULT_MAX_FRAME_LENGTH,
+      DEFAULT_MAX_FIELD_LENGTH);
+
+  private final int maxFrameLength;
+  private final int maxFieldLength;
+
+  /**
+   * Instantiates new Frame limits.
+   *
+   * @param maxFrameLength the largest frame, including its type code
+   * @param maxFieldLength the largest field, not counting its length prefix; capped at what fits
+   *                       in the largest frame
+   */
+  public FrameLimits(int maxFrameLength, int maxFieldLength) {
+    if (maxFrameLength <= 0 || maxFieldLength <= 0) {
+      throw new IllegalArgumentException(Message.INVALID_FIELD_LENGTH_ERROR);
+    }
+    this.maxFrameLength = maxFrameLength;
+    this.maxFieldLength = Math.min(maxFieldLength, maxFrameLength);
+  }
+
+  /**
+   * Gets the largest frame, including its type code.
+   *
+   * @return the max frame length
+   */
+  public int getMaxFrameLength() {
+    return maxFrameLength;
+  }
+
+  /**
+   * Gets the largest field, not counting its length prefix.
+   *
+   * @return the max field length
+   */
+  public int getMaxFieldLength() {
+    return maxFieldLength;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    FrameLimits that = (FrameLimits) o;
+    return maxFrameLength == that.maxFrameLength && maxFieldLength == that.maxFieldLength;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(maxFrameLength, maxFieldLength);
+  }
+
+  @Override
+  public String toString() {
+    return "FrameLimits{" +
+        "maxFrameLength=" + maxFrameLength +
+        ", maxFieldLength=" + maxFieldLength +
+        '}';
+  }
+}
@@ -0,0 +1,120 @@
+package protocol;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ * Represent the answer to a query history message. It is followed by that many earlier
+ * messages, oldest first, each one the frame that was sent at the time
+ */
+public class HistoryResponse extends Message {
+
+  private String roomName;
+  private int count;
+
+  /**
+   * Default constructor
+   */
+  public HistoryResponse() {
+  }
+
+  /**
+   * Construct a HistoryResponse with given input arguments:
+   *
+   * @param roomName the room, empty for the main chat
+   * @param count    the number of messages that follow
+   */
+  public HistoryResponse(String roomName, int count) {
+    this.roomName = roomName;
+    this.count = count;
+  }
+
+  @Override
+  public void encode(DataOutputStream out) throws IOException {
+    out.writeInt(getMessageType().getValue());
+    byte[] roomBytes = (roomName != null ? roomName : EMPTY_STRING).getBytes(DEFAULT_CHAR_SET);
+    out.writeInt(roomBytes.length);
+    out.write(roomBytes);
+    out.writeInt(count);
+  }
+
+  @Override
+  public void decode(DataInputStream in) throws IOException {
+    byte[] roomBytes = new byte[readFieldLength(in)];
+    in.readFully(roomBytes);
+    this.roomName = new String(roomBytes, DEFAULT_CHAR_SET);
+    this.count = in.readInt();
+  }
+
+  @Override
+  public void encode(ByteBuffer out) {
+    out.putInt(getMessageType().getValue());
+    putString(out, roomName);
+    out.putInt(count);
+  }
+
+  @Override
+  public void decode(ByteBuffer in, FrameLimits limits) throws IOException {
+    this.roomName = getString(in, limits);
+    this.count = in.getInt();
+  }
+
+  @Override
+  public int encodedLength() {
+    return 2 * Integer.BYTES + fieldLength(roomName);
+  }
+
+  @Override
+  public void reset() {
+    this.roomName = null;
+    this.count = 0;
+  }
+
+  @Override
+  public MessageType getMessageType() {
+    return MessageType.HISTORY_RESPONSE;
+  }
+
+  /**
+   * get the room the messages were sent to
+   *
+   * @return the room name, empty for the main chat
+   */
+  public String getRoomName() {
+    return roomName;
+  }
+
+  /**
+   * get the number of messages that follow
+   *
+   * @return the count
+   */
+  public int getCount() {
+    return count;
+  }
+
+  @Override
+  public String toString() {
+    return "HistoryResponse [roomName=" + roomName + ", count=" + count + "]";
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    HistoryResponse that = (HistoryResponse) o;
+    return count == that.count && Objects.equals(roomName, that.roomName);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(roomName, count);
+  }
+}
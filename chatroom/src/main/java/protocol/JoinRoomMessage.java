@@ -0,0 +1,126 @@
+package protocol;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ * Represent a join room message
+ */
+public class JoinRoomMessage extends Message {
+
+  private String username;
+  private String roomName;
+
+  /**
+   * Default constructor
+   */
+  public JoinRoomMessage() {
+  }
+
+  /**
+   * Construct a JoinRoomMessage with given input arguments:
+   *
+   * @param username the username of sender
+   * @param roomName the room to join
+   */
+  public JoinRoomMessage(String username, String roomName) {
+    this.username = username;
+    this.roomName = roomName;
+  }
+
+  @Override
+  public void encode(DataOutputStream out) throws IOException {
+    out.writeInt(getMessageType().getValue());
+    byte[] usernameBytes = (username != null ? username : EMPTY_STRING).getBytes(
+        DEFAULT_CHAR_SET);
+    out.writeInt(usernameBytes.length);
+    out.write(usernameBytes);
+
+    byte[] roomBytes = (roomName != null ? roomName : EMPTY_STRING).getBytes(DEFAULT_CHAR_SET);
+    out.writeInt(roomBytes.length);
+    out.write(roomBytes);
+  }
+
+  @Override
+  public void decode(DataInputStream in) throws IOException {
+    byte[] usernameBytes = new byte[readFieldLength(in)];
+    in.readFully(usernameBytes);
+    this.username = new String(usernameBytes, DEFAULT_CHAR_SET);
+
+    byte[] roomBytes = new byte[readFieldLength(in)];
+    in.readFully(roomBytes);
+    this.roomName = new String(roomBytes, DEFAULT_CHAR_SET);
+  }
+
+  @Override
+  public void encode(ByteBuffer out) {
+    out.putInt(getMessageType().getValue());
+    putString(out, username);
+    putString(out, roomName);
+  }
+
+  @Override
+  public void decode(ByteBuffer in, FrameLimits limits) throws IOException {
+    this.username = getString(in, limits);
+    this.roomName = getString(in, limits);
+  }
+
+  @Override
+  public int encodedLength() {
+    return Integer.BYTES + fieldLength(username) + fieldLength(roomName);
+  }
+
+  @Override
+  public void reset() {
+    this.username = null;
+    this.roomName = null;
+  }
+
+  @Override
+  public MessageType getMessageType() {
+    return MessageType.JOIN_ROOM;
+  }
+
+  /**
+   * get the username
+   *
+   * @return the username
+   */
+  public String getUsername() {
+    return username;
+  }
+
+  /**
+   * get the room name
+   *
+   * @return the room name
+   */
+  public String getRoomName() {
+    return roomName;
+  }
+
+  @Override
+  public String toString() {
+    return "JoinRoomMessage [username=" + username + ", roomName=" + roomName + "]";
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    JoinRoomMessage that = (JoinRoomMessage) o;
+    return Objects.equals(username, that.username) && Objects.equals(roomName, that.roomName);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(username, roomName);
+  }
+}
@@ -0,0 +1,103 @@
+package protocol;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ * Represent a list rooms message
+ */
+public class ListRoomsMessage extends Message {
+
+  private String username;
+
+  /**
+   * Default constructor
+   */
+  public ListRoomsMessage() {
+  }
+
+  /**
+   * Construct a ListRoomsMessage with given input arguments:
+   *
+   * @param username the username of sender
+   */
+  public ListRoomsMessage(String username) {
+    this.username = username;
+  }
+
+  @Override
+  public void encode(DataOutputStream out) throws IOException {
+    out.writeInt(getMessageType().getValue());
+    byte[] usernameBytes = (username != null ? username : EMPTY_STRING).getBytes(
+        DEFAULT_CHAR_SET);
+    out.writeInt(usernameBytes.length);
+    out.write(usernameBytes);
+  }
+
+  @Override
+  public void decode(DataInputStream in) throws IOException {
+    byte[] usernameBytes = new byte[readFieldLength(in)];
+    in.readFully(usernameBytes);
+    this.username = new String(usernameBytes, DEFAULT_CHAR_SET);
+  }
+
+  @Override
+  public void encode(ByteBuffer out) {
+    out.putInt(getMessageType().getValue());
+    putString(out, username);
+  }
+
+  @Override
+  public void decode(ByteBuffer in, FrameLimits limits) throws IOException {
+    this.username = getString(in, limits);
+  }
+
+  @Override
+  public int encodedLength() {
+    return Integer.BYTES + fieldLength(username);
+  }
+
+  @Override
+  public void reset() {
+    this.username = null;
+  }
+
+  @Override
+  public MessageType getMessageType() {
+    return MessageType.LIST_ROOMS;
+  }
+
+  /**
+   * get the username
+   *
+   * @return the username
+   */
+  public String getUsername() {
+    return username;
+  }
+
+  @Override
+  public String toString() {
+    return "ListRoomsMessage [username=" + username + "]";
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    ListRoomsMessage that = (ListRoomsMessage) o;
+    return Objects.equals(username, that.username);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hashCode(username);
+  }
+}
@@ -0,0 +1,127 @@
+package protocol;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Represent a list rooms response message
+ */
+public class ListRoomsResponse extends Message {
+
+  private List<String> roomNames = new ArrayList<>();
+
+  /**
+   * Default constructor
+   */
+  public ListRoomsResponse() {
+  }
+
+  /**
+   * Construct a ListRoomsResponse with given input arguments:
+   *
+   * @param roomNames names of the rooms
+   */
+  public ListRoomsResponse(List<String> roomNames) {
+    this.roomNames = roomNames;
+  }
+
+  @Override
+  public void encode(DataOutputStream out) throws IOException {
+    out.writeInt(getMessageType().getValue());
+    out.writeInt(roomNames.size());
+    for (String room : roomNames) {
+      byte[] roomBytes = (room != null ? room : EMPTY_STRING).getBytes(DEFAULT_CHAR_SET);
+      out.writeInt(roomBytes.length);
+      out.write(roomBytes);
+    }
+  }
+
+  @Override
+  public void decode(DataInputStream in) throws IOException {
+    int roomCount = in.readInt();
+    roomNames = new ArrayList<>();
+    for (int i = 0; i < roomCount; i++) {
+      byte[] roomBytes = new byte[readFieldLength(in)];
+      in.readFully(roomBytes);
+      roomNames.add(new String(roomBytes, DEFAULT_CHAR_SET));
+    }
+  }
+
+  @Override
+  public void encode(ByteBuffer out) {
+    out.putInt(getMessageType().getValue());
+    out.putInt(roomNames.size());
+    for (String room : roomNames) {
+      putString(out, room);
+    }
+  }
+
+  @Override
+  public void decode(ByteBuffer in, FrameLimits limits) throws IOException {
+    int roomCount = in.getInt();
+    if (roomCount < 0) {
+      throw new IOException(INVALID_FIELD_LENGTH_ERROR);
+    }
+    // Every room name takes at least its length prefix, so a count the buffer cannot hold is cut
+    // short by EOFException before the list grows past the bytes that arrived
+    roomNames = new ArrayList<>(Math.min(roomCount, in.remaining() / Integer.BYTES));
+    for (int i = 0; i < roomCount; i++) {
+      roomNames.add(getString(in, limits));
+    }
+  }
+
+  @Override
+  public int encodedLength() {
+    int length = 2 * Integer.BYTES;
+    for (String room : roomNames) {
+      length += fieldLength(room);
+    }
+    return length;
+  }
+
+  @Override
+  public void reset() {
+    this.roomNames = List.of();
+  }
+
+  @Override
+  public MessageType getMessageType() {
+    return MessageType.LIST_ROOMS_RESPONSE;
+  }
+
+  /**
+   * get the names of the rooms
+   *
+   * @return the room names
+   */
+  public List<String> getRoomNames() {
+    return roomNames;
+  }
+
+  @Override
+  public String toString() {
+    return "ListRoomsResponse [roomNames size=" + roomNames.size() + "]";
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    ListRoomsResponse that = (ListRoomsResponse) o;
+    return Objects.equals(roomNames, that.roomNames);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hashCode(roomNames);
+  }
+}
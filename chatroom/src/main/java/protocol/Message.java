@@ -3,7 +3,10 @@ package protocol;
 import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 
@@ -20,6 +23,10 @@ public abstract class Message {
    * Error message for unknown message types.
    */
   public static final String UNKNOWN_MESSAGE_ERROR = "Unknown message";
+  /**
+   * Error message for a negative field length.
+   */
+  public static final String INVALID_FIELD_LENGTH_ERROR = "Invalid field length";
   /**
    * Message identifier for connect message.
    */
@@ -56,6 +63,54 @@ public abstract class Message {
    * Message identifier for send insult message.
    */
   public static final int SEND_INSULT_CODE = 27;
+  /**
+   * Message identifier for join room message.
+   */
+  public static final int JOIN_ROOM_CODE = 28;
+  /**
+   * Message identifier for leave room message.
+   */
+  public static final int LEAVE_ROOM_CODE = 29;
+  /**
+   * Message identifier for list rooms message.
+   */
+  public static final int LIST_ROOMS_CODE = 30;
+  /**
+   * Message identifier for list rooms response.
+   */
+  public static final int LIST_ROOMS_RESPONSE_CODE = 31;
+  /**
+   * Message identifier for room message.
+   */
+  public static final int ROOM_MESSAGE_CODE = 32;
+  /**
+   * Message identifier for query users page message.
+   */
+  public static final int QUERY_USERS_PAGE_CODE = 33;
+  /**
+   * Message identifier for query users page response.
+   */
+  public static final int QUERY_USERS_PAGE_RESPONSE_CODE = 34;
+  /**
+   * Message identifier for subscribe presence message.
+   */
+  public static final int SUBSCRIBE_PRESENCE_CODE = 35;
+  /**
+   * Message identifier for presence snapshot.
+   */
+  public static final int PRESENCE_SNAPSHOT_CODE = 36;
+  /**
+   * Message identifier for presence update.
+   */
+  public static final int PRESENCE_UPDATE_CODE = 37;
+  /**
+   * Message identifier for query history message.
+   */
+  public static final int QUERY_HISTORY_CODE = 38;
+  /**
+   * Message identifier for history response.
+   */
+  public static final int HISTORY_RESPONSE_CODE = 39;
   /**
    * Default character set for string encoding/decoding.
    */
@@ -77,6 +132,51 @@ public abstract class Message {
    */
   public abstract void decode(DataInputStream in) throws IOException;
 
+  /**
+   * Encode the message into a buffer, which must have room for {@link #encodedLength()} bytes.
+   * Subclasses write their fields straight into the buffer; this fallback goes through
+   * {@link #encode(DataOutputStream)}.
+   *
+   * @param out the buffer
+   * @throws IOException for exception
+   */
+  public void encode(ByteBuffer out) throws IOException {
+    out.put(encodeWithStream());
+  }
+
+  /**
+   * Decode the message from a buffer holding the fields that follow the type code, holding
+   * every field to the limits. Subclasses read their fields straight from the buffer; this
+   * fallback goes through {@link #decode(DataInputStream)}.
+   *
+   * @param in     the buffer, advanced past the message
+   * @param limits the limits every field is held to
+   * @throws IOException for exception, including a field over the limits
+   */
+  public void decode(ByteBuffer in, FrameLimits limits) throws IOException {
+    FrameInputStream frameIn = new FrameInputStream(new ByteBufferInputStream(in), limits);
+    frameIn.startFrame();
+    decode(frameIn);
+  }
+
+  /**
+   * get the number of bytes the encoded message takes, including the type code
+   *
+   * @return the encoded length
+   * @throws IOException for exception
+   */
+  public int encodedLength() throws IOException {
+    return encodeWithStream().length;
+  }
+
+  /**
+   * Clear every field, so a message kept for reuse holds on to nothing from the frame it was
+   * last decoded from. Decoding sets every field again, so a reset message can be decoded into
+   * as if it were new.
+   */
+  public void reset() {
+  }
+
   /**
    * get the message type by the protocol
    *
@@ -84,13 +184,22 @@ public abstract class Message {
    */
   public abstract MessageType getMessageType();
 
-  // Factory method to create a message based on type
-  private static Message create(int messageTypeValue) throws IOException {
+  // Factory method to create a message based on type, or take it from the pool if there is one
+  private static Message create(int messageTypeValue, MessagePool pool) throws IOException {
     MessageType messageType = MessageType.fromValue(messageTypeValue);
     if (messageType == null) {
       throw new IOException(UNKNOWN_MESSAGE_ERROR);
     }
+    return pool != null ? pool.acquire(messageType) : newMessage(messageType);
+  }
 
+  /**
+   * Create an empty message of a type, to be decoded into
+   *
+   * @param messageType the message type
+   * @return the message
+   */
+  static Message newMessage(MessageType messageType) {
     return switch (messageType) {
       case CONNECT_MESSAGE -> new ConnectMessage();
       case CONNECT_RESPONSE -> new ConnectResponse();
@@ -101,31 +210,197 @@ public abstract class Message {
       case DIRECT_MESSAGE -> new DirectMessage();
       case FAILED_MESSAGE -> new FailedMessage();
       case SEND_INSULT -> new SendInsultMessage();
-      default -> throw new IOException(UNKNOWN_MESSAGE_ERROR);
+      case JOIN_ROOM -> new JoinRoomMessage();
+      case LEAVE_ROOM -> new LeaveRoomMessage();
+      case LIST_ROOMS -> new ListRoomsMessage();
+      case LIST_ROOMS_RESPONSE -> new ListRoomsResponse();
+      case ROOM_MESSAGE -> new RoomMessage();
+      case QUERY_USERS_PAGE -> new QueryUsersPageMessage();
+      case QUERY_USERS_PAGE_RESPONSE -> new QueryUsersPageResponse();
+      case SUBSCRIBE_PRESENCE -> new SubscribePresenceMessage();
+      case PRESENCE_SNAPSHOT -> new PresenceSnapshot();
+      case PRESENCE_UPDATE -> new PresenceUpdate();
+      case QUERY_HISTORY -> new QueryHistoryMessage();
+      case HISTORY_RESPONSE -> new HistoryResponse();
     };
   }
 
   /**
-   * Decoding a message from a byte array
+   * Decoding a message from a byte array, in either wire format. A {@link FrameInputStream}
+   * holds the message to its limits; any other stream is held to the {@link FrameLimits#DEFAULT}
+   * limits. Framed frames of a type this reader does not know are skipped.
    *
    * @param in DataInputStream
    * @return Message instance
-   * @throws IOException for exceptions
+   * @throws IOException for exceptions, including a message over the limits
    */
   public static Message decodeFromStream(DataInputStream in) throws IOException {
-    int messageTypeValue = in.readInt(); // Read the message type integer
-    Message message = Message.create(messageTypeValue);
+    return decodeFromStream(in, null);
+  }
+
+  /**
+   * Decoding a message from a stream into an instance taken from a pool, which is only valid
+   * until the next message of its type is decoded from the same pool.
+   *
+   * @param in   DataInputStream
+   * @param pool the pool, or null to create a new message
+   * @return Message instance
+   * @throws IOException for exceptions, including a message over the limits
+   */
+  public static Message decodeFromStream(DataInputStream in, MessagePool pool)
+      throws IOException {
+    while (true) {
+      startFrame(in);
+      int firstWord = in.readInt();
+      if (!FrameHeader.isFramed(firstWord)) {
+        return decodeFromStream(firstWord, in, pool);
+      }
+      int payloadLength = FrameHeader.readPayloadLength(firstWord, in);
+      int messageTypeValue = in.readInt();
+      if (MessageType.fromValue(messageTypeValue) == null) {
+        in.skipNBytes(payloadLength - Integer.BYTES);
+        continue;
+      }
+      if (in instanceof FrameInputStream frameIn) {
+        Message message = decodeFromStream(messageTypeValue, in, pool);
+        FrameHeader.checkConsumed(frameIn);
+        return message;
+      }
+      // Without a budget to check against, take the whole frame and decode it in place
+      byte[] fields = new byte[payloadLength - Integer.BYTES];
+      in.readFully(fields);
+      return decodePayload(messageTypeValue, ByteBuffer.wrap(fields), pool,
+          FrameLimits.DEFAULT);
+    }
+  }
+
+  /**
+   * Decoding the fields of a message whose type code has already been read
+   *
+   * @param messageTypeValue the type code
+   * @param in               DataInputStream
+   * @param pool             the pool, or null to create a new message
+   * @return Message instance
+   * @throws IOException for exceptions
+   */
+  static Message decodeFromStream(int messageTypeValue, DataInputStream in, MessagePool pool)
+      throws IOException {
+    Message message = Message.create(messageTypeValue, pool);
     message.decode(in);
     return message;
   }
 
   /**
-   * Encoding a message into a byte array
+   * Decoding a message from a buffer, in either wire format. Heap and direct buffers both work,
+   * and nothing but the message fields themselves is allocated. Framed frames of a type this
+   * reader does not know are skipped.
+   *
+   * @param in the buffer, advanced past the message
+   * @return Message instance
+   * @throws EOFException if the buffer ends part way through the message; its position is then
+   *                      unspecified
+   * @throws IOException  for other exceptions
+   */
+  public static Message decodeFromBuffer(ByteBuffer in) throws IOException {
+    return decodeFromBuffer(in, null, FrameLimits.DEFAULT);
+  }
+
+  /**
+   * Decoding a message from a buffer into an instance taken from a pool, which is only valid
+   * until the next message of its type is decoded from the same pool.
+   *
+   * @param in   the buffer, advanced past the message
+   * @param pool the pool, or null to create a new message
+   * @return Message instance
+   * @throws EOFException if the buffer ends part way through the message; its position is then
+   *                      unspecified
+   * @throws IOException  for other exceptions
+   */
+  public static Message decodeFromBuffer(ByteBuffer in, MessagePool pool) throws IOException {
+    return decodeFromBuffer(in, pool, FrameLimits.DEFAULT);
+  }
+
+  /**
+   * Decoding a message from a buffer into an instance taken from a pool, holding every field to
+   * a set of limits as a {@link FrameInputStream} does, so both engines accept the same frames.
+   *
+   * @param in     the buffer, advanced past the message
+   * @param pool   the pool, or null to create a new message
+   * @param limits the limits every field is held to
+   * @return Message instance
+   * @throws EOFException if the buffer ends part way through the message; its position is then
+   *                      unspecified
+   * @throws IOException  for other exceptions, including a field over the limits
+   */
+  public static Message decodeFromBuffer(ByteBuffer in, MessagePool pool, FrameLimits limits)
+      throws IOException {
+    while (true) {
+      ByteBuffer payload = FrameHeader.nextPayload(in);
+      if (payload == null) {
+        return decodeLegacy(in, pool, limits);
+      }
+      int messageTypeValue = payload.getInt();
+      if (MessageType.fromValue(messageTypeValue) != null) {
+        return decodePayload(messageTypeValue, payload, pool, limits);
+      }
+    }
+  }
+
+  private static Message decodeLegacy(ByteBuffer in, MessagePool pool, FrameLimits limits)
+      throws IOException {
+    try {
+      Message message = Message.create(in.getInt(), pool);
+      message.decode(in, limits);
+      return message;
+    } catch (BufferUnderflowException e) {
+      throw new EOFException();
+    }
+  }
+
+  // The fields of a framed frame, which are all there, so running out of them is an error
+  private static Message decodePayload(int messageTypeValue, ByteBuffer fields,
+      MessagePool pool, FrameLimits limits) throws IOException {
+    Message message = Message.create(messageTypeValue, pool);
+    try {
+      message.decode(fields, limits);
+    } catch (BufferUnderflowException | EOFException e) {
+      throw new IOException(FrameHeader.INVALID_FRAME_LENGTH_ERROR);
+    }
+    FrameHeader.checkConsumed(fields);
+    return message;
+  }
+
+  /**
+   * Encoding a message into a byte array of exactly the encoded length
    *
    * @return byte[] form of message
    * @throws IOException for exceptions
    */
   public byte[] encode() throws IOException {
+    byte[] bytes = new byte[encodedLength()];
+    encode(ByteBuffer.wrap(bytes));
+    return bytes;
+  }
+
+  /**
+   * Encoding a message into a byte array in a wire format
+   *
+   * @param format the wire format
+   * @return byte[] form of message
+   * @throws IOException for exceptions
+   */
+  public byte[] encode(WireFormat format) throws IOException {
+    if (format == WireFormat.LEGACY) {
+      return encode();
+    }
+    byte[] bytes = new byte[FrameHeader.LENGTH + encodedLength()];
+    ByteBuffer out = ByteBuffer.wrap(bytes);
+    FrameHeader.put(out, bytes.length);
+    encode(out);
+    return bytes;
+  }
+
+  private byte[] encodeWithStream() throws IOException {
     try (ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
         DataOutputStream out = new DataOutputStream(byteArrayOutputStream)) {
 
@@ -145,4 +420,164 @@ public abstract class Message {
     encode(out);
     out.flush();
   }
+
+  /**
+   * send the message to stream in a wire format
+   *
+   * @param out    DataOutputStream
+   * @param format the wire format
+   * @throws IOException for exceptions
+   */
+  public void sendToStream(DataOutputStream out, WireFormat format) throws IOException {
+    if (format == WireFormat.LEGACY) {
+      sendToStream(out);
+      return;
+    }
+    out.write(encode(format));
+    out.flush();
+  }
+
+  /**
+   * get the encoded length of a length-prefixed string field
+   *
+   * @param value the field, null is written as the empty string
+   * @return the length of the field including its prefix
+   */
+  protected static int fieldLength(String value) {
+    return Integer.BYTES + (value == null ? 0 : Utf8Text.encodedLength(value));
+  }
+
+  /**
+   * get the encoded length of a length-prefixed text field
+   *
+   * @param value the field, null is written as the empty string
+   * @return the length of the field including its prefix
+   */
+  protected static int fieldLength(Utf8Text value) {
+    return Integer.BYTES + (value == null ? 0 : value.encodedLength());
+  }
+
+  /**
+   * write a length-prefixed string field
+   *
+   * @param out   the buffer
+   * @param value the field, null is written as the empty string
+   */
+  protected static void putString(ByteBuffer out, String value) {
+    putText(out, Utf8Text.of(value));
+  }
+
+  /**
+   * write a length-prefixed text field
+   *
+   * @param out   the buffer
+   * @param value the field, null is written as the empty string
+   */
+  protected static void putText(ByteBuffer out, Utf8Text value) {
+    Utf8Text text = value != null ? value : Utf8Text.EMPTY;
+    out.putInt(text.encodedLength());
+    text.encodeTo(out);
+  }
+
+  /**
+   * read a length-prefixed string field, decoding heap buffers in place
+   *
+   * @param in     the buffer
+   * @param limits the limits the field is held to
+   * @return the field
+   * @throws IOException if the length is invalid or over the limits, or the buffer ends part
+   *                     way through the field
+   */
+  protected static String getString(ByteBuffer in, FrameLimits limits) throws IOException {
+    int length = getFieldLength(in, limits);
+    if (!in.hasArray()) {
+      return Utf8Text.read(in, length).toString();
+    }
+    String value = new String(in.array(), in.arrayOffset() + in.position(), length,
+        DEFAULT_CHAR_SET);
+    in.position(in.position() + length);
+    return value;
+  }
+
+  /**
+   * read a length-prefixed text field without decoding it
+   *
+   * @param in     the buffer
+   * @param limits the limits the field is held to
+   * @return the field
+   * @throws IOException if the length is invalid or over the limits, or the buffer ends part
+   *                     way through the field
+   */
+  protected static Utf8Text getText(ByteBuffer in, FrameLimits limits) throws IOException {
+    return Utf8Text.read(in, getFieldLength(in, limits));
+  }
+
+  /**
+   * read a length-prefixed text field from a stream without decoding it
+   *
+   * @param in the stream
+   * @return the field
+   * @throws IOException for exceptions
+   */
+  protected static Utf8Text readText(DataInputStream in) throws IOException {
+    byte[] bytes = new byte[readFieldLength(in)];
+    in.readFully(bytes);
+    return Utf8Text.wrap(bytes);
+  }
+
+  /**
+   * start a new frame on a stream that holds frames to limits
+   *
+   * @param in the stream
+   */
+  static void startFrame(DataInputStream in) {
+    if (in instanceof FrameInputStream frameIn) {
+      frameIn.startFrame();
+    }
+  }
+
+  /**
+   * read the length prefix of a field from a stream, and check it against the limits before
+   * anything is allocated for the field
+   *
+   * @param in the stream
+   * @return the field length
+   * @throws IOException if the length is invalid or over the limits
+   */
+  static int readFieldLength(DataInputStream in) throws IOException {
+    int length = in.readInt();
+    if (length < 0) {
+      throw new IOException(INVALID_FIELD_LENGTH_ERROR);
+    }
+    if (in instanceof FrameInputStream frameIn) {
+      frameIn.checkField(length);
+    } else if (length > FrameLimits.DEFAULT.getMaxFieldLength()) {
+      throw new IOException(FrameInputStream.FRAME_TOO_LARGE_ERROR);
+    }
+    return length;
+  }
+
+  /**
+   * read the length prefix of a field, check it against the field limit as
+   * {@link #readFieldLength(DataInputStream)} does, and check the buffer holds the whole field
+   *
+   * @param in     the buffer
+   * @param limits the limits the field is held to
+   * @return the field length
+   * @throws IOException if the length is invalid or over the limits, or the buffer ends part
+   *                     way through the field
+   */
+  static int getFieldLength(ByteBuffer in, FrameLimits limits) throws IOException {
+    int length = in.getInt();
+    if (length < 0) {
+      throw new IOException(INVALID_FIELD_LENGTH_ERROR);
+    }
+    if (length > limits.getMaxFieldLength()) {
+      throw new IOException(FrameInputStream.FRAME_TOO_LARGE_ERROR);
+    }
+    if (length > in.remaining()) {
+      throw new EOFException();
+    }
+    return length;
+  }
 }
@@ -0,0 +1,111 @@
+package protocol;
+
+/**
+ * One reusable instance of each message type for a connection's decode loop, kept in an array
+ * indexed by type code, together with the {@link RoutingView} wrapping it. Decoding into a
+ * pooled instance overwrites every field, so a connection that only ever handles one message at
+ * a time allocates each message object and its view once rather than once per frame. Released
+ * messages are {@link Message#reset() reset}, so the pool holds on to nothing from a frame once
+ * it has been handled.
+ *
+ * <p>A message or view decoded from a pool is only valid until the next message of the same
+ * type is decoded from that pool, so it must not be kept past handling. A pool belongs to one
+ * connection and is not thread-safe.
+ */
+public final class MessagePool {
+
+  private final Message[] instances = new Message[MessageType.maxValue() + 1];
+  private final RoutingView[] views = new RoutingView[instances.length];
+  private long created;
+  private long reused;
+
+  /**
+   * Get the instance for a message type, creating it the first time.
+   *
+   * @param messageType the message type
+   * @return the instance, to be decoded into
+   */
+  Message acquire(MessageType messageType) {
+    int index = messageType.getValue();
+    Message message = instances[index];
+    if (message == null) {
+      message = Message.newMessage(messageType);
+      instances[index] = message;
+      created++;
+    } else {
+      reused++;
+    }
+    return message;
+  }
+
+  /**
+   * Get the view of a message just decoded, reusing the pool's view if the message is the
+   * pool's own instance.
+   *
+   * @param message the message
+   * @return the routing view
+   */
+  RoutingView viewOf(Message message) {
+    int index = message.getMessageType().getValue();
+    if (instances[index] != message) {
+      return RoutingView.wrap(message);
+    }
+    RoutingView view = views[index];
+    if (view == null) {
+      view = RoutingView.wrap(message);
+      views[index] = view;
+    } else {
+      view.reuse();
+    }
+    return view;
+  }
+
+  /**
+   * Reset a message once it has been handled, if it came from this pool. Any other message is
+   * left alone.
+   *
+   * @param message the message
+   */
+  public void release(Message message) {
+    MessageType messageType = message == null ? null : message.getMessageType();
+    if (messageType != null && instances[messageType.getValue()] == message) {
+      message.reset();
+    }
+  }
+
+  /**
+   * Reset the message a routing view was decoded into, if it came from this pool. Routable
+   * messages are never decoded into a message object, so they have nothing to release.
+   *
+   * @param view the routing view
+   */
+  public void release(RoutingView view) {
+    release(view.decodedMessage());
+  }
+
+  /**
+   * Number of message objects the pool has created, at most one per type.
+   *
+   * @return the number created
+   */
+  public long getCreatedCount() {
+    return created;
+  }
+
+  /**
+   * Number of messages decoded into an instance that was already in the pool.
+   *
+   * @return the number reused
+   */
+  public long getReusedCount() {
+    return reused;
+  }
+
+  @Override
+  public String toString() {
+    return "MessagePool{" +
+        "created=" + created +
+        ", reused=" + reused +
+        '}';
+  }
+}
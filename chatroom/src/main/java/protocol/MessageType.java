@@ -1,8 +1,5 @@
 package protocol;
 
-import java.util.HashMap;
-import java.util.Map;
-
 /**
  * Enum class for the message types
  */
@@ -42,7 +39,55 @@ public enum MessageType {
   /**
    * send insult
    */
-  SEND_INSULT(Message.SEND_INSULT_CODE);
+  SEND_INSULT(Message.SEND_INSULT_CODE),
+  /**
+   * join a room
+   */
+  JOIN_ROOM(Message.JOIN_ROOM_CODE),
+  /**
+   * leave a room
+   */
+  LEAVE_ROOM(Message.LEAVE_ROOM_CODE),
+  /**
+   * list the rooms
+   */
+  LIST_ROOMS(Message.LIST_ROOMS_CODE),
+  /**
+   * for list rooms response
+   */
+  LIST_ROOMS_RESPONSE(Message.LIST_ROOMS_RESPONSE_CODE),
+  /**
+   * broadcast to the members of one room
+   */
+  ROOM_MESSAGE(Message.ROOM_MESSAGE_CODE),
+  /**
+   * query one page of the connected users
+   */
+  QUERY_USERS_PAGE(Message.QUERY_USERS_PAGE_CODE),
+  /**
+   * response to a query users page message
+   */
+  QUERY_USERS_PAGE_RESPONSE(Message.QUERY_USERS_PAGE_RESPONSE_CODE),
+  /**
+   * start or stop receiving presence updates
+   */
+  SUBSCRIBE_PRESENCE(Message.SUBSCRIBE_PRESENCE_CODE),
+  /**
+   * the users online when presence updates start
+   */
+  PRESENCE_SNAPSHOT(Message.PRESENCE_SNAPSHOT_CODE),
+  /**
+   * one user coming online or going offline
+   */
+  PRESENCE_UPDATE(Message.PRESENCE_UPDATE_CODE),
+  /**
+   * ask for the latest messages of the main chat or a room
+   */
+  QUERY_HISTORY(Message.QUERY_HISTORY_CODE),
+  /**
+   * response to a query history message, followed by the messages
+   */
+  HISTORY_RESPONSE(Message.HISTORY_RESPONSE_CODE);
 
   private final int value;
 
@@ -64,22 +109,36 @@ public enum MessageType {
     return value;
   }
 
-  // Reverse mapping for integer to enum lookup
-  private static final Map<Integer, MessageType> BY_VALUE = new HashMap<>();
+  // Reverse mapping for integer to enum lookup, indexed by the value itself
+  private static final MessageType[] BY_VALUE;
 
   static {
+    int max = 0;
+    for (MessageType type : values()) {
+      max = Math.max(max, type.value);
+    }
+    BY_VALUE = new MessageType[max + 1];
     for (MessageType type : values()) {
-      BY_VALUE.put(type.value, type);
+      BY_VALUE[type.value] = type;
     }
   }
 
+  /**
+   * get the largest value of any message type
+   *
+   * @return the largest value
+   */
+  public static int maxValue() {
+    return BY_VALUE.length - 1;
+  }
+
   /**
    * generate message type from value
    *
    * @param value input value
-   * @return message type
+   * @return message type, or null if no type has the value
    */
   public static MessageType fromValue(int value) {
-    return BY_VALUE.get(value);
+    return value >= 0 && value < BY_VALUE.length ? BY_VALUE[value] : null;
   }
 }
@@ -0,0 +1,35 @@
+package protocol;
+
+import java.util.List;
+
+/**
+ * Represent the users online when a client subscribes to presence, which the updates that
+ * follow are applied to. Encoded exactly like a {@link QueryUsersResponse} but for its type code.
+ */
+public class PresenceSnapshot extends QueryUsersResponse {
+
+  /**
+   * Default constructor
+   */
+  public PresenceSnapshot() {
+  }
+
+  /**
+   * Construct a PresenceSnapshot with given input arguments:
+   *
+   * @param onlineUsers the users online, except the subscriber
+   */
+  public PresenceSnapshot(List<String> onlineUsers) {
+    super(onlineUsers);
+  }
+
+  @Override
+  public MessageType getMessageType() {
+    return MessageType.PRESENCE_SNAPSHOT;
+  }
+
+  @Override
+  public String toString() {
+    return "PresenceSnapshot [onlineUsers size=" + getConnectedUsers().size() + "]";
+  }
+}
@@ -0,0 +1,120 @@
+package protocol;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ * Represent one user coming online or going offline, pushed to presence subscribers
+ */
+public class PresenceUpdate extends Message {
+
+  private String username;
+  private boolean online;
+
+  /**
+   * Default constructor
+   */
+  public PresenceUpdate() {
+  }
+
+  /**
+   * Construct a PresenceUpdate with given input arguments:
+   *
+   * @param username the user whose presence changed
+   * @param online   true if the user logged in, false if the user left
+   */
+  public PresenceUpdate(String username, boolean online) {
+    this.username = username;
+    this.online = online;
+  }
+
+  @Override
+  public void encode(DataOutputStream out) throws IOException {
+    out.writeInt(getMessageType().getValue());
+    byte[] usernameBytes = (username != null ? username : EMPTY_STRING).getBytes(
+        DEFAULT_CHAR_SET);
+    out.writeInt(usernameBytes.length);
+    out.write(usernameBytes);
+    out.writeBoolean(online);
+  }
+
+  @Override
+  public void decode(DataInputStream in) throws IOException {
+    byte[] usernameBytes = new byte[readFieldLength(in)];
+    in.readFully(usernameBytes);
+    this.username = new String(usernameBytes, DEFAULT_CHAR_SET);
+    this.online = in.readBoolean();
+  }
+
+  @Override
+  public void encode(ByteBuffer out) {
+    out.putInt(getMessageType().getValue());
+    putString(out, username);
+    out.put((byte) (online ? 1 : 0));
+  }
+
+  @Override
+  public void decode(ByteBuffer in, FrameLimits limits) throws IOException {
+    this.username = getString(in, limits);
+    this.online = in.get() != 0;
+  }
+
+  @Override
+  public int encodedLength() {
+    return Integer.BYTES + fieldLength(username) + 1;
+  }
+
+  @Override
+  public void reset() {
+    this.username = null;
+    this.online = false;
+  }
+
+  @Override
+  public MessageType getMessageType() {
+    return MessageType.PRESENCE_UPDATE;
+  }
+
+  /**
+   * get the user whose presence changed
+   *
+   * @return the username
+   */
+  public String getUsername() {
+    return username;
+  }
+
+  /**
+   * whether the user came online
+   *
+   * @return true if the user logged in, false if the user left
+   */
+  public boolean isOnline() {
+    return online;
+  }
+
+  @Override
+  public String toString() {
+    return "PresenceUpdate [username=" + username + ", online=" + online + "]";
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    PresenceUpdate that = (PresenceUpdate) o;
+    return online == that.online && Objects.equals(username, that.username);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(username, online);
+  }
+}
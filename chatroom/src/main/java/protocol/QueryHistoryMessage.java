@@ -0,0 +1,170 @@
+package protocol;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ * Represent a request for the latest messages of the main chat or of one room, which the server
+ * sends back as the frames that were sent at the time
+ */
+public class QueryHistoryMessage extends Message {
+
+  /**
+   * Number of messages a client asks for.
+   */
+  public static final int DEFAULT_LIMIT = 20;
+
+  private String username;
+  private String roomName;
+  private int limit;
+  private long since;
+
+  /**
+   * Default constructor
+   */
+  public QueryHistoryMessage() {
+  }
+
+  /**
+   * Construct a QueryHistoryMessage with given input arguments:
+   *
+   * @param username the username of sender
+   * @param roomName the room, empty for the main chat
+   * @param limit    the most messages sent back, the latest ones
+   * @param since    only messages sent at or after this time, in milliseconds since the epoch,
+   *                 are sent back; 0 for no bound
+   */
+  public QueryHistoryMessage(String username, String roomName, int limit, long since) {
+    this.username = username;
+    this.roomName = roomName;
+    this.limit = limit;
+    this.since = since;
+  }
+
+  @Override
+  public void encode(DataOutputStream out) throws IOException {
+    out.writeInt(getMessageType().getValue());
+    writeString(out, username);
+    writeString(out, roomName);
+    out.writeInt(limit);
+    out.writeLong(since);
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    byte[] bytes = (value != null ? value : EMPTY_STRING).getBytes(DEFAULT_CHAR_SET);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  @Override
+  public void decode(DataInputStream in) throws IOException {
+    this.username = readString(in);
+    this.roomName = readString(in);
+    this.limit = in.readInt();
+    this.since = in.readLong();
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    byte[] bytes = new byte[readFieldLength(in)];
+    in.readFully(bytes);
+    return new String(bytes, DEFAULT_CHAR_SET);
+  }
+
+  @Override
+  public void encode(ByteBuffer out) {
+    out.putInt(getMessageType().getValue());
+    putString(out, username);
+    putString(out, roomName);
+    out.putInt(limit);
+    out.putLong(since);
+  }
+
+  @Override
+  public void decode(ByteBuffer in, FrameLimits limits) throws IOException {
+    this.username = getString(in, limits);
+    this.roomName = getString(in, limits);
+    this.limit = in.getInt();
+    this.since = in.getLong();
+  }
+
+  @Override
+  public int encodedLength() {
+    return 2 * Integer.BYTES + Long.BYTES + fieldLength(username) + fieldLength(roomName);
+  }
+
+  @Override
+  public void reset() {
+    this.username = null;
+    this.roomName = null;
+    this.limit = 0;
+    this.since = 0;
+  }
+
+  @Override
+  public MessageType getMessageType() {
+    return MessageType.QUERY_HISTORY;
+  }
+
+  /**
+   * get the username
+   *
+   * @return the username
+   */
+  public String getUsername() {
+    return username;
+  }
+
+  /**
+   * get the room whose messages are asked for
+   *
+   * @return the room name, empty for the main chat
+   */
+  public String getRoomName() {
+    return roomName;
+  }
+
+  /**
+   * get the most messages sent back
+   *
+   * @return the limit
+   */
+  public int getLimit() {
+    return limit;
+  }
+
+  /**
+   * get the time of the oldest message that may be sent back
+   *
+   * @return milliseconds since the epoch, 0 for no bound
+   */
+  public long getSince() {
+    return since;
+  }
+
+  @Override
+  public String toString() {
+    return "QueryHistoryMessage [username=" + username + ", roomName=" + roomName + ", limit="
+        + limit + ", since=" + since + "]";
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    QueryHistoryMessage that = (QueryHistoryMessage) o;
+    return limit == that.limit && since == that.since && Objects.equals(username, that.username)
+        && Objects.equals(roomName, that.roomName);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(username, roomName, limit, since);
+  }
+}
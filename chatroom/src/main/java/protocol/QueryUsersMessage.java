@@ -3,6 +3,7 @@ package protocol;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Objects;
 
 /**
@@ -38,12 +39,32 @@ public class QueryUsersMessage extends Message {
 
   @Override
   public void decode(DataInputStream in) throws IOException {
-    int usernameSize = in.readInt();
-    byte[] usernameBytes = new byte[usernameSize];
+    byte[] usernameBytes = new byte[readFieldLength(in)];
     in.readFully(usernameBytes);
     this.username = new String(usernameBytes, DEFAULT_CHAR_SET);
   }
 
+  @Override
+  public void encode(ByteBuffer out) {
+    out.putInt(getMessageType().getValue());
+    putString(out, username);
+  }
+
+  @Override
+  public void decode(ByteBuffer in, FrameLimits limits) throws IOException {
+    this.username = getString(in, limits);
+  }
+
+  @Override
+  public int encodedLength() {
+    return Integer.BYTES + fieldLength(username);
+  }
+
+  @Override
+  public void reset() {
+    this.username = null;
+  }
+
   @Override
   public MessageType getMessageType() {
     return MessageType.QUERY_CONNECTED_USERS;
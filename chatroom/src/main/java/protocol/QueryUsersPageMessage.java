@@ -0,0 +1,168 @@
+package protocol;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ * Represent a query for one page of the connected users whose names start with a prefix
+ */
+public class QueryUsersPageMessage extends Message {
+
+  /**
+   * Number of users a client asks for per page.
+   */
+  public static final int DEFAULT_PAGE_SIZE = 20;
+
+  private String username;
+  private String prefix;
+  private String after;
+  private int limit;
+
+  /**
+   * Default constructor
+   */
+  public QueryUsersPageMessage() {
+  }
+
+  /**
+   * Construct a QueryUsersPageMessage with given input arguments:
+   *
+   * @param username the username of sender
+   * @param prefix   only users whose names start with it are listed, empty for everyone
+   * @param after    the cursor of the previous page, empty for the first page
+   * @param limit    the most users on the page
+   */
+  public QueryUsersPageMessage(String username, String prefix, String after, int limit) {
+    this.username = username;
+    this.prefix = prefix;
+    this.after = after;
+    this.limit = limit;
+  }
+
+  @Override
+  public void encode(DataOutputStream out) throws IOException {
+    out.writeInt(getMessageType().getValue());
+    writeString(out, username);
+    writeString(out, prefix);
+    writeString(out, after);
+    out.writeInt(limit);
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    byte[] bytes = (value != null ? value : EMPTY_STRING).getBytes(DEFAULT_CHAR_SET);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  @Override
+  public void decode(DataInputStream in) throws IOException {
+    this.username = readString(in);
+    this.prefix = readString(in);
+    this.after = readString(in);
+    this.limit = in.readInt();
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    byte[] bytes = new byte[readFieldLength(in)];
+    in.readFully(bytes);
+    return new String(bytes, DEFAULT_CHAR_SET);
+  }
+
+  @Override
+  public void encode(ByteBuffer out) {
+    out.putInt(getMessageType().getValue());
+    putString(out, username);
+    putString(out, prefix);
+    putString(out, after);
+    out.putInt(limit);
+  }
+
+  @Override
+  public void decode(ByteBuffer in, FrameLimits limits) throws IOException {
+    this.username = getString(in, limits);
+    this.prefix = getString(in, limits);
+    this.after = getString(in, limits);
+    this.limit = in.getInt();
+  }
+
+  @Override
+  public int encodedLength() {
+    return 2 * Integer.BYTES + fieldLength(username) + fieldLength(prefix) + fieldLength(after);
+  }
+
+  @Override
+  public void reset() {
+    this.username = null;
+    this.prefix = null;
+    this.after = null;
+    this.limit = 0;
+  }
+
+  @Override
+  public MessageType getMessageType() {
+    return MessageType.QUERY_USERS_PAGE;
+  }
+
+  /**
+   * get the username
+   *
+   * @return the username
+   */
+  public String getUsername() {
+    return username;
+  }
+
+  /**
+   * get the prefix the listed names start with
+   *
+   * @return the prefix, empty for everyone
+   */
+  public String getPrefix() {
+    return prefix;
+  }
+
+  /**
+   * get the cursor of the previous page
+   *
+   * @return the cursor, empty for the first page
+   */
+  public String getAfter() {
+    return after;
+  }
+
+  /**
+   * get the most users on the page
+   *
+   * @return the limit
+   */
+  public int getLimit() {
+    return limit;
+  }
+
+  @Override
+  public String toString() {
+    return "QueryUsersPageMessage [username=" + username + ", prefix=" + prefix + ", after="
+        + after + ", limit=" + limit + "]";
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    QueryUsersPageMessage that = (QueryUsersPageMessage) o;
+    return limit == that.limit && Objects.equals(username, that.username)
+        && Objects.equals(prefix, that.prefix) && Objects.equals(after, that.after);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(username, prefix, after, limit);
+  }
+}
@@ -0,0 +1,181 @@
+package protocol;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Represent one page of a query users page message's answer
+ */
+public class QueryUsersPageResponse extends Message {
+
+  private String prefix;
+  private String nextCursor;
+  private List<String> users = new ArrayList<>();
+
+  /**
+   * Default constructor
+   */
+  public QueryUsersPageResponse() {
+  }
+
+  /**
+   * Construct a QueryUsersPageResponse with given input arguments:
+   *
+   * @param prefix     the prefix the query asked for
+   * @param nextCursor the cursor to ask for the next page with, empty on the last page
+   * @param users      the users on this page
+   */
+  public QueryUsersPageResponse(String prefix, String nextCursor, List<String> users) {
+    this.prefix = prefix;
+    this.nextCursor = nextCursor;
+    this.users = users;
+  }
+
+  @Override
+  public void encode(DataOutputStream out) throws IOException {
+    out.writeInt(getMessageType().getValue());
+    writeString(out, prefix);
+    writeString(out, nextCursor);
+    out.writeInt(users.size());
+    for (String user : users) {
+      writeString(out, user);
+    }
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    byte[] bytes = (value != null ? value : EMPTY_STRING).getBytes(DEFAULT_CHAR_SET);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    byte[] bytes = new byte[readFieldLength(in)];
+    in.readFully(bytes);
+    return new String(bytes, DEFAULT_CHAR_SET);
+  }
+
+  @Override
+  public void decode(DataInputStream in) throws IOException {
+    prefix = readString(in);
+    nextCursor = readString(in);
+    int userCount = in.readInt();
+    if (userCount < 0) {
+      throw new IOException(INVALID_FIELD_LENGTH_ERROR);
+    }
+    users = new ArrayList<>();
+    for (int i = 0; i < userCount; i++) {
+      users.add(readString(in));
+    }
+  }
+
+  @Override
+  public void encode(ByteBuffer out) {
+    out.putInt(getMessageType().getValue());
+    putString(out, prefix);
+    putString(out, nextCursor);
+    out.putInt(users.size());
+    for (String user : users) {
+      putString(out, user);
+    }
+  }
+
+  @Override
+  public void decode(ByteBuffer in, FrameLimits limits) throws IOException {
+    prefix = getString(in, limits);
+    nextCursor = getString(in, limits);
+    int userCount = in.getInt();
+    if (userCount < 0) {
+      throw new IOException(INVALID_FIELD_LENGTH_ERROR);
+    }
+    users = new ArrayList<>(Math.min(userCount, in.remaining() / Integer.BYTES));
+    for (int i = 0; i < userCount; i++) {
+      users.add(getString(in, limits));
+    }
+  }
+
+  @Override
+  public int encodedLength() {
+    int length = 2 * Integer.BYTES + fieldLength(prefix) + fieldLength(nextCursor);
+    for (String user : users) {
+      length += fieldLength(user);
+    }
+    return length;
+  }
+
+  @Override
+  public void reset() {
+    this.prefix = null;
+    this.nextCursor = null;
+    this.users = List.of();
+  }
+
+  @Override
+  public MessageType getMessageType() {
+    return MessageType.QUERY_USERS_PAGE_RESPONSE;
+  }
+
+  /**
+   * get the prefix the query asked for
+   *
+   * @return the prefix
+   */
+  public String getPrefix() {
+    return prefix;
+  }
+
+  /**
+   * get the cursor to ask for the next page with
+   *
+   * @return the cursor, empty on the last page
+   */
+  public String getNextCursor() {
+    return nextCursor;
+  }
+
+  /**
+   * whether more users follow this page
+   *
+   * @return true if there is a next page
+   */
+  public boolean hasMore() {
+    return nextCursor != null && !nextCursor.isEmpty();
+  }
+
+  /**
+   * get the users on this page
+   *
+   * @return the users
+   */
+  public List<String> getUsers() {
+    return users;
+  }
+
+  @Override
+  public String toString() {
+    return "QueryUsersPageResponse [prefix=" + prefix + ", nextCursor=" + nextCursor
+        + ", users size=" + users.size() + "]";
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    QueryUsersPageResponse that = (QueryUsersPageResponse) o;
+    return Objects.equals(prefix, that.prefix) && Objects.equals(nextCursor, that.nextCursor)
+        && Objects.equals(users, that.users);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(prefix, nextCursor, users);
+  }
+}
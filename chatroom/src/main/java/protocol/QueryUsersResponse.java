@@ -3,6 +3,7 @@ package protocol;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
@@ -45,13 +46,49 @@ public class QueryUsersResponse extends Message {
     int userCount = in.readInt();
     connectedUsers = new ArrayList<>();
     for (int i = 0; i < userCount; i++) {
-      int usernameSize = in.readInt();
-      byte[] usernameBytes = new byte[usernameSize];
+      byte[] usernameBytes = new byte[readFieldLength(in)];
       in.readFully(usernameBytes);
       connectedUsers.add(new String(usernameBytes, DEFAULT_CHAR_SET));
     }
   }
 
+  @Override
+  public void encode(ByteBuffer out) {
+    out.putInt(getMessageType().getValue());
+    out.putInt(connectedUsers.size());
+    for (String user : connectedUsers) {
+      putString(out, user);
+    }
+  }
+
+  @Override
+  public void decode(ByteBuffer in, FrameLimits limits) throws IOException {
+    int userCount = in.getInt();
+    if (userCount < 0) {
+      throw new IOException(INVALID_FIELD_LENGTH_ERROR);
+    }
+    // Every username takes at least its length prefix, so a count the buffer cannot hold is cut
+    // short by EOFException before the list grows past the bytes that arrived
+    connectedUsers = new ArrayList<>(Math.min(userCount, in.remaining() / Integer.BYTES));
+    for (int i = 0; i < userCount; i++) {
+      connectedUsers.add(getString(in, limits));
+    }
+  }
+
+  @Override
+  public int encodedLength() {
+    int length = 2 * Integer.BYTES;
+    for (String user : connectedUsers) {
+      length += fieldLength(user);
+    }
+    return length;
+  }
+
+  @Override
+  public void reset() {
+    this.connectedUsers = List.of();
+  }
+
   @Override
   public MessageType getMessageType() {
     return MessageType.QUERY_USER_RESPONSE;
@@ -0,0 +1,160 @@
+package protocol;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ * Represent a message broadcast to the members of one room
+ */
+public class RoomMessage extends Message {
+
+  private String senderUsername;
+  private String roomName;
+  private Utf8Text message;
+
+  /**
+   * Default constructor
+   */
+  public RoomMessage() {
+  }
+
+  /**
+   * Construct a Room Message with given input arguments:
+   *
+   * @param senderUsername the username for sender
+   * @param roomName       the room the message is sent to
+   * @param message        the message content
+   */
+  public RoomMessage(String senderUsername, String roomName, String message) {
+    this.senderUsername = senderUsername;
+    this.roomName = roomName;
+    this.message = Utf8Text.of(message);
+  }
+
+  @Override
+  public void encode(DataOutputStream out) throws IOException {
+    out.writeInt(getMessageType().getValue());
+
+    byte[] senderBytes = (senderUsername != null ? senderUsername : EMPTY_STRING).getBytes(
+        DEFAULT_CHAR_SET);
+    out.writeInt(senderBytes.length);
+    out.write(senderBytes);
+
+    byte[] roomBytes = (roomName != null ? roomName : EMPTY_STRING).getBytes(DEFAULT_CHAR_SET);
+    out.writeInt(roomBytes.length);
+    out.write(roomBytes);
+
+    byte[] messageBytes = (message != null ? message : Utf8Text.EMPTY).getBytes();
+    out.writeInt(messageBytes.length);
+    out.write(messageBytes);
+  }
+
+  @Override
+  public void decode(DataInputStream in) throws IOException {
+    byte[] senderBytes = new byte[readFieldLength(in)];
+    in.readFully(senderBytes);
+    this.senderUsername = new String(senderBytes, DEFAULT_CHAR_SET);
+
+    byte[] roomBytes = new byte[readFieldLength(in)];
+    in.readFully(roomBytes);
+    this.roomName = new String(roomBytes, DEFAULT_CHAR_SET);
+
+    this.message = readText(in);
+  }
+
+  @Override
+  public void encode(ByteBuffer out) {
+    out.putInt(getMessageType().getValue());
+    putString(out, senderUsername);
+    putString(out, roomName);
+    putText(out, message);
+  }
+
+  @Override
+  public void decode(ByteBuffer in, FrameLimits limits) throws IOException {
+    this.senderUsername = getString(in, limits);
+    this.roomName = getString(in, limits);
+    this.message = getText(in, limits);
+  }
+
+  @Override
+  public int encodedLength() {
+    return Integer.BYTES + fieldLength(senderUsername) + fieldLength(roomName)
+        + fieldLength(message);
+  }
+
+  @Override
+  public void reset() {
+    this.senderUsername = null;
+    this.roomName = null;
+    this.message = null;
+  }
+
+  @Override
+  public MessageType getMessageType() {
+    return MessageType.ROOM_MESSAGE;
+  }
+
+  /**
+   * get the sender username
+   *
+   * @return sender username
+   */
+  public String getSenderUsername() {
+    return senderUsername;
+  }
+
+  /**
+   * get the room name
+   *
+   * @return room name
+   */
+  public String getRoomName() {
+    return roomName;
+  }
+
+  /**
+   * get the message content
+   *
+   * @return message content
+   */
+  public String getMessage() {
+    return message != null ? message.toString() : null;
+  }
+
+  /**
+   * get the message content without decoding it
+   *
+   * @return message content as text
+   */
+  public Utf8Text getMessageText() {
+    return message;
+  }
+
+  @Override
+  public String toString() {
+    return "Room message [from: " + senderUsername + ", room: " + roomName + ", message: "
+        + message + "]";
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    RoomMessage that = (RoomMessage) o;
+    return Objects.equals(senderUsername, that.senderUsername) && Objects.equals(roomName,
+        that.roomName) && Objects.equals(message, that.message);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(senderUsername, roomName, message);
+  }
+}
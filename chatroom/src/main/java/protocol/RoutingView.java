@@ -0,0 +1,375 @@
+package protocol;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Represent an incoming message as the server sees it when routing. For broadcast, direct and
+ * room messages only the type and the usernames or room name in the header are decoded; the
+ * body stays as the raw bytes of the frame, which is forwarded to recipients exactly as it
+ * arrived. Every other type is decoded in full, since the server has to act on its content.
+ */
+public final class RoutingView {
+
+  private final MessageType messageType;
+  private final String senderUsername;
+  private final String recipientUsername;
+  private final byte[] frameBytes;
+  private final int bodyOffset;
+  private final int bodyLength;
+  private Frame frame;
+  private Message message;
+  private WireFormat wireFormat = WireFormat.LEGACY;
+
+  private RoutingView(MessageType messageType, String senderUsername, String recipientUsername,
+      byte[] frameBytes, int bodyOffset, int bodyLength) {
+    this.messageType = messageType;
+    this.senderUsername = senderUsername;
+    this.recipientUsername = recipientUsername;
+    this.frameBytes = frameBytes;
+    this.bodyOffset = bodyOffset;
+    this.bodyLength = bodyLength;
+  }
+
+  private RoutingView(Message message) {
+    this(message.getMessageType(), null, null, null, 0, 0);
+    this.message = message;
+  }
+
+  // A view of a fully decoded message, the pool's own one if the message came from the pool
+  private static RoutingView of(Message message, MessagePool pool) {
+    return pool != null ? pool.viewOf(message) : new RoutingView(message);
+  }
+
+  /**
+   * Create a view of a fully decoded message, for a pool to hand out again
+   *
+   * @param message the message
+   * @return the routing view
+   */
+  static RoutingView wrap(Message message) {
+    return new RoutingView(message);
+  }
+
+  // Make a pooled view ready to be handed out again; its message has been decoded into anew
+  void reuse() {
+    frame = null;
+    wireFormat = WireFormat.LEGACY;
+  }
+
+  /**
+   * Whether messages of a type are routed without decoding their body
+   *
+   * @param messageType the message type
+   * @return true for broadcast, direct and room messages
+   */
+  public static boolean isRoutable(MessageType messageType) {
+    return messageType == MessageType.BROADCAST_MESSAGE
+        || messageType == MessageType.DIRECT_MESSAGE
+        || messageType == MessageType.ROOM_MESSAGE;
+  }
+
+  // Direct and room messages carry a second header field, the recipient or the room
+  private static boolean hasRecipient(MessageType messageType) {
+    return messageType == MessageType.DIRECT_MESSAGE || messageType == MessageType.ROOM_MESSAGE;
+  }
+
+  /**
+   * Decoding a routing view from a buffer, in either wire format. A framed frame is taken out of
+   * the buffer whole, and one of a type this reader does not know is skipped.
+   *
+   * @param in the buffer, advanced past the message
+   * @return the routing view
+   * @throws EOFException if the buffer ends part way through the message; its position is then
+   *                      unspecified
+   * @throws IOException  for other exceptions
+   */
+  public static RoutingView decodeFromBuffer(ByteBuffer in) throws IOException {
+    return decodeFromBuffer(in, null, FrameLimits.DEFAULT);
+  }
+
+  /**
+   * Decoding a routing view from a buffer, decoding a message that is not routable into an
+   * instance taken from a pool.
+   *
+   * @param in   the buffer, advanced past the message
+   * @param pool the pool, or null to create a new message
+   * @return the routing view
+   * @throws EOFException if the buffer ends part way through the message; its position is then
+   *                      unspecified
+   * @throws IOException  for other exceptions
+   */
+  public static RoutingView decodeFromBuffer(ByteBuffer in, MessagePool pool)
+      throws IOException {
+    return decodeFromBuffer(in, pool, FrameLimits.DEFAULT);
+  }
+
+  /**
+   * Decoding a routing view from a buffer, holding every field to a set of limits as
+   * {@link #decodeFromStream(DataInputStream, MessagePool)} does for a {@link FrameInputStream}.
+   *
+   * @param in     the buffer, advanced past the message
+   * @param pool   the pool, or null to create a new message
+   * @param limits the limits every field is held to
+   * @return the routing view
+   * @throws EOFException if the buffer ends part way through the message; its position is then
+   *                      unspecified
+   * @throws IOException  for other exceptions, including a field over the limits
+   */
+  public static RoutingView decodeFromBuffer(ByteBuffer in, MessagePool pool, FrameLimits limits)
+      throws IOException {
+    while (true) {
+      ByteBuffer payload = FrameHeader.nextPayload(in);
+      if (payload == null) {
+        return decodeLegacy(in, pool, limits);
+      }
+      if (MessageType.fromValue(payload.getInt(0)) == null) {
+        continue;
+      }
+      RoutingView view;
+      try {
+        view = decodeLegacy(payload, pool, limits);
+      } catch (EOFException e) {
+        // The whole frame is there, so running out of it is an error
+        throw new IOException(FrameHeader.INVALID_FRAME_LENGTH_ERROR);
+      }
+      FrameHeader.checkConsumed(payload);
+      view.wireFormat = WireFormat.FRAMED;
+      return view;
+    }
+  }
+
+  private static RoutingView decodeLegacy(ByteBuffer in, MessagePool pool, FrameLimits limits)
+      throws IOException {
+    int start = in.position();
+    try {
+      MessageType messageType = MessageType.fromValue(in.getInt());
+      if (!isRoutable(messageType)) {
+        in.position(start);
+        return of(Message.decodeFromBuffer(in, pool, limits), pool);
+      }
+      String sender = Message.getString(in, limits);
+      String recipient = hasRecipient(messageType) ? Message.getString(in, limits) : null;
+      int bodyLength = Message.getFieldLength(in, limits);
+      int bodyOffset = in.position() - start;
+      byte[] frameBytes = new byte[bodyOffset + bodyLength];
+      in.get(start, frameBytes);
+      in.position(start + frameBytes.length);
+      return new RoutingView(messageType, sender, recipient, frameBytes, bodyOffset, bodyLength);
+    } catch (BufferUnderflowException e) {
+      throw new EOFException();
+    }
+  }
+
+  /**
+   * Decoding a routing view from a stream, in either wire format. The body is read straight into
+   * the frame that will be forwarded. A {@link FrameInputStream} holds the frame to its limits,
+   * and a framed frame of a type this reader does not know is skipped.
+   *
+   * @param in DataInputStream
+   * @return the routing view
+   * @throws IOException for exceptions, including a frame over the limits
+   */
+  public static RoutingView decodeFromStream(DataInputStream in) throws IOException {
+    return decodeFromStream(in, null);
+  }
+
+  /**
+   * Decoding a routing view from a stream, decoding a message that is not routable into an
+   * instance taken from a pool.
+   *
+   * @param in   DataInputStream
+   * @param pool the pool, or null to create a new message
+   * @return the routing view
+   * @throws IOException for exceptions, including a frame over the limits
+   */
+  public static RoutingView decodeFromStream(DataInputStream in, MessagePool pool)
+      throws IOException {
+    while (true) {
+      Message.startFrame(in);
+      int firstWord = in.readInt();
+      if (!FrameHeader.isFramed(firstWord)) {
+        return decodeLegacy(firstWord, in, pool);
+      }
+      int payloadLength = FrameHeader.readPayloadLength(firstWord, in);
+      int messageTypeValue = in.readInt();
+      if (MessageType.fromValue(messageTypeValue) == null) {
+        in.skipNBytes(payloadLength - Integer.BYTES);
+        continue;
+      }
+      RoutingView view;
+      if (in instanceof FrameInputStream frameIn) {
+        view = decodeLegacy(messageTypeValue, in, pool);
+        FrameHeader.checkConsumed(frameIn);
+      } else {
+        byte[] payload = new byte[payloadLength];
+        ByteBuffer.wrap(payload).putInt(messageTypeValue);
+        in.readFully(payload, Integer.BYTES, payloadLength - Integer.BYTES);
+        view = decodeFromBuffer(ByteBuffer.wrap(payload), pool);
+      }
+      view.wireFormat = WireFormat.FRAMED;
+      return view;
+    }
+  }
+
+  private static RoutingView decodeLegacy(int messageTypeValue, DataInputStream in,
+      MessagePool pool) throws IOException {
+    MessageType messageType = MessageType.fromValue(messageTypeValue);
+    if (!isRoutable(messageType)) {
+      return of(Message.decodeFromStream(messageTypeValue, in, pool), pool);
+    }
+    byte[] sender = readField(in);
+    byte[] recipient = hasRecipient(messageType) ? readField(in) : null;
+    int bodyLength = Message.readFieldLength(in);
+    int bodyOffset = Integer.BYTES * 3 + sender.length
+        + (recipient != null ? Integer.BYTES + recipient.length : 0);
+    byte[] frameBytes = new byte[bodyOffset + bodyLength];
+    ByteBuffer header = ByteBuffer.wrap(frameBytes);
+    header.putInt(messageTypeValue).putInt(sender.length).put(sender);
+    if (recipient != null) {
+      header.putInt(recipient.length).put(recipient);
+    }
+    header.putInt(bodyLength);
+    in.readFully(frameBytes, bodyOffset, bodyLength);
+    return new RoutingView(messageType, new String(sender, Message.DEFAULT_CHAR_SET),
+        recipient != null ? new String(recipient, Message.DEFAULT_CHAR_SET) : null,
+        frameBytes, bodyOffset, bodyLength);
+  }
+
+  private static byte[] readField(DataInputStream in) throws IOException {
+    byte[] bytes = new byte[Message.readFieldLength(in)];
+    in.readFully(bytes);
+    return bytes;
+  }
+
+  /**
+   * get the message type
+   *
+   * @return the message type
+   */
+  public MessageType getMessageType() {
+    return messageType;
+  }
+
+  /**
+   * get the wire format the message arrived in
+   *
+   * @return the wire format
+   */
+  public WireFormat getWireFormat() {
+    return wireFormat;
+  }
+
+  /**
+   * Whether the body was left undecoded
+   *
+   * @return true for broadcast, direct and room messages
+   */
+  public boolean isRoutable() {
+    return frameBytes != null;
+  }
+
+  /**
+   * get the sender username of a routable message
+   *
+   * @return the sender username, or null for other messages
+   */
+  public String getSenderUsername() {
+    return senderUsername;
+  }
+
+  /**
+   * get the recipient username of a direct message
+   *
+   * @return the recipient username, or null for other messages
+   */
+  public String getRecipientUsername() {
+    return messageType == MessageType.DIRECT_MESSAGE ? recipientUsername : null;
+  }
+
+  /**
+   * get the room a room message is sent to
+   *
+   * @return the room name, or null for other messages
+   */
+  public String getRoomName() {
+    return messageType == MessageType.ROOM_MESSAGE ? recipientUsername : null;
+  }
+
+  /**
+   * get a copy of the undecoded body of a routable message
+   *
+   * @return the body, or null for other messages
+   */
+  public Utf8Text getBody() {
+    if (frameBytes == null) {
+      return null;
+    }
+    return Utf8Text.wrap(Arrays.copyOfRange(frameBytes, bodyOffset, bodyOffset + bodyLength));
+  }
+
+  /**
+   * get the frame to forward, which for a routable message is the bytes exactly as received
+   *
+   * @return the frame
+   * @throws IOException for exceptions
+   */
+  public Frame toFrame() throws IOException {
+    if (frame == null) {
+      frame = frameBytes != null ? Frame.wrap(frameBytes) : Frame.of(message);
+    }
+    return frame;
+  }
+
+  /**
+   * get the fully decoded message, decoding a routable message the first time
+   *
+   * @return the message
+   * @throws IOException for exceptions
+   */
+  public Message getMessage() throws IOException {
+    if (message == null) {
+      message = Message.decodeFromBuffer(ByteBuffer.wrap(frameBytes));
+    }
+    return message;
+  }
+
+  // The message decoded along with the view, without decoding a routable one
+  Message decodedMessage() {
+    return message;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    RoutingView that = (RoutingView) o;
+    if (frameBytes == null || that.frameBytes == null) {
+      return frameBytes == that.frameBytes && Objects.equals(message, that.message);
+    }
+    return Arrays.equals(frameBytes, that.frameBytes);
+  }
+
+  @Override
+  public int hashCode() {
+    return frameBytes != null ? Arrays.hashCode(frameBytes) : Objects.hashCode(message);
+  }
+
+  @Override
+  public String toString() {
+    if (frameBytes == null) {
+      return "RoutingView [" + message + "]";
+    }
+    return "RoutingView [type=" + messageType + ", from: " + senderUsername + ", to: "
+        + recipientUsername + ", bodyLength=" + bodyLength + "]";
+  }
+}
@@ -3,6 +3,7 @@ package protocol;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Objects;
 
 /**
@@ -47,17 +48,39 @@ public class SendInsultMessage extends Message {
 
   @Override
   public void decode(DataInputStream in) throws IOException {
-    int senderSize = in.readInt();
-    byte[] senderBytes = new byte[senderSize];
+    byte[] senderBytes = new byte[readFieldLength(in)];
     in.readFully(senderBytes);
     this.senderUsername = new String(senderBytes, DEFAULT_CHAR_SET);
 
-    int recipientSize = in.readInt();
-    byte[] recipientBytes = new byte[recipientSize];
+    byte[] recipientBytes = new byte[readFieldLength(in)];
     in.readFully(recipientBytes);
     this.recipientUsername = new String(recipientBytes, DEFAULT_CHAR_SET);
   }
 
+  @Override
+  public void encode(ByteBuffer out) {
+    out.putInt(getMessageType().getValue());
+    putString(out, senderUsername);
+    putString(out, recipientUsername);
+  }
+
+  @Override
+  public void decode(ByteBuffer in, FrameLimits limits) throws IOException {
+    this.senderUsername = getString(in, limits);
+    this.recipientUsername = getString(in, limits);
+  }
+
+  @Override
+  public int encodedLength() {
+    return Integer.BYTES + fieldLength(senderUsername) + fieldLength(recipientUsername);
+  }
+
+  @Override
+  public void reset() {
+    this.senderUsername = null;
+    this.recipientUsername = null;
+  }
+
   @Override
   public MessageType getMessageType() {
     return MessageType.SEND_INSULT;
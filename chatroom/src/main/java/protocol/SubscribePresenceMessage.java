@@ -0,0 +1,120 @@
+package protocol;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ * Represent a request to start or stop receiving presence updates
+ */
+public class SubscribePresenceMessage extends Message {
+
+  private String username;
+  private boolean subscribe;
+
+  /**
+   * Default constructor
+   */
+  public SubscribePresenceMessage() {
+  }
+
+  /**
+   * Construct a SubscribePresenceMessage with given input arguments:
+   *
+   * @param username  the username of sender
+   * @param subscribe true to start receiving presence updates, false to stop
+   */
+  public SubscribePresenceMessage(String username, boolean subscribe) {
+    this.username = username;
+    this.subscribe = subscribe;
+  }
+
+  @Override
+  public void encode(DataOutputStream out) throws IOException {
+    out.writeInt(getMessageType().getValue());
+    byte[] usernameBytes = (username != null ? username : EMPTY_STRING).getBytes(
+        DEFAULT_CHAR_SET);
+    out.writeInt(usernameBytes.length);
+    out.write(usernameBytes);
+    out.writeBoolean(subscribe);
+  }
+
+  @Override
+  public void decode(DataInputStream in) throws IOException {
+    byte[] usernameBytes = new byte[readFieldLength(in)];
+    in.readFully(usernameBytes);
+    this.username = new String(usernameBytes, DEFAULT_CHAR_SET);
+    this.subscribe = in.readBoolean();
+  }
+
+  @Override
+  public void encode(ByteBuffer out) {
+    out.putInt(getMessageType().getValue());
+    putString(out, username);
+    out.put((byte) (subscribe ? 1 : 0));
+  }
+
+  @Override
+  public void decode(ByteBuffer in, FrameLimits limits) throws IOException {
+    this.username = getString(in, limits);
+    this.subscribe = in.get() != 0;
+  }
+
+  @Override
+  public int encodedLength() {
+    return Integer.BYTES + fieldLength(username) + 1;
+  }
+
+  @Override
+  public void reset() {
+    this.username = null;
+    this.subscribe = false;
+  }
+
+  @Override
+  public MessageType getMessageType() {
+    return MessageType.SUBSCRIBE_PRESENCE;
+  }
+
+  /**
+   * get the username
+   *
+   * @return the username
+   */
+  public String getUsername() {
+    return username;
+  }
+
+  /**
+   * whether the sender wants presence updates
+   *
+   * @return true to subscribe, false to unsubscribe
+   */
+  public boolean isSubscribe() {
+    return subscribe;
+  }
+
+  @Override
+  public String toString() {
+    return "SubscribePresenceMessage [username=" + username + ", subscribe=" + subscribe + "]";
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    SubscribePresenceMessage that = (SubscribePresenceMessage) o;
+    return subscribe == that.subscribe && Objects.equals(username, that.username);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(username, subscribe);
+  }
+}
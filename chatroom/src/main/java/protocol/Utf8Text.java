@@ -0,0 +1,195 @@
+package protocol;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Represent a text field that may be held as its UTF-8 bytes, as a String, or both. Text read
+ * off the wire keeps its bytes and only builds the String when someone asks for it, and
+ * re-encoding it writes the bytes back unchanged, so a message can be relayed without ever
+ * decoding its body.
+ */
+public final class Utf8Text {
+
+  /**
+   * The empty text.
+   */
+  public static final Utf8Text EMPTY = new Utf8Text(new byte[0], Message.EMPTY_STRING);
+
+  private byte[] bytes;
+  private String string;
+
+  private Utf8Text(byte[] bytes, String string) {
+    this.bytes = bytes;
+    this.string = string;
+  }
+
+  /**
+   * Wrap a String, encoding it only when the bytes are needed
+   *
+   * @param string the string, or null
+   * @return the text, or null for a null string
+   */
+  public static Utf8Text of(String string) {
+    return string == null ? null : new Utf8Text(null, string);
+  }
+
+  /**
+   * Wrap UTF-8 bytes, decoding them only when the String is needed. The array is not copied, so
+   * the caller must not modify it afterwards.
+   *
+   * @param bytes the UTF-8 bytes
+   * @return the text
+   */
+  public static Utf8Text wrap(byte[] bytes) {
+    return new Utf8Text(bytes, null);
+  }
+
+  /**
+   * Copy the next length bytes of a buffer into a new text
+   *
+   * @param in     the buffer, advanced past the bytes
+   * @param length the number of bytes
+   * @return the text
+   */
+  public static Utf8Text read(ByteBuffer in, int length) {
+    byte[] copy = new byte[length];
+    in.get(copy);
+    return new Utf8Text(copy, null);
+  }
+
+  /**
+   * Count the UTF-8 bytes of a string without encoding it. Unpaired surrogates count as the one
+   * byte replacement that {@link String#getBytes} writes for them.
+   *
+   * @param text the text
+   * @return the number of UTF-8 bytes
+   */
+  public static int encodedLength(CharSequence text) {
+    int length = text.length();
+    int bytes = length;
+    for (int i = 0; i < length; i++) {
+      char c = text.charAt(i);
+      if (c < 0x80) {
+        continue;
+      }
+      if (c < 0x800) {
+        bytes += 1;
+      } else if (Character.isHighSurrogate(c) && i + 1 < length
+          && Character.isLowSurrogate(text.charAt(i + 1))) {
+        // Two chars, four bytes
+        bytes += 2;
+        i++;
+      } else if (!Character.isSurrogate(c)) {
+        bytes += 2;
+      }
+    }
+    return bytes;
+  }
+
+  /**
+   * Encode a string as UTF-8 straight into a buffer, with the same output as
+   * {@link String#getBytes} but without the intermediate array
+   *
+   * @param text the text
+   * @param out  the buffer, which must have room for {@link #encodedLength} bytes
+   */
+  public static void encode(CharSequence text, ByteBuffer out) {
+    int length = text.length();
+    for (int i = 0; i < length; i++) {
+      char c = text.charAt(i);
+      if (c < 0x80) {
+        out.put((byte) c);
+      } else if (c < 0x800) {
+        out.put((byte) (0xC0 | (c >> 6)));
+        out.put((byte) (0x80 | (c & 0x3F)));
+      } else if (Character.isHighSurrogate(c) && i + 1 < length
+          && Character.isLowSurrogate(text.charAt(i + 1))) {
+        int codePoint = Character.toCodePoint(c, text.charAt(++i));
+        out.put((byte) (0xF0 | (codePoint >> 18)));
+        out.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+        out.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+        out.put((byte) (0x80 | (codePoint & 0x3F)));
+      } else if (Character.isSurrogate(c)) {
+        out.put((byte) '?');
+      } else {
+        out.put((byte) (0xE0 | (c >> 12)));
+        out.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+        out.put((byte) (0x80 | (c & 0x3F)));
+      }
+    }
+  }
+
+  /**
+   * get the number of UTF-8 bytes
+   *
+   * @return the encoded length
+   */
+  public int encodedLength() {
+    return bytes != null ? bytes.length : encodedLength(string);
+  }
+
+  /**
+   * write the UTF-8 bytes into a buffer, copying them if the text arrived as bytes
+   *
+   * @param out the buffer
+   */
+  public void encodeTo(ByteBuffer out) {
+    if (bytes != null) {
+      out.put(bytes);
+    } else {
+      encode(string, out);
+    }
+  }
+
+  /**
+   * get the UTF-8 bytes, encoding the String the first time. The array must not be modified.
+   *
+   * @return the UTF-8 bytes
+   */
+  public byte[] getBytes() {
+    if (bytes == null) {
+      bytes = string.getBytes(Message.DEFAULT_CHAR_SET);
+    }
+    return bytes;
+  }
+
+  /**
+   * Whether the String has been built yet
+   *
+   * @return true once the text has been materialized
+   */
+  public boolean isMaterialized() {
+    return string != null;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    Utf8Text that = (Utf8Text) o;
+    return Arrays.equals(getBytes(), that.getBytes());
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(getBytes());
+  }
+
+  /**
+   * get the text as a String, decoding the bytes the first time
+   *
+   * @return the String
+   */
+  @Override
+  public String toString() {
+    if (string == null) {
+      string = new String(bytes, Message.DEFAULT_CHAR_SET);
+    }
+    return string;
+  }
+}
@@ -0,0 +1,52 @@
+package protocol;
+
+/**
+ * Enum class for how messages are laid out on the wire
+ */
+public enum WireFormat {
+  /**
+   * the type code followed straight by the fields; a reader only learns where the frame ends by
+   * decoding all of it
+   */
+  LEGACY("legacy"),
+  /**
+   * a {@link FrameHeader} carrying the total length in front of the legacy layout, so a reader
+   * can take a whole frame at once and skip types it does not know
+   */
+  FRAMED("framed");
+
+  private final String argument;
+
+  /**
+   * pairing the wire format with its command line argument
+   *
+   * @param argument the command line argument selecting this format
+   */
+  WireFormat(String argument) {
+    this.argument = argument;
+  }
+
+  /**
+   * get the command line argument for the wire format
+   *
+   * @return the command line argument
+   */
+  public String getArgument() {
+    return argument;
+  }
+
+  /**
+   * generate wire format from a command line argument
+   *
+   * @param argument input argument, case-insensitive
+   * @return wire format, or null if the argument matches no format
+   */
+  public static WireFormat fromArgument(String argument) {
+    for (WireFormat format : values()) {
+      if (format.argument.equalsIgnoreCase(argument)) {
+        return format;
+      }
+    }
+    return null;
+  }
+}
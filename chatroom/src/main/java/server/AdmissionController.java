@@ -0,0 +1,165 @@
+package server;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import protocol.ConnectResponse;
+
+/**
+ * Decides whether a freshly accepted connection may open a session. Checks the accept rate, the
+ * total number of sessions and the sessions held by the connection's source address, in that
+ * order, and claims the slots atomically so concurrent accepts can never overshoot a limit. A
+ * rejected connection is sent a pre-encoded {@link ConnectResponse} and closed, so a connection
+ * storm costs neither a thread nor a client manager per connection.
+ */
+public class AdmissionController {
+
+  /**
+   * Limit value meaning no limit.
+   */
+  public static final int UNLIMITED = 0;
+  private static final Map<AdmissionResult, byte[]> REJECTIONS =
+      new EnumMap<>(AdmissionResult.class);
+
+  static {
+    for (AdmissionResult result : AdmissionResult.values()) {
+      if (!result.isAdmitted()) {
+        try {
+          REJECTIONS.put(result, new ConnectResponse(false, result.getMessage()).encode());
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }
+    }
+  }
+
+  private final int maxSessions;
+  private final int maxSessionsPerAddress;
+  private final TokenBucket acceptRate;
+  private final AtomicInteger sessions = new AtomicInteger();
+  private final ConcurrentHashMap<InetAddress, Integer> sessionsByAddress =
+      new ConcurrentHashMap<>();
+
+  /**
+   * Instantiates a new Admission controller.
+   *
+   * @param maxSessions           the most concurrent sessions
+   * @param maxSessionsPerAddress the most concurrent sessions from one source address, or
+   *                              {@link #UNLIMITED}
+   * @param maxAcceptsPerSecond   the most connections admitted per second, bursting up to the
+   *                              same number, or {@link #UNLIMITED}
+   */
+  public AdmissionController(int maxSessions, int maxSessionsPerAddress,
+      int maxAcceptsPerSecond) {
+    if (maxSessions < 1) {
+      throw new IllegalArgumentException("Max sessions must be positive: " + maxSessions);
+    }
+    this.maxSessions = maxSessions;
+    this.maxSessionsPerAddress = maxSessionsPerAddress;
+    this.acceptRate = maxAcceptsPerSecond == UNLIMITED ? null
+        : new TokenBucket(maxAcceptsPerSecond, maxAcceptsPerSecond);
+  }
+
+  /**
+   * Instantiates a new Admission controller from a server config.
+   *
+   * @param config             the server config
+   * @param defaultMaxSessions the engine's session limit, used when the config sets none
+   */
+  public AdmissionController(ServerConfig config, int defaultMaxSessions) {
+    this(config.getMaxSessions() != UNLIMITED ? config.getMaxSessions() : defaultMaxSessions,
+        config.getMaxSessionsPerAddress(), config.getMaxAcceptRate());
+  }
+
+  /**
+   * Try to claim a session for a new connection. An admitted connection must be given back with
+   * {@link #release(InetAddress)} once it closes.
+   *
+   * @param address the source address, null if unknown
+   * @return the decision
+   */
+  public AdmissionResult tryAdmit(InetAddress address) {
+    if (acceptRate != null && !acceptRate.tryAcquire()) {
+      return AdmissionResult.RATE_LIMITED;
+    }
+    int current;
+    do {
+      current = sessions.get();
+      if (current >= maxSessions) {
+        return AdmissionResult.SERVER_FULL;
+      }
+    } while (!sessions.compareAndSet(current, current + 1));
+    if (!tryClaimAddress(address)) {
+      sessions.decrementAndGet();
+      return AdmissionResult.TOO_MANY_FROM_ADDRESS;
+    }
+    return AdmissionResult.ADMITTED;
+  }
+
+  private boolean tryClaimAddress(InetAddress address) {
+    if (maxSessionsPerAddress == UNLIMITED || address == null) {
+      return true;
+    }
+    boolean[] claimed = new boolean[1];
+    sessionsByAddress.compute(address, (key, count) -> {
+      int held = count == null ? 0 : count;
+      claimed[0] = held < maxSessionsPerAddress;
+      return claimed[0] ? held + 1 : count;
+    });
+    return claimed[0];
+  }
+
+  /**
+   * Give back the session of an admitted connection that has closed.
+   *
+   * @param address the source address passed to {@link #tryAdmit(InetAddress)}
+   */
+  public void release(InetAddress address) {
+    sessions.decrementAndGet();
+    if (maxSessionsPerAddress != UNLIMITED && address != null) {
+      sessionsByAddress.computeIfPresent(address, (key, count) -> count > 1 ? count - 1 : null);
+    }
+  }
+
+  /**
+   * The encoded {@link ConnectResponse} a rejected connection is sent.
+   *
+   * @param result a rejection
+   * @return the encoded response, shared between callers and not to be modified
+   */
+  public static byte[] rejection(AdmissionResult result) {
+    return REJECTIONS.get(result);
+  }
+
+  /**
+   * Number of sessions currently admitted.
+   *
+   * @return the session count
+   */
+  public int sessionCount() {
+    return sessions.get();
+  }
+
+  /**
+   * Gets the most concurrent sessions.
+   *
+   * @return the max sessions
+   */
+  public int getMaxSessions() {
+    return maxSessions;
+  }
+
+  @Override
+  public String toString() {
+    return "AdmissionController{" +
+        "sessions=" + sessions.get() +
+        ", maxSessions=" + maxSessions +
+        ", maxSessionsPerAddress=" + maxSessionsPerAddress +
+        ", acceptRate=" + acceptRate +
+        '}';
+  }
+}
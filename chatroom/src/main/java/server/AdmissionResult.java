@@ -0,0 +1,52 @@
+package server;
+
+/**
+ * Enum class for what the admission controller decided about a new connection
+ */
+public enum AdmissionResult {
+  /**
+   * the connection may open a session
+   */
+  ADMITTED(null),
+  /**
+   * every session slot is taken
+   */
+  SERVER_FULL(Server.SERVER_IS_FULL_MESSAGE),
+  /**
+   * the source address already holds its share of sessions
+   */
+  TOO_MANY_FROM_ADDRESS("Too many connections from your address. Try again later."),
+  /**
+   * connections are arriving faster than the server accepts them
+   */
+  RATE_LIMITED("Server is busy. Try again later.");
+
+  private final String message;
+
+  /**
+   * pairing the result with the message a rejected client is sent
+   *
+   * @param message the rejection message, null for an admitted connection
+   */
+  AdmissionResult(String message) {
+    this.message = message;
+  }
+
+  /**
+   * get the message a rejected client is sent
+   *
+   * @return the rejection message, null for an admitted connection
+   */
+  public String getMessage() {
+    return message;
+  }
+
+  /**
+   * whether the connection was admitted
+   *
+   * @return true for {@link #ADMITTED}
+   */
+  public boolean isAdmitted() {
+    return this == ADMITTED;
+  }
+}
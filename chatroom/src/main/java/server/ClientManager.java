@@ -1,10 +1,19 @@
 package server;
 
+import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.Objects;
-import protocol.Message;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import logging.Log;
+import protocol.Frame;
+import protocol.FrameInputStream;
+import protocol.MessagePool;
+import protocol.RoutingView;
+import protocol.WireFormat;
 import java.io.*;
 import java.net.Socket;
+import java.util.concurrent.Executor;
 
 /**
  * The type Client manager.
@@ -19,24 +28,77 @@ public class ClientManager implements Runnable {
    * Error message for failed client connection closure.
    */
   public static final String CLOSE_ERROR = "Error closing connection with client";
+  /**
+   * Prefix for connections closed for sending a frame over the limits.
+   */
+  public static final String FRAME_REJECTED_PREFIX = "Closing connection, frame over limits: ";
   
+  /**
+   * How long cleanup waits for the writer to deliver frames that are still queued.
+   */
+  static final long DRAIN_TIMEOUT_MILLIS = 2000;
+  private static final Executor THREAD_PER_WRITER = runnable -> new Thread(runnable).start();
+
   private final Socket socket;
-  private List<ClientManager> clients;
-  private DataInputStream in;
+  private final ClientRegistry clients;
+  private final ServerConfig config;
+  private final ServerMetrics metrics;
+  private final OutboundQueue outbound;
+  private final Executor writerExecutor;
+  private final Set<String> rooms = ConcurrentHashMap.newKeySet();
+  private final MessagePool messagePool;
+  private FrameInputStream in;
   private DataOutputStream out;
-  private String username = null;
-  private boolean isInChatRoom;
+  private OutboundWriter writer;
+  private boolean writerStarted;
+  private Runnable disconnectHandler = this::closeSocket;
+  private volatile String username = null;
+  private volatile boolean isInChatRoom;
+  private volatile WireFormat wireFormat = WireFormat.LEGACY;
   private ClientMessageHandler clientMessageHandler;
 
   /**
    * Instantiates a new Client manager.
    *
-   * @param socket  the socket
-   * @param clients the clients
+   * @param socket         the socket
+   * @param clients        the registry of connected clients
+   * @param config         the server config, for the outbound queue and batching settings
+   * @param metrics        the metrics of the server the client is connected to
+   * @param writerExecutor runs the writer that drains the outbound queue
    */
-  public ClientManager(Socket socket, List<ClientManager> clients) {
+  public ClientManager(Socket socket, ClientRegistry clients, ServerConfig config,
+      ServerMetrics metrics, Executor writerExecutor) {
     this.socket = socket;
     this.clients = clients;
+    this.config = config;
+    this.metrics = metrics;
+    this.outbound = new OutboundQueue(config.getOutboundQueueCapacity(),
+        config.getOverflowPolicy());
+    this.writerExecutor = writerExecutor;
+    this.messagePool = config.isMessagePooling() ? new MessagePool() : null;
+  }
+
+  /**
+   * Instantiates a new Client manager.
+   *
+   * @param socket         the socket
+   * @param clients        the registry of connected clients
+   * @param config         the server config, for the outbound queue and batching settings
+   * @param writerExecutor runs the writer that drains the outbound queue
+   */
+  public ClientManager(Socket socket, ClientRegistry clients, ServerConfig config,
+      Executor writerExecutor) {
+    this(socket, clients, config, new ServerMetrics(), writerExecutor);
+  }
+
+  /**
+   * Instantiates a new Client manager.
+   *
+   * @param socket  the socket
+   * @param clients the registry of connected clients
+   */
+  public ClientManager(Socket socket, ClientRegistry clients) {
+    this(socket, clients, new ServerConfig(), THREAD_PER_WRITER);
   }
 
   /**
@@ -45,30 +107,188 @@ public class ClientManager implements Runnable {
    * @throws IOException the io exception
    */
   public void initialize() throws IOException {
-    this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
-    this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
-    this.clientMessageHandler = new ClientMessageHandler(out, clients);
+    // Every frame is held to the limits before any of it is allocated
+    this.in = new FrameInputStream(new BufferedInputStream(
+        new CountingInputStream(socket.getInputStream(), metrics)), config.getFrameLimits());
+    // Unbuffered, the writer already hands the socket one coalesced batch at a time
+    this.writer = new OutboundWriter(outbound, socket.getOutputStream(), this,
+        config.getMaxBatchFrames(), config.getMaxBatchDelayMicros(), metrics);
+    initializeOutbound();
+  }
+
+  /**
+   * Set up the handler and its out stream without touching the socket streams. Used directly by
+   * the NIO server, which reads from the channel and drains the outbound queue itself.
+   */
+  void initializeOutbound() {
+    this.out = new DataOutputStream(new FrameOutputStream(this));
+    this.clientMessageHandler = new ClientMessageHandler(this, out, clients, metrics,
+        new RateLimiter(config));
   }
 
   public void run() {
     try {
       initialize();
-      while (username == null) {
-        Message message = Message.decodeFromStream(in);
-        username = clientMessageHandler.handleLogin(message);
-      }
-      isInChatRoom = true;
-      while (isInChatRoom) {
-        Message message = Message.decodeFromStream(in);
-        isInChatRoom = clientMessageHandler.handleMessage(message, username);
+      writerExecutor.execute(writer);
+      writerStarted = true;
+      boolean connected = true;
+      while (connected) {
+        connected = handle(RoutingView.decodeFromStream(in, messagePool));
       }
     } catch (IOException e) {
-      System.out.println(CONNECTION_ERROR_PREFIX + e.getMessage());
+      if (in != null && in.isOversized()) {
+        metrics.recordFrameRejected();
+        Log.warn(FRAME_REJECTED_PREFIX + socket.getInetAddress());
+      } else {
+        Log.info(CONNECTION_ERROR_PREFIX + e.getMessage());
+      }
     } finally {
       cleanup();
     }
   }
 
+  /**
+   * Handle one incoming message. Until a username is accepted every message is treated as a
+   * login attempt, afterwards it is dispatched as a chat message. A message decoded from the
+   * pool is released once it has been handled.
+   *
+   * @param view the routing view of the message
+   * @return false once the client has disconnected
+   * @throws IOException the io exception
+   */
+  boolean handle(RoutingView view) throws IOException {
+    metrics.recordDecoded(view.getMessageType());
+    long start = System.nanoTime();
+    try {
+      if (username == null) {
+        // Reply in whichever format the login arrived in, before the reply is queued
+        wireFormat = view.getWireFormat();
+        username = clientMessageHandler.handleLogin(view.getMessage());
+        isInChatRoom = username != null;
+        return true;
+      }
+      isInChatRoom = clientMessageHandler.handleMessage(view, username);
+      return isInChatRoom;
+    } finally {
+      if (messagePool != null) {
+        messagePool.release(view);
+      }
+      metrics.getHandleTime().recordSince(start);
+    }
+  }
+
+  /**
+   * Gets the pool messages from the client are decoded into.
+   *
+   * @return the message pool, or null if messages are not pooled
+   */
+  MessagePool getMessagePool() {
+    return messagePool;
+  }
+
+  /**
+   * Queue an already encoded message for the client. Never blocks; if the client has fallen so
+   * far behind that its queue overflows under {@link OverflowPolicy#DISCONNECT}, it is
+   * disconnected instead. The frame is written in the client's wire format.
+   *
+   * @param frame the frame, in the legacy format
+   */
+  public void send(Frame frame) {
+    if (!outbound.offer(frame.inFormat(wireFormat))) {
+      disconnect();
+    }
+  }
+
+  /**
+   * Queue several frames as one, so they reach the client in a single write and take one place
+   * in its queue. Each frame is put in the client's wire format before they are joined.
+   *
+   * @param frames the frames, in the legacy format
+   */
+  public void sendAll(List<Frame> frames) {
+    if (!outbound.offer(join(frames))) {
+      disconnect();
+    }
+  }
+
+  /**
+   * Queue several frames as one, as {@link #sendAll(List)} does, but only if the queue has room
+   * for them; the overflow policy is not applied, so the frames are either queued or left with
+   * the caller.
+   *
+   * @param frames the frames, in the legacy format
+   * @return true if the frames were queued; false if the queue is full or closed
+   */
+  public boolean offerAll(List<Frame> frames) {
+    return outbound.offerIfRoom(join(frames));
+  }
+
+  // One frame holding each of the frames in the client's wire format
+  private Frame join(List<Frame> frames) {
+    WireFormat format = wireFormat;
+    int length = 0;
+    for (Frame frame : frames) {
+      length += frame.inFormat(format).length();
+    }
+    ByteBuffer joined = ByteBuffer.allocate(length);
+    for (Frame frame : frames) {
+      joined.put(frame.inFormat(format).asByteBuffer());
+    }
+    return Frame.wrap(joined.array());
+  }
+
+  /**
+   * Disconnect the client from any thread. The blocked read in {@link #run()} then fails and the
+   * client cleans itself up.
+   */
+  void disconnect() {
+    disconnectHandler.run();
+  }
+
+  /**
+   * Replace what {@link #disconnect()} does, for engines that own the connection themselves.
+   *
+   * @param disconnectHandler the disconnect handler
+   */
+  void setDisconnectHandler(Runnable disconnectHandler) {
+    this.disconnectHandler = disconnectHandler;
+  }
+
+  /**
+   * Remove the client from the chat room, let the writer deliver what is still queued and close
+   * the socket.
+   */
+  void cleanup() {
+    clients.remove(this);
+    outbound.close();
+    if (writerStarted) {
+      try {
+        writer.awaitFinished(DRAIN_TIMEOUT_MILLIS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    closeSocket();
+  }
+
+  private void closeSocket() {
+    try {
+      socket.close();
+    } catch (IOException e) {
+      Log.warn(CLOSE_ERROR);
+    }
+  }
+
+  /**
+   * Gets the wire format frames are written to the client in, which is the format it logged in
+   * with.
+   *
+   * @return the wire format
+   */
+  public WireFormat getWireFormat() {
+    return wireFormat;
+  }
+
   /**
    * Gets username.
    *
@@ -97,7 +317,17 @@ public class ClientManager implements Runnable {
   }
 
   /**
-   * Gets out stream.
+   * Gets the names of the rooms the client has joined. Kept up to date by {@link RoomRegistry}.
+   *
+   * @return the room names
+   */
+  Set<String> getRooms() {
+    return rooms;
+  }
+
+  /**
+   * Gets out stream. Only the client's own handler writes to it; other threads use
+   * {@link #send(Frame)}.
    *
    * @return the out stream
    */
@@ -105,13 +335,22 @@ public class ClientManager implements Runnable {
     return out;
   }
 
-  private void cleanup() {
-    clients.remove(this);
-    try {
-      socket.close();
-    } catch (IOException e) {
-      System.out.println(CLOSE_ERROR);
-    }
+  /**
+   * Gets the outbound queue, whose depth shows how far behind the client is.
+   *
+   * @return the outbound queue
+   */
+  public OutboundQueue getOutboundQueue() {
+    return outbound;
+  }
+
+  /**
+   * Gets the metrics of the server the client is connected to.
+   *
+   * @return the metrics
+   */
+  public ServerMetrics getMetrics() {
+    return metrics;
   }
 
   /**
@@ -146,6 +385,7 @@ public class ClientManager implements Runnable {
         ", out=" + out +
         ", username='" + username + '\'' +
         ", isInChatRoom=" + isInChatRoom +
+        ", outbound=" + outbound +
         ", clientMessageHandler=" + clientMessageHandler +
         '}';
   }
@@ -1,11 +1,17 @@
 package server;
 
+import history.HistoryTail;
+import history.MessageLog;
+import history.OfflineMailbox;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import logging.Log;
 import protocol.*;
 import java.io.DataOutputStream;
 import java.io.IOException;
-import java.util.Set;
+import java.io.UncheckedIOException;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * The type Client message handler.
@@ -57,22 +63,189 @@ public class ClientMessageHandler {
    * Error message for an invalid connect message received by the server.
    */
   public static final String INVALID_CONNECT_MESSAGE_ERROR = "Invalid connect message";
+
+  /**
+   * Error message for a connect message with a username that is already logged in.
+   */
+  public static final String USERNAME_TAKEN_RESPONSE =
+      "Username is already taken. Please send a connect message with a different username";
+
+  /**
+   * Error message for a room name that is empty or contains whitespace.
+   */
+  public static final String INVALID_ROOM_NAME = "Invalid room name";
+
+  /**
+   * Error message for a room message or leave from a client outside the room.
+   */
+  public static final String NOT_IN_ROOM = "You are not in that room";
+
+  /**
+   * Error message for joining a room twice.
+   */
+  public static final String ALREADY_IN_ROOM = "You are already in that room";
+
+  /**
+   * Suffix announcing that a user has joined a room.
+   */
+  public static final String JOINED_ROOM_SUFFIX = " has joined the room";
+
+  /**
+   * Suffix announcing that a user has left a room.
+   */
+  public static final String LEFT_ROOM_SUFFIX = " has left the room";
+
+  /**
+   * Prefix for messages that could not be appended to the history log.
+   */
+  public static final String HISTORY_ERROR_PREFIX = "History append failed: ";
+
+  /**
+   * Error message for a history query to a server that keeps no history.
+   */
+  public static final String HISTORY_OFF = "This server keeps no history";
+
+  /**
+   * Suffix telling the sender a direct message was kept for an offline recipient.
+   */
+  public static final String OFFLINE_RECIPIENT_SUFFIX =
+      " is offline. The message will be delivered when they next log in.";
+
+  /**
+   * Error message for a direct message to an offline user whose mailbox is full.
+   */
+  public static final String MAILBOX_FULL = "Recipient is offline and their mailbox is full";
+
+  /**
+   * Prefix for mailbox failures.
+   */
+  public static final String MAILBOX_ERROR_PREFIX = "Mailbox failed: ";
+
+  /**
+   * Error message for a message over the sender's rate limit.
+   */
+  public static final String RATE_LIMITED = "You are sending messages too quickly. Slow down.";
+  private static final Frame RATE_LIMITED_FRAME =
+      Frame.wrap(encode(new FailedMessage(RATE_LIMITED)));
+  private static final DispatchTable<ClientMessageHandler, String> HANDLERS =
+      new DispatchTable<ClientMessageHandler, String>((handler, message, username) -> {
+        handler.sendFailedMessage(INVALID_MESSAGE);
+        return true;
+      })
+          .register(MessageType.BROADCAST_MESSAGE, BroadcastMessage.class,
+              (handler, broadcast, username) -> {
+                handler.broadcast(Frame.of(broadcast));
+                return true;
+              })
+          .register(MessageType.DIRECT_MESSAGE, DirectMessage.class,
+              (handler, direct, username) -> {
+                handler.handleDirectMessage(direct);
+                return true;
+              })
+          .register(MessageType.QUERY_CONNECTED_USERS, QueryUsersMessage.class,
+              (handler, query, username) -> {
+                handler.handleQueryUsers();
+                return true;
+              })
+          .register(MessageType.SUBSCRIBE_PRESENCE, SubscribePresenceMessage.class,
+              (handler, subscription, username) -> {
+                handler.handleSubscribePresence(subscription, username);
+                return true;
+              })
+          .register(MessageType.QUERY_USERS_PAGE, QueryUsersPageMessage.class,
+              (handler, page, username) -> {
+                handler.clients.getDirectory().page(page.getPrefix(), page.getAfter(),
+                    page.getLimit(), username).sendToStream(handler.out);
+                return true;
+              })
+          .register(MessageType.DISCONNECT_MESSAGE, DisconnectMessage.class,
+              (handler, disconnect, username) -> {
+                handler.handleDisconnect(disconnect.getUsername(), username);
+                return false;
+              })
+          .register(MessageType.SEND_INSULT, SendInsultMessage.class,
+              (handler, insult, username) -> {
+                handler.handleSendInsult(insult.getSenderUsername(),
+                    insult.getRecipientUsername());
+                return true;
+              })
+          .register(MessageType.ROOM_MESSAGE, RoomMessage.class,
+              (handler, room, username) -> {
+                handler.sendToRoom(room.getRoomName(), Frame.of(room));
+                return true;
+              })
+          .register(MessageType.JOIN_ROOM, JoinRoomMessage.class,
+              (handler, join, username) -> {
+                handler.handleJoinRoom(join.getRoomName(), username);
+                return true;
+              })
+          .register(MessageType.LEAVE_ROOM, LeaveRoomMessage.class,
+              (handler, leave, username) -> {
+                handler.handleLeaveRoom(leave.getRoomName(), username);
+                return true;
+              })
+          .register(MessageType.QUERY_HISTORY, QueryHistoryMessage.class,
+              (handler, query, username) -> {
+                handler.handleQueryHistory(query);
+                return true;
+              })
+          .register(MessageType.LIST_ROOMS, ListRoomsMessage.class,
+              (handler, list, username) -> {
+                new ListRoomsResponse(handler.clients.getRooms().getRoomNames())
+                    .sendToStream(handler.out);
+                return true;
+              });
+  private final ClientManager owner;
   private final DataOutputStream out;
-  private List<ClientManager> clients;
+  private final ClientRegistry clients;
+  private final ServerMetrics metrics;
+  private final RateLimiter rateLimiter;
 
   /**
    * Instantiates a new Client message handler.
    *
-   * @param out     the out
-   * @param clients the clients
+   * @param owner       the client manager whose messages are handled
+   * @param out         the out
+   * @param clients     the registry of connected clients
+   * @param metrics     where broadcast fan-out and rate limited messages are recorded
+   * @param rateLimiter the rate limits of the client's session
    */
-  public ClientMessageHandler(DataOutputStream out, List<ClientManager> clients) {
+  public ClientMessageHandler(ClientManager owner, DataOutputStream out, ClientRegistry clients,
+      ServerMetrics metrics, RateLimiter rateLimiter) {
+    this.owner = owner;
     this.out = out;
     this.clients = clients;
+    this.metrics = metrics;
+    this.rateLimiter = rateLimiter;
   }
 
   /**
-   * Handle message boolean.
+   * Instantiates a new Client message handler without rate limits.
+   *
+   * @param owner   the client manager whose messages are handled
+   * @param out     the out
+   * @param clients the registry of connected clients
+   * @param metrics where broadcast fan-out is recorded
+   */
+  public ClientMessageHandler(ClientManager owner, DataOutputStream out, ClientRegistry clients,
+      ServerMetrics metrics) {
+    this(owner, out, clients, metrics, new RateLimiter());
+  }
+
+  /**
+   * Instantiates a new Client message handler.
+   *
+   * @param owner   the client manager whose messages are handled
+   * @param out     the out
+   * @param clients the registry of connected clients
+   */
+  public ClientMessageHandler(ClientManager owner, DataOutputStream out, ClientRegistry clients) {
+    this(owner, out, clients, new ServerMetrics());
+  }
+
+  /**
+   * Handle message boolean. The message goes to the handler registered for its type in a
+   * table shared by every client, looked up by the type code.
    *
    * @param message         the message
    * @param currentUsername the current username
@@ -80,45 +253,291 @@ public class ClientMessageHandler {
    * @throws IOException the io exception
    */
   public boolean handleMessage(Message message, String currentUsername) throws IOException {
-    if (message instanceof BroadcastMessage broadcast) {
-      broadcastMessage(broadcast.getMessage(), broadcast.getSenderUsername());
-    } else if (message instanceof DirectMessage direct) {
-      handleDirectMessage(direct);
-    } else if (message instanceof QueryUsersMessage query) {
-      handleQueryUsers(query.getUsername());
-    } else if (message instanceof DisconnectMessage disconnect) {
-      handleDisconnect(disconnect.getUsername(), currentUsername);
-      return false;
-    } else if (message instanceof SendInsultMessage insult) {
-      handleSendInsult(insult.getSenderUsername(), insult.getRecipientUsername());
-    } else {
-      sendFailedMessage(INVALID_MESSAGE);
+    if (message.getMessageType() != null && !withinRateLimit(message.getMessageType())) {
+      return true;
+    }
+    return HANDLERS.dispatch(this, message, currentUsername);
+  }
+
+  /**
+   * Handle a message as it arrived off the wire. Broadcast, direct and room messages are
+   * forwarded as the frame the sender wrote, without decoding or re-encoding the body; every
+   * other message goes to {@link #handleMessage(Message, String)}.
+   *
+   * @param view            the routing view of the message
+   * @param currentUsername the current username
+   * @return false once the client has disconnected
+   * @throws IOException the io exception
+   */
+  public boolean handleMessage(RoutingView view, String currentUsername) throws IOException {
+    if (view.isRoutable() && !withinRateLimit(view.getMessageType())) {
+      return true;
+    }
+    switch (view.getMessageType()) {
+      case BROADCAST_MESSAGE -> broadcast(view.toFrame());
+      case DIRECT_MESSAGE -> sendDirect(view.getRecipientUsername(), view.toFrame());
+      case ROOM_MESSAGE -> sendToRoom(view.getRoomName(), view.toFrame());
+      default -> {
+        return handleMessage(view.getMessage(), currentUsername);
+      }
     }
     return true;
   }
 
+  /**
+   * Charge a message to the sender's budget, and tell the sender if it is over. The rejection is
+   * a shared pre-encoded frame, so a client flooding the server costs no allocation per message.
+   */
+  private boolean withinRateLimit(MessageType type) {
+    RateCategory category = RateCategory.of(type);
+    if (rateLimiter.tryAcquire(category)) {
+      return true;
+    }
+    metrics.recordRateLimited(category);
+    owner.send(RATE_LIMITED_FRAME);
+    return false;
+  }
+
+  private static byte[] encode(Message message) {
+    try {
+      return message.encode();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
   private void broadcastMessage(String message, String senderUsername) throws IOException {
-    for (ClientManager client : clients) {
+    broadcast(Frame.of(new BroadcastMessage(senderUsername, message)));
+  }
+
+  private void broadcast(Frame frame) {
+    // Every recipient shares the one frame
+    int recipients = 0;
+    for (ClientManager client : clients.getClients()) {
       if (client.isInChatRoom()) {
-        new BroadcastMessage(senderUsername, message).sendToStream(client.getOutStream());
+        client.send(frame);
+        recipients++;
+      }
+    }
+    metrics.recordFanOut(recipients);
+    record(frame, HistoryTail.MAIN_CHAT);
+  }
+
+  /**
+   * Append a routed frame to the history log, if there is one, and keep it for replay under its
+   * room unless the room is null, as it is for a direct message. A message that cannot be logged
+   * has still been delivered, so the failure is only logged.
+   */
+  private void record(Frame frame, String roomName) {
+    MessageLog history = clients.getHistory();
+    HistoryTail tail = clients.getHistoryTail();
+    if (history == null && tail == null) {
+      return;
+    }
+    long timestamp = System.currentTimeMillis();
+    if (tail != null && roomName != null) {
+      tail.append(roomName, timestamp, frame);
+    }
+    if (history == null) {
+      return;
+    }
+    try {
+      history.append(timestamp, frame.asByteBuffer());
+    } catch (IOException e) {
+      Log.warn(HISTORY_ERROR_PREFIX + e.getMessage());
+    }
+  }
+
+  /**
+   * Send the latest messages of the main chat or of a room the client is in. A header saying
+   * how many follow goes first, then the frames as they were sent at the time, without being
+   * decoded or encoded again. They are queued as one entry, so a full queue drops the header
+   * and its messages together rather than some of them.
+   */
+  private void handleQueryHistory(QueryHistoryMessage query) throws IOException {
+    String roomName = query.getRoomName() != null ? query.getRoomName() : HistoryTail.MAIN_CHAT;
+    if (!roomName.isEmpty() && !clients.getRooms().isMember(roomName, owner)) {
+      sendFailedMessage(NOT_IN_ROOM);
+      return;
+    }
+    HistoryTail tail = clients.getHistoryTail();
+    if (tail == null) {
+      sendFailedMessage(HISTORY_OFF);
+      return;
+    }
+    List<Frame> frames = tail.latest(roomName, query.getLimit(), query.getSince());
+    List<Frame> response = new ArrayList<>(frames.size() + 1);
+    response.add(Frame.of(new HistoryResponse(roomName, frames.size())));
+    response.addAll(frames);
+    owner.sendAll(response);
+  }
+
+  private void sendToRoom(String roomName, Frame frame) throws IOException {
+    RoomRegistry rooms = clients.getRooms();
+    if (!rooms.isMember(roomName, owner)) {
+      sendFailedMessage(NOT_IN_ROOM);
+      return;
+    }
+    // Only the room's own members are visited
+    int recipients = 0;
+    for (ClientManager member : rooms.getMembers(roomName)) {
+      member.send(frame);
+      recipients++;
+    }
+    metrics.recordFanOut(recipients);
+    record(frame, roomName);
+  }
+
+  private void handleJoinRoom(String roomName, String currentUsername) throws IOException {
+    if (!isValidRoomName(roomName)) {
+      sendFailedMessage(INVALID_ROOM_NAME);
+    } else if (!clients.getRooms().join(roomName, owner)) {
+      sendFailedMessage(ALREADY_IN_ROOM);
+    } else {
+      sendToRoom(roomName, Frame.of(new RoomMessage(SERVER_DEFAULT_NAME, roomName,
+          currentUsername + JOINED_ROOM_SUFFIX)));
+    }
+  }
+
+  private void handleLeaveRoom(String roomName, String currentUsername) throws IOException {
+    RoomRegistry rooms = clients.getRooms();
+    if (!rooms.leave(roomName, owner)) {
+      sendFailedMessage(NOT_IN_ROOM);
+      return;
+    }
+    Frame frame = Frame.of(new RoomMessage(SERVER_DEFAULT_NAME, roomName,
+        currentUsername + LEFT_ROOM_SUFFIX));
+    owner.send(frame);
+    for (ClientManager member : rooms.getMembers(roomName)) {
+      member.send(frame);
+    }
+    record(frame, roomName);
+  }
+
+  /**
+   * Is a room name acceptable: not empty and without whitespace.
+   *
+   * @param roomName the room name
+   * @return true if the name can be used for a room
+   */
+  static boolean isValidRoomName(String roomName) {
+    if (roomName == null || roomName.isEmpty()) {
+      return false;
+    }
+    for (int i = 0; i < roomName.length(); i++) {
+      if (Character.isWhitespace(roomName.charAt(i))) {
+        return false;
       }
     }
+    return true;
   }
 
   private void handleDirectMessage(DirectMessage direct) throws IOException {
-    ClientManager recipient = getClientHandler(direct.getRecipientUsername());
+    sendDirect(direct.getRecipientUsername(), Frame.of(direct));
+  }
+
+  private void sendDirect(String recipientUsername, Frame frame) throws IOException {
+    ClientManager recipient = getClientHandler(recipientUsername);
     if (recipient == null) {
+      holdForOffline(recipientUsername, frame);
+      return;
+    }
+    recipient.send(frame);
+    record(frame, null);
+  }
+
+  /**
+   * Keep a direct message for a user who has logged in before but is not logged in now. A name
+   * the server has never seen is still an invalid recipient. The mailbox is written on its own
+   * executor, and the sender hears back once the message is on disk.
+   */
+  private void holdForOffline(String recipientUsername, Frame frame) throws IOException {
+    OfflineMailbox mailbox = clients.getMailbox();
+    if (mailbox == null) {
       sendFailedMessage(INVALID_RECIPIENT);
       return;
     }
-    direct.sendToStream(recipient.getOutStream());
+    try {
+      clients.getMailboxExecutor().execute(() -> deposit(mailbox, recipientUsername, frame));
+    } catch (RejectedExecutionException e) {
+      // The server is shutting down
+      sendFailedMessage(MAILBOX_FULL);
+    }
+  }
+
+  // Runs on the mailbox executor, so replies are queued rather than written to the stream
+  private void deposit(OfflineMailbox mailbox, String recipientUsername, Frame frame) {
+    try {
+      if (!mailbox.isRegistered(recipientUsername)) {
+        owner.send(Frame.of(new FailedMessage(INVALID_RECIPIENT)));
+        return;
+      }
+      boolean kept;
+      try {
+        kept = mailbox.deposit(recipientUsername, System.currentTimeMillis(), frame);
+      } catch (IOException e) {
+        Log.warn(MAILBOX_ERROR_PREFIX + e.getMessage());
+        kept = false;
+      }
+      if (!kept) {
+        owner.send(Frame.of(new FailedMessage(MAILBOX_FULL)));
+        return;
+      }
+      record(frame, null);
+      owner.send(Frame.of(new DirectMessage(SERVER_DEFAULT_NAME, owner.getUsername(),
+          recipientUsername + OFFLINE_RECIPIENT_SUFFIX)));
+    } catch (IOException e) {
+      Log.warn(MAILBOX_ERROR_PREFIX + e.getMessage());
+      return;
+    }
+    // The recipient may have logged in, and emptied the mailbox, just before this was kept
+    ClientManager recipient = getClientHandler(recipientUsername);
+    if (recipient != null) {
+      deliver(mailbox, recipient, recipientUsername);
+    }
+  }
+
+  /**
+   * Send everything waiting in a user's mailbox as one write, and give a user logging in for the
+   * first time a mailbox if there is room for one. This happens on the mailbox executor, after
+   * any message to the user submitted before it.
+   */
+  private void deliverMailbox(ClientManager client, String username) {
+    OfflineMailbox mailbox = clients.getMailbox();
+    if (mailbox == null) {
+      return;
+    }
+    try {
+      clients.getMailboxExecutor().execute(() -> deliver(mailbox, client, username));
+    } catch (RejectedExecutionException e) {
+      // The server is shutting down; the messages wait for the next login
+    }
+  }
+
+  // The mailbox is emptied only once the write is queued; if the outbound queue has no room,
+  // the messages wait for the next login
+  private static void deliver(OfflineMailbox mailbox, ClientManager client, String username) {
+    try {
+      long now = System.currentTimeMillis();
+      if (mailbox.register(username, now)) {
+        mailbox.deliver(username, now, client::offerAll);
+      }
+    } catch (IOException e) {
+      Log.warn(MAILBOX_ERROR_PREFIX + e.getMessage());
+    }
+  }
+
+  private void handleSubscribePresence(SubscribePresenceMessage subscription,
+      String currentUsername) {
+    if (subscription.isSubscribe()) {
+      clients.getPresence().subscribe(owner, currentUsername);
+    } else {
+      clients.getPresence().unsubscribe(owner);
+    }
   }
 
-  private void handleQueryUsers(String requesterUsername) throws IOException {
-    List<String> connectedUsers = clients.stream()
-        .map(ClientManager::getUsername)
-        .filter(uname -> !uname.equals(requesterUsername)).toList();
-    new QueryUsersResponse(connectedUsers).sendToStream(out);
+  private void handleQueryUsers() {
+    owner.send(clients.getDirectory().response());
   }
 
   private void handleDisconnect(String disconnectingUsername, String currentUsername)
@@ -147,10 +566,7 @@ public class ClientMessageHandler {
   }
 
   private ClientManager getClientHandler(String username) {
-    return clients.stream()
-        .filter(client -> client.getUsername().equals(username))
-        .findFirst()
-        .orElse(null);
+    return clients.get(username);
   }
 
   /**
@@ -168,12 +584,15 @@ public class ClientMessageHandler {
         new ConnectResponse(false,
             INVALID_CONNECT_RESPONSE).sendToStream(
             out);
+      } else if (!clients.register(clientUsername, owner)) {
+        new ConnectResponse(false, USERNAME_TAKEN_RESPONSE).sendToStream(out);
       } else {//Send successful Connect Response
-        System.out.println(CONNECTING_USERNAME_PREFIX + clientUsername);
+        Log.debug(CONNECTING_USERNAME_PREFIX + clientUsername);
         new ConnectResponse(true,
             "There are " + (clients.size() - 1) + " other connected clients.").sendToStream(out);
         broadcastMessage(clientUsername + JOINED_CHAT_PREFIX, SERVER_DEFAULT_NAME);
-        System.out.println(clientUsername + JOINED_CHAT_PREFIX);
+        deliverMailbox(owner, clientUsername);
+        Log.info(clientUsername + JOINED_CHAT_PREFIX);
         return clientUsername;
       }
     } else {
@@ -0,0 +1,269 @@
+package server;
+
+import history.HistoryTail;
+import history.MessageLog;
+import history.OfflineMailbox;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Thread-safe registry of the clients connected to the server. Every accepted connection is
+ * tracked until it closes, and clients that logged in are also indexed by username so that
+ * direct messages are routed with a single lookup.
+ */
+public class ClientRegistry {
+
+  private final ConcurrentHashMap<String, ClientManager> clientsByUsername =
+      new ConcurrentHashMap<>();
+  // Identity based, since a client manager's equality follows its username
+  private final Set<ClientManager> connections =
+      Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
+  private final RoomRegistry rooms = new RoomRegistry();
+  private final UserDirectory directory = new UserDirectory();
+  private final PresenceRegistry presence = new PresenceRegistry(directory);
+  private volatile MessageLog history;
+  private volatile HistoryTail historyTail;
+  private volatile OfflineMailbox mailbox;
+  private volatile Executor mailboxExecutor = Runnable::run;
+
+  /**
+   * Track a newly accepted connection.
+   *
+   * @param client the client
+   */
+  public void add(ClientManager client) {
+    connections.add(client);
+  }
+
+  /**
+   * Register a logged-in client under its username.
+   *
+   * @param username the username
+   * @param client   the client
+   * @return false if the username is already taken
+   */
+  public boolean register(String username, ClientManager client) {
+    boolean[] registered = new boolean[1];
+    // The directory is updated under the username's lock, so it can never fall out of step with
+    // a logout and login racing for the same name
+    clientsByUsername.compute(username, (name, existing) -> {
+      if (existing != null) {
+        return existing;
+      }
+      directory.add(name);
+      registered[0] = true;
+      return client;
+    });
+    if (registered[0]) {
+      // Published once the lock is released: queuing a frame can close a subscriber, and its
+      // cleanup updates this map
+      presence.joined(username);
+    }
+    return registered[0];
+  }
+
+  /**
+   * Forget a client, as a connection, as a logged-in user, as a member of any room and as a
+   * presence subscriber.
+   *
+   * @param client the client
+   */
+  public void remove(ClientManager client) {
+    connections.remove(client);
+    rooms.leaveAll(client);
+    presence.unsubscribe(client);
+    String username = client.getUsername();
+    if (username != null) {
+      boolean[] removed = new boolean[1];
+      clientsByUsername.computeIfPresent(username, (name, existing) -> {
+        if (existing != client) {
+          return existing;
+        }
+        directory.remove(name);
+        removed[0] = true;
+        return null;
+      });
+      if (removed[0]) {
+        presence.left(username);
+      }
+    }
+  }
+
+  /**
+   * Gets the logged-in client with the given username.
+   *
+   * @param username the username
+   * @return the client, or null if nobody is logged in under that name
+   */
+  public ClientManager get(String username) {
+    return username == null ? null : clientsByUsername.get(username);
+  }
+
+  /**
+   * Gets the logged-in clients. The view is live and never throws
+   * ConcurrentModificationException; clients joining or leaving while it is iterated may or may
+   * not be seen.
+   *
+   * @return the logged-in clients
+   */
+  public Collection<ClientManager> getClients() {
+    return Collections.unmodifiableCollection(clientsByUsername.values());
+  }
+
+  /**
+   * Gets the usernames of the logged-in clients, with the same guarantees as
+   * {@link #getClients()}.
+   *
+   * @return the usernames
+   */
+  public Collection<String> getUsernames() {
+    return Collections.unmodifiableSet(clientsByUsername.keySet());
+  }
+
+  /**
+   * Gets a snapshot of every open connection, logged in or not.
+   *
+   * @return the connections
+   */
+  public List<ClientManager> getConnections() {
+    synchronized (connections) {
+      return new ArrayList<>(connections);
+    }
+  }
+
+  /**
+   * Gets the rooms the logged-in clients have joined.
+   *
+   * @return the rooms
+   */
+  public RoomRegistry getRooms() {
+    return rooms;
+  }
+
+  /**
+   * Gets the directory of logged-in usernames, which caches the reply to a user list query.
+   *
+   * @return the user directory
+   */
+  public UserDirectory getDirectory() {
+    return directory;
+  }
+
+  /**
+   * Gets the clients subscribed to presence updates.
+   *
+   * @return the presence registry
+   */
+  public PresenceRegistry getPresence() {
+    return presence;
+  }
+
+  /**
+   * Gets the log routed messages are appended to.
+   *
+   * @return the history log, null if history is off
+   */
+  public MessageLog getHistory() {
+    return history;
+  }
+
+  /**
+   * Sets the log routed messages are appended to.
+   *
+   * @param history the history log, null to turn history off
+   */
+  public void setHistory(MessageLog history) {
+    this.history = history;
+  }
+
+  /**
+   * Gets the latest messages of each room, kept for replay.
+   *
+   * @return the history tail, null if history replay is off
+   */
+  public HistoryTail getHistoryTail() {
+    return historyTail;
+  }
+
+  /**
+   * Sets the latest messages of each room, kept for replay.
+   *
+   * @param historyTail the history tail, null to turn history replay off
+   */
+  public void setHistoryTail(HistoryTail historyTail) {
+    this.historyTail = historyTail;
+  }
+
+  /**
+   * Gets the mailboxes direct messages to offline users are kept in.
+   *
+   * @return the mailboxes, null if offline messages are refused
+   */
+  public OfflineMailbox getMailbox() {
+    return mailbox;
+  }
+
+  /**
+   * Gets the executor the mailboxes are read and written on.
+   *
+   * @return the mailbox executor
+   */
+  public Executor getMailboxExecutor() {
+    return mailboxExecutor;
+  }
+
+  /**
+   * Sets the mailboxes direct messages to offline users are kept in, read and written on the
+   * calling thread.
+   *
+   * @param mailbox the mailboxes, null to refuse offline messages
+   */
+  public void setMailbox(OfflineMailbox mailbox) {
+    setMailbox(mailbox, Runnable::run);
+  }
+
+  /**
+   * Sets the mailboxes direct messages to offline users are kept in, and the executor they are
+   * read and written on, so a connection thread or the selector does not wait for the disk.
+   *
+   * @param mailbox  the mailboxes, null to refuse offline messages
+   * @param executor runs the mailbox reads and writes, in the order they are submitted
+   */
+  public void setMailbox(OfflineMailbox mailbox, Executor executor) {
+    this.mailboxExecutor = executor;
+    this.mailbox = mailbox;
+  }
+
+  /**
+   * Number of logged-in clients.
+   *
+   * @return the number of logged-in clients
+   */
+  public int size() {
+    return clientsByUsername.size();
+  }
+
+  /**
+   * Number of open connections, logged in or not.
+   *
+   * @return the number of connections
+   */
+  public int connectionCount() {
+    return connections.size();
+  }
+
+  @Override
+  public String toString() {
+    return "ClientRegistry{" +
+        "users=" + clientsByUsername.size() +
+        ", connections=" + connections.size() +
+        ", rooms=" + rooms.size() +
+        '}';
+  }
+}
@@ -0,0 +1,42 @@
+package server;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Counts the bytes read from a client socket into the server metrics.
+ */
+class CountingInputStream extends FilterInputStream {
+
+  private final ServerMetrics metrics;
+
+  /**
+   * Instantiates a new Counting input stream.
+   *
+   * @param in      the socket stream
+   * @param metrics the metrics the bytes are counted in
+   */
+  CountingInputStream(InputStream in, ServerMetrics metrics) {
+    super(in);
+    this.metrics = metrics;
+  }
+
+  @Override
+  public int read() throws IOException {
+    int b = super.read();
+    if (b >= 0) {
+      metrics.recordBytesIn(1);
+    }
+    return b;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    int count = super.read(b, off, len);
+    if (count > 0) {
+      metrics.recordBytesIn(count);
+    }
+    return count;
+  }
+}
@@ -0,0 +1,44 @@
+package server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import protocol.Frame;
+
+/**
+ * Collects the bytes of each message the client's own handler writes and, on flush, queues them
+ * as one frame behind whatever other clients have already sent to it.
+ */
+class FrameOutputStream extends OutputStream {
+
+  private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+  private final ClientManager owner;
+
+  /**
+   * Instantiates a new Frame output stream.
+   *
+   * @param owner the client the frames are sent to
+   */
+  FrameOutputStream(ClientManager owner) {
+    this.owner = owner;
+  }
+
+  @Override
+  public void write(int b) {
+    pending.write(b);
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) {
+    pending.write(b, off, len);
+  }
+
+  @Override
+  public void flush() {
+    if (pending.size() == 0) {
+      return;
+    }
+    Frame frame = Frame.wrap(pending.toByteArray());
+    pending.reset();
+    owner.send(frame);
+  }
+}
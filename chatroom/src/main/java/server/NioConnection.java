@@ -0,0 +1,319 @@
+package server;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import logging.Log;
+import protocol.BufferPool;
+import protocol.Frame;
+import protocol.FrameHeader;
+import protocol.FrameInputStream;
+import protocol.FrameLimits;
+import protocol.RoutingView;
+
+/**
+ * One non-blocking client connection of the {@link NioServer}. Incoming bytes are read into the
+ * selector's shared read buffer and whole frames are decoded straight out of it; only when a
+ * read ends part way through a frame are the leftover bytes moved to a buffer taken from the
+ * pool, which the connection reads into until the frame is complete and then gives back. An idle
+ * connection holds no buffer at all, so the direct memory in use follows the partial frames in
+ * flight rather than the number of connections. The client's
+ * outbound queue is drained whenever the channel accepts more bytes, handing every queued frame
+ * of a batch to one gathering write. Frames queued on the selector thread are not written as
+ * they arrive: the connection is put on the server's list of pending flushes once, and written
+ * after every ready key of the selector pass has been handled, so all the frames one pass queued
+ * for a client go out together. Every method runs on the selector thread. A frame queued from
+ * another thread, such as the mailbox thread, only wakes the selector; a disconnect asked for
+ * from another thread, by a full queue under the disconnect policy, puts the connection on the
+ * server's list of closes, which the selector thread works through after its pass, so the read
+ * buffer and the client's state are never released under the selector's feet.
+ */
+class NioConnection {
+
+  private final SocketChannel channel;
+  private final SelectionKey key;
+  private final ClientManager clientManager;
+  private final OutboundQueue outbound;
+  private final Thread selectorThread;
+  private final ByteBuffer sharedReadBuffer;
+  private final BufferPool readBuffers;
+  private final ServerMetrics metrics;
+  private final Runnable onClose;
+  private final Queue<NioConnection> pendingFlushes;
+  private final Queue<NioConnection> pendingCloses;
+  private final FrameLimits limits;
+  private final int maxFrameLength;
+  private final List<Frame> batch = new ArrayList<>();
+  private final ByteBuffer[] inFlight;
+  private int inFlightStart;
+  private int inFlightEnd;
+  // The buffer being decoded, the shared one or the pending one
+  private ByteBuffer readBuffer;
+  // A partial frame waiting for the rest of its bytes, null when there is none
+  private ByteBuffer pending;
+  private boolean flushPending;
+  private boolean closing;
+  private boolean closed;
+
+  /**
+   * Instantiates a new Nio connection.
+   *
+   * @param channel          the client channel, already registered with the selector
+   * @param key              the selection key of the channel
+   * @param clientManager    the client manager holding the chat state of the connection
+   * @param maxBatchFrames   the most frames handed to one gathering write
+   * @param sharedReadBuffer the selector's read buffer, which every connection reads into
+   * @param readBuffers      the pool a buffer for a partial frame is taken from and returned to
+   * @param metrics          where bytes, decode times and write times are recorded
+   * @param limits           the limits every frame is held to; the read buffer grows to hold the
+   *                         largest frame
+   * @param pendingFlushes   the connections the selector thread flushes at the end of its pass
+   * @param pendingCloses    the connections other threads asked the selector thread to close
+   * @param onClose          run once when the connection closes
+   */
+  NioConnection(SocketChannel channel, SelectionKey key, ClientManager clientManager,
+      int maxBatchFrames, ByteBuffer sharedReadBuffer, BufferPool readBuffers,
+      ServerMetrics metrics, FrameLimits limits,
+      Queue<NioConnection> pendingFlushes, Queue<NioConnection> pendingCloses,
+      Runnable onClose) {
+    this.channel = channel;
+    this.key = key;
+    this.clientManager = clientManager;
+    this.outbound = clientManager.getOutboundQueue();
+    this.selectorThread = Thread.currentThread();
+    this.inFlight = new ByteBuffer[maxBatchFrames];
+    this.sharedReadBuffer = sharedReadBuffer;
+    this.readBuffers = readBuffers;
+    this.metrics = metrics;
+    this.limits = limits;
+    this.maxFrameLength = limits.getMaxFrameLength();
+    this.pendingFlushes = pendingFlushes;
+    this.pendingCloses = pendingCloses;
+    this.onClose = onClose;
+    clientManager.initializeOutbound();
+    clientManager.setDisconnectHandler(this::disconnect);
+    outbound.setListener(this::onFrameQueued);
+  }
+
+  /**
+   * Read whatever the channel has available and handle every complete frame in it.
+   *
+   * @throws IOException the io exception
+   */
+  void onReadable() throws IOException {
+    if (pending == null) {
+      readBuffer = sharedReadBuffer;
+      readBuffer.clear();
+    } else {
+      if (!pending.hasRemaining()) {
+        // One unfinished frame fills all of the buffer
+        if (pending.capacity() >= maxFrameLength) {
+          rejectFrame();
+          return;
+        }
+        // A frame bigger than the buffer; larger buffers are not pooled
+        ByteBuffer larger = readBuffers.acquire(
+            (int) Math.min((long) pending.capacity() * 2, maxFrameLength));
+        pending.flip();
+        larger.put(pending);
+        readBuffers.release(pending);
+        pending = larger;
+      }
+      readBuffer = pending;
+    }
+    int read = channel.read(readBuffer);
+    if (read < 0) {
+      close();
+      return;
+    }
+    metrics.recordBytesIn(read);
+    readBuffer.flip();
+    while (!closing && !closed && readBuffer.hasRemaining()) {
+      RoutingView view = decodeNextFrame();
+      if (view == null) {
+        break;
+      }
+      closing = !clientManager.handle(view);
+    }
+    if (closed) {
+      return;
+    }
+    keepPartialFrame();
+    if (closing && inFlightStart == inFlightEnd && outbound.depth() == 0) {
+      close();
+    }
+  }
+
+  // Hold on to the start of a frame the read ended in; the shared buffer is needed by the next
+  // connection, so those bytes move to a buffer of this connection's own until the frame is done
+  private void keepPartialFrame() {
+    if (readBuffer == pending) {
+      if (pending.hasRemaining()) {
+        pending.compact();
+      } else {
+        readBuffers.release(pending);
+        pending = null;
+      }
+    } else if (readBuffer.hasRemaining()) {
+      pending = readBuffers.acquire();
+      pending.put(readBuffer);
+    }
+  }
+
+  /**
+   * Write queued frames now that the channel can accept more bytes.
+   */
+  void onWritable() {
+    flushPendingWrites();
+  }
+
+  /**
+   * Write everything queued during the selector pass that has just ended.
+   */
+  void flushQueued() {
+    flushPending = false;
+    flushPendingWrites();
+  }
+
+  private void onFrameQueued() {
+    if (Thread.currentThread() == selectorThread) {
+      // Wait for the rest of the pass, which may queue more frames for this client
+      if (!flushPending) {
+        flushPending = true;
+        pendingFlushes.add(this);
+      }
+    } else if (key.isValid()) {
+      // Let the selector thread pick the frame up
+      key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+      key.selector().wakeup();
+    }
+  }
+
+  private void disconnect() {
+    if (Thread.currentThread() == selectorThread) {
+      close();
+    } else {
+      pendingCloses.add(this);
+      key.selector().wakeup();
+    }
+  }
+
+  /**
+   * Remove the client from the chat room and release the channel.
+   */
+  void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    key.cancel();
+    if (pending != null) {
+      readBuffers.release(pending);
+      pending = null;
+    }
+    clientManager.cleanup();
+    onClose.run();
+  }
+
+  /**
+   * Decode the next frame if the buffer holds all of it. The fields of a frame are length
+   * prefixed, so running out of bytes part way through simply means the rest is still in flight.
+   */
+  private RoutingView decodeNextFrame() throws IOException {
+    int frameStart = readBuffer.position();
+    long start = System.nanoTime();
+    try {
+      // A framed frame says how long it is, so one over the limit is turned away at once
+      if (FrameHeader.peekFrameLength(readBuffer) > maxFrameLength) {
+        rejectFrame();
+        return null;
+      }
+      RoutingView view = RoutingView.decodeFromBuffer(readBuffer,
+          clientManager.getMessagePool(), limits);
+      metrics.getDecodeTime().recordSince(start);
+      if (readBuffer.position() - frameStart > maxFrameLength) {
+        // Fitted in a pooled buffer larger than the limit, but is over it all the same
+        rejectFrame();
+        return null;
+      }
+      return view;
+    } catch (EOFException e) {
+      readBuffer.position(frameStart);
+      return null;
+    } catch (IOException e) {
+      // A field over the limit is turned away as the blocking engine's stream would
+      if (FrameInputStream.FRAME_TOO_LARGE_ERROR.equals(e.getMessage())) {
+        rejectFrame();
+        return null;
+      }
+      throw e;
+    }
+  }
+
+  private void rejectFrame() {
+    metrics.recordFrameRejected();
+    Log.warn(ClientManager.FRAME_REJECTED_PREFIX + channel.socket().getInetAddress());
+    close();
+  }
+
+  private void flushPendingWrites() {
+    if (closed) {
+      return;
+    }
+    try {
+      while (true) {
+        if (inFlightStart == inFlightEnd && !nextBatch()) {
+          break;
+        }
+        long start = System.nanoTime();
+        long written = channel.write(inFlight, inFlightStart, inFlightEnd - inFlightStart);
+        metrics.getWriteTime().recordSince(start);
+        metrics.recordBytesOut(written);
+        int completed = 0;
+        while (inFlightStart < inFlightEnd && !inFlight[inFlightStart].hasRemaining()) {
+          inFlight[inFlightStart++] = null;
+          completed++;
+        }
+        outbound.recordFlush(completed);
+        if (inFlightStart < inFlightEnd) {
+          key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+          return;
+        }
+      }
+      key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+    } catch (IOException e) {
+      // A broken recipient must not fail the sender whose handler triggered this write
+      Log.info(ClientManager.CONNECTION_ERROR_PREFIX + e.getMessage());
+      close();
+      return;
+    }
+    if (closing) {
+      close();
+    }
+  }
+
+  private boolean nextBatch() {
+    batch.clear();
+    int count = outbound.drainTo(batch, inFlight.length);
+    for (int i = 0; i < count; i++) {
+      inFlight[i] = batch.get(i).asByteBuffer();
+    }
+    inFlightStart = 0;
+    inFlightEnd = count;
+    return count > 0;
+  }
+
+  @Override
+  public String toString() {
+    return "NioConnection{" +
+        "channel=" + channel +
+        ", outbound=" + outbound +
+        ", closing=" + closing +
+        '}';
+  }
+}
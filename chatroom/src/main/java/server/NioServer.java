@@ -0,0 +1,258 @@
+package server;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import logging.Log;
+import protocol.BufferPool;
+
+/**
+ * Represent a Server for the chat room that multiplexes every client on one selector thread
+ * instead of running a thread per client.
+ */
+public class NioServer {
+
+  /**
+   * Default number of concurrent client connections.
+   */
+  public static final int DEFAULT_MAX_CLIENTS = 100_000;
+  /**
+   * Registry of connected client managers.
+   */
+  public ClientRegistry clients = new ClientRegistry();
+  private final ServerSocketChannel serverChannel;
+  private final AdmissionController admission;
+  private final ServerConfig config;
+  private final Selector selector;
+  // Every connection reads into this one buffer; only partial frames take a pooled buffer
+  private final ByteBuffer sharedReadBuffer =
+      ByteBuffer.allocateDirect(BufferPool.DEFAULT_BUFFER_SIZE);
+  private final BufferPool readBuffers =
+      new BufferPool(BufferPool.DEFAULT_BUFFER_SIZE, BufferPool.DEFAULT_MAX_POOLED, true);
+  private final ServerMetrics metrics = new ServerMetrics();
+  private final Queue<NioConnection> pendingFlushes = new ArrayDeque<>();
+  private final Queue<NioConnection> pendingCloses = new ConcurrentLinkedQueue<>();
+
+  /**
+   * Instantiates a new Nio server.
+   *
+   * @param serverChannel the bound server channel
+   * @param maxClients    the maximum number of concurrent clients, unless the config sets its own
+   * @param config        the server config
+   * @throws IOException the io exception
+   */
+  public NioServer(ServerSocketChannel serverChannel, int maxClients, ServerConfig config)
+      throws IOException {
+    this.serverChannel = serverChannel;
+    this.admission = new AdmissionController(config, maxClients);
+    this.config = config;
+    this.selector = Selector.open();
+    metrics.registerSessions(clients);
+  }
+
+  /**
+   * Instantiates a new Nio server.
+   *
+   * @param serverChannel the bound server channel
+   * @param maxClients    the maximum number of concurrent clients
+   * @throws IOException the io exception
+   */
+  public NioServer(ServerSocketChannel serverChannel, int maxClients) throws IOException {
+    this(serverChannel, maxClients, new ServerConfig());
+  }
+
+  /**
+   * Instantiates a new Nio server.
+   *
+   * @param serverChannel the bound server channel
+   * @throws IOException the io exception
+   */
+  public NioServer(ServerSocketChannel serverChannel) throws IOException {
+    this(serverChannel, DEFAULT_MAX_CLIENTS);
+  }
+
+  /**
+   * Instantiates a new Nio server.
+   *
+   * @param config the server config
+   * @throws IOException the io exception
+   */
+  public NioServer(ServerConfig config) throws IOException {
+    this(openServerChannel(), DEFAULT_MAX_CLIENTS, config);
+  }
+
+  /**
+   * Instantiates a new Nio server.
+   *
+   * @throws IOException the io exception
+   */
+  public NioServer() throws IOException {
+    this(new ServerConfig());
+  }
+
+  private static ServerSocketChannel openServerChannel() throws IOException {
+    ServerSocketChannel channel = ServerSocketChannel.open();
+    try {
+      channel.bind(new InetSocketAddress(Server.DEFAULT_PORT));
+    } catch (IOException e) {
+      channel.bind(new InetSocketAddress(Server.ANY_OPEN_PORT));
+    }
+    return channel;
+  }
+
+  /**
+   * Main function for the server to start. Runs the event loop until {@link #stop()} is called.
+   *
+   * @throws IOException the io exception
+   */
+  public void start() throws IOException {
+    Log.info(Server.PORT_MESSAGE_PREFIX + getLocalPort());
+    serverChannel.configureBlocking(false);
+    serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    try {
+      while (serverChannel.isOpen()) {
+        selector.select();
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+          SelectionKey key = keys.next();
+          keys.remove();
+          if (!key.isValid()) {
+            continue;
+          }
+          if (key.isAcceptable()) {
+            accept();
+          } else {
+            handleClientKey(key);
+          }
+        }
+        closePending();
+        flushPending();
+      }
+    } finally {
+      closeAll();
+    }
+  }
+
+  /**
+   * Stop the event loop and disconnect every client.
+   */
+  public void stop() {
+    try {
+      serverChannel.close();
+    } catch (IOException e) {
+      Log.warn(ClientManager.CLOSE_ERROR);
+    }
+    selector.wakeup();
+  }
+
+  /**
+   * Gets the port the server listens on.
+   *
+   * @return the local port
+   */
+  public int getLocalPort() {
+    return serverChannel.socket().getLocalPort();
+  }
+
+  /**
+   * Gets the metrics of the server.
+   *
+   * @return the metrics
+   */
+  public ServerMetrics getMetrics() {
+    return metrics;
+  }
+
+  private void accept() throws IOException {
+    SocketChannel channel = serverChannel.accept();
+    if (channel == null) {
+      return;
+    }
+    InetAddress address = channel.socket().getInetAddress();
+    Log.info(Server.NEW_CLIENT_HOST_PREFIX + address);
+    AdmissionResult result = admission.tryAdmit(address);
+    if (!result.isAdmitted()) {
+      reject(channel, result);
+      return;
+    }
+    metrics.recordAccepted();
+    channel.configureBlocking(false);
+    SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+    // The connection drains the outbound queue itself, so no writer thread is ever started
+    ClientManager clientManager = new ClientManager(channel.socket(), clients, config, metrics,
+        Runnable::run);
+    clients.add(clientManager);
+    key.attach(new NioConnection(channel, key, clientManager, config.getMaxBatchFrames(),
+        sharedReadBuffer, readBuffers, metrics, config.getFrameLimits(), pendingFlushes,
+        pendingCloses, () -> admission.release(address)));
+  }
+
+  // A client that resets the connection before the rejection is written must not end the
+  // event loop
+  private void reject(SocketChannel channel, AdmissionResult result) {
+    metrics.recordRejected(result);
+    try {
+      // Freshly accepted channels are still blocking, so the rejection is written in full
+      channel.write(ByteBuffer.wrap(AdmissionController.rejection(result)));
+    } catch (IOException e) {
+      metrics.recordRejectionFailed();
+      Log.info(Server.REJECTION_ERROR_PREFIX + e.getMessage());
+    } finally {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        Log.warn(ClientManager.CLOSE_ERROR);
+      }
+    }
+  }
+
+  // Close the connections other threads disconnected; closing twice does nothing
+  private void closePending() {
+    NioConnection connection;
+    while ((connection = pendingCloses.poll()) != null) {
+      connection.close();
+    }
+  }
+
+  // Write what the pass queued, once per client; a flush that closes a connection can queue
+  // frames for others, which are picked up before the next select
+  private void flushPending() {
+    NioConnection connection;
+    while ((connection = pendingFlushes.poll()) != null) {
+      connection.flushQueued();
+    }
+  }
+
+  private void handleClientKey(SelectionKey key) {
+    NioConnection connection = (NioConnection) key.attachment();
+    try {
+      if (key.isWritable()) {
+        connection.onWritable();
+      }
+      if (key.isValid() && key.isReadable()) {
+        connection.onReadable();
+      }
+    } catch (IOException e) {
+      Log.info(ClientManager.CONNECTION_ERROR_PREFIX + e.getMessage());
+      connection.close();
+    }
+  }
+
+  private void closeAll() throws IOException {
+    for (SelectionKey key : selector.keys()) {
+      if (key.attachment() instanceof NioConnection connection) {
+        connection.close();
+      }
+    }
+    selector.close();
+  }
+}
@@ -0,0 +1,342 @@
+package server;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import protocol.Frame;
+
+/**
+ * Bounded queue of frames waiting to be written to one client. Any thread may offer frames; a
+ * single writer drains them. When the queue is full the {@link OverflowPolicy} decides what
+ * gives way, so a slow client never blocks the thread that is sending to it.
+ */
+public class OutboundQueue {
+
+  private final ArrayDeque<Frame> frames = new ArrayDeque<>();
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition notEmpty = lock.newCondition();
+  private final int capacity;
+  private final OverflowPolicy overflowPolicy;
+  private volatile Runnable listener;
+  private boolean closed;
+  private int maxDepth;
+  private long enqueuedCount;
+  private long droppedCount;
+  private long flushCount;
+  private long flushedFrameCount;
+
+  /**
+   * Instantiates a new Outbound queue.
+   *
+   * @param capacity       the maximum number of queued frames
+   * @param overflowPolicy what to do when a frame arrives at a full queue
+   */
+  public OutboundQueue(int capacity, OverflowPolicy overflowPolicy) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+    }
+    this.capacity = capacity;
+    this.overflowPolicy = overflowPolicy;
+  }
+
+  /**
+   * Set a callback run after every accepted frame, for writers that poll instead of blocking in
+   * {@link #take()}.
+   *
+   * @param listener the listener
+   */
+  public void setListener(Runnable listener) {
+    this.listener = listener;
+  }
+
+  /**
+   * Queue a frame, applying the overflow policy if the queue is full. Never blocks.
+   *
+   * @param frame the frame
+   * @return false if the client should be disconnected, because the queue is full under
+   *     {@link OverflowPolicy#DISCONNECT}; dropped frames still return true
+   */
+  public boolean offer(Frame frame) {
+    lock.lock();
+    try {
+      if (closed) {
+        return true;
+      }
+      if (frames.size() >= capacity) {
+        droppedCount++;
+        switch (overflowPolicy) {
+          case DROP_OLDEST -> frames.pollFirst();
+          case DROP_NEWEST -> {
+            return true;
+          }
+          default -> {
+            return false;
+          }
+        }
+      }
+      frames.addLast(frame);
+      enqueuedCount++;
+      maxDepth = Math.max(maxDepth, frames.size());
+      notEmpty.signal();
+    } finally {
+      lock.unlock();
+    }
+    Runnable current = listener;
+    if (current != null) {
+      current.run();
+    }
+    return true;
+  }
+
+  /**
+   * Queue a frame only if there is room for it, whatever the overflow policy, for a frame that
+   * must not be lost: the caller keeps it when it is refused. Never blocks.
+   *
+   * @param frame the frame
+   * @return true if the frame was queued; false if the queue is full or closed
+   */
+  public boolean offerIfRoom(Frame frame) {
+    lock.lock();
+    try {
+      if (closed || frames.size() >= capacity) {
+        return false;
+      }
+      frames.addLast(frame);
+      enqueuedCount++;
+      maxDepth = Math.max(maxDepth, frames.size());
+      notEmpty.signal();
+    } finally {
+      lock.unlock();
+    }
+    Runnable current = listener;
+    if (current != null) {
+      current.run();
+    }
+    return true;
+  }
+
+  /**
+   * Wait for the next frame.
+   *
+   * @return the next frame, or null once the queue is closed and empty
+   * @throws InterruptedException the interrupted exception
+   */
+  public Frame take() throws InterruptedException {
+    lock.lock();
+    try {
+      while (frames.isEmpty() && !closed) {
+        notEmpty.await();
+      }
+      return frames.pollFirst();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Wait up to the given time for the next frame.
+   *
+   * @param timeout how long to wait
+   * @param unit    the unit of the timeout
+   * @return the next frame, or null if none arrived in time or the queue is closed and empty
+   * @throws InterruptedException the interrupted exception
+   */
+  public Frame poll(long timeout, TimeUnit unit) throws InterruptedException {
+    long remaining = unit.toNanos(timeout);
+    lock.lock();
+    try {
+      while (frames.isEmpty() && !closed && remaining > 0) {
+        remaining = notEmpty.awaitNanos(remaining);
+      }
+      return frames.pollFirst();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Move up to maxFrames queued frames into a batch without waiting.
+   *
+   * @param batch     the list the frames are added to
+   * @param maxFrames the maximum number of frames to move
+   * @return the number of frames moved
+   */
+  public int drainTo(List<Frame> batch, int maxFrames) {
+    lock.lock();
+    try {
+      int count = 0;
+      while (count < maxFrames && !frames.isEmpty()) {
+        batch.add(frames.pollFirst());
+        count++;
+      }
+      return count;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Record one write to the socket carrying the given number of frames.
+   *
+   * @param frames the number of frames completed by the write
+   */
+  void recordFlush(int frames) {
+    lock.lock();
+    try {
+      flushCount++;
+      flushedFrameCount += frames;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Stop accepting frames. Frames already queued can still be drained.
+   */
+  public void close() {
+    lock.lock();
+    try {
+      closed = true;
+      notEmpty.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Is closed boolean.
+   *
+   * @return the boolean
+   */
+  public boolean isClosed() {
+    lock.lock();
+    try {
+      return closed;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Number of frames currently queued.
+   *
+   * @return the depth
+   */
+  public int depth() {
+    lock.lock();
+    try {
+      return frames.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * The deepest the queue has been.
+   *
+   * @return the max depth
+   */
+  public int maxDepth() {
+    lock.lock();
+    try {
+      return maxDepth;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Number of frames accepted into the queue.
+   *
+   * @return the enqueued count
+   */
+  public long enqueuedCount() {
+    lock.lock();
+    try {
+      return enqueuedCount;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Number of frames that arrived while the queue was full.
+   *
+   * @return the dropped count
+   */
+  public long droppedCount() {
+    lock.lock();
+    try {
+      return droppedCount;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Number of writes to the socket. Several queued frames are coalesced into each write, so this
+   * is at most {@link #flushedFrameCount()}.
+   *
+   * @return the flush count
+   */
+  public long flushCount() {
+    lock.lock();
+    try {
+      return flushCount;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Number of frames written to the socket.
+   *
+   * @return the flushed frame count
+   */
+  public long flushedFrameCount() {
+    lock.lock();
+    try {
+      return flushedFrameCount;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Gets capacity.
+   *
+   * @return the capacity
+   */
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * Gets overflow policy.
+   *
+   * @return the overflow policy
+   */
+  public OverflowPolicy getOverflowPolicy() {
+    return overflowPolicy;
+  }
+
+  @Override
+  public String toString() {
+    lock.lock();
+    try {
+      return "OutboundQueue{" +
+          "depth=" + frames.size() +
+          ", capacity=" + capacity +
+          ", maxDepth=" + maxDepth +
+          ", dropped=" + droppedCount +
+          ", flushes=" + flushCount +
+          ", flushedFrames=" + flushedFrameCount +
+          ", overflowPolicy=" + overflowPolicy +
+          '}';
+    } finally {
+      lock.unlock();
+    }
+  }
+}
@@ -0,0 +1,117 @@
+package server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import protocol.Frame;
+
+/**
+ * Drains a client's outbound queue into its socket. Runs on its own thread so that a client
+ * with a full TCP window only ever stalls its own writer. Every frame that is already queued,
+ * up to a batch limit, is coalesced into a single write and flush. The buffer the batch is
+ * coalesced in is kept for the next one, unless the batch was larger than
+ * {@link #MAX_RETAINED_BYTES}: one burst of large frames would otherwise pin a buffer of its
+ * size for the rest of the connection.
+ */
+class OutboundWriter implements Runnable {
+
+  /**
+   * Largest coalescing buffer kept between batches.
+   */
+  static final int MAX_RETAINED_BYTES = 64 * 1024;
+
+  private final OutboundQueue queue;
+  private final OutputStream out;
+  private final ClientManager owner;
+  private final int maxBatchFrames;
+  private final long maxBatchDelayNanos;
+  private final ServerMetrics metrics;
+  private final List<Frame> batch = new ArrayList<>();
+  private ByteArrayOutputStream coalesced = new ByteArrayOutputStream();
+  private final CountDownLatch finished = new CountDownLatch(1);
+
+  /**
+   * Instantiates a new Outbound writer.
+   *
+   * @param queue               the queue to drain
+   * @param out                 the socket stream, written once per batch
+   * @param owner               the client, disconnected if writing fails
+   * @param maxBatchFrames      the most frames coalesced into one write
+   * @param maxBatchDelayMicros how long to wait for more frames before writing a batch that is
+   *                            not full, 0 to write whatever is queued straight away
+   * @param metrics             where bytes written and write times are recorded
+   */
+  OutboundWriter(OutboundQueue queue, OutputStream out, ClientManager owner, int maxBatchFrames,
+      long maxBatchDelayMicros, ServerMetrics metrics) {
+    this.queue = queue;
+    this.out = out;
+    this.owner = owner;
+    this.maxBatchFrames = maxBatchFrames;
+    this.maxBatchDelayNanos = TimeUnit.MICROSECONDS.toNanos(maxBatchDelayMicros);
+    this.metrics = metrics;
+  }
+
+  @Override
+  public void run() {
+    try {
+      Frame frame;
+      while ((frame = queue.take()) != null) {
+        batch.clear();
+        batch.add(frame);
+        fillBatch();
+        for (Frame queued : batch) {
+          queued.writeTo(coalesced);
+        }
+        long start = System.nanoTime();
+        coalesced.writeTo(out);
+        out.flush();
+        metrics.getWriteTime().recordSince(start);
+        metrics.recordBytesOut(coalesced.size());
+        if (coalesced.size() > MAX_RETAINED_BYTES) {
+          coalesced = new ByteArrayOutputStream();
+        } else {
+          coalesced.reset();
+        }
+        queue.recordFlush(batch.size());
+      }
+    } catch (IOException e) {
+      owner.disconnect();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      finished.countDown();
+    }
+  }
+
+  private void fillBatch() throws InterruptedException {
+    queue.drainTo(batch, maxBatchFrames - batch.size());
+    long deadline = System.nanoTime() + maxBatchDelayNanos;
+    while (batch.size() < maxBatchFrames) {
+      long remaining = deadline - System.nanoTime();
+      if (remaining <= 0) {
+        return;
+      }
+      Frame next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+      if (next == null) {
+        return;
+      }
+      batch.add(next);
+      queue.drainTo(batch, maxBatchFrames - batch.size());
+    }
+  }
+
+  /**
+   * Wait for the writer to drain a closed queue.
+   *
+   * @param timeoutMillis how long to wait
+   * @return false if the writer is still running
+   * @throws InterruptedException the interrupted exception
+   */
+  boolean awaitFinished(long timeoutMillis) throws InterruptedException {
+    return finished.await(timeoutMillis, TimeUnit.MILLISECONDS);
+  }
+}
@@ -0,0 +1,54 @@
+package server;
+
+/**
+ * Enum class for what a full outbound queue does with one more frame
+ */
+public enum OverflowPolicy {
+  /**
+   * discard the oldest queued frame to make room for the new one
+   */
+  DROP_OLDEST("drop-oldest"),
+  /**
+   * discard the new frame and keep the queue as it is
+   */
+  DROP_NEWEST("drop-newest"),
+  /**
+   * disconnect the client that cannot keep up
+   */
+  DISCONNECT("disconnect");
+
+  private final String argument;
+
+  /**
+   * pairing the overflow policy with its command line argument
+   *
+   * @param argument the command line argument selecting this policy
+   */
+  OverflowPolicy(String argument) {
+    this.argument = argument;
+  }
+
+  /**
+   * get the command line argument for the policy
+   *
+   * @return the command line argument
+   */
+  public String getArgument() {
+    return argument;
+  }
+
+  /**
+   * generate overflow policy from a command line argument
+   *
+   * @param argument input argument, case-insensitive
+   * @return overflow policy, or null if the argument matches no policy
+   */
+  public static OverflowPolicy fromArgument(String argument) {
+    for (OverflowPolicy policy : values()) {
+      if (policy.argument.equalsIgnoreCase(argument)) {
+        return policy;
+      }
+    }
+    return null;
+  }
+}
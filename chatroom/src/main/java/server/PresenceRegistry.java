@@ -0,0 +1,128 @@
+package server;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import protocol.Frame;
+import protocol.PresenceUpdate;
+
+/**
+ * The clients subscribed to presence, and the updates pushed to them as users log in and out.
+ * A subscriber is sent a snapshot of who is online once, then one small update per login or
+ * logout, instead of asking for the whole user list again. Each update is encoded once and the
+ * same frame is queued for every subscriber.
+ *
+ * <p>Subscribing and publishing hold the same lock, so a subscriber's snapshot is queued either
+ * before or after any given update, never in the middle of it. An update that is already in the
+ * snapshot is harmless, since applying it again changes nothing.
+ *
+ * <p>Updates are published after the directory has changed, outside any lock of the
+ * {@link ClientRegistry}, so a logout and a login racing for the same name may reach this
+ * registry in either order. Under the lock, an update is only sent if it still agrees with the
+ * directory; the last update sent for a name therefore always matches whether it is online now.
+ */
+public class PresenceRegistry {
+
+  private final UserDirectory directory;
+  // Identity based, since a client manager's equality follows its username
+  private final Set<ClientManager> subscribers =
+      Collections.newSetFromMap(new IdentityHashMap<>());
+  private volatile int subscriberCount;
+
+  /**
+   * Instantiates a new Presence registry.
+   *
+   * @param directory the directory snapshots are taken from
+   */
+  public PresenceRegistry(UserDirectory directory) {
+    this.directory = directory;
+  }
+
+  /**
+   * Start sending presence updates to a client, beginning with a snapshot of who is online.
+   *
+   * @param client   the client
+   * @param username the client's username, left out of its own snapshot
+   * @return false if the client was already subscribed
+   */
+  public synchronized boolean subscribe(ClientManager client, String username) {
+    if (!subscribers.add(client)) {
+      return false;
+    }
+    subscriberCount = subscribers.size();
+    client.send(directory.snapshotFor(username));
+    return true;
+  }
+
+  /**
+   * Stop sending presence updates to a client.
+   *
+   * @param client the client
+   * @return false if the client was not subscribed
+   */
+  public synchronized boolean unsubscribe(ClientManager client) {
+    boolean removed = subscribers.remove(client);
+    subscriberCount = subscribers.size();
+    return removed;
+  }
+
+  /**
+   * Tell every subscriber that a user has logged in.
+   *
+   * @param username the username
+   */
+  public void joined(String username) {
+    publish(username, true);
+  }
+
+  /**
+   * Tell every subscriber that a user has left.
+   *
+   * @param username the username
+   */
+  public void left(String username) {
+    publish(username, false);
+  }
+
+  private void publish(String username, boolean online) {
+    if (subscriberCount == 0) {
+      // Nobody is listening, so the update is not even encoded
+      return;
+    }
+    Frame frame;
+    try {
+      frame = Frame.of(new PresenceUpdate(username, online));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    synchronized (this) {
+      if (directory.contains(username) != online) {
+        // Overtaken by a later login or logout of the same name, which publishes its own
+        return;
+      }
+      // Queuing a frame can disconnect a subscriber whose queue is full, which unsubscribes it
+      // on this thread, so the subscribers are copied first
+      for (ClientManager subscriber : subscribers.toArray(new ClientManager[0])) {
+        subscriber.send(frame);
+      }
+    }
+  }
+
+  /**
+   * Number of subscribed clients.
+   *
+   * @return the subscriber count
+   */
+  public int size() {
+    return subscriberCount;
+  }
+
+  @Override
+  public String toString() {
+    return "PresenceRegistry{" +
+        "subscribers=" + subscriberCount +
+        '}';
+  }
+}
@@ -0,0 +1,89 @@
+package server;
+
+import protocol.MessageType;
+
+/**
+ * Enum class for the budgets a session's chat messages are rate limited against
+ */
+public enum RateCategory {
+  /**
+   * messages fanned out to every client or to a room
+   */
+  BROADCAST("broadcast", 20),
+  /**
+   * messages to one recipient
+   */
+  DIRECT("direct", 50),
+  /**
+   * requests answered by the server alone, such as the user and room lists
+   */
+  QUERY("query", 5),
+  /**
+   * insults, which the server broadcasts on the sender's behalf
+   */
+  INSULT("insult", 1);
+
+  private final String argument;
+  private final int defaultPerSecond;
+
+  /**
+   * pairing the rate category with its command line argument and default budget
+   *
+   * @param argument         the command line argument naming this category
+   * @param defaultPerSecond messages allowed per second unless configured otherwise
+   */
+  RateCategory(String argument, int defaultPerSecond) {
+    this.argument = argument;
+    this.defaultPerSecond = defaultPerSecond;
+  }
+
+  /**
+   * get the command line argument for the category
+   *
+   * @return the command line argument
+   */
+  public String getArgument() {
+    return argument;
+  }
+
+  /**
+   * get the messages allowed per second unless configured otherwise
+   *
+   * @return the default rate
+   */
+  public int getDefaultPerSecond() {
+    return defaultPerSecond;
+  }
+
+  /**
+   * generate rate category from a command line argument
+   *
+   * @param argument input argument, case-insensitive
+   * @return rate category, or null if the argument matches no category
+   */
+  public static RateCategory fromArgument(String argument) {
+    for (RateCategory category : values()) {
+      if (category.argument.equalsIgnoreCase(argument)) {
+        return category;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * get the budget a message type is charged to
+   *
+   * @param type the message type
+   * @return rate category, or null if the message type is never rate limited
+   */
+  public static RateCategory of(MessageType type) {
+    return switch (type) {
+      case BROADCAST_MESSAGE, ROOM_MESSAGE -> BROADCAST;
+      case DIRECT_MESSAGE -> DIRECT;
+      case QUERY_CONNECTED_USERS, QUERY_USERS_PAGE, SUBSCRIBE_PRESENCE, JOIN_ROOM, LEAVE_ROOM,
+          LIST_ROOMS, QUERY_HISTORY -> QUERY;
+      case SEND_INSULT -> INSULT;
+      default -> null;
+    };
+  }
+}
@@ -0,0 +1,72 @@
+package server;
+
+import java.util.Arrays;
+
+/**
+ * Per-session rate limits, one {@link TokenBucket} per {@link RateCategory}. A category's budget
+ * refills at its configured rate and bursts up to one second's worth. Checking a message takes
+ * an array lookup and one uncontended bucket update, so the happy path allocates nothing.
+ */
+public class RateLimiter {
+
+  private final TokenBucket[] buckets = new TokenBucket[RateCategory.values().length];
+
+  /**
+   * Instantiates a new Rate limiter with the config's budgets.
+   *
+   * @param config   the server config
+   * @param nowNanos the current time
+   */
+  public RateLimiter(ServerConfig config, long nowNanos) {
+    for (RateCategory category : RateCategory.values()) {
+      int perSecond = config.getRateLimit(category);
+      if (perSecond != ServerConfig.NO_RATE_LIMIT) {
+        buckets[category.ordinal()] = new TokenBucket(perSecond, perSecond, nowNanos);
+      }
+    }
+  }
+
+  /**
+   * Instantiates a new Rate limiter with the config's budgets.
+   *
+   * @param config the server config
+   */
+  public RateLimiter(ServerConfig config) {
+    this(config, System.nanoTime());
+  }
+
+  /**
+   * Instantiates a new Rate limiter that lets every message through.
+   */
+  public RateLimiter() {
+  }
+
+  /**
+   * Charge one message to a category.
+   *
+   * @param category the category, null for messages that are never limited
+   * @return false if the category's budget is used up
+   */
+  public boolean tryAcquire(RateCategory category) {
+    return category == null || tryAcquire(category, System.nanoTime());
+  }
+
+  /**
+   * Charge one message to a category at the given time.
+   *
+   * @param category the category
+   * @param nowNanos the current time
+   * @return false if the category's budget is used up
+   */
+  public boolean tryAcquire(RateCategory category, long nowNanos) {
+    TokenBucket bucket = buckets[category.ordinal()];
+    return bucket == null || bucket.tryAcquire(nowNanos);
+  }
+
+  @Override
+  public String toString() {
+    return "RateLimiter{" +
+        "buckets=" + Arrays.toString(buckets) +
+        '}';
+  }
+}
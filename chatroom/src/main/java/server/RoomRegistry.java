@@ -0,0 +1,120 @@
+package server;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Thread-safe index of chat rooms and their members. Each room keeps its own member set, so a
+ * room broadcast only touches the clients in that room. A room exists while it has members: it
+ * is created by the first join and removed with its last member. Only logged-in clients join
+ * rooms, so members are told apart by their unique usernames.
+ */
+public class RoomRegistry {
+
+  private final ConcurrentHashMap<String, Set<ClientManager>> membersByRoom =
+      new ConcurrentHashMap<>();
+
+  /**
+   * Add a client to a room, creating the room if needed.
+   *
+   * @param roomName the room name
+   * @param client   the client
+   * @return false if the client was already a member
+   */
+  public boolean join(String roomName, ClientManager client) {
+    boolean[] added = new boolean[1];
+    // compute runs atomically per room, so a join cannot race the removal of an emptied room
+    membersByRoom.compute(roomName, (name, members) -> {
+      Set<ClientManager> room = members != null ? members : ConcurrentHashMap.newKeySet();
+      added[0] = room.add(client);
+      return room;
+    });
+    if (added[0]) {
+      client.getRooms().add(roomName);
+    }
+    return added[0];
+  }
+
+  /**
+   * Remove a client from a room, removing the room once it is empty.
+   *
+   * @param roomName the room name
+   * @param client   the client
+   * @return false if the client was not a member
+   */
+  public boolean leave(String roomName, ClientManager client) {
+    boolean[] removed = new boolean[1];
+    membersByRoom.computeIfPresent(roomName, (name, members) -> {
+      removed[0] = members.remove(client);
+      return members.isEmpty() ? null : members;
+    });
+    client.getRooms().remove(roomName);
+    return removed[0];
+  }
+
+  /**
+   * Remove a client from every room it is in.
+   *
+   * @param client the client
+   */
+  public void leaveAll(ClientManager client) {
+    for (String roomName : new ArrayList<>(client.getRooms())) {
+      leave(roomName, client);
+    }
+  }
+
+  /**
+   * Gets the members of a room. The view is live and never throws
+   * ConcurrentModificationException.
+   *
+   * @param roomName the room name
+   * @return the members, empty if the room does not exist
+   */
+  public Collection<ClientManager> getMembers(String roomName) {
+    Set<ClientManager> members = membersByRoom.get(roomName);
+    return members == null ? Collections.emptySet() : Collections.unmodifiableSet(members);
+  }
+
+  /**
+   * Is a client a member of a room.
+   *
+   * @param roomName the room name
+   * @param client   the client
+   * @return true if the client is in the room
+   */
+  public boolean isMember(String roomName, ClientManager client) {
+    Set<ClientManager> members = membersByRoom.get(roomName);
+    return members != null && members.contains(client);
+  }
+
+  /**
+   * Gets the names of the rooms that have members, sorted.
+   *
+   * @return the room names
+   */
+  public List<String> getRoomNames() {
+    List<String> names = new ArrayList<>(membersByRoom.keySet());
+    Collections.sort(names);
+    return names;
+  }
+
+  /**
+   * Number of rooms.
+   *
+   * @return the number of rooms
+   */
+  public int size() {
+    return membersByRoom.size();
+  }
+
+  @Override
+  public String toString() {
+    return "RoomRegistry{" +
+        "rooms=" + membersByRoom.size() +
+        '}';
+  }
+}
@@ -1,25 +1,38 @@
 package server;
 
-import java.io.DataOutputStream;
 import java.io.IOException;
+import java.net.InetAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
-import java.util.ArrayList;
-import java.util.List;
-import protocol.ConnectResponse;
+import java.net.SocketException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import logging.Log;
 
 /**
  * Represent a Server class for the chat room
  */
 public class Server {
 
-  private static final int ANY_OPEN_PORT = 0;
-  private static final int DEFAULT_PORT = 12345;
-  private static final int MAX_CLIENTS = 10;
   /**
-   * List of connected client managers.
+   * Port used when the default port is already taken.
    */
-  public List<ClientManager> clients = new ArrayList<>();
+  static final int ANY_OPEN_PORT = 0;
+  /**
+   * Default port the server listens on.
+   */
+  static final int DEFAULT_PORT = 12345;
+  /**
+   * Default number of concurrent sessions.
+   */
+  public static final int DEFAULT_MAX_SESSIONS = 10;
+  private static final long SHUTDOWN_TIMEOUT_SECONDS = 5;
+  /**
+   * Registry of connected client managers.
+   */
+  public ClientRegistry clients = new ClientRegistry();
   /**
    * Prefix for server port announcement message.
    */
@@ -28,19 +41,70 @@ public class Server {
    * Prefix for new client connection announcement.
    */
   public static final String NEW_CLIENT_HOST_PREFIX = "New client connected from ";
+  /**
+   * Prefix for a rejection that could not be written to the client.
+   */
+  public static final String REJECTION_ERROR_PREFIX = "Could not turn client away: ";
   /**
    * Message sent when server reaches maximum client capacity.
    */
   public static final String SERVER_IS_FULL_MESSAGE = "Server is full. Try again later.";
+  /**
+   * Message printed when the runtime has no virtual threads.
+   */
+  public static final String VIRTUAL_THREADS_UNAVAILABLE =
+      "Virtual threads need Java 21 or later, falling back to platform threads.";
   private final ServerSocket serverSocket;
+  private final ExecutorService executor;
+  private final ServerConfig config;
+  private final AdmissionController admission;
+  private final ServerMetrics metrics = new ServerMetrics();
 
   /**
    * Instantiates a new Server.
    *
    * @param serverSocket the server socket
+   * @param executor     the executor each client manager and its writer run on, owned by the
+   *                     server
+   * @param config       the server config
    */
-  public Server(ServerSocket serverSocket) {
+  public Server(ServerSocket serverSocket, ExecutorService executor, ServerConfig config) {
     this.serverSocket = serverSocket;
+    this.executor = executor;
+    this.config = config;
+    this.admission = new AdmissionController(config, DEFAULT_MAX_SESSIONS);
+    metrics.registerSessions(clients);
+  }
+
+  /**
+   * Instantiates a new Server.
+   *
+   * @param serverSocket the server socket
+   * @param executor     the executor each client manager and its writer run on, owned by the
+   *                     server
+   */
+  public Server(ServerSocket serverSocket, ExecutorService executor) {
+    this(serverSocket, executor, new ServerConfig());
+  }
+
+  /**
+   * Instantiates a new Server.
+   *
+   * @param serverSocket the server socket
+   */
+  public Server(ServerSocket serverSocket) {
+    this(serverSocket, Executors.newCachedThreadPool());
+  }
+
+  /**
+   * Instantiates a new Server. The config's mode picks between platform and virtual threads.
+   *
+   * @param config the server config
+   * @throws IOException the io exception
+   */
+  public Server(ServerConfig config) throws IOException {
+    this(openServerSocket(), config.getMode() == ServerMode.VIRTUAL ? newVirtualThreadExecutor()
+        : Executors.newCachedThreadPool(), config);
   }
 
   /**
@@ -49,13 +113,33 @@ public class Server {
    * @throws IOException the io exception
    */
   public Server() throws IOException {
+    this(new ServerConfig());
+  }
+
+  private static ServerSocket openServerSocket() throws IOException {
     ServerSocket serverSocket1;
     try {
       serverSocket1 = new ServerSocket(DEFAULT_PORT);
     } catch (IOException e) {
       serverSocket1 = new ServerSocket(ANY_OPEN_PORT);
     }
-    this.serverSocket = serverSocket1;
+    return serverSocket1;
+  }
+
+  /**
+   * Create an executor that starts one virtual thread per client. Virtual threads need Java 21,
+   * so older runtimes get a cached pool of platform threads instead.
+   *
+   * @return the executor
+   */
+  public static ExecutorService newVirtualThreadExecutor() {
+    try {
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor")
+          .invoke(null);
+    } catch (ReflectiveOperationException e) {
+      Log.warn(VIRTUAL_THREADS_UNAVAILABLE);
+      return Executors.newCachedThreadPool();
+    }
   }
 
   /**
@@ -64,20 +148,92 @@ public class Server {
    * @throws IOException the io exception
    */
   public void start() throws IOException {
-    System.out.println(PORT_MESSAGE_PREFIX + serverSocket.getLocalPort());
-    while (true) {
-      Socket socket = serverSocket.accept();
-      System.out.println(NEW_CLIENT_HOST_PREFIX + socket.getInetAddress());
-      if (clients.size() < MAX_CLIENTS) {
-        ClientManager clientManager = new ClientManager(socket, clients);
-        clients.add(clientManager);
-        new Thread(clientManager).start();
-      } else {
-        new ConnectResponse(false, SERVER_IS_FULL_MESSAGE).sendToStream(
-            new DataOutputStream((socket.getOutputStream())));
+    Log.info(PORT_MESSAGE_PREFIX + serverSocket.getLocalPort());
+    while (!serverSocket.isClosed()) {
+      Socket socket;
+      try {
+        socket = serverSocket.accept();
+      } catch (SocketException e) {
+        if (serverSocket.isClosed()) {
+          return;
+        }
+        throw e;
+      }
+      InetAddress address = socket.getInetAddress();
+      Log.info(NEW_CLIENT_HOST_PREFIX + address);
+      // Claim a slot before allocating anything for the client
+      AdmissionResult result = admission.tryAdmit(address);
+      if (!result.isAdmitted()) {
+        reject(socket, result);
+        continue;
+      }
+      metrics.recordAccepted();
+      ClientManager clientManager = new ClientManager(socket, clients, config, metrics, executor);
+      clients.add(clientManager);
+      try {
+        executor.execute(() -> {
+          try {
+            clientManager.run();
+          } finally {
+            admission.release(address);
+          }
+        });
+      } catch (RejectedExecutionException e) {
+        // The server is shutting down
+        clients.remove(clientManager);
+        admission.release(address);
         socket.close();
       }
     }
   }
-}
 
+  // A client that resets the connection before the rejection is written must not end the
+  // accept loop
+  private void reject(Socket socket, AdmissionResult result) {
+    metrics.recordRejected(result);
+    try {
+      socket.getOutputStream().write(AdmissionController.rejection(result));
+    } catch (IOException e) {
+      metrics.recordRejectionFailed();
+      Log.info(REJECTION_ERROR_PREFIX + e.getMessage());
+    } finally {
+      try {
+        socket.close();
+      } catch (IOException e) {
+        Log.warn(ClientManager.CLOSE_ERROR);
+      }
+    }
+  }
+
+  /**
+   * Gets the metrics of the server.
+   *
+   * @return the metrics
+   */
+  public ServerMetrics getMetrics() {
+    return metrics;
+  }
+
+  /**
+   * Stop accepting clients, disconnect the connected ones and wait for their threads to finish.
+   */
+  public void stop() {
+    try {
+      serverSocket.close();
+    } catch (IOException e) {
+      Log.warn(ClientManager.CLOSE_ERROR);
+    }
+    executor.shutdown();
+    for (ClientManager client : clients.getConnections()) {
+      client.disconnect();
+    }
+    try {
+      if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+        executor.shutdownNow();
+      }
+    } catch (InterruptedException e) {
+      executor.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,826 @@
+package server;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import history.HistoryTail;
+import history.MessageLog;
+import history.OfflineMailbox;
+import logging.LogLevel;
+import protocol.FrameLimits;
+
+/**
+ * Settings for a server run, read from the command line by {@link ServerLauncher}.
+ */
+public class ServerConfig {
+
+  /**
+   * Default number of frames that may wait to be written to one client.
+   */
+  public static final int DEFAULT_OUTBOUND_QUEUE_CAPACITY = 1024;
+  /**
+   * Default policy when a client's outbound queue is full.
+   */
+  public static final OverflowPolicy DEFAULT_OVERFLOW_POLICY = OverflowPolicy.DISCONNECT;
+  /**
+   * Default number of queued frames coalesced into one write.
+   */
+  public static final int DEFAULT_MAX_BATCH_FRAMES = 64;
+  /**
+   * Default time a writer waits for more frames before writing a partial batch.
+   */
+  public static final long DEFAULT_MAX_BATCH_DELAY_MICROS = 0;
+  /**
+   * Default session limit; 0 leaves it to the engine, see {@link Server#DEFAULT_MAX_SESSIONS}
+   * and {@link NioServer#DEFAULT_MAX_CLIENTS}.
+   */
+  public static final int DEFAULT_MAX_SESSIONS = AdmissionController.UNLIMITED;
+  /**
+   * Rate limit value meaning a category is not limited.
+   */
+  public static final int NO_RATE_LIMIT = 0;
+  /**
+   * Default port of the metrics endpoint; 0 leaves it off.
+   */
+  public static final int DEFAULT_STATS_PORT = 0;
+  /**
+   * Default lowest level the server logs.
+   */
+  public static final LogLevel DEFAULT_LOG_LEVEL = LogLevel.INFO;
+  /**
+   * Prefix of command line options.
+   */
+  public static final String OPTION_PREFIX = "--";
+  /**
+   * Option setting the outbound queue capacity.
+   */
+  public static final String QUEUE_CAPACITY_OPTION = "queue-capacity";
+  /**
+   * Option setting the overflow policy.
+   */
+  public static final String OVERFLOW_OPTION = "overflow";
+  /**
+   * Option setting the most frames coalesced into one write.
+   */
+  public static final String MAX_BATCH_OPTION = "max-batch";
+  /**
+   * Option setting how long a writer waits to fill a batch, in microseconds.
+   */
+  public static final String MAX_BATCH_DELAY_OPTION = "max-batch-delay-us";
+  /**
+   * Option setting the most concurrent sessions.
+   */
+  public static final String MAX_SESSIONS_OPTION = "max-sessions";
+  /**
+   * Option setting the most concurrent sessions from one source address.
+   */
+  public static final String MAX_SESSIONS_PER_IP_OPTION = "max-sessions-per-ip";
+  /**
+   * Option setting the most connections admitted per second.
+   */
+  public static final String MAX_ACCEPT_RATE_OPTION = "max-accept-rate";
+  /**
+   * Option setting per-session message rates, such as broadcast:20,insult:1.
+   */
+  public static final String RATE_LIMIT_OPTION = "rate-limit";
+  /**
+   * Option setting the largest frame a client may send, in bytes.
+   */
+  public static final String MAX_FRAME_BYTES_OPTION = "max-frame-bytes";
+  /**
+   * Option setting the largest field a client may send, in bytes.
+   */
+  public static final String MAX_FIELD_BYTES_OPTION = "max-field-bytes";
+  /**
+   * Option setting the local port metrics are served on.
+   */
+  public static final String STATS_PORT_OPTION = "stats-port";
+  /**
+   * Option setting the lowest level the server logs.
+   */
+  public static final String LOG_LEVEL_OPTION = "log-level";
+  /**
+   * Option setting the file the server logs to instead of standard output.
+   */
+  public static final String LOG_FILE_OPTION = "log-file";
+  /**
+   * Option naming the directory routed messages are logged to.
+   */
+  public static final String HISTORY_DIR_OPTION = "history-dir";
+  /**
+   * Option for the size of each history segment file.
+   */
+  public static final String HISTORY_SEGMENT_BYTES_OPTION = "history-segment-bytes";
+  /**
+   * Option for the milliseconds between history flushes to disk.
+   */
+  public static final String HISTORY_FLUSH_OPTION = "history-flush-ms";
+  /**
+   * Option for the number of latest messages per room kept in memory for replay.
+   */
+  public static final String HISTORY_TAIL_OPTION = "history-tail";
+  /**
+   * Option naming the directory direct messages to offline users are kept in.
+   */
+  public static final String MAILBOX_DIR_OPTION = "mailbox-dir";
+  /**
+   * Option for the most messages kept for one offline user.
+   */
+  public static final String MAILBOX_SIZE_OPTION = "mailbox-size";
+  /**
+   * Option for the most users the server keeps a mailbox for.
+   */
+  public static final String MAILBOX_USERS_OPTION = "mailbox-users";
+  /**
+   * Option for the hours a message for an offline user is kept.
+   */
+  public static final String MAILBOX_TTL_OPTION = "mailbox-ttl-hours";
+  /**
+   * Option turning the per-connection message pool on or off.
+   */
+  public static final String MESSAGE_POOL_OPTION = "message-pool";
+  /**
+   * Value of an on or off option that turns it on.
+   */
+  public static final String ON_VALUE = "on";
+  /**
+   * Value of an on or off option that turns it off.
+   */
+  public static final String OFF_VALUE = "off";
+  /**
+   * Error message for an unrecognized server mode argument.
+   */
+  public static final String UNKNOWN_MODE_ERROR =
+      "Unknown server mode. Use \"thread\", \"virtual\" or \"nio\".";
+  /**
+   * Error message for an unrecognized overflow policy.
+   */
+  public static final String UNKNOWN_OVERFLOW_POLICY_ERROR =
+      "Unknown overflow policy. Use \"drop-oldest\", \"drop-newest\" or \"disconnect\".";
+  /**
+   * Error message for an unrecognized log level.
+   */
+  public static final String UNKNOWN_LOG_LEVEL_ERROR =
+      "Unknown log level. Use \"debug\", \"info\", \"warn\", \"error\" or \"off\".";
+  /**
+   * Error message for an unrecognized rate limit category.
+   */
+  public static final String UNKNOWN_RATE_CATEGORY_ERROR =
+      "Unknown rate limit. Use \"broadcast\", \"direct\", \"query\" or \"insult\".";
+  /**
+   * Error message for an on or off option given any other value.
+   */
+  public static final String ON_OFF_ERROR_PREFIX = "Expected \"on\" or \"off\" for ";
+  /**
+   * Error message for an empty history directory option.
+   */
+  public static final String MISSING_HISTORY_DIR_ERROR = "Expected a directory for --history-dir";
+  /**
+   * Error message for an empty mailbox directory option.
+   */
+  public static final String MISSING_MAILBOX_DIR_ERROR = "Expected a directory for --mailbox-dir";
+  /**
+   * Error message for an empty log file option.
+   */
+  public static final String MISSING_LOG_FILE_ERROR = "Expected a file name for --log-file";
+  /**
+   * Prefix for unrecognized option errors.
+   */
+  public static final String UNKNOWN_OPTION_PREFIX = "Unknown option: ";
+  /**
+   * Prefix for options that need a positive number.
+   */
+  public static final String INVALID_NUMBER_PREFIX = "Expected a positive number for ";
+  /**
+   * Prefix for options that need a number that is not negative.
+   */
+  public static final String NEGATIVE_NUMBER_PREFIX = "Expected zero or a positive number for ";
+
+  private ServerMode mode = ServerMode.THREAD;
+  private int outboundQueueCapacity = DEFAULT_OUTBOUND_QUEUE_CAPACITY;
+  private OverflowPolicy overflowPolicy = DEFAULT_OVERFLOW_POLICY;
+  private int maxBatchFrames = DEFAULT_MAX_BATCH_FRAMES;
+  private long maxBatchDelayMicros = DEFAULT_MAX_BATCH_DELAY_MICROS;
+  private int maxSessions = DEFAULT_MAX_SESSIONS;
+  private int maxSessionsPerAddress = AdmissionController.UNLIMITED;
+  private int maxAcceptRate = AdmissionController.UNLIMITED;
+  private final Map<RateCategory, Integer> rateLimits = new EnumMap<>(RateCategory.class);
+  private FrameLimits frameLimits = FrameLimits.DEFAULT;
+  private boolean messagePooling;
+  private String historyDir;
+  private int historySegmentBytes = MessageLog.DEFAULT_SEGMENT_BYTES;
+  private long historyFlushMillis = MessageLog.DEFAULT_FLUSH_INTERVAL_MILLIS;
+  private int historyTailCapacity = HistoryTail.DEFAULT_CAPACITY;
+  private String mailboxDir;
+  private int mailboxSize = OfflineMailbox.DEFAULT_MAX_MESSAGES;
+  private int mailboxUsers = OfflineMailbox.DEFAULT_MAX_USERS;
+  private long mailboxTtlHours = TimeUnit.MILLISECONDS.toHours(OfflineMailbox.DEFAULT_TTL_MILLIS);
+  private int statsPort = DEFAULT_STATS_PORT;
+  private LogLevel logLevel = DEFAULT_LOG_LEVEL;
+  private String logFile;
+
+  /**
+   * Read a config from command line arguments: an optional server mode followed by options of
+   * the form --name=value.
+   *
+   * @param args the command line arguments
+   * @return the config
+   * @throws IllegalArgumentException if an argument is not recognized
+   */
+  public static ServerConfig fromArguments(String[] args) {
+    ServerConfig config = new ServerConfig();
+    for (String arg : args) {
+      if (!arg.startsWith(OPTION_PREFIX)) {
+        ServerMode mode = ServerMode.fromArgument(arg);
+        if (mode == null) {
+          throw new IllegalArgumentException(UNKNOWN_MODE_ERROR);
+        }
+        config.setMode(mode);
+        continue;
+      }
+      String[] option = arg.substring(OPTION_PREFIX.length()).split("=", 2);
+      String value = option.length > 1 ? option[1] : "";
+      config.applyOption(option[0], value, arg);
+    }
+    return config;
+  }
+
+  /**
+   * Apply one --name=value option.
+   *
+   * @param name  the option name
+   * @param value the option value
+   * @param arg   the whole argument, for error messages
+   */
+  void applyOption(String name, String value, String arg) {
+    switch (name) {
+      case QUEUE_CAPACITY_OPTION -> setOutboundQueueCapacity(parsePositive(value, arg));
+      case OVERFLOW_OPTION -> {
+        OverflowPolicy policy = OverflowPolicy.fromArgument(value);
+        if (policy == null) {
+          throw new IllegalArgumentException(UNKNOWN_OVERFLOW_POLICY_ERROR);
+        }
+        setOverflowPolicy(policy);
+      }
+      case MAX_BATCH_OPTION -> setMaxBatchFrames(parsePositive(value, arg));
+      case MAX_BATCH_DELAY_OPTION -> setMaxBatchDelayMicros(parseNonNegative(value, arg));
+      case MAX_SESSIONS_OPTION -> setMaxSessions(parsePositive(value, arg));
+      case MAX_SESSIONS_PER_IP_OPTION ->
+          setMaxSessionsPerAddress(parseNonNegativeInt(value, arg));
+      case MAX_ACCEPT_RATE_OPTION -> setMaxAcceptRate(parseNonNegativeInt(value, arg));
+      case RATE_LIMIT_OPTION -> applyRateLimits(value, arg);
+      case MAX_FRAME_BYTES_OPTION -> setFrameLimits(
+          new FrameLimits(parsePositive(value, arg), frameLimits.getMaxFieldLength()));
+      case MAX_FIELD_BYTES_OPTION -> setFrameLimits(
+          new FrameLimits(frameLimits.getMaxFrameLength(), parsePositive(value, arg)));
+      case MESSAGE_POOL_OPTION -> setMessagePooling(parseOnOff(value, arg));
+      case HISTORY_DIR_OPTION -> {
+        if (value.isEmpty()) {
+          throw new IllegalArgumentException(MISSING_HISTORY_DIR_ERROR);
+        }
+        setHistoryDir(value);
+      }
+      case HISTORY_SEGMENT_BYTES_OPTION -> setHistorySegmentBytes(parsePositive(value, arg));
+      case HISTORY_FLUSH_OPTION -> setHistoryFlushMillis(parseNonNegative(value, arg));
+      case HISTORY_TAIL_OPTION -> setHistoryTailCapacity(parseNonNegativeInt(value, arg));
+      case MAILBOX_DIR_OPTION -> {
+        if (value.isEmpty()) {
+          throw new IllegalArgumentException(MISSING_MAILBOX_DIR_ERROR);
+        }
+        setMailboxDir(value);
+      }
+      case MAILBOX_SIZE_OPTION -> setMailboxSize(parsePositive(value, arg));
+      case MAILBOX_USERS_OPTION -> setMailboxUsers(parsePositive(value, arg));
+      case MAILBOX_TTL_OPTION -> setMailboxTtlHours(parsePositive(value, arg));
+      case STATS_PORT_OPTION -> setStatsPort(parsePositive(value, arg));
+      case LOG_LEVEL_OPTION -> {
+        LogLevel level = LogLevel.fromArgument(value);
+        if (level == null) {
+          throw new IllegalArgumentException(UNKNOWN_LOG_LEVEL_ERROR);
+        }
+        setLogLevel(level);
+      }
+      case LOG_FILE_OPTION -> {
+        if (value.isEmpty()) {
+          throw new IllegalArgumentException(MISSING_LOG_FILE_ERROR);
+        }
+        setLogFile(value);
+      }
+      default -> throw new IllegalArgumentException(UNKNOWN_OPTION_PREFIX + arg);
+    }
+  }
+
+  /**
+   * Apply a comma separated list of category:perSecond rate limits.
+   *
+   * @param value the value
+   * @param arg   the whole argument, for error messages
+   */
+  private void applyRateLimits(String value, String arg) {
+    for (String entry : value.split(",")) {
+      String[] parts = entry.split(":", 2);
+      RateCategory category = RateCategory.fromArgument(parts[0].trim());
+      if (category == null) {
+        throw new IllegalArgumentException(UNKNOWN_RATE_CATEGORY_ERROR);
+      }
+      setRateLimit(category, parseNonNegativeInt(parts.length > 1 ? parts[1].trim() : "", arg));
+    }
+  }
+
+  /**
+   * Parse a positive integer option value.
+   *
+   * @param value the value
+   * @param arg   the whole argument, for error messages
+   * @return the number
+   */
+  static int parsePositive(String value, String arg) {
+    try {
+      int number = Integer.parseInt(value);
+      if (number > 0) {
+        return number;
+      }
+    } catch (NumberFormatException e) {
+      // Reported below
+    }
+    throw new IllegalArgumentException(INVALID_NUMBER_PREFIX + arg);
+  }
+
+  /**
+   * Parse an option value that may be zero but not negative.
+   *
+   * @param value the value
+   * @param arg   the whole argument, for error messages
+   * @return the number
+   */
+  static long parseNonNegative(String value, String arg) {
+    try {
+      long number = Long.parseLong(value);
+      if (number >= 0) {
+        return number;
+      }
+    } catch (NumberFormatException e) {
+      // Reported below
+    }
+    throw new IllegalArgumentException(NEGATIVE_NUMBER_PREFIX + arg);
+  }
+
+  /**
+   * Parse an option value that is either on or off.
+   *
+   * @param value the value
+   * @param arg   the whole argument, for error messages
+   * @return true for on
+   */
+  static boolean parseOnOff(String value, String arg) {
+    if (ON_VALUE.equals(value)) {
+      return true;
+    }
+    if (OFF_VALUE.equals(value)) {
+      return false;
+    }
+    throw new IllegalArgumentException(ON_OFF_ERROR_PREFIX + arg);
+  }
+
+  /**
+   * Parse an int option value that may be zero but not negative.
+   *
+   * @param value the value
+   * @param arg   the whole argument, for error messages
+   * @return the number
+   */
+  static int parseNonNegativeInt(String value, String arg) {
+    long number = parseNonNegative(value, arg);
+    if (number > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException(NEGATIVE_NUMBER_PREFIX + arg);
+    }
+    return (int) number;
+  }
+
+  /**
+   * Gets mode.
+   *
+   * @return the mode
+   */
+  public ServerMode getMode() {
+    return mode;
+  }
+
+  /**
+   * Sets mode.
+   *
+   * @param mode the mode
+   */
+  public void setMode(ServerMode mode) {
+    this.mode = mode;
+  }
+
+  /**
+   * Gets outbound queue capacity.
+   *
+   * @return the outbound queue capacity
+   */
+  public int getOutboundQueueCapacity() {
+    return outboundQueueCapacity;
+  }
+
+  /**
+   * Sets outbound queue capacity.
+   *
+   * @param outboundQueueCapacity the outbound queue capacity
+   */
+  public void setOutboundQueueCapacity(int outboundQueueCapacity) {
+    this.outboundQueueCapacity = outboundQueueCapacity;
+  }
+
+  /**
+   * Gets overflow policy.
+   *
+   * @return the overflow policy
+   */
+  public OverflowPolicy getOverflowPolicy() {
+    return overflowPolicy;
+  }
+
+  /**
+   * Sets overflow policy.
+   *
+   * @param overflowPolicy the overflow policy
+   */
+  public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+    this.overflowPolicy = overflowPolicy;
+  }
+
+  /**
+   * Gets the most frames coalesced into one write.
+   *
+   * @return the max batch frames
+   */
+  public int getMaxBatchFrames() {
+    return maxBatchFrames;
+  }
+
+  /**
+   * Sets the most frames coalesced into one write.
+   *
+   * @param maxBatchFrames the max batch frames
+   */
+  public void setMaxBatchFrames(int maxBatchFrames) {
+    this.maxBatchFrames = maxBatchFrames;
+  }
+
+  /**
+   * Gets how long a writer waits to fill a batch.
+   *
+   * @return the max batch delay in microseconds
+   */
+  public long getMaxBatchDelayMicros() {
+    return maxBatchDelayMicros;
+  }
+
+  /**
+   * Sets how long a writer waits to fill a batch.
+   *
+   * @param maxBatchDelayMicros the max batch delay in microseconds
+   */
+  public void setMaxBatchDelayMicros(long maxBatchDelayMicros) {
+    this.maxBatchDelayMicros = maxBatchDelayMicros;
+  }
+
+  /**
+   * Gets the most concurrent sessions.
+   *
+   * @return the max sessions, 0 for the engine's default
+   */
+  public int getMaxSessions() {
+    return maxSessions;
+  }
+
+  /**
+   * Sets the most concurrent sessions.
+   *
+   * @param maxSessions the max sessions, 0 for the engine's default
+   */
+  public void setMaxSessions(int maxSessions) {
+    this.maxSessions = maxSessions;
+  }
+
+  /**
+   * Gets the most concurrent sessions from one source address.
+   *
+   * @return the max sessions per address, 0 for no limit
+   */
+  public int getMaxSessionsPerAddress() {
+    return maxSessionsPerAddress;
+  }
+
+  /**
+   * Sets the most concurrent sessions from one source address.
+   *
+   * @param maxSessionsPerAddress the max sessions per address, 0 for no limit
+   */
+  public void setMaxSessionsPerAddress(int maxSessionsPerAddress) {
+    this.maxSessionsPerAddress = maxSessionsPerAddress;
+  }
+
+  /**
+   * Gets the most connections admitted per second.
+   *
+   * @return the max accept rate, 0 for no limit
+   */
+  public int getMaxAcceptRate() {
+    return maxAcceptRate;
+  }
+
+  /**
+   * Sets the most connections admitted per second.
+   *
+   * @param maxAcceptRate the max accept rate, 0 for no limit
+   */
+  public void setMaxAcceptRate(int maxAcceptRate) {
+    this.maxAcceptRate = maxAcceptRate;
+  }
+
+  /**
+   * Gets the messages of a category one session may send per second.
+   *
+   * @param category the rate category
+   * @return the rate, {@link #NO_RATE_LIMIT} for no limit
+   */
+  public int getRateLimit(RateCategory category) {
+    return rateLimits.getOrDefault(category, category.getDefaultPerSecond());
+  }
+
+  /**
+   * Sets the messages of a category one session may send per second.
+   *
+   * @param category  the rate category
+   * @param perSecond the rate, {@link #NO_RATE_LIMIT} for no limit
+   */
+  public void setRateLimit(RateCategory category, int perSecond) {
+    rateLimits.put(category, perSecond);
+  }
+
+  /**
+   * Gets the largest frame and field a client may send.
+   *
+   * @return the frame limits
+   */
+  public FrameLimits getFrameLimits() {
+    return frameLimits;
+  }
+
+  /**
+   * Sets the largest frame and field a client may send.
+   *
+   * @param frameLimits the frame limits
+   */
+  public void setFrameLimits(FrameLimits frameLimits) {
+    this.frameLimits = frameLimits;
+  }
+
+  /**
+   * Whether each connection decodes into a pool of reusable messages rather than a new message
+   * per frame.
+   *
+   * @return true if messages are pooled
+   */
+  public boolean isMessagePooling() {
+    return messagePooling;
+  }
+
+  /**
+   * Sets whether each connection decodes into a pool of reusable messages.
+   *
+   * @param messagePooling true to pool messages
+   */
+  public void setMessagePooling(boolean messagePooling) {
+    this.messagePooling = messagePooling;
+  }
+
+  /**
+   * Gets the directory routed messages are logged to.
+   *
+   * @return the history directory, null if history is off
+   */
+  public String getHistoryDir() {
+    return historyDir;
+  }
+
+  /**
+   * Sets the directory routed messages are logged to.
+   *
+   * @param historyDir the history directory, null to turn history off
+   */
+  public void setHistoryDir(String historyDir) {
+    this.historyDir = historyDir;
+  }
+
+  /**
+   * Gets the size of each history segment file.
+   *
+   * @return the segment size in bytes
+   */
+  public int getHistorySegmentBytes() {
+    return historySegmentBytes;
+  }
+
+  /**
+   * Sets the size of each history segment file.
+   *
+   * @param historySegmentBytes the segment size in bytes
+   */
+  public void setHistorySegmentBytes(int historySegmentBytes) {
+    this.historySegmentBytes = historySegmentBytes;
+  }
+
+  /**
+   * Gets the milliseconds between history flushes to disk.
+   *
+   * @return the flush interval, 0 to flush every message
+   */
+  public long getHistoryFlushMillis() {
+    return historyFlushMillis;
+  }
+
+  /**
+   * Sets the milliseconds between history flushes to disk.
+   *
+   * @param historyFlushMillis the flush interval, 0 to flush every message
+   */
+  public void setHistoryFlushMillis(long historyFlushMillis) {
+    this.historyFlushMillis = historyFlushMillis;
+  }
+
+  /**
+   * Gets the number of latest messages per room kept in memory for replay.
+   *
+   * @return the messages kept per room, 0 if history replay is off
+   */
+  public int getHistoryTailCapacity() {
+    return historyTailCapacity;
+  }
+
+  /**
+   * Sets the number of latest messages per room kept in memory for replay.
+   *
+   * @param historyTailCapacity the messages kept per room, 0 to turn history replay off
+   */
+  public void setHistoryTailCapacity(int historyTailCapacity) {
+    this.historyTailCapacity = historyTailCapacity;
+  }
+
+  /**
+   * Gets the directory direct messages to offline users are kept in.
+   *
+   * @return the mailbox directory, null if offline messages are refused
+   */
+  public String getMailboxDir() {
+    return mailboxDir;
+  }
+
+  /**
+   * Sets the directory direct messages to offline users are kept in.
+   *
+   * @param mailboxDir the mailbox directory, null to refuse offline messages
+   */
+  public void setMailboxDir(String mailboxDir) {
+    this.mailboxDir = mailboxDir;
+  }
+
+  /**
+   * Gets the most messages kept for one offline user.
+   *
+   * @return the mailbox size
+   */
+  public int getMailboxSize() {
+    return mailboxSize;
+  }
+
+  /**
+   * Sets the most messages kept for one offline user.
+   *
+   * @param mailboxSize the mailbox size
+   */
+  public void setMailboxSize(int mailboxSize) {
+    this.mailboxSize = mailboxSize;
+  }
+
+  /**
+   * Gets the most users the server keeps a mailbox for.
+   *
+   * @return the number of mailboxes
+   */
+  public int getMailboxUsers() {
+    return mailboxUsers;
+  }
+
+  /**
+   * Sets the most users the server keeps a mailbox for.
+   *
+   * @param mailboxUsers the number of mailboxes
+   */
+  public void setMailboxUsers(int mailboxUsers) {
+    this.mailboxUsers = mailboxUsers;
+  }
+
+  /**
+   * Gets the hours a message for an offline user is kept.
+   *
+   * @return the time to live in hours
+   */
+  public long getMailboxTtlHours() {
+    return mailboxTtlHours;
+  }
+
+  /**
+   * Sets the hours a message for an offline user is kept.
+   *
+   * @param mailboxTtlHours the time to live in hours
+   */
+  public void setMailboxTtlHours(long mailboxTtlHours) {
+    this.mailboxTtlHours = mailboxTtlHours;
+  }
+
+  /**
+   * Gets the local port metrics are served on.
+   *
+   * @return the stats port, 0 if metrics are not served
+   */
+  public int getStatsPort() {
+    return statsPort;
+  }
+
+  /**
+   * Sets the local port metrics are served on.
+   *
+   * @param statsPort the stats port, 0 to not serve metrics
+   */
+  public void setStatsPort(int statsPort) {
+    this.statsPort = statsPort;
+  }
+
+  /**
+   * Gets the lowest level the server logs.
+   *
+   * @return the log level
+   */
+  public LogLevel getLogLevel() {
+    return logLevel;
+  }
+
+  /**
+   * Sets the lowest level the server logs.
+   *
+   * @param logLevel the log level
+   */
+  public void setLogLevel(LogLevel logLevel) {
+    this.logLevel = logLevel;
+  }
+
+  /**
+   * Gets the file the server logs to.
+   *
+   * @return the log file, null to log to standard output
+   */
+  public String getLogFile() {
+    return logFile;
+  }
+
+  /**
+   * Sets the file the server logs to.
+   *
+   * @param logFile the log file, null to log to standard output
+   */
+  public void setLogFile(String logFile) {
+    this.logFile = logFile;
+  }
+
+  @Override
+  public String toString() {
+    return "ServerConfig{" +
+        "mode=" + mode +
+        ", outboundQueueCapacity=" + outboundQueueCapacity +
+        ", overflowPolicy=" + overflowPolicy +
+        ", maxBatchFrames=" + maxBatchFrames +
+        ", maxBatchDelayMicros=" + maxBatchDelayMicros +
+        ", maxSessions=" + maxSessions +
+        ", maxSessionsPerAddress=" + maxSessionsPerAddress +
+        ", maxAcceptRate=" + maxAcceptRate +
+        ", rateLimits=" + rateLimits +
+        ", frameLimits=" + frameLimits +
+        ", messagePooling=" + messagePooling +
+        ", historyDir='" + historyDir + '\'' +
+        ", historySegmentBytes=" + historySegmentBytes +
+        ", historyFlushMillis=" + historyFlushMillis +
+        ", historyTailCapacity=" + historyTailCapacity +
+        ", mailboxDir='" + mailboxDir + '\'' +
+        ", mailboxSize=" + mailboxSize +
+        ", mailboxUsers=" + mailboxUsers +
+        ", mailboxTtlHours=" + mailboxTtlHours +
+        ", statsPort=" + statsPort +
+        ", logLevel=" + logLevel +
+        ", logFile='" + logFile + '\'' +
+        '}';
+  }
+}
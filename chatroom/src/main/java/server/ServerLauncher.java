@@ -1,6 +1,17 @@
 package server;
 
+import history.HistoryTail;
+import history.MessageLog;
+import history.OfflineMailbox;
 import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import logging.ConsoleAppender;
+import logging.Log;
+import logging.LogAppender;
+import logging.RollingFileAppender;
 
 /**
  * The type Server launcher.
@@ -11,17 +22,111 @@ public class ServerLauncher {
    * Server Error Message Prefix
    */
   public static final String SERVER_ERROR_PREFIX = "Server error: ";
+  // How long shutting down waits for mailbox writes already submitted
+  private static final long MAILBOX_SHUTDOWN_SECONDS = 5;
 
   /**
    * main method for start the ChatClient
    *
-   * @param args default empty
+   * @param args optional server mode, "thread" (default), "virtual" or "nio", followed by
+   *             options, see {@link ServerConfig#fromArguments(String[])}
    */
   public static void main(String[] args) {
+    ServerConfig config;
     try {
-      new Server().start();
+      config = ServerConfig.fromArguments(args);
+    } catch (IllegalArgumentException e) {
+      System.out.println(e.getMessage());
+      return;
+    }
+    try {
+      configureLogging(config);
+      if (config.getMode() == ServerMode.NIO) {
+        NioServer server = new NioServer(config);
+        openHistory(config, server.clients);
+        openMailbox(config, server.clients);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+        startStats(config, server.getMetrics());
+        server.start();
+      } else {
+        Server server = new Server(config);
+        openHistory(config, server.clients);
+        openMailbox(config, server.clients);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+        startStats(config, server.getMetrics());
+        server.start();
+      }
     } catch (IOException e) {
-      System.out.println(SERVER_ERROR_PREFIX + e.getMessage());
+      Log.error(SERVER_ERROR_PREFIX + e.getMessage());
+    } finally {
+      Log.shutdown();
+    }
+  }
+
+  private static void configureLogging(ServerConfig config) throws IOException {
+    LogAppender appender = config.getLogFile() == null ? new ConsoleAppender()
+        : new RollingFileAppender(Paths.get(config.getLogFile()));
+    Log.configure(config.getLogLevel(), appender);
+    Runtime.getRuntime().addShutdownHook(new Thread(Log::shutdown));
+  }
+
+  private static void openHistory(ServerConfig config, ClientRegistry clients)
+      throws IOException {
+    HistoryTail tail = config.getHistoryTailCapacity() > 0
+        ? new HistoryTail(config.getHistoryTailCapacity()) : null;
+    clients.setHistoryTail(tail);
+    if (config.getHistoryDir() == null) {
+      return;
+    }
+    MessageLog history = MessageLog.open(Paths.get(config.getHistoryDir()),
+        config.getHistorySegmentBytes(), MessageLog.DEFAULT_INDEX_INTERVAL_BYTES,
+        config.getHistoryFlushMillis());
+    if (tail != null) {
+      // Replay picks up where the last run left off
+      tail.fill(history);
+    }
+    clients.setHistory(history);
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+      try {
+        history.close();
+      } catch (IOException e) {
+        Log.error(SERVER_ERROR_PREFIX + e.getMessage());
+      }
+    }));
+  }
+
+  private static void openMailbox(ServerConfig config, ClientRegistry clients)
+      throws IOException {
+    if (config.getMailboxDir() == null) {
+      return;
+    }
+    OfflineMailbox mailbox = new OfflineMailbox(Paths.get(config.getMailboxDir()),
+        config.getMailboxUsers(), config.getMailboxSize(),
+        TimeUnit.HOURS.toMillis(config.getMailboxTtlHours()),
+        config.getFrameLimits().getMaxFrameLength());
+    // One thread, so a user's messages are written and delivered in the order they arrived
+    ExecutorService io = Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, OfflineMailbox.THREAD_NAME);
+      thread.setDaemon(true);
+      return thread;
+    });
+    clients.setMailbox(mailbox, io);
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+      io.shutdown();
+      try {
+        io.awaitTermination(MAILBOX_SHUTDOWN_SECONDS, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }));
+  }
+
+  private static void startStats(ServerConfig config, ServerMetrics metrics) throws IOException {
+    if (config.getStatsPort() == 0) {
+      return;
     }
+    StatsEndpoint stats = new StatsEndpoint(metrics, config.getStatsPort());
+    Runtime.getRuntime().addShutdownHook(new Thread(stats::stop));
+    stats.start();
   }
 }
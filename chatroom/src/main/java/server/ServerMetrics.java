@@ -0,0 +1,248 @@
+package server;
+
+import java.util.concurrent.atomic.LongAdder;
+import metrics.LatencyHistogram;
+import metrics.MetricsRegistry;
+import protocol.MessageType;
+
+/**
+ * The metrics one server collects. Every field is created once and updated without locking, so
+ * recording costs about as much as an uncontended increment.
+ */
+public class ServerMetrics {
+
+  /**
+   * Prefix of every server metric name.
+   */
+  public static final String PREFIX = "chat_";
+
+  private final MetricsRegistry registry = new MetricsRegistry();
+  private final LongAdder connectionsAccepted = registry.counter(
+      PREFIX + "connections_accepted_total");
+  private final LongAdder[] connectionsRejected = new LongAdder[AdmissionResult.values().length];
+  private final LongAdder rejectionsFailed = registry.counter(
+      PREFIX + "connections_rejection_failed_total");
+  private final LongAdder framesRejected = registry.counter(
+      PREFIX + "frames_rejected_total");
+  private final LongAdder bytesIn = registry.counter(PREFIX + "bytes_in_total");
+  private final LongAdder bytesOut = registry.counter(PREFIX + "bytes_out_total");
+  private final LongAdder[] messagesDecoded = new LongAdder[MessageType.values().length];
+  private final LongAdder[] messagesRateLimited = new LongAdder[RateCategory.values().length];
+  private final LatencyHistogram broadcastFanOut = registry.histogram(
+      PREFIX + "broadcast_fanout");
+  private final LatencyHistogram decodeTime = registry.histogram(
+      PREFIX + "stage_decode_nanos");
+  private final LatencyHistogram handleTime = registry.histogram(
+      PREFIX + "stage_handle_nanos");
+  private final LatencyHistogram writeTime = registry.histogram(
+      PREFIX + "stage_write_nanos");
+
+  /**
+   * Instantiates a new Server metrics.
+   */
+  public ServerMetrics() {
+    for (AdmissionResult result : AdmissionResult.values()) {
+      if (!result.isAdmitted()) {
+        connectionsRejected[result.ordinal()] = registry.counter(
+            PREFIX + "connections_rejected_total{reason=\"" + result + "\"}");
+      }
+    }
+    for (RateCategory category : RateCategory.values()) {
+      messagesRateLimited[category.ordinal()] = registry.counter(
+          PREFIX + "messages_rate_limited_total{category=\"" + category.getArgument() + "\"}");
+    }
+    for (MessageType type : MessageType.values()) {
+      messagesDecoded[type.ordinal()] = registry.counter(
+          PREFIX + "messages_decoded_total{type=\"" + type + "\"}");
+    }
+  }
+
+  /**
+   * Report the live session counts of a registry.
+   *
+   * @param clients the registry of connected clients
+   */
+  public void registerSessions(ClientRegistry clients) {
+    registry.gauge(PREFIX + "connections_active", clients::connectionCount);
+    registry.gauge(PREFIX + "sessions_active", clients::size);
+  }
+
+  /**
+   * Count an accepted connection.
+   */
+  public void recordAccepted() {
+    connectionsAccepted.increment();
+  }
+
+  /**
+   * Count a connection turned away.
+   *
+   * @param reason why the connection was rejected
+   */
+  public void recordRejected(AdmissionResult reason) {
+    connectionsRejected[reason.ordinal()].increment();
+  }
+
+  /**
+   * Count a rejected connection the rejection could not be written to, because the client had
+   * already gone.
+   */
+  public void recordRejectionFailed() {
+    rejectionsFailed.increment();
+  }
+
+  /**
+   * Number of rejected connections the rejection could not be written to.
+   *
+   * @return the count
+   */
+  public long rejectionsFailedCount() {
+    return rejectionsFailed.sum();
+  }
+
+  /**
+   * Count a frame turned away for going over the frame or field limit.
+   */
+  public void recordFrameRejected() {
+    framesRejected.increment();
+  }
+
+  /**
+   * Number of frames turned away for going over the frame or field limit.
+   *
+   * @return the count
+   */
+  public long framesRejectedCount() {
+    return framesRejected.sum();
+  }
+
+  /**
+   * Count a message turned away for going over its sender's rate limit.
+   *
+   * @param category the budget the message was charged to
+   */
+  public void recordRateLimited(RateCategory category) {
+    messagesRateLimited[category.ordinal()].increment();
+  }
+
+  /**
+   * Number of messages turned away for going over a rate limit.
+   *
+   * @param category the budget the messages were charged to
+   * @return the count
+   */
+  public long rateLimitedCount(RateCategory category) {
+    return messagesRateLimited[category.ordinal()].sum();
+  }
+
+  /**
+   * Number of connections rejected for a reason.
+   *
+   * @param reason the reason
+   * @return the count
+   */
+  public long rejectedCount(AdmissionResult reason) {
+    LongAdder rejected = connectionsRejected[reason.ordinal()];
+    return rejected == null ? 0 : rejected.sum();
+  }
+
+  /**
+   * Count bytes read from clients.
+   *
+   * @param bytes the number of bytes
+   */
+  public void recordBytesIn(long bytes) {
+    bytesIn.add(bytes);
+  }
+
+  /**
+   * Count bytes written to clients.
+   *
+   * @param bytes the number of bytes
+   */
+  public void recordBytesOut(long bytes) {
+    bytesOut.add(bytes);
+  }
+
+  /**
+   * Count a decoded message.
+   *
+   * @param type the message type
+   */
+  public void recordDecoded(MessageType type) {
+    messagesDecoded[type.ordinal()].increment();
+  }
+
+  /**
+   * Record how many clients one broadcast was queued for.
+   *
+   * @param recipients the number of recipients
+   */
+  public void recordFanOut(int recipients) {
+    broadcastFanOut.record(recipients);
+  }
+
+  /**
+   * Time spent decoding frames read by the NIO engine.
+   *
+   * @return the decode time histogram
+   */
+  public LatencyHistogram getDecodeTime() {
+    return decodeTime;
+  }
+
+  /**
+   * Time spent handling a decoded message, including queueing it for recipients.
+   *
+   * @return the handle time histogram
+   */
+  public LatencyHistogram getHandleTime() {
+    return handleTime;
+  }
+
+  /**
+   * Time spent in each write to a client socket.
+   *
+   * @return the write time histogram
+   */
+  public LatencyHistogram getWriteTime() {
+    return writeTime;
+  }
+
+  /**
+   * Number of messages decoded of one type.
+   *
+   * @param type the message type
+   * @return the count
+   */
+  public long decodedCount(MessageType type) {
+    return messagesDecoded[type.ordinal()].sum();
+  }
+
+  /**
+   * Gets registry.
+   *
+   * @return the registry
+   */
+  public MetricsRegistry getRegistry() {
+    return registry;
+  }
+
+  /**
+   * Render every metric as plain text.
+   *
+   * @return the metrics
+   */
+  public String render() {
+    return registry.render();
+  }
+
+  @Override
+  public String toString() {
+    return "ServerMetrics{" +
+        "accepted=" + connectionsAccepted.sum() +
+        ", bytesIn=" + bytesIn.sum() +
+        ", bytesOut=" + bytesOut.sum() +
+        '}';
+  }
+}
@@ -0,0 +1,54 @@
+package server;
+
+/**
+ * Enum class for the engines the server can run with
+ */
+public enum ServerMode {
+  /**
+   * one platform thread per connected client
+   */
+  THREAD("thread"),
+  /**
+   * one virtual thread per connected client, running the same blocking code as THREAD
+   */
+  VIRTUAL("virtual"),
+  /**
+   * a single selector thread multiplexing every client over non-blocking channels
+   */
+  NIO("nio");
+
+  private final String argument;
+
+  /**
+   * pairing the server mode with its command line argument
+   *
+   * @param argument the command line argument selecting this mode
+   */
+  ServerMode(String argument) {
+    this.argument = argument;
+  }
+
+  /**
+   * get the command line argument for the mode
+   *
+   * @return the command line argument
+   */
+  public String getArgument() {
+    return argument;
+  }
+
+  /**
+   * generate server mode from a command line argument
+   *
+   * @param argument input argument, case-insensitive
+   * @return server mode, or null if the argument matches no mode
+   */
+  public static ServerMode fromArgument(String argument) {
+    for (ServerMode mode : values()) {
+      if (mode.argument.equalsIgnoreCase(argument)) {
+        return mode;
+      }
+    }
+    return null;
+  }
+}
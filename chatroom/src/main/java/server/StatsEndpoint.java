@@ -0,0 +1,97 @@
+package server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import logging.Log;
+
+/**
+ * Serves the server metrics as plain text over HTTP on the loopback address, so they can be read
+ * with curl or scraped by Prometheus without exposing them to the network.
+ */
+public class StatsEndpoint {
+
+  /**
+   * Path the metrics are served on.
+   */
+  public static final String METRICS_PATH = "/metrics";
+  /**
+   * Content type of the metrics.
+   */
+  public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+  /**
+   * Prefix for the stats endpoint announcement.
+   */
+  public static final String STATS_MESSAGE_PREFIX = "Metrics available at http://localhost:";
+  private static final int METHOD_NOT_ALLOWED = 405;
+  private static final int OK = 200;
+  private static final int NO_BODY = -1;
+
+  private final ServerMetrics metrics;
+  private final HttpServer httpServer;
+
+  /**
+   * Instantiates a new Stats endpoint.
+   *
+   * @param metrics the metrics to serve
+   * @param port    the local port, 0 for any open port
+   * @throws IOException the io exception
+   */
+  public StatsEndpoint(ServerMetrics metrics, int port) throws IOException {
+    this.metrics = metrics;
+    this.httpServer = HttpServer.create(
+        new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+  }
+
+  /**
+   * Start serving on a background thread.
+   */
+  public void start() {
+    // Handed to the server only now, once the endpoint is fully built
+    httpServer.createContext(METRICS_PATH, this::handle);
+    httpServer.start();
+    Log.info(STATS_MESSAGE_PREFIX + getLocalPort() + METRICS_PATH);
+  }
+
+  /**
+   * Stop serving.
+   */
+  public void stop() {
+    httpServer.stop(0);
+  }
+
+  /**
+   * Gets the port the endpoint listens on.
+   *
+   * @return the local port
+   */
+  public int getLocalPort() {
+    return httpServer.getAddress().getPort();
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    try (exchange) {
+      if (!"GET".equals(exchange.getRequestMethod())) {
+        exchange.sendResponseHeaders(METHOD_NOT_ALLOWED, NO_BODY);
+        return;
+      }
+      byte[] body = metrics.render().getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+      exchange.sendResponseHeaders(OK, body.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(body);
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "StatsEndpoint{" +
+        "address=" + httpServer.getAddress() +
+        '}';
+  }
+}
@@ -0,0 +1,98 @@
+package server;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket rate limiter. Tokens refill continuously at a fixed rate up to a burst capacity,
+ * and each permitted event takes one. Time comes from {@link System#nanoTime()} unless the caller
+ * passes it in, which keeps tests deterministic.
+ */
+public class TokenBucket {
+
+  private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  private final double capacity;
+  private final double tokensPerNano;
+  private double tokens;
+  private long lastRefillNanos;
+
+  /**
+   * Instantiates a new Token bucket, starting full.
+   *
+   * @param ratePerSecond tokens added per second
+   * @param burst         the most tokens the bucket holds
+   * @param nowNanos      the current time
+   */
+  public TokenBucket(double ratePerSecond, double burst, long nowNanos) {
+    if (ratePerSecond <= 0 || burst < 1) {
+      throw new IllegalArgumentException(
+          "Rate must be positive and burst at least 1: " + ratePerSecond + ", " + burst);
+    }
+    this.capacity = burst;
+    this.tokensPerNano = ratePerSecond / NANOS_PER_SECOND;
+    this.tokens = burst;
+    this.lastRefillNanos = nowNanos;
+  }
+
+  /**
+   * Instantiates a new Token bucket, starting full.
+   *
+   * @param ratePerSecond tokens added per second
+   * @param burst         the most tokens the bucket holds
+   */
+  public TokenBucket(double ratePerSecond, double burst) {
+    this(ratePerSecond, burst, System.nanoTime());
+  }
+
+  /**
+   * Take a token if one is available.
+   *
+   * @return false if the rate has been exceeded
+   */
+  public boolean tryAcquire() {
+    return tryAcquire(System.nanoTime());
+  }
+
+  /**
+   * Take a token if one is available at the given time.
+   *
+   * @param nowNanos the current time
+   * @return false if the rate has been exceeded
+   */
+  public synchronized boolean tryAcquire(long nowNanos) {
+    refill(nowNanos);
+    if (tokens < 1) {
+      return false;
+    }
+    tokens--;
+    return true;
+  }
+
+  private void refill(long nowNanos) {
+    long elapsed = nowNanos - lastRefillNanos;
+    if (elapsed > 0) {
+      tokens = Math.min(capacity, tokens + elapsed * tokensPerNano);
+      lastRefillNanos = nowNanos;
+    }
+  }
+
+  /**
+   * Tokens currently available, refilled up to the given time.
+   *
+   * @param nowNanos the current time
+   * @return the available tokens
+   */
+  public synchronized double available(long nowNanos) {
+    refill(nowNanos);
+    return tokens;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return "TokenBucket{" +
+        "tokens=" + tokens +
+        ", capacity=" + capacity +
+        ", ratePerSecond=" + tokensPerNano * NANOS_PER_SECOND +
+        '}';
+  }
+}
@@ -0,0 +1,213 @@
+package server;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import protocol.Frame;
+import protocol.Message;
+import protocol.MessageType;
+import protocol.QueryUsersPageResponse;
+
+/**
+ * The logged-in usernames, kept up to date as users log in and out, together with the
+ * {@link protocol.QueryUsersResponse} listing them. Each username is encoded once, when it logs
+ * in, and the whole response is assembled from those entries at most once per change of
+ * membership, so answering "who" is queuing the same cached frame rather than an encode or copy
+ * of every username. The response lists the requester too; clients leave their own name out.
+ * Every change bumps a version number that tells a cached response apart from a stale one.
+ */
+public class UserDirectory {
+
+  /**
+   * Most users sent in one page, whatever the query asks for.
+   */
+  public static final int MAX_PAGE_SIZE = 100;
+  private static final int HEADER_BYTES = 2 * Integer.BYTES;
+
+  private final ConcurrentSkipListMap<String, byte[]> entries = new ConcurrentSkipListMap<>();
+  private final AtomicLong version = new AtomicLong();
+  private volatile Snapshot snapshot = new Snapshot(0, List.of());
+
+  /**
+   * Add a username that has logged in.
+   *
+   * @param username the username
+   */
+  public void add(String username) {
+    byte[] bytes = username.getBytes(Message.DEFAULT_CHAR_SET);
+    byte[] entry = ByteBuffer.allocate(Integer.BYTES + bytes.length)
+        .putInt(bytes.length).put(bytes).array();
+    if (entries.put(username, entry) == null) {
+      version.incrementAndGet();
+    }
+  }
+
+  /**
+   * Remove a username that has logged out.
+   *
+   * @param username the username
+   */
+  public void remove(String username) {
+    if (entries.remove(username) != null) {
+      version.incrementAndGet();
+    }
+  }
+
+  /**
+   * Whether a username is logged in.
+   *
+   * @param username the username
+   * @return true if it is in the directory
+   */
+  public boolean contains(String username) {
+    return entries.containsKey(username);
+  }
+
+  /**
+   * Gets the version, which changes every time a username is added or removed.
+   *
+   * @return the version
+   */
+  public long getVersion() {
+    return version.get();
+  }
+
+  /**
+   * Number of usernames in the directory.
+   *
+   * @return the size
+   */
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * Gets the encoded response listing every username, in alphabetical order. The same frame is
+   * returned until a username is added or removed, so every client asking in between is sent
+   * the very same bytes.
+   *
+   * @return the encoded response
+   */
+  public Frame response() {
+    return currentSnapshot().frame;
+  }
+
+  /**
+   * Gets the encoded {@link protocol.PresenceSnapshot} a new presence subscriber starts from,
+   * built from the same cached entries as {@link #response()}. The subscriber's own entry is
+   * cut out with two array copies, so no username is encoded again.
+   *
+   * @param subscriber the username of the subscribing client
+   * @return the encoded snapshot
+   */
+  public Frame snapshotFor(String subscriber) {
+    Snapshot current = currentSnapshot();
+    Integer index = subscriber == null ? null : current.indexes.get(subscriber);
+    byte[] all = current.encoded;
+    int start = index == null ? all.length : current.offsets[index];
+    int end = index == null ? all.length : current.offsets[index + 1];
+    byte[] others = new byte[all.length - (end - start)];
+    System.arraycopy(all, 0, others, 0, start);
+    System.arraycopy(all, end, others, start, all.length - end);
+    int count = current.offsets.length - (index == null ? 1 : 2);
+    ByteBuffer.wrap(others).putInt(MessageType.PRESENCE_SNAPSHOT.getValue()).putInt(count);
+    return Frame.wrap(others);
+  }
+
+  /**
+   * Gets one page of the usernames starting with a prefix, in alphabetical order and leaving
+   * out the requester. The page is read straight off the sorted directory, so it costs the
+   * same however many users are logged in.
+   *
+   * @param prefix    only usernames starting with it are listed, empty for everyone
+   * @param after     the cursor of the previous page, empty for the first page
+   * @param limit     the most users on the page, capped at {@link #MAX_PAGE_SIZE}
+   * @param requester the username of the client asking
+   * @return the page
+   */
+  public QueryUsersPageResponse page(String prefix, String after, int limit, String requester) {
+    String start = prefix == null ? Message.EMPTY_STRING : prefix;
+    int pageSize = limit < 1 || limit > MAX_PAGE_SIZE ? MAX_PAGE_SIZE : limit;
+    boolean resume = after != null && after.compareTo(start) >= 0;
+    List<String> users = new ArrayList<>(Math.min(pageSize, entries.size()));
+    String nextCursor = Message.EMPTY_STRING;
+    for (String username : entries.tailMap(resume ? after : start, !resume).keySet()) {
+      if (!username.startsWith(start)) {
+        break;
+      }
+      if (username.equals(requester)) {
+        continue;
+      }
+      if (users.size() == pageSize) {
+        nextCursor = users.get(pageSize - 1);
+        break;
+      }
+      users.add(username);
+    }
+    return new QueryUsersPageResponse(start, nextCursor, users);
+  }
+
+  private Snapshot currentSnapshot() {
+    Snapshot current = snapshot;
+    long latest = version.get();
+    if (current.version == latest) {
+      return current;
+    }
+    synchronized (this) {
+      current = snapshot;
+      if (current.version != latest) {
+        // Read the version first, so a change made while copying only makes the copy newer
+        // than its version says and the next query rebuilds it once more
+        current = new Snapshot(latest, new ArrayList<>(entries.entrySet()));
+        snapshot = current;
+      }
+      return current;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "UserDirectory{" +
+        "users=" + entries.size() +
+        ", version=" + version.get() +
+        '}';
+  }
+
+  /**
+   * The encoded response for one version of the directory.
+   */
+  private static final class Snapshot {
+
+    private final long version;
+    private final byte[] encoded;
+    private final Frame frame;
+    private final int[] offsets;
+    private final Map<String, Integer> indexes;
+
+    private Snapshot(long version, List<Map.Entry<String, byte[]>> entries) {
+      this.version = version;
+      int count = entries.size();
+      this.offsets = new int[count + 1];
+      this.indexes = new HashMap<>(count * 2);
+      int length = HEADER_BYTES;
+      for (int i = 0; i < count; i++) {
+        offsets[i] = length;
+        length += entries.get(i).getValue().length;
+      }
+      offsets[count] = length;
+      ByteBuffer buffer = ByteBuffer.allocate(length)
+          .putInt(MessageType.QUERY_USER_RESPONSE.getValue())
+          .putInt(count);
+      for (int i = 0; i < count; i++) {
+        buffer.put(entries.get(i).getValue());
+        indexes.put(entries.get(i).getKey(), i);
+      }
+      this.encoded = buffer.array();
+      this.frame = Frame.wrap(encoded);
+    }
+  }
+}
@@ -6,6 +6,7 @@ import org.junit.jupiter.api.Test;
 import protocol.*;
 
 import java.io.*;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -70,12 +71,70 @@ class ChatMessageHandlerTest {
     try {
       DataInputStream dataInputStream = new DataInputStream(
           new ByteArrayInputStream(outContent.toByteArray()));
-      assertInstanceOf(QueryUsersMessage.class, Message.decodeFromStream(dataInputStream));
+      assertInstanceOf(QueryUsersPageMessage.class, Message.decodeFromStream(dataInputStream));
     } catch (IOException e) {
       fail();
     }
   }
 
+  /**
+   * Test handle chat input who with a prefix, then more.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testHandleChatInputWhoPages() throws IOException {
+    ByteArrayOutputStream sent = new ByteArrayOutputStream();
+    ChatUI chatUI = new ChatUI(System.in);
+    handler = new ChatMessageHandler(new DataOutputStream(sent), chatUI);
+    handler.handleChatInput("more");
+    assertTrue(errContent.toString().contains(ChatMessageHandler.NO_MORE_USERS_ERROR));
+    assertEquals(0, sent.size());
+
+    handler.handleChatInput("who al");
+    chatUI.showQueryUsersPageResponse(
+        new QueryUsersPageResponse("al", "alex", List.of("alan", "alex")));
+    handler.handleChatInput("more");
+    DataInputStream dataInputStream = new DataInputStream(
+        new ByteArrayInputStream(sent.toByteArray()));
+    QueryUsersPageMessage first = assertInstanceOf(QueryUsersPageMessage.class,
+        Message.decodeFromStream(dataInputStream));
+    assertEquals("al", first.getPrefix());
+    assertEquals("", first.getAfter());
+    QueryUsersPageMessage next = assertInstanceOf(QueryUsersPageMessage.class,
+        Message.decodeFromStream(dataInputStream));
+    assertEquals("al", next.getPrefix());
+    assertEquals("alex", next.getAfter());
+  }
+
+  /**
+   * Test watch and unwatch subscribe to presence, and online reads the local roster.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testHandleChatInputWatch() throws IOException {
+    ByteArrayOutputStream sent = new ByteArrayOutputStream();
+    ChatUI chatUI = new ChatUI(System.in);
+    handler = new ChatMessageHandler(new DataOutputStream(sent), chatUI);
+    handler.handleChatInput("watch");
+    chatUI.showPresenceSnapshot(new PresenceSnapshot(List.of("alice")));
+    assertTrue(chatUI.getRoster().isWatching());
+    handler.handleChatInput("unwatch");
+    assertFalse(chatUI.getRoster().isWatching());
+    assertTrue(chatUI.getRoster().getUsers().isEmpty());
+    handler.handleChatInput("online");
+    assertTrue(errContent.toString().contains(ChatUI.NOT_WATCHING_MESSAGE));
+
+    DataInputStream dataInputStream = new DataInputStream(
+        new ByteArrayInputStream(sent.toByteArray()));
+    assertTrue(assertInstanceOf(SubscribePresenceMessage.class,
+        Message.decodeFromStream(dataInputStream)).isSubscribe());
+    assertFalse(assertInstanceOf(SubscribePresenceMessage.class,
+        Message.decodeFromStream(dataInputStream)).isSubscribe());
+    assertEquals(0, dataInputStream.available());
+  }
+
   /**
    * Test handle chat input insult.
    */
@@ -125,6 +184,51 @@ class ChatMessageHandlerTest {
     }
   }
 
+  /**
+   * Test handle chat input room commands.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testHandleChatInputRooms() throws IOException {
+    handler.handleChatInput("join General");
+    handler.handleChatInput("#general hello @bob");
+    handler.handleChatInput("rooms");
+    handler.handleChatInput("leave general");
+    DataInputStream dataInputStream = new DataInputStream(
+        new ByteArrayInputStream(outContent.toByteArray()));
+    JoinRoomMessage join = assertInstanceOf(JoinRoomMessage.class,
+        Message.decodeFromStream(dataInputStream));
+    assertEquals("general", join.getRoomName());
+    RoomMessage room = assertInstanceOf(RoomMessage.class,
+        Message.decodeFromStream(dataInputStream));
+    assertEquals("hello @bob", room.getMessage());
+    assertInstanceOf(ListRoomsMessage.class, Message.decodeFromStream(dataInputStream));
+    assertInstanceOf(LeaveRoomMessage.class, Message.decodeFromStream(dataInputStream));
+  }
+
+  /**
+   * Test history asks for the latest messages of the chat or of a room.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testHandleChatInputHistory() throws IOException {
+    handler.handleChatInput("history");
+    handler.handleChatInput("history #General 5");
+    DataInputStream dataInputStream = new DataInputStream(
+        new ByteArrayInputStream(outContent.toByteArray()));
+    QueryHistoryMessage chat = assertInstanceOf(QueryHistoryMessage.class,
+        Message.decodeFromStream(dataInputStream));
+    assertEquals("", chat.getRoomName());
+    assertEquals(QueryHistoryMessage.DEFAULT_LIMIT, chat.getLimit());
+    QueryHistoryMessage room = assertInstanceOf(QueryHistoryMessage.class,
+        Message.decodeFromStream(dataInputStream));
+    assertEquals("general", room.getRoomName());
+    assertEquals(5, room.getLimit());
+    assertEquals(0, room.getSince());
+  }
+
   /**
    * Test handle chat input unknown command.
    */
@@ -198,6 +198,65 @@ class ChatUITest {
     QueryUsersResponse emptyResponse = new QueryUsersResponse(Arrays.asList());
     chatUI.showQueryUsersResponse(emptyResponse);
     assertTrue(outStream.toString().contains("No other connected users"));
+
+    // The server lists the user along with everyone else, and the user's own name is left out
+    System.setIn(new ByteArrayInputStream("user2\n".getBytes()));
+    chatUI = new ChatUI(System.in);
+    chatUI.login();
+    outStream.reset();
+    chatUI.showQueryUsersResponse(response);
+    assertTrue(outStream.toString().contains("Connected Users: user1, user3"));
+    chatUI.showQueryUsersResponse(new QueryUsersResponse(Arrays.asList("user2")));
+    assertTrue(outStream.toString().contains("No other connected users"));
+  }
+
+  /**
+   * Test show query users page response.
+   */
+  @Test
+  void testShowQueryUsersPageResponse() {
+    chatUI = new ChatUI(System.in);
+    QueryUsersPageResponse page = new QueryUsersPageResponse("us", "user2",
+        Arrays.asList("user1", "user2"));
+    chatUI.showQueryUsersPageResponse(page);
+    assertTrue(outStream.toString().contains("Connected Users: user1, user2"));
+    assertTrue(outStream.toString().contains(ChatUI.MORE_USERS_HINT));
+    assertSame(page, chatUI.getLastUsersPage());
+
+    chatUI.showQueryUsersPageResponse(new QueryUsersPageResponse("zz", "", Arrays.asList()));
+    assertTrue(outStream.toString().contains(ChatUI.NO_MATCHING_USERS_PREFIX + "zz"));
+    assertFalse(chatUI.getLastUsersPage().hasMore());
+  }
+
+  /**
+   * Test presence snapshots and updates keep the roster current.
+   */
+  @Test
+  void testShowPresence() {
+    chatUI = new ChatUI(System.in);
+    chatUI.showRoster();
+    assertTrue(errStream.toString().contains(ChatUI.NOT_WATCHING_MESSAGE));
+
+    chatUI.showPresenceSnapshot(new PresenceSnapshot(Arrays.asList("user2", "user1")));
+    assertTrue(outStream.toString().contains(ChatUI.ONLINE_USERS_PREFIX + "user1, user2"));
+    chatUI.showPresenceUpdate(new PresenceUpdate("user3", true));
+    chatUI.showPresenceUpdate(new PresenceUpdate("user1", false));
+    assertTrue(outStream.toString().contains("(presence) user3" + ChatUI.ONLINE_SUFFIX));
+    assertTrue(outStream.toString().contains("(presence) user1" + ChatUI.OFFLINE_SUFFIX));
+    assertEquals(Arrays.asList("user2", "user3"), chatUI.getRoster().getUsers());
+  }
+
+  /**
+   * Test show history response.
+   */
+  @Test
+  void testShowHistoryResponse() {
+    chatUI = new ChatUI(System.in);
+    chatUI.showHistoryResponse(new HistoryResponse("", 2));
+    assertTrue(outStream.toString().contains("SERVER: Last 2 messages:"));
+    chatUI.showHistoryResponse(new HistoryResponse("general", 0));
+    assertTrue(outStream.toString().contains("SERVER: " + ChatUI.NO_HISTORY_MESSAGE
+        + " in #general"));
   }
 
   /**
@@ -0,0 +1,82 @@
+package client;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import protocol.WireFormat;
+
+/**
+ * The type Load generator config test.
+ */
+class LoadGeneratorConfigTest {
+
+  /**
+   * Test defaults.
+   */
+  @Test
+  void testDefaults() {
+    LoadGeneratorConfig config = LoadGeneratorConfig.fromArguments(new String[0]);
+    assertEquals(LoadGeneratorConfig.DEFAULT_HOST, config.getHost());
+    assertEquals(LoadGeneratorConfig.DEFAULT_PORT, config.getPort());
+    assertEquals(LoadGeneratorConfig.DEFAULT_CLIENTS, config.getClients());
+    assertEquals(LoadGeneratorConfig.DEFAULT_RATE, config.getRate());
+    assertEquals(4, config.getMix().size());
+    assertEquals(LoadGeneratorConfig.DEFAULT_WIRE_FORMAT, config.getWireFormat());
+  }
+
+  /**
+   * Test from arguments.
+   */
+  @Test
+  void testFromArguments() {
+    LoadGeneratorConfig config = LoadGeneratorConfig.fromArguments(new String[]{
+        "--host=example", "--port=4000", "--clients=5000", "--rate=20000", "--duration=30",
+        "--message-bytes=256", "--mix=direct:3,who:1", "--wire-format=legacy"});
+    assertEquals("example", config.getHost());
+    assertEquals(4000, config.getPort());
+    assertEquals(5000, config.getClients());
+    assertEquals(20000, config.getRate());
+    assertEquals(30, config.getDurationSeconds());
+    assertEquals(256, config.getMessageBytes());
+    assertEquals(Map.of(LoadAction.DIRECT, 3, LoadAction.WHO, 1), config.getMix());
+    assertEquals(WireFormat.LEGACY, config.getWireFormat());
+  }
+
+  /**
+   * Test actions are picked in proportion to the mix.
+   */
+  @Test
+  void testPickAction() {
+    LoadGeneratorConfig config = LoadGeneratorConfig.fromArguments(
+        new String[]{"--mix=broadcast:0,insult:1"});
+    Random random = new Random(1);
+    for (int i = 0; i < 100; i++) {
+      assertEquals(LoadAction.INSULT, config.pickAction(random));
+    }
+  }
+
+  /**
+   * Test invalid arguments.
+   */
+  @Test
+  void testInvalidArguments() {
+    IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+        () -> LoadGeneratorConfig.fromArguments(new String[]{"--clients=0"}));
+    assertEquals(LoadGeneratorConfig.INVALID_NUMBER_PREFIX + "--clients=0", e.getMessage());
+    e = assertThrows(IllegalArgumentException.class,
+        () -> LoadGeneratorConfig.fromArguments(new String[]{"--mix=shout:1"}));
+    assertEquals(LoadGeneratorConfig.INVALID_MIX_PREFIX + "shout:1", e.getMessage());
+    assertThrows(IllegalArgumentException.class,
+        () -> LoadGeneratorConfig.fromArguments(new String[]{"--mix=who:0"}));
+    assertThrows(IllegalArgumentException.class,
+        () -> LoadGeneratorConfig.fromArguments(new String[]{"--mix=who"}));
+    e = assertThrows(IllegalArgumentException.class,
+        () -> LoadGeneratorConfig.fromArguments(new String[]{"--wire-format=json"}));
+    assertEquals(LoadGeneratorConfig.UNKNOWN_WIRE_FORMAT_ERROR, e.getMessage());
+    e = assertThrows(IllegalArgumentException.class,
+        () -> LoadGeneratorConfig.fromArguments(new String[]{"fast"}));
+    assertEquals(LoadGeneratorConfig.UNKNOWN_OPTION_PREFIX + "fast", e.getMessage());
+  }
+}
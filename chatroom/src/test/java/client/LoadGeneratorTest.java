@@ -0,0 +1,48 @@
+package client;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.net.ServerSocket;
+import org.junit.jupiter.api.Test;
+import server.Server;
+
+/**
+ * The type Load generator test.
+ */
+class LoadGeneratorTest {
+
+  /**
+   * Test a short run against a real server.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  void testRunAgainstServer() throws Exception {
+    ServerSocket serverSocket = new ServerSocket(0);
+    Server server = new Server(serverSocket);
+    Thread serverThread = new Thread(() -> {
+      try {
+        server.start();
+      } catch (Exception e) {
+        // Stopped
+      }
+    });
+    serverThread.start();
+    try {
+      LoadGeneratorConfig config = LoadGeneratorConfig.fromArguments(new String[]{
+          "--port=" + serverSocket.getLocalPort(), "--clients=3", "--rate=200", "--duration=1",
+          "--mix=broadcast:1,direct:1,who:1"});
+      LoadStats stats = new LoadGenerator(config).run();
+
+      assertEquals(3, stats.loggedInCount());
+      assertTrue(stats.sentCount() > 50, stats.toString());
+      assertTrue(stats.deliveredCount() > 0, stats.toString());
+      assertTrue(stats.getDeliveryLatency().count() > 0);
+      assertTrue(stats.getWhoLatency().count() > 0);
+      assertTrue(stats.report().contains("p999="));
+    } finally {
+      server.stop();
+      serverThread.join(5000);
+    }
+  }
+}
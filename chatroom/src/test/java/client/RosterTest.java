@@ -0,0 +1,77 @@
+package client;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import protocol.PresenceUpdate;
+
+/**
+ * The type Roster test.
+ */
+class RosterTest {
+
+  private Roster roster;
+
+  /**
+   * Sets up.
+   */
+  @BeforeEach
+  void setUp() {
+    roster = new Roster();
+  }
+
+  /**
+   * Test updates apply on top of the snapshot, and repeating one changes nothing.
+   */
+  @Test
+  void testReplaceAndApply() {
+    assertFalse(roster.isWatching());
+    roster.replace(List.of("carol", "alice"));
+    assertTrue(roster.isWatching());
+    roster.apply(new PresenceUpdate("bob", true));
+    roster.apply(new PresenceUpdate("bob", true));
+    roster.apply(new PresenceUpdate("carol", false));
+    roster.apply(new PresenceUpdate("dave", false));
+    assertEquals(List.of("alice", "bob"), roster.getUsers());
+
+    roster.replace(List.of("erin"));
+    assertEquals(List.of("erin"), roster.getUsers());
+  }
+
+  /**
+   * Test clear.
+   */
+  @Test
+  void testClear() {
+    roster.replace(List.of("alice"));
+    roster.clear();
+    assertFalse(roster.isWatching());
+    assertTrue(roster.getUsers().isEmpty());
+  }
+
+  /**
+   * Test equals.
+   */
+  @Test
+  void testEquals() {
+    Roster other = new Roster();
+    assertEquals(roster, other);
+    other.replace(List.of());
+    assertNotEquals(roster, other);
+    roster.replace(List.of());
+    assertEquals(roster.hashCode(), other.hashCode());
+    assertNotEquals(roster, null);
+    assertNotEquals(roster, new Object());
+  }
+
+  /**
+   * Test to string.
+   */
+  @Test
+  void testToString() {
+    roster.replace(List.of("alice"));
+    assertEquals("Roster{users=[alice], watching=true}", roster.toString());
+  }
+}
@@ -1,7 +1,11 @@
 package client;
 
 import java.io.ByteArrayInputStream;
+import java.util.List;
 import org.junit.jupiter.api.Test;
+import protocol.HistoryResponse;
+import protocol.PresenceSnapshot;
+import protocol.PresenceUpdate;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -56,4 +60,25 @@ class ServerMessageHandlerTest {
     assertTrue(toString.contains("ServerMessageHandler"));
     assertTrue(toString.contains("chatUI"));
   }
-}
\ No newline at end of file
+
+  /**
+   * Test presence messages reach the roster, a snapshot not being taken for a user list.
+   */
+  @Test
+  void testHandlePresence() {
+    ChatUI chatUI = new ChatUI(System.in);
+    ServerMessageHandler handler = new ServerMessageHandler(chatUI);
+    assertTrue(handler.handleServerMessages(new PresenceSnapshot(List.of("alice"))));
+    assertTrue(handler.handleServerMessages(new PresenceUpdate("bob", true)));
+    assertEquals(List.of("alice", "bob"), chatUI.getRoster().getUsers());
+  }
+
+  /**
+   * Test a history response is shown and the connection carries on.
+   */
+  @Test
+  void testHandleHistoryResponse() {
+    ServerMessageHandler handler = new ServerMessageHandler(new ChatUI(System.in));
+    assertTrue(handler.handleServerMessages(new HistoryResponse("general", 2)));
+  }
+}
@@ -0,0 +1,109 @@
+package history;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import protocol.BroadcastMessage;
+import protocol.DirectMessage;
+import protocol.Frame;
+import protocol.RoomMessage;
+
+/**
+ * The type History tail test.
+ */
+class HistoryTailTest {
+
+  private static Frame broadcast(String text) throws IOException {
+    return Frame.of(new BroadcastMessage("alice", text));
+  }
+
+  /**
+   * Test the latest messages come back oldest first, bounded by the limit, the time and the
+   * capacity.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testLatest() throws IOException {
+    HistoryTail tail = new HistoryTail(3);
+    assertEquals(List.of(), tail.latest(HistoryTail.MAIN_CHAT, 10, 0));
+    for (int i = 1; i <= 4; i++) {
+      tail.append(HistoryTail.MAIN_CHAT, i * 1000L, broadcast("m" + i));
+    }
+    Frame room = Frame.of(new RoomMessage("alice", "general", "hi room"));
+    tail.append("general", 5000, room);
+
+    // The oldest broadcast has been pushed out
+    assertEquals(List.of(broadcast("m2"), broadcast("m3"), broadcast("m4")),
+        tail.latest(HistoryTail.MAIN_CHAT, 10, 0));
+    assertEquals(List.of(broadcast("m2"), broadcast("m3"), broadcast("m4")),
+        tail.latest(HistoryTail.MAIN_CHAT, 0, 0));
+    assertEquals(List.of(broadcast("m3"), broadcast("m4")),
+        tail.latest(HistoryTail.MAIN_CHAT, 2, 0));
+    assertEquals(List.of(broadcast("m4")), tail.latest(HistoryTail.MAIN_CHAT, 10, 3500));
+    assertEquals(List.of(room), tail.latest("general", 10, 0));
+    assertSame(room, tail.latest("general", 1, 0).get(0));
+    assertEquals(List.of(), tail.latest("other", 10, 0));
+
+    IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+        () -> new HistoryTail(0));
+    assertEquals(HistoryTail.INVALID_CAPACITY_ERROR + 0, e.getMessage());
+  }
+
+  /**
+   * Test only the rooms used most recently keep their history.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testMaxRooms() throws IOException {
+    HistoryTail tail = new HistoryTail(1);
+    Frame frame = broadcast("hi");
+    for (int i = 0; i <= HistoryTail.MAX_ROOMS; i++) {
+      tail.append("room" + i, i, frame);
+    }
+    assertTrue(tail.latest("room0", 1, 0).isEmpty());
+    assertEquals(List.of(frame), tail.latest("room1", 1, 0));
+    assertEquals(List.of(frame), tail.latest("room" + HistoryTail.MAX_ROOMS, 1, 0));
+  }
+
+  /**
+   * Test a tail filled from a log keeps its broadcasts and room messages but not its direct
+   * messages.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testFill() throws IOException {
+    Path directory = Files.createTempDirectory("history-tail");
+    try (MessageLog log = MessageLog.open(directory, 4096, 256, 0)) {
+      Frame room = Frame.of(new RoomMessage("alice", "general", "hi room"));
+      Frame direct = Frame.of(new DirectMessage("alice", "bob", "psst"));
+      for (int i = 1; i <= 20; i++) {
+        log.append(i * 1000L, broadcast("m" + i).asByteBuffer());
+      }
+      log.append(21000, room.asByteBuffer());
+      log.append(22000, direct.asByteBuffer());
+
+      HistoryTail tail = new HistoryTail(2);
+      tail.fill(log);
+      assertEquals(List.of(broadcast("m19"), broadcast("m20")),
+          tail.latest(HistoryTail.MAIN_CHAT, 10, 0));
+      assertEquals(List.of(broadcast("m20")), tail.latest(HistoryTail.MAIN_CHAT, 10, 20000));
+      assertEquals(List.of(room), tail.latest("general", 10, 0));
+      assertEquals(List.of(), tail.latest("bob", 10, 0));
+    } finally {
+      try (Stream<Path> paths = Files.walk(directory)) {
+        for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+          Files.delete(path);
+        }
+      }
+    }
+  }
+}
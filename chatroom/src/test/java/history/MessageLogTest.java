@@ -0,0 +1,175 @@
+package history;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import protocol.BroadcastMessage;
+import protocol.DirectMessage;
+import protocol.Frame;
+
+/**
+ * The type Message log test.
+ */
+class MessageLogTest {
+
+  private Path directory;
+  private MessageLog log;
+
+  /**
+   * Sets up.
+   *
+   * @throws IOException the io exception
+   */
+  @BeforeEach
+  void setUp() throws IOException {
+    directory = Files.createTempDirectory("message-log");
+  }
+
+  /**
+   * Tear down.
+   *
+   * @throws IOException the io exception
+   */
+  @AfterEach
+  void tearDown() throws IOException {
+    if (log != null) {
+      log.close();
+    }
+    try (Stream<Path> paths = Files.walk(directory)) {
+      for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+        Files.delete(path);
+      }
+    }
+  }
+
+  /**
+   * Test frames are read back as appended, with their offsets and timestamps.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testAppendAndRead() throws IOException {
+    log = MessageLog.open(directory);
+    byte[] broadcastBytes = new BroadcastMessage("alice", "h\u00e9llo").encode();
+    Frame broadcast = Frame.wrap(broadcastBytes);
+    Frame direct = Frame.of(new DirectMessage("alice", "bob", "hi"));
+    assertEquals(0, log.append(1000, broadcast.asByteBuffer()));
+    assertEquals(1, log.append(2000, direct.asByteBuffer()));
+    assertEquals(2, log.append(broadcast));
+
+    List<LogRecord> records = log.read(0, 10);
+    assertEquals(3, records.size());
+    assertEquals(new LogRecord(0, 1000, broadcastBytes), records.get(0));
+    assertEquals(direct, records.get(1).getFrame());
+    assertEquals(2000, records.get(1).getTimestamp());
+    assertEquals(2, records.get(2).getOffset());
+    assertEquals(List.of(records.get(1)), log.read(1, 1));
+    assertTrue(log.read(3, 10).isEmpty());
+    assertEquals(0, log.getStartOffset());
+    assertEquals(3, log.getNextOffset());
+  }
+
+  /**
+   * Test the log rolls to new segments and any offset is found through the sparse index.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testSegments() throws IOException {
+    log = MessageLog.open(directory, 512, 64, 0);
+    List<Frame> frames = new ArrayList<>();
+    for (int i = 0; i < 60; i++) {
+      Frame frame = Frame.of(new BroadcastMessage("user" + i, "message " + i));
+      frames.add(frame);
+      assertEquals(i, log.append(i, frame.asByteBuffer()));
+    }
+    assertTrue(log.getSegmentCount() > 3);
+    assertTrue(Files.exists(directory.resolve(LogSegment.fileName(0, LogSegment.INDEX_SUFFIX))));
+    for (int from = 0; from < frames.size(); from++) {
+      List<LogRecord> records = log.read(from, 7);
+      assertEquals(Math.min(7, frames.size() - from), records.size());
+      for (int i = 0; i < records.size(); i++) {
+        assertEquals(from + i, records.get(i).getOffset());
+        assertEquals(frames.get(from + i), records.get(i).getFrame());
+      }
+    }
+  }
+
+  /**
+   * Test a reopened log carries on from where it stopped, across sealed segments, and a
+   * record only partly written is cut off.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testReopen() throws IOException {
+    log = MessageLog.open(directory, 512, 64, 1000);
+    for (int i = 0; i < 20; i++) {
+      log.append(i, Frame.of(new BroadcastMessage("alice", "message " + i)).asByteBuffer());
+    }
+    List<LogRecord> before = log.read(0, 100);
+    int segments = log.getSegmentCount();
+    log.close();
+
+    // A record whose length made it to the file but whose bytes did not
+    Path active = Path.of(directory.toString(), LogSegment.fileName(
+        lastBaseOffset(), LogSegment.LOG_SUFFIX));
+    try (FileChannel channel = FileChannel.open(active, StandardOpenOption.READ,
+        StandardOpenOption.WRITE)) {
+      ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+      int end = 0;
+      while (mapped.getInt(end) > 0) {
+        end += LogSegment.RECORD_HEADER_BYTES + mapped.getInt(end);
+      }
+      mapped.putInt(end, 40).putInt(end + Integer.BYTES, 12345);
+    }
+
+    log = MessageLog.open(directory, 512, 64, 1000);
+    assertEquals(segments, log.getSegmentCount());
+    assertEquals(20, log.getNextOffset());
+    assertEquals(before, log.read(0, 100));
+    Frame next = Frame.of(new BroadcastMessage("bob", "after restart"));
+    assertEquals(20, log.append(next));
+    assertEquals(next, log.read(20, 1).get(0).getFrame());
+  }
+
+  private long lastBaseOffset() throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.map(path -> path.getFileName().toString())
+          .filter(name -> name.endsWith(LogSegment.LOG_SUFFIX))
+          .mapToLong(name -> Long.parseLong(
+              name.substring(0, name.length() - LogSegment.LOG_SUFFIX.length())))
+          .max().orElseThrow();
+    }
+  }
+
+  /**
+   * Test frames that can never fit and appends after close fail.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testErrors() throws IOException {
+    log = MessageLog.open(directory, 64, 64, 0);
+    IOException e = assertThrows(IOException.class,
+        () -> log.append(Frame.of(new BroadcastMessage("alice", "x".repeat(100)))));
+    assertEquals(MessageLog.RECORD_TOO_LARGE_ERROR, e.getMessage());
+    log.close();
+    e = assertThrows(IOException.class,
+        () -> log.append(Frame.of(new BroadcastMessage("alice", "hi"))));
+    assertEquals(MessageLog.CLOSED_ERROR, e.getMessage());
+    assertThrows(IllegalArgumentException.class, () -> MessageLog.open(directory, 8, 64, 0));
+  }
+}
@@ -0,0 +1,247 @@
+package history;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import protocol.DirectMessage;
+import protocol.Frame;
+
+/**
+ * The type Offline mailbox test.
+ */
+class OfflineMailboxTest {
+
+  private Path directory;
+
+  /**
+   * Sets up.
+   *
+   * @throws IOException the io exception
+   */
+  @BeforeEach
+  void setUp() throws IOException {
+    directory = Files.createTempDirectory("mailbox");
+  }
+
+  /**
+   * Tear down.
+   *
+   * @throws IOException the io exception
+   */
+  @AfterEach
+  void tearDown() throws IOException {
+    try (Stream<Path> paths = Files.walk(directory)) {
+      for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+        Files.delete(path);
+      }
+    }
+  }
+
+  private static Frame direct(String text) throws IOException {
+    return Frame.of(new DirectMessage("alice", "b\u00f6b", text));
+  }
+
+  private static List<Frame> drain(OfflineMailbox mailbox, String username, long now)
+      throws IOException {
+    List<Frame> delivered = new ArrayList<>();
+    assertTrue(mailbox.deliver(username, now, delivered::addAll));
+    return delivered;
+  }
+
+  /**
+   * Test messages are kept only for registered users and drained once, oldest first.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testDepositAndDrain() throws IOException {
+    OfflineMailbox mailbox = new OfflineMailbox(directory);
+    assertFalse(mailbox.isRegistered("b\u00f6b"));
+    assertFalse(mailbox.deposit("b\u00f6b", 1000, direct("lost")));
+
+    mailbox.register("b\u00f6b", 1000);
+    mailbox.register("b\u00f6b", 1000);
+    assertTrue(mailbox.isRegistered("b\u00f6b"));
+    assertTrue(drain(mailbox, "b\u00f6b", 1000).isEmpty());
+    assertTrue(mailbox.deposit("b\u00f6b", 1000, direct("one")));
+    assertTrue(mailbox.deposit("b\u00f6b", 2000, direct("two")));
+    assertEquals(2, mailbox.getCount("b\u00f6b"));
+
+    assertEquals(List.of(direct("one"), direct("two")), drain(mailbox, "b\u00f6b", 3000));
+    assertEquals(0, mailbox.getCount("b\u00f6b"));
+    assertTrue(drain(mailbox, "b\u00f6b", 3000).isEmpty());
+    assertTrue(drain(mailbox, "nobody", 3000).isEmpty());
+  }
+
+  /**
+   * Test a full mailbox refuses messages until its expired ones are dropped, and expired
+   * messages are never delivered.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testBoundAndExpiry() throws IOException {
+    OfflineMailbox mailbox = new OfflineMailbox(directory, 2, 10_000);
+    mailbox.register("bob", 1000);
+    assertTrue(mailbox.deposit("bob", 1000, direct("old")));
+    assertTrue(mailbox.deposit("bob", 5000, direct("newer")));
+    assertFalse(mailbox.deposit("bob", 6000, direct("refused")));
+
+    // The oldest has expired by now, so it makes room
+    assertTrue(mailbox.deposit("bob", 12_000, direct("latest")));
+    assertEquals(2, mailbox.getCount("bob"));
+    assertEquals(List.of(direct("latest")), drain(mailbox, "bob", 16_000));
+  }
+
+  /**
+   * Test registered users and waiting messages survive reopening, and a message cut short is
+   * dropped.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testReopen() throws IOException {
+    OfflineMailbox mailbox = new OfflineMailbox(directory);
+    mailbox.register("b\u00f6b", 1000);
+    mailbox.register("carol", 1000);
+    assertTrue(mailbox.deposit("b\u00f6b", 1000, direct("kept")));
+    assertTrue(mailbox.deposit("b\u00f6b", 1000, direct("torn")));
+    Files.writeString(directory.resolve("notes.txt"), "not a mailbox");
+
+    Path file = directory.resolve(OfflineMailbox.fileName("b\u00f6b"));
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+      channel.truncate(channel.size() - 3);
+    }
+
+    OfflineMailbox reopened = new OfflineMailbox(directory);
+    assertTrue(reopened.isRegistered("b\u00f6b"));
+    assertTrue(reopened.isRegistered("carol"));
+    assertFalse(reopened.isRegistered("notes"));
+    assertEquals(1, reopened.getCount("b\u00f6b"));
+    assertTrue(reopened.deposit("b\u00f6b", 1500, direct("after")));
+    assertEquals(List.of(direct("kept"), direct("after")), drain(reopened, "b\u00f6b", 2000));
+  }
+
+  /**
+   * Test messages the recipient does not take stay in the mailbox, and a mailbox holding only
+   * expired messages is emptied without calling it.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testDeliverRefused() throws IOException {
+    OfflineMailbox mailbox = new OfflineMailbox(directory, 2, 10_000);
+    mailbox.register("bob", 1000);
+    assertTrue(mailbox.deposit("bob", 1000, direct("one")));
+    assertTrue(mailbox.deposit("bob", 2000, direct("two")));
+
+    assertFalse(mailbox.deliver("bob", 3000, frames -> false));
+    assertEquals(2, mailbox.getCount("bob"));
+    assertEquals(List.of(direct("one"), direct("two")), drain(mailbox, "bob", 3000));
+
+    assertTrue(mailbox.deposit("bob", 4000, direct("stale")));
+    assertTrue(mailbox.deliver("bob", 20_000, frames -> fail("nothing to deliver")));
+    assertEquals(0, mailbox.getCount("bob"));
+  }
+
+  /**
+   * Test a frame over the limit is refused, and a length in the file larger than the limit or
+   * than what is left of the file ends the mailbox.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testLengthBounded() throws IOException {
+    Frame kept = direct("kept");
+    OfflineMailbox mailbox = new OfflineMailbox(directory, 10, 10, 10_000, kept.length());
+    mailbox.register("bob", 1000);
+    IOException error = assertThrows(IOException.class,
+        () -> mailbox.deposit("bob", 1000, direct("far too long")));
+    assertEquals(OfflineMailbox.FRAME_TOO_LARGE_ERROR, error.getMessage());
+    assertTrue(mailbox.deposit("bob", 1000, kept));
+
+    Path file = directory.resolve(OfflineMailbox.fileName("bob"));
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.APPEND)) {
+      channel.write(ByteBuffer.allocate(Long.BYTES + Integer.BYTES)
+          .putLong(1000).putInt(Integer.MAX_VALUE).flip());
+    }
+    assertEquals(List.of(kept), drain(new OfflineMailbox(directory, 10, 10_000), "bob", 2000));
+
+    assertTrue(mailbox.deposit("bob", 1000, kept));
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.APPEND)) {
+      channel.write(ByteBuffer.allocate(Long.BYTES + Integer.BYTES + 1)
+          .putLong(1000).putInt(kept.length() - 1).put((byte) 0).flip());
+    }
+    assertEquals(List.of(kept), drain(new OfflineMailbox(directory, 10, 10_000), "bob", 2000));
+  }
+
+  /**
+   * Test at most the user limit have a mailbox, an idle mailbox is deleted, and the least
+   * recently used one makes room only when it is empty.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testUserLimit() throws IOException {
+    OfflineMailbox mailbox = new OfflineMailbox(directory, 2, 10, 10_000, 1 << 20);
+    assertTrue(mailbox.register("alice", 1000));
+    assertTrue(mailbox.register("bob", 2000));
+    assertTrue(mailbox.deposit("alice", 3000, direct("for alice")));
+    assertTrue(mailbox.deposit("bob", 4000, direct("for bob")));
+
+    // Both hold messages that have not expired
+    assertFalse(mailbox.register("carol", 5000));
+    assertFalse(mailbox.isRegistered("carol"));
+
+    // alice was last used at 3000, so she is idle by 14000; bob is not
+    assertTrue(mailbox.register("carol", 14_000));
+    assertFalse(mailbox.isRegistered("alice"));
+    assertTrue(mailbox.isRegistered("bob"));
+    assertEquals(2, mailbox.size());
+
+    // Emptied, bob is now the least recently used and makes room
+    assertEquals(List.of(direct("for bob")), drain(mailbox, "bob", 14_000));
+    assertTrue(mailbox.register("dave", 14_000));
+    assertFalse(mailbox.isRegistered("bob"));
+    assertTrue(mailbox.isRegistered("carol"));
+
+    try (Stream<Path> files = Files.list(directory)) {
+      assertEquals(2, files.count());
+    }
+  }
+
+  /**
+   * Test a username too long to be a file name gets a mailbox that survives reopening, and a
+   * file whose name does not match the username it starts with is not a mailbox.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testLongUsername() throws IOException {
+    String username = "\u00f6".repeat(300);
+    OfflineMailbox mailbox = new OfflineMailbox(directory);
+    assertTrue(mailbox.register(username, 1000));
+    assertTrue(mailbox.deposit(username, 1000, direct("long")));
+    assertEquals(OfflineMailbox.fileName("bob").length(),
+        OfflineMailbox.fileName(username).length());
+
+    Files.copy(directory.resolve(OfflineMailbox.fileName(username)),
+        directory.resolve(OfflineMailbox.fileName("bob")));
+    OfflineMailbox reopened = new OfflineMailbox(directory);
+    assertFalse(reopened.isRegistered("bob"));
+    assertEquals(1, reopened.size());
+    assertEquals(List.of(direct("long")), drain(reopened, username, 2000));
+  }
+}
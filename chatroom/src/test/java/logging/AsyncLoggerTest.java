@@ -0,0 +1,111 @@
+package logging;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The type Async logger test.
+ */
+class AsyncLoggerTest {
+
+  /**
+   * Collects every batch it is given, optionally waiting on a gate first.
+   */
+  private static class CollectingAppender implements LogAppender {
+
+    private final List<List<LogEvent>> batches = new ArrayList<>();
+    private final CountDownLatch gate;
+    private boolean closed;
+
+    CollectingAppender(CountDownLatch gate) {
+      this.gate = gate;
+    }
+
+    @Override
+    public synchronized void append(List<LogEvent> events) {
+      try {
+        gate.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      batches.add(new ArrayList<>(events));
+    }
+
+    @Override
+    public synchronized void close() {
+      closed = true;
+    }
+
+    synchronized List<String> messages() {
+      List<String> messages = new ArrayList<>();
+      for (List<LogEvent> batch : batches) {
+        for (LogEvent event : batch) {
+          messages.add(event.getMessage());
+        }
+      }
+      return messages;
+    }
+  }
+
+  /**
+   * Test events below the level are skipped.
+   *
+   * @throws InterruptedException the interrupted exception
+   */
+  @Test
+  void testLevelFilter() throws InterruptedException {
+    CollectingAppender appender = new CollectingAppender(new CountDownLatch(0));
+    AsyncLogger logger = AsyncLogger.start(LogLevel.WARN, appender);
+    assertFalse(logger.isEnabled(LogLevel.INFO));
+    assertFalse(logger.isEnabled(LogLevel.OFF));
+    logger.log(LogLevel.INFO, "chatter");
+    logger.log(LogLevel.ERROR, "failure");
+    logger.setLevel(LogLevel.DEBUG);
+    logger.log(LogLevel.DEBUG, "detail");
+    assertTrue(logger.flush(1000));
+    assertEquals(List.of("failure", "detail"), appender.messages());
+    logger.close(1000);
+    assertTrue(appender.closed);
+  }
+
+  /**
+   * Test events that pile up while the appender is busy are written as one batch, and events
+   * beyond the capacity are dropped instead of blocking.
+   *
+   * @throws InterruptedException the interrupted exception
+   */
+  @Test
+  void testBatchingAndDropping() throws InterruptedException {
+    CountDownLatch gate = new CountDownLatch(1);
+    CollectingAppender appender = new CollectingAppender(gate);
+    AsyncLogger logger = AsyncLogger.start(LogLevel.INFO, appender, 4);
+    logger.log(LogLevel.INFO, "first");
+    // Wait for the background thread to take the first event and block in the appender
+    while (logger.toString().contains("queued=1")) {
+      Thread.sleep(1);
+    }
+    for (int i = 0; i < 6; i++) {
+      logger.log(LogLevel.INFO, "burst " + i);
+    }
+    assertEquals(2, logger.droppedCount());
+    gate.countDown();
+    assertTrue(logger.flush(1000));
+    assertEquals(List.of("first", "burst 0", "burst 1", "burst 2", "burst 3"),
+        appender.messages());
+    assertEquals(2, appender.batches.size());
+    logger.close(1000);
+  }
+
+  /**
+   * Test an event is formatted with its time, level and thread.
+   */
+  @Test
+  void testFormat() {
+    LogEvent event = new LogEvent(0, LogLevel.WARN, "main", "careful");
+    assertEquals("1970-01-01T00:00:00Z WARN [main] careful", event.toString());
+  }
+}
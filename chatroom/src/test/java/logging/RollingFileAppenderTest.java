@@ -0,0 +1,89 @@
+package logging;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The type Rolling file appender test.
+ */
+class RollingFileAppenderTest {
+
+  private Path directory;
+
+  /**
+   * Sets up.
+   *
+   * @throws IOException the io exception
+   */
+  @BeforeEach
+  void setUp() throws IOException {
+    directory = Files.createTempDirectory("rolling-log");
+  }
+
+  /**
+   * Tear down.
+   *
+   * @throws IOException the io exception
+   */
+  @AfterEach
+  void tearDown() throws IOException {
+    try (Stream<Path> paths = Files.walk(directory)) {
+      for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+        Files.delete(path);
+      }
+    }
+  }
+
+  /**
+   * Test the file is rolled once it passes the size limit and only the newest files are kept.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testRolls() throws IOException {
+    Path file = directory.resolve("server.log");
+    RollingFileAppender appender = new RollingFileAppender(file, 10, 2);
+    for (int i = 0; i < 4; i++) {
+      appender.append(List.of(new LogEvent(0, LogLevel.INFO, "main", "event " + i)));
+    }
+    appender.append(List.of(new LogEvent(0, LogLevel.INFO, "main", "a"),
+        new LogEvent(0, LogLevel.INFO, "main", "b")));
+    appender.close();
+    // Every batch is over the limit, so each was rolled straight away
+    assertEquals(0, Files.size(file));
+    String newest = Files.readString(appender.rolled(1), StandardCharsets.UTF_8);
+    assertTrue(newest.contains("[main] a"));
+    assertTrue(newest.contains("[main] b"));
+    assertTrue(Files.readString(appender.rolled(2), StandardCharsets.UTF_8).contains("event 3"));
+    assertFalse(Files.exists(appender.rolled(3)));
+  }
+
+  /**
+   * Test events are appended to an existing file.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testAppendsToExistingFile() throws IOException {
+    Path file = directory.resolve("nested").resolve("server.log");
+    RollingFileAppender appender = new RollingFileAppender(file);
+    appender.append(List.of(new LogEvent(0, LogLevel.INFO, "main", "one")));
+    appender.close();
+    appender = new RollingFileAppender(file);
+    appender.append(List.of(new LogEvent(0, LogLevel.INFO, "main", "two")));
+    appender.close();
+    List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+    assertEquals(2, lines.size());
+    assertTrue(lines.get(1).endsWith("two"));
+  }
+}
@@ -0,0 +1,85 @@
+package metrics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The type Latency histogram test.
+ */
+class LatencyHistogramTest {
+
+  /**
+   * Test an empty histogram.
+   */
+  @Test
+  void testEmpty() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    assertEquals(0, histogram.count());
+    assertEquals(0, histogram.percentile(99));
+    assertEquals(0, histogram.mean());
+  }
+
+  /**
+   * Test small values are counted exactly.
+   */
+  @Test
+  void testSmallValuesExact() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 1; i <= 100; i++) {
+      histogram.record(i);
+    }
+    assertEquals(100, histogram.count());
+    assertEquals(50, histogram.percentile(50));
+    assertEquals(99, histogram.percentile(99));
+    assertEquals(100, histogram.percentile(100));
+    assertEquals(100, histogram.max());
+    assertEquals(50.5, histogram.mean());
+  }
+
+  /**
+   * Test percentiles of large values are within the bucket precision.
+   */
+  @Test
+  void testPrecision() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (long i = 1; i <= 10_000; i++) {
+      histogram.record(i * 1_000);
+    }
+    for (double percentile : new double[]{50, 90, 99, 99.9}) {
+      double expected = percentile / 100 * 10_000_000;
+      long actual = histogram.percentile(percentile);
+      assertTrue(actual >= expected && actual <= expected * 1.016,
+          percentile + ": " + actual);
+    }
+    assertEquals(10_000_000, histogram.percentile(100));
+  }
+
+  /**
+   * Test every value maps to a bucket whose range contains it.
+   */
+  @Test
+  void testBuckets() {
+    long[] values = {0, 1, 127, 128, 129, 255, 256, 1_000_000, Long.MAX_VALUE / 3,
+        Long.MAX_VALUE};
+    for (long value : values) {
+      int index = LatencyHistogram.indexOf(value);
+      assertTrue(LatencyHistogram.highestValueAt(index) >= value);
+      assertTrue(index == 0 || LatencyHistogram.highestValueAt(index - 1) < value);
+    }
+  }
+
+  /**
+   * Test negative values count as zero and reset clears everything.
+   */
+  @Test
+  void testNegativeAndReset() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(-5);
+    assertEquals(0, histogram.max());
+    assertEquals(1, histogram.count());
+    histogram.reset();
+    assertEquals(0, histogram.count());
+    assertTrue(histogram.summary().startsWith("count=0 "));
+  }
+}
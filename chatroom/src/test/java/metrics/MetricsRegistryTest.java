@@ -0,0 +1,60 @@
+package metrics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.atomic.LongAdder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The type Metrics registry test.
+ */
+class MetricsRegistryTest {
+
+  private MetricsRegistry registry;
+
+  /**
+   * Sets up.
+   */
+  @BeforeEach
+  void setUp() {
+    registry = new MetricsRegistry();
+  }
+
+  /**
+   * Test the same name returns the same counter.
+   */
+  @Test
+  void testCounterIsShared() {
+    LongAdder counter = registry.counter("requests_total");
+    counter.increment();
+    assertSame(counter, registry.counter("requests_total"));
+    assertEquals(1, registry.counter("requests_total").sum());
+  }
+
+  /**
+   * Test a name cannot be reused for another kind of metric.
+   */
+  @Test
+  void testNameClash() {
+    registry.counter("latency");
+    assertThrows(IllegalArgumentException.class, () -> registry.histogram("latency"));
+  }
+
+  /**
+   * Test render.
+   */
+  @Test
+  void testRender() {
+    registry.counter("b_total").add(3);
+    registry.gauge("a_active", () -> 7);
+    LatencyHistogram histogram = registry.histogram("c_nanos");
+    histogram.record(100);
+    histogram.record(100);
+    String text = registry.render();
+    assertTrue(text.startsWith("a_active 7\nb_total 3\n"));
+    assertTrue(text.contains("c_nanos{quantile=\"0.5\"} 100\n"));
+    assertTrue(text.contains("c_nanos_max 100\n"));
+    assertTrue(text.contains("c_nanos_count 2\n"));
+  }
+}
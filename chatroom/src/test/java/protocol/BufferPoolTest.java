@@ -0,0 +1,69 @@
+package protocol;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.ByteBuffer;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The type Buffer pool test.
+ */
+class BufferPoolTest {
+
+  /**
+   * Test released buffers are reused cleared.
+   */
+  @Test
+  void testReuse() {
+    BufferPool pool = new BufferPool(64, 4, true);
+    ByteBuffer buffer = pool.acquire();
+    assertTrue(buffer.isDirect());
+    assertEquals(64, buffer.capacity());
+    buffer.putInt(42).flip();
+    pool.release(buffer);
+    assertEquals(1, pool.idleCount());
+
+    ByteBuffer again = pool.acquire();
+    assertSame(buffer, again);
+    assertEquals(0, again.position());
+    assertEquals(64, again.limit());
+    assertEquals(0, pool.idleCount());
+  }
+
+  /**
+   * Test large buffers are allocated but not pooled.
+   */
+  @Test
+  void testLargeBuffersNotPooled() {
+    BufferPool pool = new BufferPool(64, 4, false);
+    ByteBuffer small = pool.acquire(10);
+    assertEquals(64, small.capacity());
+    ByteBuffer large = pool.acquire(100);
+    assertEquals(100, large.capacity());
+    assertFalse(large.isDirect());
+    pool.release(large);
+    pool.release(ByteBuffer.allocateDirect(64));
+    pool.release(null);
+    assertEquals(0, pool.idleCount());
+  }
+
+  /**
+   * Test the pool keeps at most max pooled idle buffers.
+   */
+  @Test
+  void testMaxPooled() {
+    BufferPool pool = new BufferPool(16, 2, false);
+    pool.release(pool.acquire());
+    pool.release(ByteBuffer.allocate(16));
+    pool.release(ByteBuffer.allocate(16));
+    assertEquals(2, pool.idleCount());
+  }
+
+  /**
+   * Test invalid buffer size.
+   */
+  @Test
+  void testInvalidBufferSize() {
+    assertThrows(IllegalArgumentException.class, () -> new BufferPool(0, 1, false));
+  }
+}
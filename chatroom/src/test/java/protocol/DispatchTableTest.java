@@ -0,0 +1,80 @@
+package protocol;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The type Dispatch table test.
+ */
+class DispatchTableTest {
+
+  private DispatchTable<List<String>, String> table;
+  private List<String> handled;
+
+  /**
+   * Sets up.
+   */
+  @BeforeEach
+  void setUp() {
+    handled = new ArrayList<>();
+    table = new DispatchTable<List<String>, String>((target, message, argument) -> {
+      target.add("unknown " + message.getMessageType());
+      return false;
+    })
+        .register(MessageType.BROADCAST_MESSAGE, BroadcastMessage.class,
+            (target, broadcast, argument) -> {
+              target.add(argument + ": " + broadcast.getMessage());
+              return true;
+            })
+        .register(MessageType.QUERY_USER_RESPONSE, QueryUsersResponse.class,
+            (target, response, argument) -> {
+              target.add("users " + response.getConnectedUsers());
+              return true;
+            });
+  }
+
+  /**
+   * Test each message goes to the handler for its type, with the target and argument.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testDispatch() throws IOException {
+    assertTrue(table.dispatch(handled, new BroadcastMessage("alice", "hi"), "room"));
+    assertTrue(table.dispatch(handled, new QueryUsersResponse(List.of("bob")), null));
+    assertEquals(List.of("room: hi", "users [bob]"), handled);
+    assertTrue(table.isRegistered(MessageType.BROADCAST_MESSAGE));
+    assertFalse(table.isRegistered(MessageType.DIRECT_MESSAGE));
+    assertFalse(table.isRegistered(null));
+  }
+
+  /**
+   * Test messages without a handler of their own go to the fallback, including a subclass
+   * whose type was not registered even though its parent class was.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testFallback() throws IOException {
+    assertFalse(table.dispatch(handled, new DirectMessage("a", "b", "hi"), null));
+    assertFalse(table.dispatch(handled, new PresenceSnapshot(List.of("bob")), null));
+    assertEquals(List.of("unknown DIRECT_MESSAGE", "unknown PRESENCE_SNAPSHOT"), handled);
+  }
+
+  /**
+   * Test a type can only be registered once.
+   */
+  @Test
+  void testDuplicateRegistration() {
+    IllegalStateException e = assertThrows(IllegalStateException.class,
+        () -> table.register(MessageType.BROADCAST_MESSAGE, BroadcastMessage.class,
+            (target, broadcast, argument) -> true));
+    assertEquals(DispatchTable.DUPLICATE_HANDLER_ERROR + MessageType.BROADCAST_MESSAGE,
+        e.getMessage());
+  }
+}
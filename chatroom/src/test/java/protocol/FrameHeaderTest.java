@@ -0,0 +1,167 @@
+package protocol;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The type Frame header test.
+ */
+class FrameHeaderTest {
+
+  // A framed frame of a type no reader knows, carrying a few bytes of payload
+  private static byte[] unknownFrame() {
+    ByteBuffer buffer = ByteBuffer.allocate(FrameHeader.LENGTH + 10);
+    FrameHeader.put(buffer, buffer.capacity());
+    buffer.putInt(999).putInt(42).putShort((short) 7);
+    return buffer.array();
+  }
+
+  private static byte[] concat(byte[]... parts) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    for (byte[] part : parts) {
+      bytes.writeBytes(part);
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Test the header layout, and that legacy frames are told apart by their first byte.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testHeader() throws IOException {
+    byte[] framed = new ConnectMessage("alice").encode(WireFormat.FRAMED);
+    ByteBuffer buffer = ByteBuffer.wrap(framed);
+    assertEquals(FrameHeader.MAGIC, buffer.get(0));
+    assertEquals(FrameHeader.VERSION, buffer.get(1));
+    assertEquals(0, buffer.getShort(2));
+    assertEquals(framed.length, buffer.getInt(4));
+    assertEquals(Message.CONNECT_MESSAGE_CODE, buffer.getInt(FrameHeader.LENGTH));
+    assertTrue(FrameHeader.isFramed(buffer.getInt(0)));
+    assertEquals(framed.length, FrameHeader.peekFrameLength(buffer));
+    assertEquals(0, buffer.position());
+
+    ByteBuffer legacy = ByteBuffer.wrap(new ConnectMessage("alice").encode());
+    assertFalse(FrameHeader.isFramed(legacy.getInt(0)));
+    assertEquals(-1, FrameHeader.peekFrameLength(legacy));
+  }
+
+  /**
+   * Test a frame is only taken once all of it has arrived.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testPartialFrame() throws IOException {
+    byte[] framed = new DirectMessage("a", "b", "hello").encode(WireFormat.FRAMED);
+    for (int length = 0; length < framed.length; length++) {
+      ByteBuffer partial = ByteBuffer.wrap(framed, 0, length);
+      assertThrows(EOFException.class, () -> Message.decodeFromBuffer(partial));
+    }
+  }
+
+  /**
+   * Test frames of an unknown type are skipped whole by every decoder.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testUnknownTypeSkipped() throws IOException {
+    BroadcastMessage broadcast = new BroadcastMessage("alice", "hi");
+    byte[] bytes = concat(unknownFrame(), broadcast.encode(WireFormat.FRAMED), unknownFrame(),
+        broadcast.encode());
+    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    assertEquals(broadcast, Message.decodeFromBuffer(buffer));
+    assertEquals(broadcast, RoutingView.decodeFromBuffer(buffer).getMessage());
+    assertFalse(buffer.hasRemaining());
+
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+    assertEquals(broadcast, Message.decodeFromStream(in));
+    assertEquals(broadcast, Message.decodeFromStream(in));
+    FrameInputStream limited = new FrameInputStream(new ByteArrayInputStream(bytes),
+        FrameLimits.DEFAULT);
+    assertEquals(broadcast, RoutingView.decodeFromStream(limited).getMessage());
+    assertEquals(broadcast, RoutingView.decodeFromStream(limited).getMessage());
+  }
+
+  /**
+   * Test unknown versions and lengths that disagree with the frame are rejected.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testInvalidFrames() throws IOException {
+    byte[] framed = new ConnectMessage("alice").encode(WireFormat.FRAMED);
+    byte[] badVersion = framed.clone();
+    badVersion[1] = 3;
+    IOException e = assertThrows(IOException.class,
+        () -> Message.decodeFromBuffer(ByteBuffer.wrap(badVersion)));
+    assertEquals(FrameHeader.UNSUPPORTED_VERSION_ERROR, e.getMessage());
+
+    // One byte longer than the fields, so a byte is left over
+    byte[] tooLong = concat(framed, new byte[1]);
+    ByteBuffer.wrap(tooLong).putInt(4, tooLong.length);
+    e = assertThrows(IOException.class,
+        () -> Message.decodeFromBuffer(ByteBuffer.wrap(tooLong)));
+    assertEquals(FrameHeader.INVALID_FRAME_LENGTH_ERROR, e.getMessage());
+    assertThrows(IOException.class, () -> Message.decodeFromStream(
+        new DataInputStream(new ByteArrayInputStream(tooLong))));
+    assertThrows(IOException.class, () -> Message.decodeFromStream(
+        new FrameInputStream(new ByteArrayInputStream(tooLong), FrameLimits.DEFAULT)));
+
+    // Shorter than a header and a type code
+    byte[] tooShort = framed.clone();
+    ByteBuffer.wrap(tooShort).putInt(4, FrameHeader.LENGTH);
+    e = assertThrows(IOException.class,
+        () -> Message.decodeFromBuffer(ByteBuffer.wrap(tooShort)));
+    assertEquals(FrameHeader.INVALID_FRAME_LENGTH_ERROR, e.getMessage());
+  }
+
+  /**
+   * Test a framed frame over the frame limit is rejected from its header alone.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testFrameLimit() throws IOException {
+    byte[] framed = new BroadcastMessage("alice", "hello").encode(WireFormat.FRAMED);
+    FrameInputStream in = new FrameInputStream(new ByteArrayInputStream(framed),
+        new FrameLimits(framed.length - 1, 64));
+    assertThrows(IOException.class, () -> Message.decodeFromStream(in));
+    assertTrue(in.isOversized());
+    assertEquals(FrameHeader.LENGTH, framed.length - in.available());
+  }
+
+  /**
+   * Test the framed copy of a frame is made once.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testFramedFrame() throws IOException {
+    BroadcastMessage broadcast = new BroadcastMessage("alice", "hello");
+    Frame frame = Frame.of(broadcast);
+    assertSame(frame, frame.inFormat(WireFormat.LEGACY));
+    assertSame(frame.framed(), frame.inFormat(WireFormat.FRAMED));
+    assertSame(frame.framed(), frame.framed().framed());
+    assertEquals(Frame.wrap(broadcast.encode(WireFormat.FRAMED)), frame.framed());
+  }
+
+  /**
+   * Test wire format arguments.
+   */
+  @Test
+  void testWireFormatFromArgument() {
+    assertEquals(WireFormat.FRAMED, WireFormat.fromArgument("Framed"));
+    assertEquals(WireFormat.LEGACY, WireFormat.fromArgument(WireFormat.LEGACY.getArgument()));
+    assertNull(WireFormat.fromArgument("json"));
+  }
+}
@@ -0,0 +1,118 @@
+package protocol;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The type Frame input stream test.
+ */
+class FrameInputStreamTest {
+
+  private static FrameInputStream stream(FrameLimits limits, byte[]... frames) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    for (byte[] frame : frames) {
+      bytes.writeBytes(frame);
+    }
+    return new FrameInputStream(new ByteArrayInputStream(bytes.toByteArray()), limits);
+  }
+
+  // A direct message header whose body claims the given length, with no body after it
+  private static byte[] header(int bodyLength) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeInt(MessageType.DIRECT_MESSAGE.getValue());
+    out.writeInt(1);
+    out.writeByte('a');
+    out.writeInt(1);
+    out.writeByte('b');
+    out.writeInt(bodyLength);
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Test frames within the limits decode, each charged against its own budget.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testFramesWithinLimits() throws IOException {
+    byte[] frame = new BroadcastMessage("alice", "hello").encode();
+    FrameInputStream in = stream(new FrameLimits(frame.length, 8), frame, frame, frame);
+    for (int i = 0; i < 3; i++) {
+      assertEquals(new BroadcastMessage("alice", "hello"), Message.decodeFromStream(in));
+      assertEquals(0, in.remaining());
+    }
+    assertFalse(in.isOversized());
+  }
+
+  /**
+   * Test a field over the field limit is rejected from its length alone.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testFieldOverLimit() throws IOException {
+    FrameInputStream in = stream(new FrameLimits(1024, 16), header(17));
+    IOException e = assertThrows(IOException.class, () -> RoutingView.decodeFromStream(in));
+    assertEquals(FrameInputStream.FRAME_TOO_LARGE_ERROR, e.getMessage());
+    assertTrue(in.isOversized());
+  }
+
+  /**
+   * Test a field that fits the field limit but not what is left of the frame is rejected.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testFrameOverLimit() throws IOException {
+    FrameInputStream in = stream(new FrameLimits(32, 32), header(31));
+    assertThrows(IOException.class, () -> Message.decodeFromStream(in));
+    assertTrue(in.isOversized());
+  }
+
+  /**
+   * Test a list is cut off once its entries use up the frame, whatever count it claims.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testListOverLimit() throws IOException {
+    byte[] frame = new QueryUsersResponse(List.of("a", "b", "c", "d")).encode();
+    FrameInputStream in = stream(new FrameLimits(frame.length - 1, 8), frame);
+    assertThrows(IOException.class, () -> Message.decodeFromStream(in));
+    assertTrue(in.isOversized());
+  }
+
+  /**
+   * Test other streams are held to the default field limit.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testDefaultFieldLimit() throws IOException {
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+        header(FrameLimits.DEFAULT_MAX_FIELD_LENGTH + 1)));
+    IOException e = assertThrows(IOException.class, () -> Message.decodeFromStream(in));
+    assertEquals(FrameInputStream.FRAME_TOO_LARGE_ERROR, e.getMessage());
+  }
+
+  /**
+   * Test the field limit never exceeds the frame limit.
+   */
+  @Test
+  void testFrameLimits() {
+    assertEquals(64, new FrameLimits(64, 1024).getMaxFieldLength());
+    assertThrows(IllegalArgumentException.class, () -> new FrameLimits(0, 1));
+    assertEquals(new FrameLimits(64, 64), new FrameLimits(64, 1024));
+    assertEquals(new FrameLimits(64, 64).hashCode(), new FrameLimits(64, 1024).hashCode());
+    assertEquals("FrameLimits{maxFrameLength=64, maxFieldLength=64}",
+        new FrameLimits(64, 64).toString());
+  }
+}
@@ -0,0 +1,99 @@
+package protocol;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The type Frame test.
+ */
+class FrameTest {
+
+  private BroadcastMessage message;
+  private Frame frame;
+
+  /**
+   * Sets up.
+   *
+   * @throws IOException the io exception
+   */
+  @BeforeEach
+  void setUp() throws IOException {
+    message = new BroadcastMessage("testUser", "Hello, W\u00f6rld!");
+    frame = Frame.of(message);
+  }
+
+  /**
+   * Send to stream test.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void sendToStreamTest() throws IOException {
+    ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+    DataOutputStream dataOut = new DataOutputStream(byteArrayOutputStream);
+    // The same frame can be written any number of times
+    frame.sendToStream(dataOut);
+    frame.sendToStream(dataOut);
+
+    DataInputStream dataIn = new DataInputStream(
+        new ByteArrayInputStream(byteArrayOutputStream.toByteArray()));
+    assertEquals(message, Message.decodeFromStream(dataIn));
+    assertEquals(message, Message.decodeFromStream(dataIn));
+    assertEquals(-1, dataIn.read());
+  }
+
+  /**
+   * Length test.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void lengthTest() throws IOException {
+    assertEquals(message.encode().length, frame.length());
+  }
+
+  /**
+   * As byte buffer test.
+   */
+  @Test
+  void asByteBufferTest() {
+    ByteBuffer first = frame.asByteBuffer();
+    assertTrue(first.isReadOnly());
+    assertEquals(frame.length(), first.remaining());
+    first.position(first.limit());
+    // Each view has its own position
+    assertEquals(frame.length(), frame.asByteBuffer().remaining());
+  }
+
+  /**
+   * Equal test.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void equalTest() throws IOException {
+    assertEquals(frame, frame);
+    assertEquals(frame, Frame.of(new BroadcastMessage("testUser", "Hello, W\u00f6rld!")));
+    assertNotEquals(frame, Frame.of(new BroadcastMessage("testUser", "Bye")));
+    assertNotEquals(frame, null);
+    assertNotEquals(frame, new Object());
+    assertEquals(frame.hashCode(),
+        Frame.of(new BroadcastMessage("testUser", "Hello, W\u00f6rld!")).hashCode());
+  }
+
+  /**
+   * To string test.
+   */
+  @Test
+  void toStringTest() {
+    assertEquals("Frame [length=" + frame.length() + "]", frame.toString());
+  }
+}
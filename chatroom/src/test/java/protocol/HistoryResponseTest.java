@@ -0,0 +1,95 @@
+package protocol;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The type History response test.
+ */
+class HistoryResponseTest {
+
+  private HistoryResponse response;
+  private HistoryResponse response2;
+
+  /**
+   * Sets up.
+   */
+  @BeforeEach
+  void setUp() {
+    response = new HistoryResponse("general", 3);
+    response2 = new HistoryResponse("general", 3);
+  }
+
+  /**
+   * Encode and decode.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void encodeAndDecode() throws IOException {
+    ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+    DataOutputStream dataOut = new DataOutputStream(byteArrayOutputStream);
+    response.encode(dataOut);
+    dataOut.flush();
+
+    // Decode the message
+    ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(
+        byteArrayOutputStream.toByteArray());
+    DataInputStream dataIn = new DataInputStream(byteArrayInputStream);
+    Message decodedMessage = Message.decodeFromStream(dataIn);
+
+    // Assert: Validate the integrity of the decoded message
+    assertInstanceOf(HistoryResponse.class, decodedMessage);
+    HistoryResponse resultMessage = (HistoryResponse) decodedMessage;
+    assertEquals("general", resultMessage.getRoomName());
+    assertEquals(3, resultMessage.getCount());
+    assertEquals(MessageType.HISTORY_RESPONSE, resultMessage.getMessageType());
+  }
+
+  /**
+   * Test the buffer encoding matches the stream encoding.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testEncodeToBuffer() throws IOException {
+    byte[] encoded = response.encode();
+    assertEquals(response.encodedLength(), encoded.length);
+    assertEquals(response, Message.decodeFromBuffer(ByteBuffer.wrap(encoded)));
+  }
+
+  /**
+   * Test to string.
+   */
+  @Test
+  void testToString() {
+    assertEquals(response.toString(), response2.toString());
+  }
+
+  /**
+   * Test equals.
+   */
+  @Test
+  void testEquals() {
+    assertEquals(response, response2);
+    assertNotEquals(response, new HistoryResponse("general", 2));
+    assertNotEquals(response, null);
+    assertNotEquals(response, new Object());
+  }
+
+  /**
+   * Test hash code.
+   */
+  @Test
+  void testHashCode() {
+    assertEquals(response.hashCode(), response2.hashCode());
+  }
+}
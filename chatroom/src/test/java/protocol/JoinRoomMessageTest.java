@@ -0,0 +1,82 @@
+package protocol;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The type Join room message test.
+ */
+class JoinRoomMessageTest {
+
+  private JoinRoomMessage joinRoomMessage;
+  private JoinRoomMessage joinRoomMessage2;
+
+  /**
+   * Sets up.
+   */
+  @BeforeEach
+  void setUp() {
+    joinRoomMessage = new JoinRoomMessage("testUser", "general");
+    joinRoomMessage2 = new JoinRoomMessage("testUser", "general");
+  }
+
+  /**
+   * Encode and decode.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void encodeAndDecode() throws IOException {
+    ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+    DataOutputStream dataOut = new DataOutputStream(byteArrayOutputStream);
+    joinRoomMessage.encode(dataOut);
+    dataOut.flush();
+
+    // Decode the message
+    ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(
+        byteArrayOutputStream.toByteArray());
+    DataInputStream dataIn = new DataInputStream(byteArrayInputStream);
+    Message decodedMessage = Message.decodeFromStream(dataIn);
+
+    // Assert: Validate the integrity of the decoded message
+    assertInstanceOf(JoinRoomMessage.class, decodedMessage);
+    JoinRoomMessage resultMessage = (JoinRoomMessage) decodedMessage;
+    assertEquals("testUser", resultMessage.getUsername());
+    assertEquals("general", resultMessage.getRoomName());
+    assertEquals(MessageType.JOIN_ROOM, resultMessage.getMessageType());
+  }
+
+  /**
+   * Test to string.
+   */
+  @Test
+  void testToString() {
+    assertEquals(joinRoomMessage.toString(), joinRoomMessage2.toString());
+  }
+
+  /**
+   * Test equals.
+   */
+  @Test
+  void testEquals() {
+    assertEquals(joinRoomMessage, joinRoomMessage2);
+    assertNotEquals(joinRoomMessage, new JoinRoomMessage("testUser", "other"));
+    assertNotEquals(joinRoomMessage, null);
+    assertNotEquals(joinRoomMessage, new Object());
+  }
+
+  /**
+   * Test hash code.
+   */
+  @Test
+  void testHashCode() {
+    assertEquals(joinRoomMessage.hashCode(), joinRoomMessage2.hashCode());
+  }
+}
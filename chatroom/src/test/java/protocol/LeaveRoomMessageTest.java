@@ -0,0 +1,82 @@
+package protocol;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The type Leave room message test.
+ */
+class LeaveRoomMessageTest {
+
+  private LeaveRoomMessage leaveRoomMessage;
+  private LeaveRoomMessage leaveRoomMessage2;
+
+  /**
+   * Sets up.
+   */
+  @BeforeEach
+  void setUp() {
+    leaveRoomMessage = new LeaveRoomMessage("testUser", "general");
+    leaveRoomMessage2 = new LeaveRoomMessage("testUser", "general");
+  }
+
+  /**
+   * Encode and decode.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void encodeAndDecode() throws IOException {
+    ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+    DataOutputStream dataOut = new DataOutputStream(byteArrayOutputStream);
+    leaveRoomMessage.encode(dataOut);
+    dataOut.flush();
+
+    // Decode the message
+    ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(
+        byteArrayOutputStream.toByteArray());
+    DataInputStream dataIn = new DataInputStream(byteArrayInputStream);
+    Message decodedMessage = Message.decodeFromStream(dataIn);
+
+    // Assert: Validate the integrity of the decoded message
+    assertInstanceOf(LeaveRoomMessage.class, decodedMessage);
+    LeaveRoomMessage resultMessage = (LeaveRoomMessage) decodedMessage;
+    assertEquals("testUser", resultMessage.getUsername());
+    assertEquals("general", resultMessage.getRoomName());
+    assertEquals(MessageType.LEAVE_ROOM, resultMessage.getMessageType());
+  }
+
+  /**
+   * Test to string.
+   */
+  @Test
+  void testToString() {
+    assertEquals(leaveRoomMessage.toString(), leaveRoomMessage2.toString());
+  }
+
+  /**
+   * Test equals.
+   */
+  @Test
+  void testEquals() {
+    assertEquals(leaveRoomMessage, leaveRoomMessage2);
+    assertNotEquals(leaveRoomMessage, new LeaveRoomMessage("testUser", "other"));
+    assertNotEquals(leaveRoomMessage, null);
+    assertNotEquals(leaveRoomMessage, new Object());
+  }
+
+  /**
+   * Test hash code.
+   */
+  @Test
+  void testHashCode() {
+    assertEquals(leaveRoomMessage.hashCode(), leaveRoomMessage2.hashCode());
+  }
+}
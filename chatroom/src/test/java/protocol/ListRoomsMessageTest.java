@@ -0,0 +1,83 @@
+package protocol;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The type List rooms message test.
+ */
+class ListRoomsMessageTest {
+
+  private ListRoomsMessage listRoomsMessage;
+  private ListRoomsMessage listRoomsMessage2;
+  private String username;
+
+  /**
+   * Sets up.
+   */
+  @BeforeEach
+  void setUp() {
+    username = "testUser";
+    listRoomsMessage = new ListRoomsMessage(username);
+    listRoomsMessage2 = new ListRoomsMessage(username);
+  }
+
+  /**
+   * Encode and decode.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void encodeAndDecode() throws IOException {
+    ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+    DataOutputStream dataOut = new DataOutputStream(byteArrayOutputStream);
+    listRoomsMessage.encode(dataOut);
+    dataOut.flush();
+
+    // Decode the message
+    ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(
+        byteArrayOutputStream.toByteArray());
+    DataInputStream dataIn = new DataInputStream(byteArrayInputStream);
+    Message decodedMessage = Message.decodeFromStream(dataIn);
+
+    // Assert: Validate the integrity of the decoded message
+    assertInstanceOf(ListRoomsMessage.class, decodedMessage);
+    ListRoomsMessage resultMessage = (ListRoomsMessage) decodedMessage;
+    assertEquals(listRoomsMessage.getUsername(), resultMessage.getUsername());
+    assertEquals(listRoomsMessage.getMessageType(), resultMessage.getMessageType());
+  }
+
+  /**
+   * Test to string.
+   */
+  @Test
+  void testToString() {
+    assertEquals(listRoomsMessage.toString(), listRoomsMessage2.toString());
+  }
+
+  /**
+   * Test equals.
+   */
+  @Test
+  void testEquals() {
+    assertEquals(listRoomsMessage, listRoomsMessage);
+    assertEquals(listRoomsMessage, listRoomsMessage2);
+    assertNotEquals(listRoomsMessage, null);
+    assertNotEquals(listRoomsMessage, new Object());
+  }
+
+  /**
+   * Test hash code.
+   */
+  @Test
+  void testHashCode() {
+    assertEquals(listRoomsMessage.hashCode(), listRoomsMessage2.hashCode());
+  }
+}
\ No newline at end of file
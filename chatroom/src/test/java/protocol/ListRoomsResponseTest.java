@@ -0,0 +1,88 @@
+package protocol;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The type List rooms response test.
+ */
+class ListRoomsResponseTest {
+
+  private List<String> roomNames;
+  private ListRoomsResponse listRoomsResponse;
+  private ListRoomsResponse listRoomsResponse2;
+
+  /**
+   * Sets up.
+   */
+  @BeforeEach
+  void setUp() {
+    roomNames = new ArrayList<>();
+    roomNames.add("room1");
+    roomNames.add("room2");
+    roomNames.add("room3");
+    listRoomsResponse = new ListRoomsResponse(roomNames);
+    listRoomsResponse2 = new ListRoomsResponse(roomNames);
+  }
+
+  /**
+   * Encode and decode.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void encodeAndDecode() throws IOException {
+    ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+    DataOutputStream dataOut = new DataOutputStream(byteArrayOutputStream);
+    listRoomsResponse.encode(dataOut);
+    dataOut.flush();
+
+    // Decode the message
+    ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(
+        byteArrayOutputStream.toByteArray());
+    DataInputStream dataIn = new DataInputStream(byteArrayInputStream);
+    Message decodedMessage = Message.decodeFromStream(dataIn);
+
+    // Assert: Validate the integrity of the decoded message
+    assertInstanceOf(ListRoomsResponse.class, decodedMessage);
+    ListRoomsResponse resultMessage = (ListRoomsResponse) decodedMessage;
+    assertEquals(listRoomsResponse.getRoomNames(), resultMessage.getRoomNames());
+    assertEquals(listRoomsResponse.getMessageType(), resultMessage.getMessageType());
+  }
+
+  /**
+   * Test to string.
+   */
+  @Test
+  void testToString() {
+    assertEquals(listRoomsResponse.toString(), listRoomsResponse2.toString());
+  }
+
+  /**
+   * Test equals.
+   */
+  @Test
+  void testEquals() {
+    assertEquals(listRoomsResponse, listRoomsResponse);
+    assertEquals(listRoomsResponse, listRoomsResponse2);
+    assertNotEquals(listRoomsResponse2, null);
+    assertNotEquals(listRoomsResponse, new Object());
+  }
+
+  /**
+   * Test hash code.
+   */
+  @Test
+  void testHashCode() {
+    assertEquals(listRoomsResponse.hashCode(), listRoomsResponse2.hashCode());
+  }
+}
\ No newline at end of file
@@ -0,0 +1,92 @@
+package protocol;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The type Message pool test.
+ */
+class MessagePoolTest {
+
+  private MessagePool pool;
+
+  /**
+   * Sets up.
+   */
+  @BeforeEach
+  void setUp() {
+    pool = new MessagePool();
+  }
+
+  /**
+   * Test each type gets one instance, decoded into again for every message of that type.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testOneInstancePerType() throws IOException {
+    Message join = decode(new JoinRoomMessage("alice", "general"));
+    Message query = decode(new QueryUsersMessage("alice"));
+    assertNotSame(join, query);
+    Message again = decode(new JoinRoomMessage("bob", "lobby"));
+    assertSame(join, again);
+    assertEquals(new JoinRoomMessage("bob", "lobby"), again);
+    assertEquals(2, pool.getCreatedCount());
+    assertEquals(1, pool.getReusedCount());
+  }
+
+  /**
+   * Test release resets only the pool's own instances.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testRelease() throws IOException {
+    JoinRoomMessage pooled = (JoinRoomMessage) decode(new JoinRoomMessage("alice", "general"));
+    pool.release(pooled);
+    assertNull(pooled.getUsername());
+    assertNull(pooled.getRoomName());
+
+    JoinRoomMessage other = new JoinRoomMessage("bob", "lobby");
+    pool.release(other);
+    assertEquals("bob", other.getUsername());
+    pool.release((Message) null);
+  }
+
+  /**
+   * Test a routing view only takes a message from the pool for a type it has to decode.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testRoutingView() throws IOException {
+    RoutingView direct = RoutingView.decodeFromBuffer(
+        ByteBuffer.wrap(new DirectMessage("alice", "bob", "hi").encode()), pool);
+    assertTrue(direct.isRoutable());
+    pool.release(direct);
+    assertEquals(0, pool.getCreatedCount());
+
+    RoutingView join = RoutingView.decodeFromBuffer(
+        ByteBuffer.wrap(new JoinRoomMessage("alice", "general").encode(WireFormat.FRAMED)),
+        pool);
+    assertEquals(new JoinRoomMessage("alice", "general"), join.getMessage());
+    pool.release(join);
+    assertNull(((JoinRoomMessage) join.getMessage()).getUsername());
+
+    // The legacy frame after a framed one reuses the view, in its own format
+    RoutingView again = RoutingView.decodeFromBuffer(
+        ByteBuffer.wrap(new JoinRoomMessage("bob", "lobby").encode()), pool);
+    assertSame(join, again);
+    assertEquals(WireFormat.LEGACY, again.getWireFormat());
+    assertEquals(new JoinRoomMessage("bob", "lobby"), again.getMessage());
+    assertEquals(1, pool.getCreatedCount());
+  }
+
+  private Message decode(Message message) throws IOException {
+    return Message.decodeFromBuffer(ByteBuffer.wrap(message.encode()), pool);
+  }
+}
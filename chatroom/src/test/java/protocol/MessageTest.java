@@ -2,6 +2,8 @@ package protocol;
 
 import org.junit.jupiter.api.Test;
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -92,4 +94,174 @@ public class MessageTest {
       Message.decodeFromStream(dataIn);
     });
   }
+
+  private static final String MULTI_BYTE = "h\u00e9llo \u4f60\u597d \ud83d\ude00";
+
+  /**
+   * Test decoding into a pool reuses one instance per type, and that a released message is
+   * reset to the state of a new one.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testPooledDecode() throws IOException {
+    MessagePool pool = new MessagePool();
+    for (Message message : allMessages()) {
+      byte[] encoded = message.encode();
+      Message first = Message.decodeFromBuffer(ByteBuffer.wrap(encoded), pool);
+      assertEquals(message, first);
+      pool.release(first);
+      assertEquals(Message.newMessage(message.getMessageType()), first, message.toString());
+
+      Message second = Message.decodeFromStream(
+          new DataInputStream(new ByteArrayInputStream(encoded)), pool);
+      assertSame(first, second);
+      assertEquals(message, second);
+    }
+    // The second broadcast reuses the first one's instance as well
+    assertEquals(MessageType.values().length, pool.getCreatedCount());
+    assertEquals(allMessages().size() * 2L - MessageType.values().length,
+        pool.getReusedCount());
+  }
+
+  private static List<Message> allMessages() {
+    return List.of(
+        new ConnectMessage("testUser"),
+        new ConnectResponse(true, MULTI_BYTE),
+        new DisconnectMessage("testUser"),
+        new QueryUsersMessage("testUser"),
+        new QueryUsersResponse(List.of("a", MULTI_BYTE, "")),
+        new BroadcastMessage("testUser", MULTI_BYTE),
+        new DirectMessage("testUser", "other", MULTI_BYTE),
+        new FailedMessage(MULTI_BYTE),
+        new SendInsultMessage("testUser", "other"),
+        new JoinRoomMessage("testUser", MULTI_BYTE),
+        new LeaveRoomMessage("testUser", "general"),
+        new ListRoomsMessage("testUser"),
+        new ListRoomsResponse(List.of("general", MULTI_BYTE)),
+        new RoomMessage("testUser", "general", MULTI_BYTE),
+        new QueryUsersPageMessage("testUser", MULTI_BYTE, "", 20),
+        new QueryUsersPageResponse("a", "alice", List.of("aaron", MULTI_BYTE)),
+        new SubscribePresenceMessage("testUser", true),
+        new PresenceSnapshot(List.of("alice", MULTI_BYTE)),
+        new PresenceUpdate(MULTI_BYTE, false),
+        new QueryHistoryMessage("testUser", MULTI_BYTE, 20, 1234567890123L),
+        new HistoryResponse(MULTI_BYTE, 3),
+        // A lone surrogate is written as '?' by both codecs
+        new BroadcastMessage("testUser", "bad \ud83d surrogate"));
+  }
+
+  private static byte[] encodeWithStream(Message message) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    message.encode(new DataOutputStream(bytes));
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Test the buffer codec writes the same bytes as the stream codec.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  public void testBufferEncodingMatchesStreamEncoding() throws IOException {
+    for (Message message : allMessages()) {
+      byte[] expected = encodeWithStream(message);
+      assertEquals(expected.length, message.encodedLength(), message.toString());
+      assertArrayEquals(expected, message.encode(), message.toString());
+
+      ByteBuffer direct = ByteBuffer.allocateDirect(message.encodedLength());
+      message.encode(direct);
+      assertFalse(direct.hasRemaining());
+    }
+  }
+
+  /**
+   * Test decoding from heap and direct buffers.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  public void testDecodeFromBuffer() throws IOException {
+    for (Message message : allMessages()) {
+      byte[] encoded = message.encode();
+      Message expected = Message.decodeFromStream(
+          new DataInputStream(new ByteArrayInputStream(encoded)));
+
+      ByteBuffer heap = ByteBuffer.wrap(encoded);
+      assertEquals(expected, Message.decodeFromBuffer(heap));
+      assertFalse(heap.hasRemaining());
+
+      ByteBuffer direct = ByteBuffer.allocateDirect(encoded.length);
+      direct.put(encoded).flip();
+      assertEquals(expected, Message.decodeFromBuffer(direct));
+      assertFalse(direct.hasRemaining());
+    }
+  }
+
+  /**
+   * Test every message survives the framed format through each decoder, and is the legacy
+   * encoding behind a header.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  public void testFramedRoundTrip() throws IOException {
+    for (Message message : allMessages()) {
+      byte[] legacy = message.encode();
+      byte[] framed = message.encode(WireFormat.FRAMED);
+      assertEquals(legacy.length + FrameHeader.LENGTH, framed.length);
+      assertArrayEquals(FrameHeader.prepend(legacy), framed);
+      assertArrayEquals(legacy, message.encode(WireFormat.LEGACY));
+
+      Message expected = Message.decodeFromBuffer(ByteBuffer.wrap(legacy));
+      assertEquals(expected, Message.decodeFromBuffer(ByteBuffer.wrap(framed)));
+      assertEquals(expected, Message.decodeFromStream(
+          new DataInputStream(new ByteArrayInputStream(framed))));
+      FrameInputStream limited = new FrameInputStream(new ByteArrayInputStream(framed),
+          FrameLimits.DEFAULT);
+      assertEquals(expected, Message.decodeFromStream(limited));
+      assertEquals(0, limited.available());
+    }
+  }
+
+  /**
+   * Test a partial frame is reported as end of input.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  public void testDecodeFromBufferPartialFrame() throws IOException {
+    byte[] encoded = new DirectMessage("a", "b", "hello").encode();
+    for (int length = 0; length < encoded.length; length++) {
+      ByteBuffer partial = ByteBuffer.wrap(encoded, 0, length);
+      assertThrows(EOFException.class, () -> Message.decodeFromBuffer(partial));
+    }
+  }
+
+  /**
+   * Test a negative field length is rejected rather than waited for.
+   */
+  @Test
+  public void testDecodeFromBufferNegativeLength() {
+    ByteBuffer buffer = ByteBuffer.allocate(8);
+    buffer.putInt(Message.CONNECT_MESSAGE_CODE).putInt(-1).flip();
+    IOException e = assertThrows(IOException.class, () -> Message.decodeFromBuffer(buffer));
+    assertEquals(Message.INVALID_FIELD_LENGTH_ERROR, e.getMessage());
+  }
+
+  /**
+   * Test the body of a decoded chat message stays undecoded until it is read.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  public void testMessageBodyDecodedLazily() throws IOException {
+    BroadcastMessage decoded = (BroadcastMessage) Message.decodeFromBuffer(
+        ByteBuffer.wrap(new BroadcastMessage("testUser", MULTI_BYTE).encode()));
+    assertFalse(decoded.getMessageText().isMaterialized());
+    assertArrayEquals(new BroadcastMessage("x", MULTI_BYTE).getMessageText().getBytes(),
+        decoded.getMessageText().getBytes());
+    assertEquals(MULTI_BYTE, decoded.getMessage());
+    assertTrue(decoded.getMessageText().isMaterialized());
+  }
 }
@@ -24,6 +24,18 @@ class MessageTypeTest {
     assertEquals(25, MessageType.DIRECT_MESSAGE.getValue());
     assertEquals(26, MessageType.FAILED_MESSAGE.getValue());
     assertEquals(27, MessageType.SEND_INSULT.getValue());
+    assertEquals(28, MessageType.JOIN_ROOM.getValue());
+    assertEquals(29, MessageType.LEAVE_ROOM.getValue());
+    assertEquals(30, MessageType.LIST_ROOMS.getValue());
+    assertEquals(31, MessageType.LIST_ROOMS_RESPONSE.getValue());
+    assertEquals(32, MessageType.ROOM_MESSAGE.getValue());
+    assertEquals(33, MessageType.QUERY_USERS_PAGE.getValue());
+    assertEquals(34, MessageType.QUERY_USERS_PAGE_RESPONSE.getValue());
+    assertEquals(35, MessageType.SUBSCRIBE_PRESENCE.getValue());
+    assertEquals(36, MessageType.PRESENCE_SNAPSHOT.getValue());
+    assertEquals(37, MessageType.PRESENCE_UPDATE.getValue());
+    assertEquals(38, MessageType.QUERY_HISTORY.getValue());
+    assertEquals(39, MessageType.HISTORY_RESPONSE.getValue());
   }
 
   /**
@@ -40,6 +52,14 @@ class MessageTypeTest {
     assertEquals(MessageType.DIRECT_MESSAGE, MessageType.fromValue(25));
     assertEquals(MessageType.FAILED_MESSAGE, MessageType.fromValue(26));
     assertEquals(MessageType.SEND_INSULT, MessageType.fromValue(27));
+    assertEquals(MessageType.JOIN_ROOM, MessageType.fromValue(28));
+    assertEquals(MessageType.ROOM_MESSAGE, MessageType.fromValue(32));
+    assertEquals(MessageType.QUERY_USERS_PAGE_RESPONSE, MessageType.fromValue(34));
+    assertEquals(MessageType.SUBSCRIBE_PRESENCE, MessageType.fromValue(35));
+    assertEquals(MessageType.PRESENCE_SNAPSHOT, MessageType.fromValue(36));
+    assertEquals(MessageType.PRESENCE_UPDATE, MessageType.fromValue(37));
+    assertEquals(MessageType.QUERY_HISTORY, MessageType.fromValue(38));
+    assertEquals(MessageType.HISTORY_RESPONSE, MessageType.fromValue(39));
   }
 
   /**
@@ -49,8 +69,10 @@ class MessageTypeTest {
   void invalidValueTest() {
     assertNull(MessageType.fromValue(0));
     assertNull(MessageType.fromValue(18));
-    assertNull(MessageType.fromValue(28));
+    assertNull(MessageType.fromValue(40));
     assertNull(MessageType.fromValue(-1));
+    assertNull(MessageType.fromValue(Integer.MAX_VALUE));
+    assertNull(MessageType.fromValue(Integer.MIN_VALUE));
   }
 
   /**
@@ -62,4 +84,13 @@ class MessageTypeTest {
       assertEquals(type, MessageType.fromValue(type.getValue()));
     }
   }
-}
\ No newline at end of file
+
+  /**
+   * Max value test.
+   */
+  @Test
+  void maxValueTest() {
+    assertEquals(39, MessageType.maxValue());
+    assertNotNull(MessageType.fromValue(MessageType.maxValue()));
+  }
+}
@@ -0,0 +1,103 @@
+package protocol;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The type Presence snapshot test.
+ */
+class PresenceSnapshotTest {
+
+  private PresenceSnapshot snapshot;
+  private PresenceSnapshot snapshot2;
+
+  /**
+   * Sets up.
+   */
+  @BeforeEach
+  void setUp() {
+    snapshot = new PresenceSnapshot(List.of("alice", "bob"));
+    snapshot2 = new PresenceSnapshot(List.of("alice", "bob"));
+  }
+
+  /**
+   * Encode and decode.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void encodeAndDecode() throws IOException {
+    ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+    DataOutputStream dataOut = new DataOutputStream(byteArrayOutputStream);
+    snapshot.encode(dataOut);
+    dataOut.flush();
+
+    // Decode the message
+    ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(
+        byteArrayOutputStream.toByteArray());
+    DataInputStream dataIn = new DataInputStream(byteArrayInputStream);
+    Message decodedMessage = Message.decodeFromStream(dataIn);
+
+    // Assert: Validate the integrity of the decoded message
+    assertInstanceOf(PresenceSnapshot.class, decodedMessage);
+    PresenceSnapshot resultMessage = (PresenceSnapshot) decodedMessage;
+    assertEquals(List.of("alice", "bob"), resultMessage.getConnectedUsers());
+    assertEquals(MessageType.PRESENCE_SNAPSHOT, resultMessage.getMessageType());
+  }
+
+  /**
+   * Test the buffer encoding matches the stream encoding.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testEncodeToBuffer() throws IOException {
+    byte[] encoded = snapshot.encode();
+    assertEquals(snapshot.encodedLength(), encoded.length);
+    assertEquals(snapshot, Message.decodeFromBuffer(ByteBuffer.wrap(encoded)));
+  }
+
+  /**
+   * Test a snapshot is never mistaken for a query users response.
+   */
+  @Test
+  void testNotQueryUsersResponse() {
+    assertNotEquals(snapshot, new QueryUsersResponse(List.of("alice", "bob")));
+  }
+
+  /**
+   * Test to string.
+   */
+  @Test
+  void testToString() {
+    assertEquals(snapshot.toString(), snapshot2.toString());
+  }
+
+  /**
+   * Test equals.
+   */
+  @Test
+  void testEquals() {
+    assertEquals(snapshot, snapshot2);
+    assertNotEquals(snapshot, new PresenceSnapshot(List.of("alice")));
+    assertNotEquals(snapshot, null);
+    assertNotEquals(snapshot, new Object());
+  }
+
+  /**
+   * Test hash code.
+   */
+  @Test
+  void testHashCode() {
+    assertEquals(snapshot.hashCode(), snapshot2.hashCode());
+  }
+}
@@ -0,0 +1,95 @@
+package protocol;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The type Presence update test.
+ */
+class PresenceUpdateTest {
+
+  private PresenceUpdate presenceUpdate;
+  private PresenceUpdate presenceUpdate2;
+
+  /**
+   * Sets up.
+   */
+  @BeforeEach
+  void setUp() {
+    presenceUpdate = new PresenceUpdate("testUser", true);
+    presenceUpdate2 = new PresenceUpdate("testUser", true);
+  }
+
+  /**
+   * Encode and decode.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void encodeAndDecode() throws IOException {
+    ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+    DataOutputStream dataOut = new DataOutputStream(byteArrayOutputStream);
+    presenceUpdate.encode(dataOut);
+    dataOut.flush();
+
+    // Decode the message
+    ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(
+        byteArrayOutputStream.toByteArray());
+    DataInputStream dataIn = new DataInputStream(byteArrayInputStream);
+    Message decodedMessage = Message.decodeFromStream(dataIn);
+
+    // Assert: Validate the integrity of the decoded message
+    assertInstanceOf(PresenceUpdate.class, decodedMessage);
+    PresenceUpdate resultMessage = (PresenceUpdate) decodedMessage;
+    assertEquals("testUser", resultMessage.getUsername());
+    assertTrue(resultMessage.isOnline());
+    assertEquals(MessageType.PRESENCE_UPDATE, resultMessage.getMessageType());
+  }
+
+  /**
+   * Test the buffer encoding matches the stream encoding.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testEncodeToBuffer() throws IOException {
+    byte[] encoded = presenceUpdate.encode();
+    assertEquals(presenceUpdate.encodedLength(), encoded.length);
+    assertEquals(presenceUpdate, Message.decodeFromBuffer(ByteBuffer.wrap(encoded)));
+  }
+
+  /**
+   * Test to string.
+   */
+  @Test
+  void testToString() {
+    assertEquals(presenceUpdate.toString(), presenceUpdate2.toString());
+  }
+
+  /**
+   * Test equals.
+   */
+  @Test
+  void testEquals() {
+    assertEquals(presenceUpdate, presenceUpdate2);
+    assertNotEquals(presenceUpdate, new PresenceUpdate("testUser", false));
+    assertNotEquals(presenceUpdate, null);
+    assertNotEquals(presenceUpdate, new Object());
+  }
+
+  /**
+   * Test hash code.
+   */
+  @Test
+  void testHashCode() {
+    assertEquals(presenceUpdate.hashCode(), presenceUpdate2.hashCode());
+  }
+}
@@ -0,0 +1,97 @@
+package protocol;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The type Query history message test.
+ */
+class QueryHistoryMessageTest {
+
+  private QueryHistoryMessage queryMessage;
+  private QueryHistoryMessage queryMessage2;
+
+  /**
+   * Sets up.
+   */
+  @BeforeEach
+  void setUp() {
+    queryMessage = new QueryHistoryMessage("testUser", "general", 20, 1000);
+    queryMessage2 = new QueryHistoryMessage("testUser", "general", 20, 1000);
+  }
+
+  /**
+   * Encode and decode.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void encodeAndDecode() throws IOException {
+    ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+    DataOutputStream dataOut = new DataOutputStream(byteArrayOutputStream);
+    queryMessage.encode(dataOut);
+    dataOut.flush();
+
+    // Decode the message
+    ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(
+        byteArrayOutputStream.toByteArray());
+    DataInputStream dataIn = new DataInputStream(byteArrayInputStream);
+    Message decodedMessage = Message.decodeFromStream(dataIn);
+
+    // Assert: Validate the integrity of the decoded message
+    assertInstanceOf(QueryHistoryMessage.class, decodedMessage);
+    QueryHistoryMessage resultMessage = (QueryHistoryMessage) decodedMessage;
+    assertEquals("testUser", resultMessage.getUsername());
+    assertEquals("general", resultMessage.getRoomName());
+    assertEquals(20, resultMessage.getLimit());
+    assertEquals(1000, resultMessage.getSince());
+    assertEquals(MessageType.QUERY_HISTORY, resultMessage.getMessageType());
+  }
+
+  /**
+   * Test the buffer encoding matches the stream encoding.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testEncodeToBuffer() throws IOException {
+    byte[] encoded = queryMessage.encode();
+    assertEquals(queryMessage.encodedLength(), encoded.length);
+    assertEquals(queryMessage, Message.decodeFromBuffer(ByteBuffer.wrap(encoded)));
+  }
+
+  /**
+   * Test to string.
+   */
+  @Test
+  void testToString() {
+    assertEquals(queryMessage.toString(), queryMessage2.toString());
+  }
+
+  /**
+   * Test equals.
+   */
+  @Test
+  void testEquals() {
+    assertEquals(queryMessage, queryMessage2);
+    assertNotEquals(queryMessage, new QueryHistoryMessage("testUser", "general", 20, 0));
+    assertNotEquals(queryMessage, null);
+    assertNotEquals(queryMessage, new Object());
+  }
+
+  /**
+   * Test hash code.
+   */
+  @Test
+  void testHashCode() {
+    assertEquals(queryMessage.hashCode(), queryMessage2.hashCode());
+  }
+}
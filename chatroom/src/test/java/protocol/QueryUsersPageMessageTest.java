@@ -0,0 +1,85 @@
+package protocol;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The type Query users page message test.
+ */
+class QueryUsersPageMessageTest {
+
+  private QueryUsersPageMessage pageMessage;
+  private QueryUsersPageMessage pageMessage2;
+
+  /**
+   * Sets up.
+   */
+  @BeforeEach
+  void setUp() {
+    pageMessage = new QueryUsersPageMessage("testUser", "al", "alan", 20);
+    pageMessage2 = new QueryUsersPageMessage("testUser", "al", "alan", 20);
+  }
+
+  /**
+   * Encode and decode.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void encodeAndDecode() throws IOException {
+    ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+    DataOutputStream dataOut = new DataOutputStream(byteArrayOutputStream);
+    pageMessage.encode(dataOut);
+    dataOut.flush();
+
+    // Decode the message
+    ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(
+        byteArrayOutputStream.toByteArray());
+    DataInputStream dataIn = new DataInputStream(byteArrayInputStream);
+    Message decodedMessage = Message.decodeFromStream(dataIn);
+
+    // Assert: Validate the integrity of the decoded message
+    assertInstanceOf(QueryUsersPageMessage.class, decodedMessage);
+    QueryUsersPageMessage resultMessage = (QueryUsersPageMessage) decodedMessage;
+    assertEquals("testUser", resultMessage.getUsername());
+    assertEquals("al", resultMessage.getPrefix());
+    assertEquals("alan", resultMessage.getAfter());
+    assertEquals(20, resultMessage.getLimit());
+    assertEquals(MessageType.QUERY_USERS_PAGE, resultMessage.getMessageType());
+  }
+
+  /**
+   * Test to string.
+   */
+  @Test
+  void testToString() {
+    assertEquals(pageMessage.toString(), pageMessage2.toString());
+  }
+
+  /**
+   * Test equals.
+   */
+  @Test
+  void testEquals() {
+    assertEquals(pageMessage, pageMessage2);
+    assertNotEquals(pageMessage, new QueryUsersPageMessage("testUser", "al", "alan", 10));
+    assertNotEquals(pageMessage, new QueryUsersPageMessage("testUser", "al", "", 20));
+    assertNotEquals(pageMessage, null);
+    assertNotEquals(pageMessage, new Object());
+  }
+
+  /**
+   * Test hash code.
+   */
+  @Test
+  void testHashCode() {
+    assertEquals(pageMessage.hashCode(), pageMessage2.hashCode());
+  }
+}
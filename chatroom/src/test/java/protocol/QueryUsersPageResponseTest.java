@@ -0,0 +1,93 @@
+package protocol;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The type Query users page response test.
+ */
+class QueryUsersPageResponseTest {
+
+  private QueryUsersPageResponse pageResponse;
+  private QueryUsersPageResponse pageResponse2;
+
+  /**
+   * Sets up.
+   */
+  @BeforeEach
+  void setUp() {
+    pageResponse = new QueryUsersPageResponse("al", "alex", List.of("alan", "alex"));
+    pageResponse2 = new QueryUsersPageResponse("al", "alex", List.of("alan", "alex"));
+  }
+
+  /**
+   * Encode and decode.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void encodeAndDecode() throws IOException {
+    ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+    DataOutputStream dataOut = new DataOutputStream(byteArrayOutputStream);
+    pageResponse.encode(dataOut);
+    dataOut.flush();
+
+    // Decode the message
+    ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(
+        byteArrayOutputStream.toByteArray());
+    DataInputStream dataIn = new DataInputStream(byteArrayInputStream);
+    Message decodedMessage = Message.decodeFromStream(dataIn);
+
+    // Assert: Validate the integrity of the decoded message
+    assertInstanceOf(QueryUsersPageResponse.class, decodedMessage);
+    QueryUsersPageResponse resultMessage = (QueryUsersPageResponse) decodedMessage;
+    assertEquals("al", resultMessage.getPrefix());
+    assertEquals("alex", resultMessage.getNextCursor());
+    assertTrue(resultMessage.hasMore());
+    assertEquals(List.of("alan", "alex"), resultMessage.getUsers());
+    assertEquals(MessageType.QUERY_USERS_PAGE_RESPONSE, resultMessage.getMessageType());
+  }
+
+  /**
+   * Test the last page has no cursor.
+   */
+  @Test
+  void testLastPage() {
+    assertFalse(new QueryUsersPageResponse("al", "", List.of("alan")).hasMore());
+  }
+
+  /**
+   * Test to string.
+   */
+  @Test
+  void testToString() {
+    assertEquals(pageResponse.toString(), pageResponse2.toString());
+  }
+
+  /**
+   * Test equals.
+   */
+  @Test
+  void testEquals() {
+    assertEquals(pageResponse, pageResponse2);
+    assertNotEquals(pageResponse, new QueryUsersPageResponse("al", "", List.of("alan", "alex")));
+    assertNotEquals(pageResponse, null);
+    assertNotEquals(pageResponse, new Object());
+  }
+
+  /**
+   * Test hash code.
+   */
+  @Test
+  void testHashCode() {
+    assertEquals(pageResponse.hashCode(), pageResponse2.hashCode());
+  }
+}
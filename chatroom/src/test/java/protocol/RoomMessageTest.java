@@ -0,0 +1,121 @@
+package protocol;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The type Room message test.
+ */
+class RoomMessageTest {
+
+  private String senderUsername;
+  private String roomName;
+  private String message;
+  private RoomMessage roomMessage;
+  private RoomMessage roomMessage2;
+
+  /**
+   * Sets up.
+   */
+  @BeforeEach
+  void setUp() {
+    senderUsername = "sender";
+    roomName = "general";
+    message = "Hello, Jack";
+    roomMessage = new RoomMessage(senderUsername, roomName, message);
+    roomMessage2 = new RoomMessage(senderUsername, roomName, message);
+  }
+
+  /**
+   * Encode ane decode.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void encodeAneDecode() throws IOException {
+    // Act: Encode the message
+    ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+    DataOutputStream dataOut = new DataOutputStream(byteArrayOutputStream);
+    roomMessage.encode(dataOut);
+    dataOut.flush();
+
+    // Decode the message
+    ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(
+        byteArrayOutputStream.toByteArray());
+    DataInputStream dataIn = new DataInputStream(byteArrayInputStream);
+    Message decodedMessage = Message.decodeFromStream(dataIn);
+
+    // Assert: Validate the integrity of the decoded message
+    assertInstanceOf(RoomMessage.class, decodedMessage);
+    RoomMessage resultMessage = (RoomMessage) decodedMessage;
+    assertEquals(roomMessage.getSenderUsername(), resultMessage.getSenderUsername());
+    assertEquals(roomMessage.getRoomName(), resultMessage.getRoomName());
+    assertEquals(roomMessage.getMessage(), resultMessage.getMessage());
+  }
+
+  /**
+   * Gets message type.
+   */
+  @Test
+  void getMessageType() {
+    assertEquals(roomMessage.getMessageType(), MessageType.ROOM_MESSAGE);
+  }
+
+  /**
+   * Gets sender username.
+   */
+  @Test
+  void getSenderUsername() {
+    assertEquals(roomMessage.getSenderUsername(), senderUsername);
+  }
+
+  /**
+   * Gets room name.
+   */
+  @Test
+  void getRoomName() {
+    assertEquals(roomMessage.getRoomName(), roomName);
+  }
+
+  /**
+   * Gets message.
+   */
+  @Test
+  void getMessage() {
+    assertEquals(roomMessage.getMessage(), message);
+  }
+
+  /**
+   * Test to string.
+   */
+  @Test
+  void testToString() {
+    assertEquals(roomMessage.toString(), roomMessage2.toString());
+  }
+
+  /**
+   * Test equals.
+   */
+  @Test
+  void testEquals() {
+    assertEquals(roomMessage, roomMessage);
+    assertEquals(roomMessage, roomMessage2);
+    assertNotEquals(roomMessage, new Object());
+    assertNotEquals(roomMessage2, null);
+  }
+
+  /**
+   * Test hash code.
+   */
+  @Test
+  void testHashCode() {
+    assertEquals(roomMessage.hashCode(), roomMessage2.hashCode());
+  }
+}
\ No newline at end of file
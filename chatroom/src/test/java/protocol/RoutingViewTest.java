@@ -0,0 +1,151 @@
+package protocol;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The type Routing view test.
+ */
+class RoutingViewTest {
+
+  private static final String BODY = "h\u00e9llo \ud83d\ude00";
+
+  private static RoutingView fromStream(byte[] encoded) throws IOException {
+    return RoutingView.decodeFromStream(new DataInputStream(new ByteArrayInputStream(encoded)));
+  }
+
+  /**
+   * Test a direct message exposes its header and keeps its frame.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testDirectMessage() throws IOException {
+    DirectMessage direct = new DirectMessage("alice", "bob", BODY);
+    byte[] encoded = direct.encode();
+    for (RoutingView view : new RoutingView[]{
+        RoutingView.decodeFromBuffer(ByteBuffer.wrap(encoded)), fromStream(encoded)}) {
+      assertTrue(view.isRoutable());
+      assertEquals(MessageType.DIRECT_MESSAGE, view.getMessageType());
+      assertEquals("alice", view.getSenderUsername());
+      assertEquals("bob", view.getRecipientUsername());
+      assertEquals(BODY, view.getBody().toString());
+      assertEquals(Frame.wrap(encoded), view.toFrame());
+      assertSame(view.toFrame(), view.toFrame());
+      assertEquals(direct, view.getMessage());
+    }
+  }
+
+  /**
+   * Test a framed direct message is routed the same, and forwarded as its legacy bytes.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testFramedMessage() throws IOException {
+    DirectMessage direct = new DirectMessage("alice", "bob", BODY);
+    byte[] framed = direct.encode(WireFormat.FRAMED);
+    for (RoutingView view : new RoutingView[]{
+        RoutingView.decodeFromBuffer(ByteBuffer.wrap(framed)), fromStream(framed),
+        RoutingView.decodeFromStream(new FrameInputStream(new ByteArrayInputStream(framed),
+            FrameLimits.DEFAULT))}) {
+      assertEquals(WireFormat.FRAMED, view.getWireFormat());
+      assertEquals("bob", view.getRecipientUsername());
+      assertEquals(Frame.wrap(direct.encode()), view.toFrame());
+      assertEquals(direct, view.getMessage());
+    }
+    assertEquals(WireFormat.LEGACY,
+        RoutingView.decodeFromBuffer(ByteBuffer.wrap(direct.encode())).getWireFormat());
+  }
+
+  /**
+   * Test a broadcast message has no recipient.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testBroadcastMessage() throws IOException {
+    byte[] encoded = new BroadcastMessage("alice", BODY).encode();
+    RoutingView view = fromStream(encoded);
+    assertEquals(MessageType.BROADCAST_MESSAGE, view.getMessageType());
+    assertEquals("alice", view.getSenderUsername());
+    assertNull(view.getRecipientUsername());
+    assertEquals(Frame.wrap(encoded), view.toFrame());
+    assertEquals(RoutingView.decodeFromBuffer(ByteBuffer.wrap(encoded)), view);
+  }
+
+  /**
+   * Test a room message exposes its room and keeps its frame.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testRoomMessage() throws IOException {
+    RoomMessage room = new RoomMessage("alice", "general", BODY);
+    byte[] encoded = room.encode();
+    for (RoutingView view : new RoutingView[]{
+        RoutingView.decodeFromBuffer(ByteBuffer.wrap(encoded)), fromStream(encoded)}) {
+      assertTrue(view.isRoutable());
+      assertEquals(MessageType.ROOM_MESSAGE, view.getMessageType());
+      assertEquals("general", view.getRoomName());
+      assertNull(view.getRecipientUsername());
+      assertEquals(BODY, view.getBody().toString());
+      assertEquals(Frame.wrap(encoded), view.toFrame());
+      assertEquals(room, view.getMessage());
+    }
+  }
+
+  /**
+   * Test other messages are decoded in full.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testOtherMessagesDecoded() throws IOException {
+    ConnectMessage connect = new ConnectMessage("alice");
+    RoutingView view = RoutingView.decodeFromBuffer(ByteBuffer.wrap(connect.encode()));
+    assertFalse(view.isRoutable());
+    assertEquals(MessageType.CONNECT_MESSAGE, view.getMessageType());
+    assertEquals(connect, view.getMessage());
+    assertNull(view.getBody());
+    assertEquals(Frame.of(connect), view.toFrame());
+    assertEquals(view, fromStream(connect.encode()));
+  }
+
+  /**
+   * Test the buffer is advanced past exactly one message.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testConsecutiveMessages() throws IOException {
+    byte[] first = new DirectMessage("a", "b", "one").encode();
+    byte[] second = new QueryUsersMessage("a").encode();
+    ByteBuffer buffer = ByteBuffer.allocate(first.length + second.length);
+    buffer.put(first).put(second).flip();
+    assertEquals(Frame.wrap(first), RoutingView.decodeFromBuffer(buffer).toFrame());
+    assertEquals(first.length, buffer.position());
+    assertEquals(new QueryUsersMessage("a"), RoutingView.decodeFromBuffer(buffer).getMessage());
+    assertFalse(buffer.hasRemaining());
+  }
+
+  /**
+   * Test a partial frame is reported as end of input.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testPartialFrame() throws IOException {
+    byte[] encoded = new BroadcastMessage("alice", BODY).encode();
+    for (int length = 0; length < encoded.length; length++) {
+      ByteBuffer partial = ByteBuffer.wrap(encoded, 0, length);
+      assertThrows(EOFException.class, () -> RoutingView.decodeFromBuffer(partial));
+    }
+  }
+}
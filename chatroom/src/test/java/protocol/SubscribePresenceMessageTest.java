@@ -0,0 +1,95 @@
+package protocol;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The type Subscribe presence message test.
+ */
+class SubscribePresenceMessageTest {
+
+  private SubscribePresenceMessage subscribeMessage;
+  private SubscribePresenceMessage subscribeMessage2;
+
+  /**
+   * Sets up.
+   */
+  @BeforeEach
+  void setUp() {
+    subscribeMessage = new SubscribePresenceMessage("testUser", true);
+    subscribeMessage2 = new SubscribePresenceMessage("testUser", true);
+  }
+
+  /**
+   * Encode and decode.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void encodeAndDecode() throws IOException {
+    ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+    DataOutputStream dataOut = new DataOutputStream(byteArrayOutputStream);
+    subscribeMessage.encode(dataOut);
+    dataOut.flush();
+
+    // Decode the message
+    ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(
+        byteArrayOutputStream.toByteArray());
+    DataInputStream dataIn = new DataInputStream(byteArrayInputStream);
+    Message decodedMessage = Message.decodeFromStream(dataIn);
+
+    // Assert: Validate the integrity of the decoded message
+    assertInstanceOf(SubscribePresenceMessage.class, decodedMessage);
+    SubscribePresenceMessage resultMessage = (SubscribePresenceMessage) decodedMessage;
+    assertEquals("testUser", resultMessage.getUsername());
+    assertTrue(resultMessage.isSubscribe());
+    assertEquals(MessageType.SUBSCRIBE_PRESENCE, resultMessage.getMessageType());
+  }
+
+  /**
+   * Test the buffer encoding matches the stream encoding.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testEncodeToBuffer() throws IOException {
+    byte[] encoded = subscribeMessage.encode();
+    assertEquals(subscribeMessage.encodedLength(), encoded.length);
+    assertEquals(subscribeMessage, Message.decodeFromBuffer(ByteBuffer.wrap(encoded)));
+  }
+
+  /**
+   * Test to string.
+   */
+  @Test
+  void testToString() {
+    assertEquals(subscribeMessage.toString(), subscribeMessage2.toString());
+  }
+
+  /**
+   * Test equals.
+   */
+  @Test
+  void testEquals() {
+    assertEquals(subscribeMessage, subscribeMessage2);
+    assertNotEquals(subscribeMessage, new SubscribePresenceMessage("testUser", false));
+    assertNotEquals(subscribeMessage, null);
+    assertNotEquals(subscribeMessage, new Object());
+  }
+
+  /**
+   * Test hash code.
+   */
+  @Test
+  void testHashCode() {
+    assertEquals(subscribeMessage.hashCode(), subscribeMessage2.hashCode());
+  }
+}
@@ -0,0 +1,84 @@
+package protocol;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.ByteBuffer;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The type Utf 8 text test.
+ */
+class Utf8TextTest {
+
+  private static final String[] SAMPLES = {
+      "", "hello", "h\u00e9llo", "\u4f60\u597d", "\ud83d\ude00", "lone \ud83d", "lone \ude00 low",
+      "\u0000\u007f\u0080\u07ff\u0800\uffff"};
+
+  /**
+   * Test encoded length and encoding match String.getBytes.
+   */
+  @Test
+  void testEncodeMatchesGetBytes() {
+    for (String sample : SAMPLES) {
+      byte[] expected = sample.getBytes(Message.DEFAULT_CHAR_SET);
+      assertEquals(expected.length, Utf8Text.encodedLength(sample), sample);
+      ByteBuffer buffer = ByteBuffer.allocate(expected.length);
+      Utf8Text.encode(sample, buffer);
+      assertArrayEquals(expected, buffer.array(), sample);
+    }
+  }
+
+  /**
+   * Test text wrapping bytes decodes only on demand.
+   */
+  @Test
+  void testWrapIsLazy() {
+    byte[] bytes = "h\u00e9llo".getBytes(Message.DEFAULT_CHAR_SET);
+    Utf8Text text = Utf8Text.wrap(bytes);
+    assertFalse(text.isMaterialized());
+    assertEquals(6, text.encodedLength());
+    assertSame(bytes, text.getBytes());
+    assertEquals("h\u00e9llo", text.toString());
+    assertTrue(text.isMaterialized());
+  }
+
+  /**
+   * Test read copies bytes out of the buffer.
+   */
+  @Test
+  void testRead() {
+    ByteBuffer buffer = ByteBuffer.wrap("abcdef".getBytes(Message.DEFAULT_CHAR_SET));
+    buffer.position(1);
+    Utf8Text text = Utf8Text.read(buffer, 3);
+    assertEquals(4, buffer.position());
+    buffer.put(1, (byte) 'x');
+    assertEquals("bcd", text.toString());
+  }
+
+  /**
+   * Test encode to copies the original bytes.
+   */
+  @Test
+  void testEncodeTo() {
+    ByteBuffer buffer = ByteBuffer.allocate(10);
+    Utf8Text.wrap(new byte[]{1, 2, 3}).encodeTo(buffer);
+    Utf8Text.of("ab").encodeTo(buffer);
+    assertEquals(5, buffer.position());
+    assertEquals(3, buffer.get(2));
+    assertEquals('b', buffer.get(4));
+  }
+
+  /**
+   * Test equals and hash code compare the encoded text.
+   */
+  @Test
+  void testEqualsAndHashCode() {
+    Utf8Text fromString = Utf8Text.of("h\u00e9llo");
+    Utf8Text fromBytes = Utf8Text.wrap("h\u00e9llo".getBytes(Message.DEFAULT_CHAR_SET));
+    assertEquals(fromString, fromBytes);
+    assertEquals(fromString.hashCode(), fromBytes.hashCode());
+    assertNotEquals(fromString, Utf8Text.of("hello"));
+    assertNotEquals(fromString, "h\u00e9llo");
+    assertNull(Utf8Text.of(null));
+  }
+}
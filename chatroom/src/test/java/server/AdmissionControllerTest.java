@@ -0,0 +1,132 @@
+package server;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import protocol.ConnectResponse;
+import protocol.Message;
+
+/**
+ * The type Admission controller test.
+ */
+class AdmissionControllerTest {
+
+  private static InetAddress address(int last) throws IOException {
+    return InetAddress.getByAddress(new byte[]{10, 0, 0, (byte) last});
+  }
+
+  /**
+   * Test the session limit is enforced and released sessions can be reused.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testMaxSessions() throws IOException {
+    AdmissionController admission = new AdmissionController(2, AdmissionController.UNLIMITED,
+        AdmissionController.UNLIMITED);
+    assertEquals(AdmissionResult.ADMITTED, admission.tryAdmit(address(1)));
+    assertEquals(AdmissionResult.ADMITTED, admission.tryAdmit(address(2)));
+    assertEquals(AdmissionResult.SERVER_FULL, admission.tryAdmit(address(3)));
+    assertEquals(2, admission.sessionCount());
+    admission.release(address(1));
+    assertEquals(AdmissionResult.ADMITTED, admission.tryAdmit(address(3)));
+  }
+
+  /**
+   * Test the per address limit only holds back the busy address.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testMaxSessionsPerAddress() throws IOException {
+    AdmissionController admission = new AdmissionController(10, 2,
+        AdmissionController.UNLIMITED);
+    assertTrue(admission.tryAdmit(address(1)).isAdmitted());
+    assertTrue(admission.tryAdmit(address(1)).isAdmitted());
+    assertEquals(AdmissionResult.TOO_MANY_FROM_ADDRESS, admission.tryAdmit(address(1)));
+    assertTrue(admission.tryAdmit(address(2)).isAdmitted());
+    // The rejected connection does not hold a session
+    assertEquals(3, admission.sessionCount());
+    admission.release(address(1));
+    assertTrue(admission.tryAdmit(address(1)).isAdmitted());
+    // An unknown address is only held to the total
+    assertTrue(admission.tryAdmit(null).isAdmitted());
+  }
+
+  /**
+   * Test the accept rate is limited.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testAcceptRate() throws IOException {
+    AdmissionController admission = new AdmissionController(1000, AdmissionController.UNLIMITED,
+        3);
+    int admitted = 0;
+    for (int i = 0; i < 10; i++) {
+      if (admission.tryAdmit(address(1)) == AdmissionResult.ADMITTED) {
+        admitted++;
+      }
+    }
+    // The burst, plus whatever refilled while the loop ran
+    assertTrue(admitted >= 3 && admitted < 10);
+    assertEquals(admitted, admission.sessionCount());
+  }
+
+  /**
+   * Test the limits come from the config, falling back to the engine default.
+   */
+  @Test
+  void testFromConfig() {
+    ServerConfig config = new ServerConfig();
+    assertEquals(Server.DEFAULT_MAX_SESSIONS,
+        new AdmissionController(config, Server.DEFAULT_MAX_SESSIONS).getMaxSessions());
+    config.setMaxSessions(3);
+    assertEquals(3, new AdmissionController(config, Server.DEFAULT_MAX_SESSIONS).getMaxSessions());
+    assertThrows(IllegalArgumentException.class, () -> new AdmissionController(0, 0, 0));
+  }
+
+  /**
+   * Test every rejection is sent as a failed connect response carrying its reason.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testRejection() throws IOException {
+    for (AdmissionResult result : AdmissionResult.values()) {
+      if (result.isAdmitted()) {
+        assertNull(AdmissionController.rejection(result));
+        continue;
+      }
+      Message decoded = Message.decodeFromStream(new DataInputStream(
+          new ByteArrayInputStream(AdmissionController.rejection(result))));
+      assertEquals(new ConnectResponse(false, result.getMessage()), decoded);
+    }
+    assertEquals(Server.SERVER_IS_FULL_MESSAGE, AdmissionResult.SERVER_FULL.getMessage());
+  }
+
+  /**
+   * Test the token bucket refills at its rate up to its burst.
+   */
+  @Test
+  void testTokenBucket() {
+    long start = 0;
+    TokenBucket bucket = new TokenBucket(2, 2, start);
+    assertTrue(bucket.tryAcquire(start));
+    assertTrue(bucket.tryAcquire(start));
+    assertFalse(bucket.tryAcquire(start));
+    long halfSecond = TimeUnit.MILLISECONDS.toNanos(500);
+    assertTrue(bucket.tryAcquire(start + halfSecond));
+    assertFalse(bucket.tryAcquire(start + halfSecond));
+    // A long pause refills no more than the burst
+    long later = start + TimeUnit.SECONDS.toNanos(60);
+    assertTrue(bucket.tryAcquire(later));
+    assertTrue(bucket.tryAcquire(later));
+    assertFalse(bucket.tryAcquire(later));
+  }
+}
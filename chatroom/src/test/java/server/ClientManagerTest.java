@@ -2,13 +2,13 @@ package server;
 
 import client.ChatUI;
 import client.ServerMessageProcessor;
-import java.util.List;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import protocol.*;
 
 import java.io.*;
 import java.net.Socket;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -26,7 +26,7 @@ class ClientManagerTest {
   /**
    * The Clients.
    */
-  List<ClientManager> clients;
+  ClientRegistry clients;
 
 
   /**
@@ -39,7 +39,7 @@ class ClientManagerTest {
     socket = new TestSocket();
     baos = new ByteArrayOutputStream();
     out = new DataOutputStream(socket.getOutputStream());
-    clients = new ArrayList<>();
+    clients = new ClientRegistry();
   }
 
   /**
@@ -133,7 +133,7 @@ class ClientManagerTest {
     assertEquals(clientManager.hashCode(), clientManager.hashCode());
 
     // Test different objects have different hashCodes
-    ClientManager differentManager = new ClientManager(new Socket(), new ArrayList<>());
+    ClientManager differentManager = new ClientManager(new Socket(), new ClientRegistry());
     differentManager.setUsername("testUser2");
     assertNotEquals(clientManager.hashCode(), differentManager.hashCode());
   }
@@ -153,6 +153,111 @@ class ClientManagerTest {
     assertTrue(clientManager.toString().contains(expectedString));
   }
 
+  /**
+   * Test a frame over the limits closes the connection before anything is allocated for it.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testOversizedFrameRejected() throws IOException {
+    // A login whose username claims to be a gigabyte long
+    out.writeInt(MessageType.CONNECT_MESSAGE.getValue());
+    out.writeInt(1 << 30);
+    out.flush();
+
+    ServerMetrics metrics = new ServerMetrics();
+    clientManager = new ClientManager(socket, clients, new ServerConfig(), metrics,
+        runnable -> new Thread(runnable).start());
+    clients.add(clientManager);
+    Thread thread = new Thread(clientManager);
+    thread.start();
+    try {
+      thread.join(5000);
+    } catch (InterruptedException e) {
+      fail();
+    }
+
+    assertFalse(thread.isAlive());
+    assertEquals(1, metrics.framesRejectedCount());
+    assertEquals(0, clients.connectionCount());
+  }
+
+  /**
+   * Test a client that logs in with the framed format is answered in it, and a legacy one is not.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testWireFormatFollowsLogin() throws IOException {
+    for (WireFormat format : WireFormat.values()) {
+      clientManager = new ClientManager(new TestSocket(), clients, new ServerConfig(),
+          Runnable::run);
+      clientManager.initialize();
+      clientManager.handle(RoutingView.decodeFromBuffer(
+          ByteBuffer.wrap(new ConnectMessage("user-" + format).encode(format))));
+      assertEquals(format, clientManager.getWireFormat());
+
+      List<Frame> frames = new ArrayList<>();
+      clientManager.getOutboundQueue().drainTo(frames, 10);
+      ByteBuffer reply = frames.get(0).asByteBuffer();
+      assertEquals(format == WireFormat.FRAMED, FrameHeader.isFramed(reply.getInt(0)));
+      assertTrue(((ConnectResponse) Message.decodeFromBuffer(reply)).isSuccess());
+    }
+  }
+
+  /**
+   * Test a client with message pooling on decodes every message of a type into one instance,
+   * which is reset once handled.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testMessagePooling() throws IOException {
+    ServerConfig config = new ServerConfig();
+    config.setMessagePooling(true);
+    clientManager = new ClientManager(new TestSocket(), clients, config, Runnable::run);
+    clientManager.initialize();
+    MessagePool pool = clientManager.getMessagePool();
+    assertNotNull(pool);
+
+    clientManager.handle(RoutingView.decodeFromBuffer(
+        ByteBuffer.wrap(new ConnectMessage("pooled").encode()), pool));
+    assertEquals("pooled", clientManager.getUsername());
+    for (String room : List.of("general", "lobby")) {
+      RoutingView join = RoutingView.decodeFromBuffer(
+          ByteBuffer.wrap(new JoinRoomMessage("pooled", room).encode()), pool);
+      assertTrue(clientManager.handle(join));
+      assertNull(((JoinRoomMessage) join.getMessage()).getRoomName());
+    }
+    assertEquals(List.of("general", "lobby"), clients.getRooms().getRoomNames());
+    assertEquals(2, pool.getCreatedCount());
+    assertEquals(1, pool.getReusedCount());
+    assertNull(new ClientManager(new TestSocket(), clients).getMessagePool());
+  }
+
+  /**
+   * Test send disconnects a client whose queue overflows.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testSendOverflowDisconnects() throws IOException {
+    ServerConfig config = new ServerConfig();
+    config.setOutboundQueueCapacity(2);
+    config.setOverflowPolicy(OverflowPolicy.DISCONNECT);
+    clientManager = new ClientManager(socket, clients, config, Runnable::run);
+    boolean[] disconnected = {false};
+    clientManager.setDisconnectHandler(() -> disconnected[0] = true);
+
+    Frame frame = Frame.of(new BroadcastMessage("user", "Hello"));
+    clientManager.send(frame);
+    clientManager.send(frame);
+    assertFalse(disconnected[0]);
+    assertEquals(2, clientManager.getOutboundQueue().depth());
+    clientManager.send(frame);
+    assertTrue(disconnected[0]);
+  }
+
   private static class TestSocket extends Socket {
 
     private PipedInputStream pis = new PipedInputStream();
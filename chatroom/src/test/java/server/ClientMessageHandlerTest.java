@@ -1,13 +1,22 @@
 package server;
 
+import history.HistoryTail;
+import history.LogRecord;
+import history.MessageLog;
+import history.OfflineMailbox;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import protocol.*;
 
 import java.io.*;
 import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -18,8 +27,9 @@ class ClientMessageHandlerTest {
 
   private ClientMessageHandler handler;
   private ByteArrayOutputStream outContent;
-  private List<ClientManager> clients;
+  private ClientRegistry clients;
   private TestSocket socket;
+  private ClientManager testClient;
 
   /**
    * Sets up.
@@ -30,16 +40,17 @@ class ClientMessageHandlerTest {
   void setUp() throws IOException {
     outContent = new ByteArrayOutputStream();
     DataOutputStream out = new DataOutputStream(outContent);
-    clients = new ArrayList<>();
+    clients = new ClientRegistry();
 
     // Add a test client
     socket = new TestSocket();
 //    new ConnectMessage("User1").sendToStream(new DataOutputStream(socket.getOutputStream()));
-    ClientManager testClient = new ClientManager(socket, clients);
+    testClient = new ClientManager(socket, clients);
     testClient.initialize();
     handler = testClient.getClientMessageHandler();
     testClient.setUsername("testUser");
     clients.add(testClient);
+    clients.register("testUser", testClient);
   }
 
   /**
@@ -115,6 +126,349 @@ class ClientMessageHandlerTest {
     // Test invalid login message
     assertNull(handler.handleLogin(new DisconnectMessage("invalidUser")));
 //    assertTrue(outContent.toString().contains("Invalid connect message"));
+
+    // Test username already logged in
+    assertNull(handler.handleLogin(new ConnectMessage("testUser")));
+    assertEquals(1, clients.getUsernames().stream().filter("testUser"::equals).count());
+  }
+
+  /**
+   * Test broadcast and direct messages are forwarded as the bytes the sender wrote.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testRoutesFramesVerbatim() throws IOException {
+    ClientManager sender = new ClientManager(new TestSocket(), clients);
+    sender.initialize();
+    clients.add(sender);
+    assertTrue(sender.handle(RoutingView.decodeFromBuffer(
+        ByteBuffer.wrap(new ConnectMessage("sender").encode()))));
+    assertTrue(sender.isInChatRoom());
+
+    byte[] direct = new DirectMessage("sender", "testUser", "h\u00e9llo").encode();
+    RoutingView directView = RoutingView.decodeFromBuffer(ByteBuffer.wrap(direct));
+    assertTrue(sender.handle(directView));
+    byte[] broadcast = new BroadcastMessage("sender", "hi all").encode();
+    assertTrue(sender.handle(RoutingView.decodeFromStream(
+        new DataInputStream(new ByteArrayInputStream(broadcast)))));
+
+    List<Frame> received = new ArrayList<>();
+    testClient.getOutboundQueue().drainTo(received, 10);
+    // testUser never joined the chat room, so only the direct message reaches it
+    assertEquals(1, received.size());
+    assertSame(directView.toFrame(), received.get(0));
+    assertEquals(Frame.wrap(direct), received.get(0));
+
+    received.clear();
+    sender.getOutboundQueue().drainTo(received, 10);
+    // The connect response, then the broadcast
+    assertEquals(2, received.size());
+    assertEquals(Frame.wrap(broadcast), received.get(1));
+  }
+
+  /**
+   * Test every routed frame is appended to the history log, and a direct message that found no
+   * recipient is not.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testRecordsHistory() throws IOException {
+    Path directory = Files.createTempDirectory("history");
+    try (MessageLog history = MessageLog.open(directory, 4096, 256, 0)) {
+      clients.setHistory(history);
+      byte[] direct = new DirectMessage("testUser", "testUser", "note to self").encode();
+      assertTrue(handler.handleMessage(RoutingView.decodeFromBuffer(ByteBuffer.wrap(direct)),
+          "testUser"));
+      assertTrue(handler.handleMessage(new DirectMessage("testUser", "nobody", "hi"),
+          "testUser"));
+      byte[] broadcast = new BroadcastMessage("testUser", "hi all").encode();
+      assertTrue(handler.handleMessage(RoutingView.decodeFromBuffer(ByteBuffer.wrap(broadcast)),
+          "testUser"));
+
+      List<LogRecord> records = history.read(0, 10);
+      assertEquals(2, records.size());
+      assertEquals(Frame.wrap(direct), records.get(0).getFrame());
+      assertEquals(Frame.wrap(broadcast), records.get(1).getFrame());
+    } finally {
+      clients.setHistory(null);
+      try (Stream<Path> paths = Files.walk(directory)) {
+        for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+          Files.delete(path);
+        }
+      }
+    }
+  }
+
+  /**
+   * Test the latest messages are sent back as the frames that were sent, after a header.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testQueryHistory() throws IOException {
+    assertTrue(handler.handleMessage(new QueryHistoryMessage("testUser", "", 10, 0),
+        "testUser"));
+    assertEquals(List.of(new FailedMessage(ClientMessageHandler.HISTORY_OFF)), drain(testClient));
+
+    clients.setHistoryTail(new HistoryTail(2));
+    byte[] first = new BroadcastMessage("testUser", "one").encode();
+    byte[] second = new BroadcastMessage("testUser", "two").encode();
+    for (byte[] broadcast : List.of(first, first, second)) {
+      assertTrue(handler.handleMessage(RoutingView.decodeFromBuffer(ByteBuffer.wrap(broadcast)),
+          "testUser"));
+    }
+    assertTrue(handler.handleMessage(new JoinRoomMessage("testUser", "general"), "testUser"));
+    assertTrue(handler.handleMessage(new DirectMessage("testUser", "testUser", "secret"),
+        "testUser"));
+    drain(testClient);
+
+    assertTrue(handler.handleMessage(new QueryHistoryMessage("testUser", "", 10, 0),
+        "testUser"));
+    List<Frame> frames = new ArrayList<>();
+    testClient.getOutboundQueue().drainTo(frames, 100);
+    // The header and the frames it announces take one place in the queue
+    ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    expected.write(new HistoryResponse("", 2).encode());
+    expected.write(first);
+    expected.write(second);
+    assertEquals(List.of(Frame.wrap(expected.toByteArray())), frames);
+
+    assertTrue(handler.handleMessage(new QueryHistoryMessage("testUser", "general", 1, 0),
+        "testUser"));
+    assertEquals(List.of(new HistoryResponse("general", 1),
+        new RoomMessage(ClientMessageHandler.SERVER_DEFAULT_NAME, "general",
+            "testUser" + ClientMessageHandler.JOINED_ROOM_SUFFIX)), drain(testClient));
+
+    // Only members may read a room's history
+    assertTrue(handler.handleMessage(new QueryHistoryMessage("testUser", "other", 10, 0),
+        "testUser"));
+    assertEquals(List.of(new FailedMessage(ClientMessageHandler.NOT_IN_ROOM)), drain(testClient));
+  }
+
+  /**
+   * Test direct messages to a known user who is offline are kept and delivered in one frame at
+   * their next login.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testOfflineMailbox() throws IOException {
+    Path directory = Files.createTempDirectory("mailbox");
+    try {
+      OfflineMailbox mailbox = new OfflineMailbox(directory);
+      clients.setMailbox(mailbox);
+      // bob has logged in before
+      mailbox.register("bob", System.currentTimeMillis());
+
+      byte[] first = new DirectMessage("testUser", "bob", "one").encode();
+      assertTrue(handler.handleMessage(RoutingView.decodeFromBuffer(ByteBuffer.wrap(first)),
+          "testUser"));
+      assertTrue(handler.handleMessage(new DirectMessage("testUser", "bob", "two"),
+          "testUser"));
+      assertTrue(handler.handleMessage(new DirectMessage("testUser", "nobody", "hi"),
+          "testUser"));
+      DirectMessage notice = new DirectMessage(ClientMessageHandler.SERVER_DEFAULT_NAME,
+          "testUser", "bob" + ClientMessageHandler.OFFLINE_RECIPIENT_SUFFIX);
+      assertEquals(List.of(notice, notice,
+          new FailedMessage(ClientMessageHandler.INVALID_RECIPIENT)), drain(testClient));
+      assertEquals(2, mailbox.getCount("bob"));
+
+      ClientManager bob = new ClientManager(new TestSocket(), clients);
+      bob.initialize();
+      clients.add(bob);
+      assertTrue(bob.handle(RoutingView.decodeFromBuffer(
+          ByteBuffer.wrap(new ConnectMessage("bob").encode()))));
+      List<Frame> received = new ArrayList<>();
+      bob.getOutboundQueue().drainTo(received, 10);
+      // The connect response, then both messages in one frame
+      assertEquals(2, received.size());
+      ByteBuffer batch = received.get(1).asByteBuffer();
+      assertEquals(new DirectMessage("testUser", "bob", "one"), Message.decodeFromBuffer(batch));
+      assertEquals(new DirectMessage("testUser", "bob", "two"), Message.decodeFromBuffer(batch));
+      assertFalse(batch.hasRemaining());
+      assertEquals(0, mailbox.getCount("bob"));
+
+      // A user logging in for the first time gets a mailbox
+      assertEquals("carol", handler.handleLogin(new ConnectMessage("carol")));
+      assertTrue(mailbox.isRegistered("carol"));
+
+      // Messages that do not fit in the outbound queue stay for the next login
+      mailbox.register("dave", System.currentTimeMillis());
+      assertTrue(handler.handleMessage(new DirectMessage("testUser", "dave", "wait"),
+          "testUser"));
+      ServerConfig config = new ServerConfig();
+      config.setOutboundQueueCapacity(1);
+      ClientManager dave = new ClientManager(new TestSocket(), clients, config, Runnable::run);
+      dave.initialize();
+      clients.add(dave);
+      assertTrue(dave.handle(RoutingView.decodeFromBuffer(
+          ByteBuffer.wrap(new ConnectMessage("dave").encode()))));
+      assertEquals(1, dave.getOutboundQueue().depth());
+      assertEquals(1, mailbox.getCount("dave"));
+    } finally {
+      clients.setMailbox(null);
+      try (Stream<Path> paths = Files.walk(directory)) {
+        for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+          Files.delete(path);
+        }
+      }
+    }
+  }
+
+  /**
+   * Test the mailbox is only read and written on its executor, and the sender hears back once
+   * the message is kept.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testOfflineMailboxExecutor() throws IOException {
+    Path directory = Files.createTempDirectory("mailbox");
+    try {
+      OfflineMailbox mailbox = new OfflineMailbox(directory);
+      List<Runnable> tasks = new ArrayList<>();
+      clients.setMailbox(mailbox, tasks::add);
+      mailbox.register("bob", System.currentTimeMillis());
+      drain(testClient);
+
+      assertTrue(handler.handleMessage(new DirectMessage("testUser", "bob", "later"),
+          "testUser"));
+      assertTrue(handler.handleMessage(new DirectMessage("testUser", "nobody", "hi"),
+          "testUser"));
+      assertEquals(0, mailbox.getCount("bob"));
+      assertTrue(drain(testClient).isEmpty());
+
+      tasks.forEach(Runnable::run);
+      assertEquals(1, mailbox.getCount("bob"));
+      assertEquals(List.of(new DirectMessage(ClientMessageHandler.SERVER_DEFAULT_NAME,
+          "testUser", "bob" + ClientMessageHandler.OFFLINE_RECIPIENT_SUFFIX),
+          new FailedMessage(ClientMessageHandler.INVALID_RECIPIENT)), drain(testClient));
+    } finally {
+      clients.setMailbox(null);
+      try (Stream<Path> paths = Files.walk(directory)) {
+        for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+          Files.delete(path);
+        }
+      }
+    }
+  }
+
+  /**
+   * Test joining, messaging, listing and leaving rooms.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testRooms() throws IOException {
+    ClientManager sender = new ClientManager(new TestSocket(), clients);
+    sender.initialize();
+    clients.add(sender);
+    sender.handle(RoutingView.decodeFromBuffer(
+        ByteBuffer.wrap(new ConnectMessage("sender").encode())));
+    drain(sender);
+
+    assertTrue(handler.handleMessage(new JoinRoomMessage("testUser", "general"), "testUser"));
+    assertEquals(List.of(new RoomMessage(ClientMessageHandler.SERVER_DEFAULT_NAME, "general",
+        "testUser" + ClientMessageHandler.JOINED_ROOM_SUFFIX)), drain(testClient));
+
+    // Only members may send to a room
+    byte[] room = new RoomMessage("sender", "general", "hi room").encode();
+    assertTrue(sender.handle(RoutingView.decodeFromBuffer(ByteBuffer.wrap(room))));
+    assertEquals(List.of(new FailedMessage(ClientMessageHandler.NOT_IN_ROOM)), drain(sender));
+    assertTrue(drain(testClient).isEmpty());
+
+    assertTrue(sender.handle(RoutingView.decodeFromBuffer(
+        ByteBuffer.wrap(new JoinRoomMessage("sender", "general").encode()))));
+    assertEquals(2, drain(testClient).size() + drain(sender).size());
+    assertTrue(sender.handle(RoutingView.decodeFromBuffer(ByteBuffer.wrap(room))));
+    assertEquals(List.of(new RoomMessage("sender", "general", "hi room")), drain(testClient));
+    assertEquals(List.of(new RoomMessage("sender", "general", "hi room")), drain(sender));
+
+    assertTrue(handler.handleMessage(new ListRoomsMessage("testUser"), "testUser"));
+    assertEquals(List.of(new ListRoomsResponse(List.of("general"))), drain(testClient));
+
+    assertTrue(handler.handleMessage(new JoinRoomMessage("testUser", "two words"), "testUser"));
+    assertEquals(List.of(new FailedMessage(ClientMessageHandler.INVALID_ROOM_NAME)),
+        drain(testClient));
+
+    assertTrue(handler.handleMessage(new LeaveRoomMessage("testUser", "general"), "testUser"));
+    assertEquals(1, drain(testClient).size());
+    assertEquals(1, drain(sender).size());
+    assertFalse(clients.getRooms().isMember("general", testClient));
+
+    // The room goes away with its last member
+    clients.remove(sender);
+    assertEquals(0, clients.getRooms().size());
+  }
+
+  /**
+   * Test messages over a budget are answered with a failed message and go no further.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testRateLimited() throws IOException {
+    ServerConfig config = new ServerConfig();
+    config.setRateLimit(RateCategory.DIRECT, 1);
+    ServerMetrics metrics = new ServerMetrics();
+    ClientManager sender = new ClientManager(new TestSocket(), clients, config, metrics,
+        Runnable::run);
+    sender.initialize();
+    clients.add(sender);
+    sender.handle(RoutingView.decodeFromBuffer(
+        ByteBuffer.wrap(new ConnectMessage("sender").encode())));
+    drain(sender);
+    drain(testClient);
+
+    byte[] direct = new DirectMessage("sender", "testUser", "hi").encode();
+    assertTrue(sender.handle(RoutingView.decodeFromBuffer(ByteBuffer.wrap(direct))));
+    assertTrue(sender.handle(RoutingView.decodeFromBuffer(ByteBuffer.wrap(direct))));
+    assertEquals(1, drain(testClient).size());
+    assertEquals(List.of(new FailedMessage(ClientMessageHandler.RATE_LIMITED)), drain(sender));
+    assertEquals(1, metrics.rateLimitedCount(RateCategory.DIRECT));
+
+    // Other budgets are untouched, and disconnecting is never limited
+    assertTrue(sender.handle(RoutingView.decodeFromBuffer(
+        ByteBuffer.wrap(new QueryUsersMessage("sender").encode()))));
+    assertInstanceOf(QueryUsersResponse.class, drain(sender).get(0));
+    assertFalse(sender.handle(RoutingView.decodeFromBuffer(
+        ByteBuffer.wrap(new DisconnectMessage("sender").encode()))));
+  }
+
+  /**
+   * Test subscribing to presence sends a snapshot without the subscriber, then updates.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testSubscribePresence() throws IOException {
+    drain(testClient);
+    assertTrue(handler.handleMessage(new SubscribePresenceMessage("testUser", true), "testUser"));
+    assertEquals(List.of(new PresenceSnapshot(List.of())), drain(testClient));
+    ClientManager other = new ClientManager(new TestSocket(), clients);
+    other.setUsername("other");
+    clients.register("other", other);
+    assertEquals(List.of(new PresenceUpdate("other", true)), drain(testClient));
+
+    assertTrue(handler.handleMessage(new SubscribePresenceMessage("testUser", false), "testUser"));
+    clients.remove(other);
+    assertTrue(drain(testClient).isEmpty());
+  }
+
+  private static List<Message> drain(ClientManager client) throws IOException {
+    List<Frame> frames = new ArrayList<>();
+    client.getOutboundQueue().drainTo(frames, 100);
+    List<Message> messages = new ArrayList<>();
+    for (Frame frame : frames) {
+      // A frame queued by sendAll holds several messages
+      ByteBuffer buffer = frame.asByteBuffer();
+      while (buffer.hasRemaining()) {
+        messages.add(Message.decodeFromBuffer(buffer));
+      }
+    }
+    return messages;
   }
 
   private static class TestSocket extends Socket {
@@ -164,13 +518,13 @@ class ClientMessageHandlerTest {
     assertNotEquals(handler, new Object());
 
     // Test different DataOutputStream
-    ClientMessageHandler differentOutHandler = new ClientMessageHandler(
+    ClientMessageHandler differentOutHandler = new ClientMessageHandler(null,
         new DataOutputStream(new ByteArrayOutputStream()), clients);
     assertNotEquals(handler, differentOutHandler);
 
-    // Test different clients List
-    List<ClientManager> differentClients = new ArrayList<>();
-    ClientMessageHandler differentClientsHandler = new ClientMessageHandler(
+    // Test different clients registry
+    ClientRegistry differentClients = new ClientRegistry();
+    ClientMessageHandler differentClientsHandler = new ClientMessageHandler(null,
         new DataOutputStream(outContent), differentClients);
     assertNotEquals(handler, differentClientsHandler);
   }
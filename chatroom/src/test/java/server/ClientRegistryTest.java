@@ -0,0 +1,91 @@
+package server;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The type Client registry test.
+ */
+class ClientRegistryTest {
+
+  private ClientRegistry registry;
+  private ClientManager alice;
+  private ClientManager bob;
+
+  /**
+   * Sets up.
+   */
+  @BeforeEach
+  void setUp() {
+    registry = new ClientRegistry();
+    alice = new ClientManager(new Socket(), registry);
+    bob = new ClientManager(new Socket(), registry);
+    registry.add(alice);
+    registry.add(bob);
+  }
+
+  /**
+   * Test register and get.
+   */
+  @Test
+  void testRegisterAndGet() {
+    assertEquals(2, registry.connectionCount());
+    assertEquals(0, registry.size());
+
+    assertTrue(registry.register("alice", alice));
+    alice.setUsername("alice");
+    assertSame(alice, registry.get("alice"));
+    assertNull(registry.get("bob"));
+    assertNull(registry.get(null));
+
+    // Usernames are unique
+    assertFalse(registry.register("alice", bob));
+    assertSame(alice, registry.get("alice"));
+    assertEquals(1, registry.size());
+  }
+
+  /**
+   * Test remove.
+   */
+  @Test
+  void testRemove() {
+    registry.register("alice", alice);
+    alice.setUsername("alice");
+    registry.remove(alice);
+    assertNull(registry.get("alice"));
+    assertEquals(1, registry.connectionCount());
+    assertSame(bob, registry.getConnections().get(0));
+
+    // A client that never logged in is only a connection
+    registry.remove(bob);
+    assertEquals(0, registry.connectionCount());
+  }
+
+  /**
+   * Test iteration while clients leave.
+   */
+  @Test
+  void testIterationWhileClientsLeave() {
+    List<ClientManager> managers = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      ClientManager manager = new ClientManager(new Socket(), registry);
+      manager.setUsername("user" + i);
+      registry.add(manager);
+      registry.register("user" + i, manager);
+      managers.add(manager);
+    }
+    int seen = 0;
+    for (ClientManager ignored : registry.getClients()) {
+      registry.remove(managers.get(seen));
+      seen++;
+    }
+    assertTrue(seen > 0);
+    assertEquals(Math.max(0, 100 - seen), registry.size());
+    assertEquals(registry.size(), registry.getUsernames().size());
+  }
+}
@@ -0,0 +1,293 @@
+package server;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import protocol.BroadcastMessage;
+import protocol.BufferPool;
+import protocol.ConnectMessage;
+import protocol.ConnectResponse;
+import protocol.DirectMessage;
+import protocol.DisconnectMessage;
+import protocol.FrameLimits;
+import protocol.Message;
+
+/**
+ * The type Nio server test.
+ */
+class NioServerTest {
+
+  private final PrintStream originalOut = System.out;
+  private NioServer server;
+  private Thread serverThread;
+
+  /**
+   * Sets up.
+   */
+  @BeforeEach
+  void setUp() {
+    System.setOut(new PrintStream(new ByteArrayOutputStream()));
+  }
+
+  /**
+   * Tear down.
+   *
+   * @throws Exception the exception
+   */
+  @AfterEach
+  void tearDown() throws Exception {
+    if (server != null) {
+      server.stop();
+      serverThread.join(5000);
+    }
+    System.setOut(originalOut);
+  }
+
+  private void startServer(int maxClients) throws IOException {
+    startServer(maxClients, new ServerConfig());
+  }
+
+  private void startServer(int maxClients, ServerConfig config) throws IOException {
+    ServerSocketChannel channel = ServerSocketChannel.open();
+    channel.bind(new InetSocketAddress("localhost", 0));
+    server = new NioServer(channel, maxClients, config);
+    serverThread = new Thread(() -> {
+      try {
+        server.start();
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    });
+    serverThread.start();
+  }
+
+  private Socket connect() throws IOException {
+    Socket socket = new Socket("localhost", server.getLocalPort());
+    socket.setSoTimeout(5000);
+    return socket;
+  }
+
+  private static DataInputStream in(Socket socket) throws IOException {
+    return new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+  }
+
+  private static DataOutputStream out(Socket socket) throws IOException {
+    return new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+  }
+
+  /**
+   * Test login broadcast and direct message.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testLoginBroadcastAndDirectMessage() throws IOException {
+    startServer(NioServer.DEFAULT_MAX_CLIENTS);
+    try (Socket alice = connect(); Socket bob = connect()) {
+      DataInputStream aliceIn = in(alice);
+      DataOutputStream aliceOut = out(alice);
+      DataInputStream bobIn = in(bob);
+      DataOutputStream bobOut = out(bob);
+
+      new ConnectMessage("alice").sendToStream(aliceOut);
+      assertTrue(((ConnectResponse) Message.decodeFromStream(aliceIn)).isSuccess());
+
+      new ConnectMessage("bob").sendToStream(bobOut);
+      assertTrue(((ConnectResponse) Message.decodeFromStream(bobIn)).isSuccess());
+      // Only users already in the room hear about the new arrival
+      assertInstanceOf(BroadcastMessage.class, Message.decodeFromStream(aliceIn));
+
+      // Split a frame across two writes to exercise reassembly
+      byte[] frame = new BroadcastMessage("bob", "Hello, everyone!").encode();
+      bobOut.write(frame, 0, 5);
+      bobOut.flush();
+      bobOut.write(frame, 5, frame.length - 5);
+      bobOut.flush();
+      assertEquals(new BroadcastMessage("bob", "Hello, everyone!"),
+          Message.decodeFromStream(aliceIn));
+      assertEquals(new BroadcastMessage("bob", "Hello, everyone!"),
+          Message.decodeFromStream(bobIn));
+
+      new DirectMessage("alice", "bob", "Hi bob").sendToStream(aliceOut);
+      assertEquals(new DirectMessage("alice", "bob", "Hi bob"), Message.decodeFromStream(bobIn));
+
+      new DisconnectMessage("bob").sendToStream(bobOut);
+      assertTrue(((ConnectResponse) Message.decodeFromStream(bobIn)).isSuccess());
+      assertEquals(-1, bobIn.read());
+    }
+  }
+
+  /**
+   * Test frames queued for a client in one selector pass go out in fewer writes than frames.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  void testCoalescedWrites() throws Exception {
+    startServer(NioServer.DEFAULT_MAX_CLIENTS);
+    try (Socket alice = connect(); Socket bob = connect()) {
+      DataInputStream aliceIn = in(alice);
+      DataOutputStream aliceOut = out(alice);
+      DataInputStream bobIn = in(bob);
+      new ConnectMessage("alice").sendToStream(aliceOut);
+      assertTrue(((ConnectResponse) Message.decodeFromStream(aliceIn)).isSuccess());
+      new ConnectMessage("bob").sendToStream(out(bob));
+      assertTrue(((ConnectResponse) Message.decodeFromStream(bobIn)).isSuccess());
+      assertInstanceOf(BroadcastMessage.class, Message.decodeFromStream(aliceIn));
+
+      OutboundQueue bobQueue = server.clients.get("bob").getOutboundQueue();
+      long flushes = bobQueue.flushCount();
+      long frames = bobQueue.flushedFrameCount();
+      // Every frame in one write, so the server reads them all in one pass
+      int count = 10;
+      for (int i = 0; i < count; i++) {
+        aliceOut.write(new BroadcastMessage("alice", "line " + i).encode());
+      }
+      aliceOut.flush();
+      for (int i = 0; i < count; i++) {
+        assertEquals(new BroadcastMessage("alice", "line " + i), Message.decodeFromStream(bobIn));
+      }
+      // The counts are updated just after the bytes are handed to the socket
+      long deadline = System.currentTimeMillis() + 5000;
+      while (bobQueue.flushedFrameCount() - frames < count
+          && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10);
+      }
+      assertEquals(count, bobQueue.flushedFrameCount() - frames);
+      assertTrue(bobQueue.flushCount() - flushes < count);
+    }
+  }
+
+  /**
+   * Test frames larger than the shared read buffer, and frames whose end arrives in the same
+   * read as the start of the next, are put back together.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testFramesAcrossReads() throws IOException {
+    startServer(NioServer.DEFAULT_MAX_CLIENTS);
+    try (Socket alice = connect()) {
+      DataInputStream aliceIn = in(alice);
+      DataOutputStream aliceOut = out(alice);
+      new ConnectMessage("alice").sendToStream(aliceOut);
+      assertTrue(((ConnectResponse) Message.decodeFromStream(aliceIn)).isSuccess());
+
+      String large = "x".repeat(3 * BufferPool.DEFAULT_BUFFER_SIZE);
+      byte[] first = new BroadcastMessage("alice", large).encode();
+      byte[] second = new BroadcastMessage("alice", "after").encode();
+      byte[] both = new byte[first.length + second.length];
+      System.arraycopy(first, 0, both, 0, first.length);
+      System.arraycopy(second, 0, both, first.length, second.length);
+      for (int offset = 0; offset < both.length; offset += 1000) {
+        aliceOut.write(both, offset, Math.min(1000, both.length - offset));
+        aliceOut.flush();
+      }
+      assertEquals(new BroadcastMessage("alice", large), Message.decodeFromStream(aliceIn));
+      assertEquals(new BroadcastMessage("alice", "after"), Message.decodeFromStream(aliceIn));
+    }
+  }
+
+  /**
+   * Test a client disconnected from a thread other than the selector is closed by the selector,
+   * once.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  void testDisconnectFromAnotherThread() throws Exception {
+    startServer(1);
+    try (Socket alice = connect()) {
+      DataInputStream aliceIn = in(alice);
+      new ConnectMessage("alice").sendToStream(out(alice));
+      assertTrue(((ConnectResponse) Message.decodeFromStream(aliceIn)).isSuccess());
+
+      ClientManager manager = server.clients.get("alice");
+      Thread other = new Thread(() -> {
+        manager.disconnect();
+        manager.disconnect();
+      });
+      other.start();
+      other.join(5000);
+      assertEquals(-1, aliceIn.read());
+    }
+    // The one session was released once, so exactly one new client fits once it has been
+    Socket bob = null;
+    for (int attempt = 0; bob == null && attempt < 50; attempt++) {
+      Socket candidate = connect();
+      try {
+        new ConnectMessage("bob").sendToStream(out(candidate));
+        if (((ConnectResponse) Message.decodeFromStream(in(candidate))).isSuccess()) {
+          bob = candidate;
+          continue;
+        }
+      } catch (IOException e) {
+        // Turned away before the close was picked up
+      }
+      candidate.close();
+      Thread.sleep(20);
+    }
+    assertNotNull(bob);
+    try (Socket admitted = bob; Socket carol = connect()) {
+      ConnectResponse rejected = (ConnectResponse) Message.decodeFromStream(in(carol));
+      assertFalse(rejected.isSuccess());
+    }
+  }
+
+  /**
+   * Test server full.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testServerFull() throws IOException {
+    startServer(1);
+    try (Socket first = connect(); Socket second = connect()) {
+      new ConnectMessage("first").sendToStream(out(first));
+      assertTrue(((ConnectResponse) Message.decodeFromStream(in(first))).isSuccess());
+
+      ConnectResponse rejected = (ConnectResponse) Message.decodeFromStream(in(second));
+      assertFalse(rejected.isSuccess());
+      assertEquals(Server.SERVER_IS_FULL_MESSAGE, rejected.getMessage());
+    }
+  }
+
+  /**
+   * Test a field over the field limit closes the connection, as it does on the blocking server.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testFieldOverLimit() throws IOException {
+    ServerConfig config = new ServerConfig();
+    config.setFrameLimits(new FrameLimits(FrameLimits.DEFAULT_MAX_FRAME_LENGTH, 16));
+    startServer(NioServer.DEFAULT_MAX_CLIENTS, config);
+    try (Socket alice = connect()) {
+      DataInputStream aliceIn = in(alice);
+      DataOutputStream aliceOut = out(alice);
+      new ConnectMessage("alice").sendToStream(aliceOut);
+      assertTrue(((ConnectResponse) Message.decodeFromStream(aliceIn)).isSuccess());
+
+      new BroadcastMessage("alice", "short enough").sendToStream(aliceOut);
+      assertEquals(new BroadcastMessage("alice", "short enough"),
+          Message.decodeFromStream(aliceIn));
+
+      // Well inside the frame limit, but one field is over the field limit
+      new BroadcastMessage("alice", "seventeen bytes!!").sendToStream(aliceOut);
+      assertEquals(-1, aliceIn.read());
+      assertEquals(1, server.getMetrics().framesRejectedCount());
+    }
+  }
+}
@@ -0,0 +1,149 @@
+package server;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import protocol.BroadcastMessage;
+import protocol.Frame;
+
+/**
+ * The type Outbound queue test.
+ */
+class OutboundQueueTest {
+
+  private Frame first;
+  private Frame second;
+  private Frame third;
+
+  /**
+   * Sets up.
+   *
+   * @throws IOException the io exception
+   */
+  @BeforeEach
+  void setUp() throws IOException {
+    first = Frame.of(new BroadcastMessage("user", "first"));
+    second = Frame.of(new BroadcastMessage("user", "second"));
+    third = Frame.of(new BroadcastMessage("user", "third"));
+  }
+
+  private static List<Frame> drain(OutboundQueue queue) {
+    List<Frame> frames = new ArrayList<>();
+    queue.drainTo(frames, Integer.MAX_VALUE);
+    return frames;
+  }
+
+  /**
+   * Test drop oldest.
+   */
+  @Test
+  void testDropOldest() {
+    OutboundQueue queue = new OutboundQueue(2, OverflowPolicy.DROP_OLDEST);
+    assertTrue(queue.offer(first));
+    assertTrue(queue.offer(second));
+    assertTrue(queue.offer(third));
+    assertEquals(List.of(second, third), drain(queue));
+    assertEquals(1, queue.droppedCount());
+  }
+
+  /**
+   * Test drop newest.
+   */
+  @Test
+  void testDropNewest() {
+    OutboundQueue queue = new OutboundQueue(2, OverflowPolicy.DROP_NEWEST);
+    queue.offer(first);
+    queue.offer(second);
+    assertTrue(queue.offer(third));
+    assertEquals(List.of(first, second), drain(queue));
+    assertEquals(1, queue.droppedCount());
+  }
+
+  /**
+   * Test disconnect.
+   */
+  @Test
+  void testDisconnect() {
+    OutboundQueue queue = new OutboundQueue(2, OverflowPolicy.DISCONNECT);
+    queue.offer(first);
+    queue.offer(second);
+    assertFalse(queue.offer(third));
+    assertEquals(2, queue.depth());
+  }
+
+  /**
+   * Test depth metrics.
+   */
+  @Test
+  void testDepthMetrics() {
+    OutboundQueue queue = new OutboundQueue(10, OverflowPolicy.DISCONNECT);
+    queue.offer(first);
+    queue.offer(second);
+    queue.offer(third);
+    List<Frame> batch = new ArrayList<>();
+    assertEquals(2, queue.drainTo(batch, 2));
+    assertEquals(1, queue.depth());
+    assertEquals(3, queue.maxDepth());
+    assertEquals(3, queue.enqueuedCount());
+    assertEquals(0, queue.droppedCount());
+    assertTrue(queue.toString().contains("depth=1"));
+  }
+
+  /**
+   * Test take and close.
+   *
+   * @throws InterruptedException the interrupted exception
+   */
+  @Test
+  void testTakeAndClose() throws InterruptedException {
+    OutboundQueue queue = new OutboundQueue(10, OverflowPolicy.DISCONNECT);
+    List<Frame> taken = new ArrayList<>();
+    Thread writer = new Thread(() -> {
+      try {
+        Frame frame;
+        while ((frame = queue.take()) != null) {
+          taken.add(frame);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    writer.start();
+    queue.offer(first);
+    queue.offer(second);
+    queue.close();
+    // Frames offered after close are ignored
+    queue.offer(third);
+    writer.join(5000);
+    assertFalse(writer.isAlive());
+    assertEquals(List.of(first, second), taken);
+    assertTrue(queue.isClosed());
+  }
+
+  /**
+   * Test listener.
+   */
+  @Test
+  void testListener() {
+    OutboundQueue queue = new OutboundQueue(1, OverflowPolicy.DROP_NEWEST);
+    AtomicInteger calls = new AtomicInteger();
+    queue.setListener(calls::incrementAndGet);
+    queue.offer(first);
+    queue.offer(second);
+    assertEquals(1, calls.get());
+  }
+
+  /**
+   * Test invalid capacity.
+   */
+  @Test
+  void testInvalidCapacity() {
+    assertThrows(IllegalArgumentException.class,
+        () -> new OutboundQueue(0, OverflowPolicy.DISCONNECT));
+  }
+}
@@ -0,0 +1,168 @@
+package server;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+import protocol.Frame;
+
+/**
+ * The type Outbound writer test. Each write call on the socket stream stands for one system
+ * call, so the tests compare writes per message with and without coalescing.
+ */
+class OutboundWriterTest {
+
+  private static final int MESSAGES = 1000;
+
+  /**
+   * Counts the writes and flushes reaching the socket stream.
+   */
+  private static class CountingOutputStream extends OutputStream {
+
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private int writes;
+    private int flushes;
+
+    @Override
+    public void write(int b) {
+      writes++;
+      bytes.write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      writes++;
+      bytes.write(b, off, len);
+    }
+
+    @Override
+    public void flush() {
+      flushes++;
+    }
+  }
+
+  private static Frame frame(int i) {
+    return Frame.wrap(new byte[]{(byte) i, 1, 2, 3});
+  }
+
+  private static CountingOutputStream drain(int maxBatchFrames) throws Exception {
+    OutboundQueue queue = new OutboundQueue(MESSAGES, OverflowPolicy.DISCONNECT);
+    for (int i = 0; i < MESSAGES; i++) {
+      assertTrue(queue.offer(frame(i)));
+    }
+    queue.close();
+    CountingOutputStream out = new CountingOutputStream();
+    OutboundWriter writer = new OutboundWriter(queue, out, null, maxBatchFrames, 0,
+        new ServerMetrics());
+    writer.run();
+    assertTrue(writer.awaitFinished(0));
+    assertEquals(MESSAGES, queue.flushedFrameCount());
+    assertEquals(out.flushes, queue.flushCount());
+    return out;
+  }
+
+  /**
+   * Test one write per frame without coalescing.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  void testBatchOfOneWritesEveryFrame() throws Exception {
+    CountingOutputStream out = drain(1);
+    assertEquals(MESSAGES, out.writes);
+    assertEquals(MESSAGES, out.flushes);
+  }
+
+  /**
+   * Test queued frames are coalesced into one write per batch, in order.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  void testCoalescesQueuedFrames() throws Exception {
+    CountingOutputStream out = drain(64);
+    // 1000 frames in batches of 64
+    assertEquals(16, out.writes);
+    assertEquals(16, out.flushes);
+
+    ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    for (int i = 0; i < MESSAGES; i++) {
+      frame(i).writeTo(expected);
+    }
+    assertTrue(Arrays.equals(expected.toByteArray(), out.bytes.toByteArray()));
+  }
+
+  /**
+   * Test a batch larger than the retained buffer is written whole, and the batches after it
+   * still are.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  void testBatchOverRetainedSize() throws Exception {
+    OutboundQueue queue = new OutboundQueue(16, OverflowPolicy.DISCONNECT);
+    Frame large = Frame.wrap(new byte[OutboundWriter.MAX_RETAINED_BYTES + 1]);
+    queue.offer(large);
+    queue.offer(frame(1));
+    queue.close();
+    CountingOutputStream out = new CountingOutputStream();
+    OutboundWriter writer = new OutboundWriter(queue, out, null, 1, 0, new ServerMetrics());
+    writer.run();
+
+    ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    large.writeTo(expected);
+    frame(1).writeTo(expected);
+    assertEquals(2, out.writes);
+    assertTrue(Arrays.equals(expected.toByteArray(), out.bytes.toByteArray()));
+  }
+
+  /**
+   * Test the writer waits up to the batch delay for more frames.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  void testWaitsForBatchDelay() throws Exception {
+    OutboundQueue queue = new OutboundQueue(16, OverflowPolicy.DISCONNECT);
+    CountingOutputStream out = new CountingOutputStream();
+    OutboundWriter writer = new OutboundWriter(queue, out, null, 2, 5_000_000,
+        new ServerMetrics());
+    Thread thread = new Thread(writer);
+    thread.start();
+    queue.offer(frame(1));
+    Thread.sleep(50);
+    queue.offer(frame(2));
+    queue.close();
+    assertTrue(writer.awaitFinished(5000));
+    assertEquals(1, out.writes);
+    assertEquals(8, out.bytes.size());
+  }
+
+  /**
+   * Test a failed write disconnects the client.
+   *
+   * @throws Exception the exception
+   */
+  @Test
+  void testWriteFailureDisconnects() throws Exception {
+    OutboundQueue queue = new OutboundQueue(16, OverflowPolicy.DISCONNECT);
+    queue.offer(frame(1));
+    queue.close();
+    ClientManager owner = new ClientManager(null, new ClientRegistry());
+    boolean[] disconnected = new boolean[1];
+    owner.setDisconnectHandler(() -> disconnected[0] = true);
+    OutputStream broken = new OutputStream() {
+      @Override
+      public void write(int b) throws IOException {
+        throw new IOException("Broken pipe");
+      }
+    };
+    OutboundWriter writer = new OutboundWriter(queue, broken, owner, 8, 0,
+        new ServerMetrics());
+    writer.run();
+    assertTrue(disconnected[0]);
+  }
+}
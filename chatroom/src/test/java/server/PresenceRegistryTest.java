@@ -0,0 +1,154 @@
+package server;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import protocol.Frame;
+import protocol.Message;
+import protocol.PresenceSnapshot;
+import protocol.PresenceUpdate;
+
+/**
+ * The type Presence registry test.
+ */
+class PresenceRegistryTest {
+
+  private ClientRegistry clients;
+  private PresenceRegistry presence;
+  private ClientManager alice;
+  private ClientManager bob;
+
+  /**
+   * Sets up.
+   */
+  @BeforeEach
+  void setUp() {
+    clients = new ClientRegistry();
+    presence = clients.getPresence();
+    alice = new ClientManager(new Socket(), clients);
+    bob = new ClientManager(new Socket(), clients);
+    alice.setUsername("alice");
+    bob.setUsername("bob");
+    clients.add(alice);
+    clients.register("alice", alice);
+  }
+
+  /**
+   * Test a subscriber starts from a snapshot and then gets one update per login and logout.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testSnapshotThenUpdates() throws IOException {
+    clients.register("carol", new ClientManager(new Socket(), clients));
+    assertTrue(presence.subscribe(alice, "alice"));
+    assertFalse(presence.subscribe(alice, "alice"));
+    assertEquals(1, presence.size());
+    assertEquals(List.of(new PresenceSnapshot(List.of("carol"))), drain(alice));
+
+    clients.add(bob);
+    clients.register("bob", bob);
+    clients.remove(bob);
+    assertEquals(List.of(new PresenceUpdate("bob", true), new PresenceUpdate("bob", false)),
+        drain(alice));
+  }
+
+  /**
+   * Test unsubscribed and disconnected clients get no more updates.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testUnsubscribe() throws IOException {
+    clients.add(bob);
+    clients.register("bob", bob);
+    presence.subscribe(alice, "alice");
+    presence.subscribe(bob, "bob");
+    drain(alice);
+    drain(bob);
+
+    assertTrue(presence.unsubscribe(alice));
+    assertFalse(presence.unsubscribe(alice));
+    clients.remove(bob);
+    assertEquals(0, presence.size());
+    clients.register("carol", new ClientManager(new Socket(), clients));
+    assertTrue(drain(alice).isEmpty());
+    assertTrue(drain(bob).isEmpty());
+  }
+
+  /**
+   * Test an update is only sent while it still matches the directory, so one overtaken by a
+   * later login or logout of the same name is dropped.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testStaleUpdateDropped() throws IOException {
+    presence.subscribe(alice, "alice");
+    drain(alice);
+    presence.joined("dave");
+    presence.left("alice");
+    assertTrue(drain(alice).isEmpty());
+
+    clients.register("dave", new ClientManager(new Socket(), clients));
+    presence.joined("dave");
+    assertEquals(List.of(new PresenceUpdate("dave", true), new PresenceUpdate("dave", true)),
+        drain(alice));
+  }
+
+  /**
+   * Test a subscriber disconnected by a full queue while an update is published is removed
+   * cleanly, and the others still get the update.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testSubscriberDisconnectedWhilePublishing() throws IOException {
+    ServerConfig config = new ServerConfig();
+    config.setOutboundQueueCapacity(1);
+    config.setOverflowPolicy(OverflowPolicy.DISCONNECT);
+    ClientManager full = new ClientManager(new Socket(), clients, config, Runnable::run);
+    full.setUsername("full");
+    clients.add(full);
+    clients.register("full", full);
+    // Cleans up on the publishing thread, as the NIO engine does
+    full.setDisconnectHandler(() -> clients.remove(full));
+    presence.subscribe(alice, "alice");
+    presence.subscribe(full, "full");
+    drain(alice);
+
+    clients.add(bob);
+    assertTrue(clients.register("bob", bob));
+    assertNull(clients.get("full"));
+    assertSame(bob, clients.get("bob"));
+    assertEquals(1, presence.size());
+    // The two names are independent, so either may come first
+    List<Message> updates = drain(alice);
+    assertEquals(2, updates.size());
+    assertTrue(updates.containsAll(
+        List.of(new PresenceUpdate("bob", true), new PresenceUpdate("full", false))));
+  }
+
+  /**
+   * Test to string.
+   */
+  @Test
+  void testToString() {
+    assertTrue(presence.toString().contains("subscribers=0"));
+  }
+
+  private static List<Message> drain(ClientManager client) throws IOException {
+    List<Frame> frames = new ArrayList<>();
+    client.getOutboundQueue().drainTo(frames, 100);
+    List<Message> messages = new ArrayList<>();
+    for (Frame frame : frames) {
+      messages.add(Message.decodeFromBuffer(frame.asByteBuffer()));
+    }
+    return messages;
+  }
+}
@@ -0,0 +1,54 @@
+package server;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import protocol.MessageType;
+
+/**
+ * The type Rate limiter test.
+ */
+class RateLimiterTest {
+
+  /**
+   * Test every category has its own budget.
+   */
+  @Test
+  void testSeparateBudgets() {
+    ServerConfig config = new ServerConfig();
+    config.setRateLimit(RateCategory.BROADCAST, 2);
+    config.setRateLimit(RateCategory.INSULT, 1);
+    config.setRateLimit(RateCategory.DIRECT, ServerConfig.NO_RATE_LIMIT);
+    RateLimiter limiter = new RateLimiter(config, 0);
+    assertTrue(limiter.tryAcquire(RateCategory.BROADCAST, 0));
+    assertTrue(limiter.tryAcquire(RateCategory.BROADCAST, 0));
+    assertFalse(limiter.tryAcquire(RateCategory.BROADCAST, 0));
+    assertTrue(limiter.tryAcquire(RateCategory.INSULT, 0));
+    assertFalse(limiter.tryAcquire(RateCategory.INSULT, 0));
+    for (int i = 0; i < 1000; i++) {
+      assertTrue(limiter.tryAcquire(RateCategory.DIRECT, 0));
+    }
+    // Half a second refills one broadcast
+    long later = TimeUnit.MILLISECONDS.toNanos(500);
+    assertTrue(limiter.tryAcquire(RateCategory.BROADCAST, later));
+    assertFalse(limiter.tryAcquire(RateCategory.BROADCAST, later));
+    assertFalse(limiter.tryAcquire(RateCategory.INSULT, later));
+  }
+
+  /**
+   * Test which budget each message type is charged to.
+   */
+  @Test
+  void testCategories() {
+    assertEquals(RateCategory.BROADCAST, RateCategory.of(MessageType.BROADCAST_MESSAGE));
+    assertEquals(RateCategory.BROADCAST, RateCategory.of(MessageType.ROOM_MESSAGE));
+    assertEquals(RateCategory.DIRECT, RateCategory.of(MessageType.DIRECT_MESSAGE));
+    assertEquals(RateCategory.QUERY, RateCategory.of(MessageType.QUERY_CONNECTED_USERS));
+    assertEquals(RateCategory.INSULT, RateCategory.of(MessageType.SEND_INSULT));
+    assertNull(RateCategory.of(MessageType.DISCONNECT_MESSAGE));
+    assertTrue(new RateLimiter().tryAcquire(null));
+    assertEquals(RateCategory.QUERY, RateCategory.fromArgument("Query"));
+    assertNull(RateCategory.fromArgument("shout"));
+  }
+}
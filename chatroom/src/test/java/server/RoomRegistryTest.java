@@ -0,0 +1,65 @@
+package server;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.net.Socket;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The type Room registry test.
+ */
+class RoomRegistryTest {
+
+  private ClientRegistry clients;
+  private RoomRegistry rooms;
+  private ClientManager alice;
+  private ClientManager bob;
+
+  /**
+   * Sets up.
+   */
+  @BeforeEach
+  void setUp() {
+    clients = new ClientRegistry();
+    rooms = clients.getRooms();
+    alice = new ClientManager(new Socket(), clients);
+    alice.setUsername("alice");
+    bob = new ClientManager(new Socket(), clients);
+    bob.setUsername("bob");
+  }
+
+  /**
+   * Test a room only holds the clients that joined it.
+   */
+  @Test
+  void testJoinAndLeave() {
+    assertTrue(rooms.join("general", alice));
+    assertFalse(rooms.join("general", alice));
+    assertTrue(rooms.join("random", bob));
+    assertEquals(List.of("general", "random"), rooms.getRoomNames());
+    assertEquals(1, rooms.getMembers("general").size());
+    assertTrue(rooms.isMember("general", alice));
+    assertFalse(rooms.isMember("general", bob));
+    assertTrue(rooms.getMembers("missing").isEmpty());
+
+    assertFalse(rooms.leave("general", bob));
+    assertTrue(rooms.leave("general", alice));
+    assertEquals(List.of("random"), rooms.getRoomNames());
+  }
+
+  /**
+   * Test a client that goes away leaves every room it was in.
+   */
+  @Test
+  void testRemovedClientLeavesRooms() {
+    rooms.join("general", alice);
+    rooms.join("random", alice);
+    rooms.join("random", bob);
+    clients.remove(alice);
+    assertEquals(List.of("random"), rooms.getRoomNames());
+    assertTrue(alice.getRooms().isEmpty());
+    assertTrue(rooms.isMember("random", bob));
+  }
+}
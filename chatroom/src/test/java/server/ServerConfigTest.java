@@ -0,0 +1,134 @@
+package server;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import history.HistoryTail;
+import history.MessageLog;
+import history.OfflineMailbox;
+import logging.LogLevel;
+import org.junit.jupiter.api.Test;
+import protocol.FrameLimits;
+
+/**
+ * The type Server config test.
+ */
+class ServerConfigTest {
+
+  /**
+   * Test defaults.
+   */
+  @Test
+  void testDefaults() {
+    ServerConfig config = ServerConfig.fromArguments(new String[0]);
+    assertEquals(ServerMode.THREAD, config.getMode());
+    assertEquals(ServerConfig.DEFAULT_OUTBOUND_QUEUE_CAPACITY, config.getOutboundQueueCapacity());
+    assertEquals(ServerConfig.DEFAULT_OVERFLOW_POLICY, config.getOverflowPolicy());
+    assertEquals(ServerConfig.DEFAULT_MAX_BATCH_FRAMES, config.getMaxBatchFrames());
+    assertEquals(ServerConfig.DEFAULT_MAX_BATCH_DELAY_MICROS, config.getMaxBatchDelayMicros());
+    assertEquals(ServerConfig.DEFAULT_MAX_SESSIONS, config.getMaxSessions());
+    assertEquals(AdmissionController.UNLIMITED, config.getMaxSessionsPerAddress());
+    assertEquals(AdmissionController.UNLIMITED, config.getMaxAcceptRate());
+    for (RateCategory category : RateCategory.values()) {
+      assertEquals(category.getDefaultPerSecond(), config.getRateLimit(category));
+    }
+    assertEquals(FrameLimits.DEFAULT, config.getFrameLimits());
+    assertFalse(config.isMessagePooling());
+    assertNull(config.getHistoryDir());
+    assertEquals(MessageLog.DEFAULT_SEGMENT_BYTES, config.getHistorySegmentBytes());
+    assertEquals(MessageLog.DEFAULT_FLUSH_INTERVAL_MILLIS, config.getHistoryFlushMillis());
+    assertEquals(HistoryTail.DEFAULT_CAPACITY, config.getHistoryTailCapacity());
+    assertNull(config.getMailboxDir());
+    assertEquals(OfflineMailbox.DEFAULT_MAX_MESSAGES, config.getMailboxSize());
+    assertEquals(OfflineMailbox.DEFAULT_MAX_USERS, config.getMailboxUsers());
+    assertEquals(168, config.getMailboxTtlHours());
+    assertEquals(ServerConfig.DEFAULT_STATS_PORT, config.getStatsPort());
+    assertEquals(ServerConfig.DEFAULT_LOG_LEVEL, config.getLogLevel());
+    assertNull(config.getLogFile());
+  }
+
+  /**
+   * Test from arguments.
+   */
+  @Test
+  void testFromArguments() {
+    ServerConfig config = ServerConfig.fromArguments(
+        new String[]{"nio", "--queue-capacity=64", "--overflow=drop-oldest", "--max-batch=16",
+            "--max-batch-delay-us=250", "--stats-port=9100", "--log-level=warn",
+            "--log-file=logs/server.log", "--max-sessions=500", "--max-sessions-per-ip=4",
+            "--max-accept-rate=50", "--rate-limit=broadcast:5,insult:0",
+            "--max-frame-bytes=4096", "--max-field-bytes=1024", "--message-pool=on",
+            "--history-dir=data/history", "--history-segment-bytes=1048576",
+            "--history-flush-ms=0", "--history-tail=0", "--mailbox-dir=data/mailbox",
+            "--mailbox-size=10", "--mailbox-users=50", "--mailbox-ttl-hours=24"});
+    assertEquals(ServerMode.NIO, config.getMode());
+    assertEquals(64, config.getOutboundQueueCapacity());
+    assertEquals(OverflowPolicy.DROP_OLDEST, config.getOverflowPolicy());
+    assertEquals(16, config.getMaxBatchFrames());
+    assertEquals(250, config.getMaxBatchDelayMicros());
+    assertEquals(9100, config.getStatsPort());
+    assertEquals(LogLevel.WARN, config.getLogLevel());
+    assertEquals("logs/server.log", config.getLogFile());
+    assertEquals(500, config.getMaxSessions());
+    assertEquals(4, config.getMaxSessionsPerAddress());
+    assertEquals(50, config.getMaxAcceptRate());
+    assertEquals(5, config.getRateLimit(RateCategory.BROADCAST));
+    assertEquals(ServerConfig.NO_RATE_LIMIT, config.getRateLimit(RateCategory.INSULT));
+    assertEquals(RateCategory.DIRECT.getDefaultPerSecond(),
+        config.getRateLimit(RateCategory.DIRECT));
+    assertEquals(new FrameLimits(4096, 1024), config.getFrameLimits());
+    assertTrue(config.isMessagePooling());
+    assertEquals("data/history", config.getHistoryDir());
+    assertEquals(1048576, config.getHistorySegmentBytes());
+    assertEquals(0, config.getHistoryFlushMillis());
+    assertEquals(0, config.getHistoryTailCapacity());
+    assertEquals("data/mailbox", config.getMailboxDir());
+    assertEquals(10, config.getMailboxSize());
+    assertEquals(50, config.getMailboxUsers());
+    assertEquals(24, config.getMailboxTtlHours());
+    assertFalse(ServerConfig.fromArguments(new String[]{"--message-pool=off"})
+        .isMessagePooling());
+  }
+
+  /**
+   * Test invalid arguments.
+   */
+  @Test
+  void testInvalidArguments() {
+    IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+        () -> ServerConfig.fromArguments(new String[]{"fast"}));
+    assertEquals(ServerConfig.UNKNOWN_MODE_ERROR, e.getMessage());
+    e = assertThrows(IllegalArgumentException.class,
+        () -> ServerConfig.fromArguments(new String[]{"--overflow=block"}));
+    assertEquals(ServerConfig.UNKNOWN_OVERFLOW_POLICY_ERROR, e.getMessage());
+    e = assertThrows(IllegalArgumentException.class,
+        () -> ServerConfig.fromArguments(new String[]{"--queue-capacity=0"}));
+    assertEquals(ServerConfig.INVALID_NUMBER_PREFIX + "--queue-capacity=0", e.getMessage());
+    e = assertThrows(IllegalArgumentException.class,
+        () -> ServerConfig.fromArguments(new String[]{"--max-batch-delay-us=-1"}));
+    assertEquals(ServerConfig.NEGATIVE_NUMBER_PREFIX + "--max-batch-delay-us=-1", e.getMessage());
+    e = assertThrows(IllegalArgumentException.class,
+        () -> ServerConfig.fromArguments(new String[]{"--max-sessions=0"}));
+    assertEquals(ServerConfig.INVALID_NUMBER_PREFIX + "--max-sessions=0", e.getMessage());
+    e = assertThrows(IllegalArgumentException.class,
+        () -> ServerConfig.fromArguments(new String[]{"--max-frame-bytes=0"}));
+    assertEquals(ServerConfig.INVALID_NUMBER_PREFIX + "--max-frame-bytes=0", e.getMessage());
+    e = assertThrows(IllegalArgumentException.class,
+        () -> ServerConfig.fromArguments(new String[]{"--history-dir="}));
+    assertEquals(ServerConfig.MISSING_HISTORY_DIR_ERROR, e.getMessage());
+    e = assertThrows(IllegalArgumentException.class,
+        () -> ServerConfig.fromArguments(new String[]{"--mailbox-dir="}));
+    assertEquals(ServerConfig.MISSING_MAILBOX_DIR_ERROR, e.getMessage());
+    e = assertThrows(IllegalArgumentException.class,
+        () -> ServerConfig.fromArguments(new String[]{"--message-pool=yes"}));
+    assertEquals(ServerConfig.ON_OFF_ERROR_PREFIX + "--message-pool=yes", e.getMessage());
+    e = assertThrows(IllegalArgumentException.class,
+        () -> ServerConfig.fromArguments(new String[]{"--rate-limit=shout:1"}));
+    assertEquals(ServerConfig.UNKNOWN_RATE_CATEGORY_ERROR, e.getMessage());
+    e = assertThrows(IllegalArgumentException.class,
+        () -> ServerConfig.fromArguments(new String[]{"--log-level=loud"}));
+    assertEquals(ServerConfig.UNKNOWN_LOG_LEVEL_ERROR, e.getMessage());
+    e = assertThrows(IllegalArgumentException.class,
+        () -> ServerConfig.fromArguments(new String[]{"--colour=blue"}));
+    assertEquals(ServerConfig.UNKNOWN_OPTION_PREFIX + "--colour=blue", e.getMessage());
+  }
+}
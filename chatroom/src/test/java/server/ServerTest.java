@@ -3,13 +3,16 @@ package server;
 import java.net.ServerSocket;
 import java.util.ArrayList;
 import java.util.List;
+import logging.Log;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import java.io.*;
 import java.net.Socket;
+import java.net.SocketException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import protocol.ConnectMessage;
 import protocol.ConnectResponse;
 import protocol.Message;
 
@@ -106,6 +109,51 @@ class ServerTest {
     }
   }
 
+  // Hands out a client that is admitted, one that resets before its rejection is written and
+  // one that is rejected, then closes
+  private static class ResettingServerSocket extends ServerSocket {
+
+    private final List<Socket> sockets = new ArrayList<>();
+    private volatile boolean closed;
+
+    private ResettingServerSocket() throws IOException {
+    }
+
+    @Override
+    public Socket accept() throws IOException {
+      switch (sockets.size()) {
+        case 0 -> sockets.add(new TestSocket());
+        case 1 -> sockets.add(new TestSocket() {
+          @Override
+          public OutputStream getOutputStream() {
+            return new OutputStream() {
+              @Override
+              public void write(int b) throws IOException {
+                throw new IOException("Connection reset");
+              }
+            };
+          }
+        });
+        case 2 -> sockets.add(new TestSocket());
+        default -> {
+          closed = true;
+          throw new SocketException("Socket closed");
+        }
+      }
+      return sockets.get(sockets.size() - 1);
+    }
+
+    @Override
+    public boolean isClosed() {
+      return closed;
+    }
+
+    @Override
+    public void close() {
+      closed = true;
+    }
+  }
+
   /**
    * Sets up.
    */
@@ -153,8 +201,63 @@ class ServerTest {
     assertTrue(Message.decodeFromStream(new DataInputStream(
         testServerSocket.getLastTestSocket().getInputStream())) instanceof ConnectResponse);
 
+    assertTrue(Log.flush(1000));
     String output = outContent.toString();
     assertTrue(output.contains("Server started on port"));
     assertTrue(output.contains("New client connected from"));
   }
-}
\ No newline at end of file
+
+  /**
+   * Test virtual thread mode and stop.
+   *
+   * @throws IOException          the io exception
+   * @throws InterruptedException the interrupted exception
+   */
+  @Test
+  void testVirtualThreadModeAndStop() throws IOException, InterruptedException {
+    ServerSocket serverSocket = new ServerSocket(0);
+    Server server = new Server(serverSocket, Server.newVirtualThreadExecutor());
+    Thread serverThread = new Thread(() -> {
+      try {
+        server.start();
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    });
+    serverThread.start();
+
+    try (Socket socket = new Socket("localhost", serverSocket.getLocalPort())) {
+      socket.setSoTimeout(5000);
+      new ConnectMessage("user").sendToStream(new DataOutputStream(socket.getOutputStream()));
+      DataInputStream in = new DataInputStream(socket.getInputStream());
+      assertTrue(((ConnectResponse) Message.decodeFromStream(in)).isSuccess());
+
+      server.stop();
+      serverThread.join(5000);
+      assertFalse(serverThread.isAlive());
+      // The client was disconnected by the shutdown
+      assertEquals(-1, in.read());
+    }
+  }
+
+  /**
+   * Test a client that resets before its rejection is written is counted and does not stop
+   * the server turning the next one away.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testRejectionWriteFails() throws IOException {
+    ResettingServerSocket serverSocket = new ResettingServerSocket();
+    ServerConfig config = new ServerConfig();
+    config.setMaxSessions(1);
+    Server server = new Server(serverSocket, executor, config);
+    server.start();
+
+    assertEquals(1, server.getMetrics().rejectionsFailedCount());
+    assertEquals(2, server.getMetrics().rejectedCount(AdmissionResult.SERVER_FULL));
+    ConnectResponse rejected = (ConnectResponse) Message.decodeFromStream(new DataInputStream(
+        serverSocket.sockets.get(2).getInputStream()));
+    assertFalse(rejected.isSuccess());
+  }
+}
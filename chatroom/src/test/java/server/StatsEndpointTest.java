@@ -0,0 +1,82 @@
+package server;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import protocol.MessageType;
+
+/**
+ * The type Stats endpoint test.
+ */
+class StatsEndpointTest {
+
+  private ServerMetrics metrics;
+  private StatsEndpoint endpoint;
+
+  /**
+   * Sets up.
+   *
+   * @throws IOException the io exception
+   */
+  @BeforeEach
+  void setUp() throws IOException {
+    metrics = new ServerMetrics();
+    endpoint = new StatsEndpoint(metrics, 0);
+    endpoint.start();
+  }
+
+  /**
+   * Tear down.
+   */
+  @AfterEach
+  void tearDown() {
+    endpoint.stop();
+  }
+
+  /**
+   * Test the endpoint serves the current metrics.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testServesMetrics() throws IOException {
+    metrics.recordAccepted();
+    metrics.recordDecoded(MessageType.BROADCAST_MESSAGE);
+    metrics.recordFanOut(3);
+    HttpURLConnection connection = open();
+    assertEquals(200, connection.getResponseCode());
+    assertEquals(StatsEndpoint.CONTENT_TYPE, connection.getContentType());
+    String body;
+    try (InputStream in = connection.getInputStream()) {
+      body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+    }
+    assertTrue(body.contains("chat_connections_accepted_total 1\n"));
+    assertTrue(body.contains(
+        "chat_messages_decoded_total{type=\"BROADCAST_MESSAGE\"} 1\n"));
+    assertTrue(body.contains("chat_broadcast_fanout_max 3\n"));
+  }
+
+  /**
+   * Test only GET is allowed.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testRejectsPost() throws IOException {
+    HttpURLConnection connection = open();
+    connection.setRequestMethod("POST");
+    assertEquals(405, connection.getResponseCode());
+  }
+
+  private HttpURLConnection open() throws IOException {
+    return (HttpURLConnection) new URL("http://localhost:" + endpoint.getLocalPort()
+        + StatsEndpoint.METRICS_PATH).openConnection();
+  }
+}
@@ -0,0 +1,120 @@
+package server;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import protocol.Frame;
+import protocol.Message;
+import protocol.PresenceSnapshot;
+import protocol.QueryUsersPageResponse;
+import protocol.QueryUsersResponse;
+
+/**
+ * The type User directory test.
+ */
+class UserDirectoryTest {
+
+  private static List<String> decode(Frame frame) throws IOException {
+    return ((QueryUsersResponse) Message.decodeFromBuffer(frame.asByteBuffer()))
+        .getConnectedUsers();
+  }
+
+  /**
+   * Test the response lists everyone in order, and the snapshot everyone but the subscriber.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testResponse() throws IOException {
+    UserDirectory directory = new UserDirectory();
+    directory.add("carol");
+    directory.add("alice");
+    directory.add("b\u00f6b");
+    assertEquals(List.of("alice", "b\u00f6b", "carol"), decode(directory.response()));
+    assertEquals(new QueryUsersResponse(List.of("alice", "b\u00f6b", "carol")).encodedLength(),
+        directory.response().length());
+    assertEquals(List.of("b\u00f6b", "carol"), decode(directory.snapshotFor("alice")));
+    assertEquals(List.of("alice", "carol"), decode(directory.snapshotFor("b\u00f6b")));
+    assertEquals(List.of("alice", "b\u00f6b"), decode(directory.snapshotFor("carol")));
+    assertEquals(List.of("alice", "b\u00f6b", "carol"), decode(directory.snapshotFor("dave")));
+    assertInstanceOf(PresenceSnapshot.class,
+        Message.decodeFromBuffer(directory.snapshotFor("alice").asByteBuffer()));
+  }
+
+  /**
+   * Test the cached response is reused until membership changes.
+   *
+   * @throws IOException the io exception
+   */
+  @Test
+  void testCachedUntilChanged() throws IOException {
+    UserDirectory directory = new UserDirectory();
+    assertTrue(decode(directory.response()).isEmpty());
+    directory.add("alice");
+    directory.add("bob");
+    long version = directory.getVersion();
+    // Every query in between is answered with the very same frame
+    Frame cached = directory.response();
+    assertSame(cached, directory.response());
+
+    // Adding a name twice or removing one that is missing changes nothing
+    directory.add("alice");
+    directory.remove("carol");
+    assertEquals(version, directory.getVersion());
+    assertSame(cached, directory.response());
+
+    directory.remove("alice");
+    assertNotEquals(version, directory.getVersion());
+    assertEquals(List.of("bob"), decode(directory.response()));
+    assertTrue(decode(directory.snapshotFor("bob")).isEmpty());
+    assertEquals(1, directory.size());
+  }
+
+  /**
+   * Test pages follow each other by cursor and stay within the prefix.
+   */
+  @Test
+  void testPage() {
+    UserDirectory directory = new UserDirectory();
+    for (String username : List.of("al", "alan", "albert", "alex", "alice", "bob")) {
+      directory.add(username);
+    }
+    QueryUsersPageResponse first = directory.page("al", "", 2, "al");
+    assertEquals(List.of("alan", "albert"), first.getUsers());
+    assertEquals("albert", first.getNextCursor());
+    QueryUsersPageResponse second = directory.page("al", first.getNextCursor(), 2, "al");
+    assertEquals(List.of("alex", "alice"), second.getUsers());
+    // Nothing else starts with the prefix
+    assertFalse(second.hasMore());
+    assertTrue(directory.page("al", "alice", 2, "al").getUsers().isEmpty());
+
+    assertEquals(List.of("bob"), directory.page("", "alice", 10, null).getUsers());
+    assertEquals(List.of("al", "alan", "albert", "alex", "alice", "bob"),
+        directory.page("", "", 0, null).getUsers());
+    assertFalse(directory.page("", "", 6, null).hasMore());
+  }
+
+  /**
+   * Test the registry keeps the directory in step with logins and logouts.
+   */
+  @Test
+  void testFollowsRegistry() {
+    ClientRegistry registry = new ClientRegistry();
+    ClientManager alice = new ClientManager(new Socket(), registry);
+    ClientManager impostor = new ClientManager(new Socket(), registry);
+    alice.setUsername("alice");
+    impostor.setUsername("alice");
+    assertTrue(registry.register("alice", alice));
+    assertFalse(registry.register("alice", impostor));
+    assertEquals(1, registry.getDirectory().size());
+
+    // Only the client holding the name takes it out of the directory
+    registry.remove(impostor);
+    assertEquals(1, registry.getDirectory().size());
+    registry.remove(alice);
+    assertEquals(0, registry.getDirectory().size());
+  }
+}